@@ -16,6 +16,9 @@ IMAGE_NAME="cs4445-sub-server"
 IMAGE_TAG="${IMAGE_TAG:-latest}"
 CONTAINER_NAME="sub-server"
 
+# Drain config: node ngừng nhận packet và đợi packet đang chạy xong trước khi bị stop
+DRAIN_TIMEOUT_MS="${DRAIN_TIMEOUT_MS:-30000}"
+
 # Colors
 RED='\033[0;31m'
 GREEN='\033[0;32m'
@@ -48,6 +51,10 @@ deploy_to_server() {
     ssh ${SSH_USER}@${server_ip} << EOF
         cd /tmp
         gunzip -c image.tar.gz | docker load
+        # Drain in-flight packets before stopping the old container
+        curl -s -X POST --max-time $(( DRAIN_TIMEOUT_MS / 1000 + 10 )) \
+            "http://localhost:${port}/server/drain?reason=deploy&timeoutMs=${DRAIN_TIMEOUT_MS}" \
+            || echo "Drain request failed, container may not be running"
         docker stop ${CONTAINER_NAME} || true
         docker rm ${CONTAINER_NAME} || true
         docker run -d \
@@ -46,6 +46,14 @@ main() {
     log_info "Pulling previous image"
     docker compose -f docker-compose.prod.yml pull app
 
+    # Drain in-flight packets before stopping
+    log_info "Draining current instance"
+    DRAIN_TIMEOUT_MS=${DRAIN_TIMEOUT_MS:-30000}
+    if ! curl -sf -X POST --max-time $(( DRAIN_TIMEOUT_MS / 1000 + 10 )) \
+        "http://localhost:${APP_PORT:-8080}/server/drain?reason=rollback&timeoutMs=${DRAIN_TIMEOUT_MS}" > /dev/null; then
+        log_error "Drain did not complete, continuing with rollback"
+    fi
+
     # Stop current containers
     log_info "Stopping current containers"
     docker compose -f docker-compose.prod.yml down
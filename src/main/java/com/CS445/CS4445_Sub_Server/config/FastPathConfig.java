@@ -0,0 +1,37 @@
+package com.CS445.CS4445_Sub_Server.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.CS445.CS4445_Sub_Server.controller.FakePacketServlet;
+import com.CS445.CS4445_Sub_Server.service.PacketExecutionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Đăng ký FakePacketServlet cho POST /api/v1/fakePacket
+ * Mapping chính xác của servlet được Tomcat ưu tiên hơn mapping "/" của DispatcherServlet,
+ * tắt app.fast-path.enabled thì request quay về FakePacketController
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class FastPathConfig {
+
+    public static final String FAST_PATH_URL = "/api/v1/fakePacket";
+
+    @Bean
+    public ServletRegistrationBean<FakePacketServlet> fakePacketServlet(
+            PacketExecutionService packetExecutionService,
+            ObjectMapper objectMapper,
+            @Value("${app.fast-path.enabled:true}") boolean enabled) {
+        ServletRegistrationBean<FakePacketServlet> registration = new ServletRegistrationBean<>(
+                new FakePacketServlet(packetExecutionService, objectMapper, SecurityConfig.securityHeaderWriters()),
+                FAST_PATH_URL);
+        registration.setName("fakePacketServlet");
+        registration.setLoadOnStartup(1);
+        registration.setEnabled(enabled);
+        return registration;
+    }
+}
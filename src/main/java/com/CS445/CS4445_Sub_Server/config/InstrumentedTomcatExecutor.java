@@ -0,0 +1,65 @@
+package com.CS445.CS4445_Sub_Server.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tomcat.util.threads.TaskQueue;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+
+import com.CS445.CS4445_Sub_Server.service.ConnectorPoolService;
+
+/**
+ * Executor worker cho connector Tomcat, dựng giống executor nội bộ của Tomcat (TaskQueue: tạo thêm
+ * thread đến maxThreads rồi mới xếp hàng) nhưng ghi thời gian mỗi task đợi trong queue
+ * và thời gian chạy trên worker vào ConnectorPoolService
+ */
+public class InstrumentedTomcatExecutor extends ThreadPoolExecutor {
+
+    private final ConnectorPoolService connectorPoolService;
+
+    private InstrumentedTomcatExecutor(int minSpareThreads, int maxThreads, TaskQueue queue,
+                                       String namePrefix, ConnectorPoolService connectorPoolService) {
+        super(minSpareThreads, maxThreads, 60, TimeUnit.SECONDS, queue,
+                new TaskThreadFactory(namePrefix, true, Thread.NORM_PRIORITY));
+        this.connectorPoolService = connectorPoolService;
+    }
+
+    public static InstrumentedTomcatExecutor create(int minSpareThreads, int maxThreads, int maxQueueCapacity,
+                                                    String namePrefix, ConnectorPoolService connectorPoolService) {
+        TaskQueue queue = new TaskQueue(maxQueueCapacity);
+        InstrumentedTomcatExecutor executor = new InstrumentedTomcatExecutor(minSpareThreads, maxThreads, queue,
+                namePrefix, connectorPoolService);
+        queue.setParent(executor);
+        return executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(new DispatchedTask(command, System.nanoTime()));
+    }
+
+    /**
+     * Task của connector kèm thời điểm được giao cho executor
+     */
+    private final class DispatchedTask implements Runnable {
+
+        private final Runnable task;
+        private final long dispatchedNanos;
+
+        private DispatchedTask(Runnable task, long dispatchedNanos) {
+            this.task = task;
+            this.dispatchedNanos = dispatchedNanos;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = System.nanoTime();
+            connectorPoolService.recordDispatchWait(startNanos - dispatchedNanos);
+            try {
+                task.run();
+            } finally {
+                connectorPoolService.recordServiceTime(System.nanoTime() - startNanos);
+            }
+        }
+    }
+}
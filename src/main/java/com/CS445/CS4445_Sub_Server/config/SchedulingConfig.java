@@ -0,0 +1,12 @@
+package com.CS445.CS4445_Sub_Server.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật @Scheduled cho các tác vụ nền (dọn rate-limit bucket, ...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,14 +1,33 @@
 package com.CS445.CS4445_Sub_Server.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.header.HeaderWriter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.HstsHeaderWriter;
+import org.springframework.security.web.header.writers.XContentTypeOptionsHeaderWriter;
+import org.springframework.security.web.header.writers.XXssProtectionHeaderWriter;
+import org.springframework.security.web.header.writers.frameoptions.XFrameOptionsHeaderWriter;
+
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
 
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableWebSecurity
+@Slf4j
 public class SecurityConfig {
 
     @Bean
@@ -16,11 +35,63 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/**").permitAll()
                         .requestMatchers("/actuator/**").permitAll()
                         .anyRequest().permitAll()
-                );
+                )
+                .httpBasic(Customizer.withDefaults())
+                .headers(headers -> {
+                    headers.defaultsDisabled();
+                    securityHeaderWriters().forEach(headers::addHeaderWriter);
+                });
 
         return http.build();
     }
+
+    /**
+     * Header bảo mật của response (giống bộ mặc định của Spring Security)
+     * Dùng chung cho filter chain và FakePacketServlet, vì fast path không đi qua chain
+     */
+    public static List<HeaderWriter> securityHeaderWriters() {
+        return List.of(
+                new XContentTypeOptionsHeaderWriter(),
+                new XXssProtectionHeaderWriter(),
+                new CacheControlHeadersWriter(),
+                new HstsHeaderWriter(),
+                new XFrameOptionsHeaderWriter(XFrameOptionsHeaderWriter.XFrameOptionsMode.DENY));
+    }
+
+    /**
+     * Tài khoản duy nhất cho /admin/** (HTTP Basic)
+     * Password dạng "{bcrypt}..." được dùng nguyên, giá trị thường coi như {noop}.
+     * Password trống: không có tài khoản nào, mọi request /admin/** bị từ chối
+     */
+    @Bean
+    public UserDetailsService adminUserDetailsService(@Value("${app.admin.username:admin}") String username,
+                                                      @Value("${app.admin.password:}") String password) {
+        if (password.isBlank()) {
+            log.info("app.admin.password is not set, /admin endpoints are disabled");
+            return new InMemoryUserDetailsManager();
+        }
+        return new InMemoryUserDetailsManager(User.withUsername(username)
+                .password(password.startsWith("{") ? password : "{noop}" + password)
+                .roles("ADMIN")
+                .build());
+    }
+
+    /**
+     * Fast path /api/v1/fakePacket không đi qua filter chain của Spring Security
+     * (chain này permitAll mọi request nên chỉ tốn thêm chi phí cho mỗi packet),
+     * servlet tự ghi header bằng securityHeaderWriters()
+     */
+    @Bean
+    public WebSecurityCustomizer fastPathSecurityCustomizer(
+            @Value("${app.fast-path.enabled:true}") boolean fastPathEnabled) {
+        return web -> {
+            if (fastPathEnabled) {
+                web.ignoring().requestMatchers(FastPathConfig.FAST_PATH_URL);
+            }
+        };
+    }
 }
@@ -0,0 +1,73 @@
+package com.CS445.CS4445_Sub_Server.config;
+
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.CS445.CS4445_Sub_Server.service.ConnectorPoolService;
+
+/**
+ * Thay executor nội bộ của connector Tomcat bằng InstrumentedTomcatExecutor (cùng kích thước
+ * server.tomcat.threads.*) để đo dispatch wait, service time và độ bão hòa pool worker
+ * Tắt bằng app.connector.instrumented=false
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnClass(name = "org.apache.catalina.startup.Tomcat")
+@ConditionalOnProperty(name = "app.connector.instrumented", havingValue = "true", matchIfMissing = true)
+public class TomcatConnectorConfig {
+
+    /**
+     * Executor do Tomcat dùng nhưng không tự tạo nên Tomcat cũng không tự shutdown,
+     * Spring shutdown sau khi web server đã dừng
+     */
+    @Bean(destroyMethod = "shutdown")
+    public InstrumentedTomcatExecutor connectorExecutor(ServerProperties serverProperties,
+                                                        ConnectorPoolService connectorPoolService) {
+        ServerProperties.Tomcat.Threads threads = serverProperties.getTomcat().getThreads();
+        return InstrumentedTomcatExecutor.create(threads.getMinSpare(), threads.getMax(),
+                threads.getMaxQueueCapacity(), "http-nio-exec-", connectorPoolService);
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> connectorExecutorCustomizer(
+            InstrumentedTomcatExecutor connectorExecutor, ConnectorPoolService connectorPoolService) {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (connector.getProtocolHandler() instanceof AbstractProtocol<?> protocol) {
+                protocol.setExecutor(connectorExecutor);
+                connectorPoolService.bind(new ConnectorPoolService.PoolView() {
+                    @Override
+                    public int activeThreads() {
+                        return connectorExecutor.getActiveCount();
+                    }
+
+                    @Override
+                    public int maxThreads() {
+                        return connectorExecutor.getMaximumPoolSize();
+                    }
+
+                    @Override
+                    public int pendingDispatch() {
+                        return connectorExecutor.getQueue().size();
+                    }
+
+                    @Override
+                    public long connections() {
+                        return protocol.getConnectionCount();
+                    }
+
+                    @Override
+                    public long maxConnections() {
+                        return protocol.getMaxConnections();
+                    }
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.CS445.CS4445_Sub_Server.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.CS445.CS4445_Sub_Server.filter.RateLimitFilter;
+import com.CS445.CS4445_Sub_Server.filter.ResponseSizeFilter;
+import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.RateLimiterService;
+
+/**
+ * Đăng ký các servlet filter của app (thứ tự và URL pattern)
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebFilterConfig {
+
+    // Stream NDJSON tự rate limit và ghi kích thước từng dòng (PacketStreamService),
+    // không tính cả stream là một request/response
+    private static final String[] PACKET_URL_PATTERNS = {"/api/v1/fakePacket", "/api/v1/fakePacket/upload"};
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(
+            RateLimiterService rateLimiterService,
+            MetricsService metricsService,
+            @Value("${app.rate-limit.enabled:false}") boolean enabled,
+            @Value("${app.rate-limit.client-header:X-Client-Id}") String clientHeader) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+                new RateLimitFilter(rateLimiterService, metricsService, clientHeader));
+        registration.addUrlPatterns(PACKET_URL_PATTERNS);
+        // Chạy trước Spring Security để request bị chặn không tốn thêm chi phí nào
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        registration.setEnabled(enabled);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResponseSizeFilter> responseSizeFilter(MetricsService metricsService) {
+        FilterRegistrationBean<ResponseSizeFilter> registration = new FilterRegistrationBean<>(
+                new ResponseSizeFilter(metricsService));
+        registration.addUrlPatterns(PACKET_URL_PATTERNS);
+        // Sau rate limit: response 429 không đi qua pipeline packet nên không tính vào app.response.size
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
@@ -0,0 +1,91 @@
+package com.CS445.CS4445_Sub_Server.controller;
+
+import com.CS445.CS4445_Sub_Server.service.JfrRecordingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Endpoint quản trị /admin/*, yêu cầu HTTP Basic với tài khoản app.admin.* (xem SecurityConfig)
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminController {
+
+    private final JfrRecordingService jfrRecordingService;
+
+    /**
+     * GET /admin/jfr
+     * Trạng thái recording JFR hiện tại (state NONE khi không có)
+     */
+    @GetMapping("/jfr")
+    public ResponseEntity<JfrRecordingService.RecordingStatus> getJfrStatus() {
+        return ResponseEntity.ok(jfrRecordingService.getStatus());
+    }
+
+    /**
+     * POST /admin/jfr/start
+     * Bắt đầu recording, tự dừng sau durationSec (giới hạn bởi app.jfr.max-duration-seconds)
+     * Trả 409 nếu đã có recording chưa stop
+     */
+    @PostMapping("/jfr/start")
+    public ResponseEntity<JfrRecordingService.RecordingStatus> startJfr(
+            @RequestParam(required = false) Long durationSec,
+            @RequestParam(required = false) Long maxSizeMb) {
+        try {
+            return ResponseEntity.ok(jfrRecordingService.start(durationSec, maxSizeMb));
+        } catch (IllegalStateException e) {
+            log.warn("Rejected JFR start: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(jfrRecordingService.getStatus());
+        }
+    }
+
+    /**
+     * POST /admin/jfr/stop
+     * Dừng recording và stream file .jfr (mở bằng JDK Mission Control hoặc `jfr print`)
+     * Trả 404 nếu không có recording
+     */
+    @PostMapping("/jfr/stop")
+    public ResponseEntity<StreamingResponseBody> stopJfr() throws IOException {
+        Optional<Path> dumped = jfrRecordingService.stop();
+        if (dumped.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Path file = dumped.get();
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(file.getFileName().toString())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
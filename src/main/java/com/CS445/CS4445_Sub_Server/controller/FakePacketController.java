@@ -1,121 +1,150 @@
 package com.CS445.CS4445_Sub_Server.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
 import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
-import com.CS445.CS4445_Sub_Server.service.FakePacketService;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
 import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.PacketExecutionService;
+import com.CS445.CS4445_Sub_Server.service.PacketPayload;
+import com.CS445.CS4445_Sub_Server.service.PacketStreamService;
+import com.CS445.CS4445_Sub_Server.service.PayloadUploadService;
+import com.CS445.CS4445_Sub_Server.service.PeerOffloadService;
 import com.CS445.CS4445_Sub_Server.service.ServerStateService;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.CS445.CS4445_Sub_Server.service.SlowRequestService;
 
-import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/v1")
 @RequiredArgsConstructor
 @Slf4j
 public class FakePacketController {
 
-    private final FakePacketService fakePacketService;
+    private final PacketExecutionService packetExecutionService;
+    private final PacketStreamService packetStreamService;
+    private final PayloadUploadService payloadUploadService;
     private final ServerStateService serverStateService;
     private final MetricsService metricsService;
-    private final ObjectMapper objectMapper;
+    private final SlowRequestService slowRequestService;
 
     @PostMapping("/fakePacket")
-    public ResponseEntity<FakePacketResponse> processFakePacket(@RequestBody FakePacketRequest request) {
-        long requestStartTime = System.currentTimeMillis();
-        Timer.Sample latencySample = metricsService.startRequestLatencyTimer();
-
-        // Track connection
-        metricsService.incrementCurrentConnections();
-        metricsService.incrementTotalConnections();
-        metricsService.incrementTotalRequests();
-
-        log.info("Received fakePacket request: {}", request.getPacketId());
-
-        try {
-            // Check if server is open
-            if (!serverStateService.isServerOpen()) {
-                log.warn("Server is CLOSED. Rejecting packet request: {}", request.getPacketId());
-                metricsService.incrementTotalErrors("server_closed");
-
-                FakePacketResponse rejectedResponse = FakePacketResponse.builder()
-                        .packetId(request.getPacketId())
-                        .status("REJECTED")
-                        .result("Server is currently closed. Please open the server first using /api/v1/server/open")
-                        .build();
-
-                recordMetrics(latencySample, requestStartTime, rejectedResponse, true);
-
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(rejectedResponse);
-            }
-
-            // Add to queue
-            metricsService.incrementQueueLength();
-
-            try {
-                FakePacketResponse response = fakePacketService.processFakePacket(request);
-                log.info("Successfully processed packet {} in {}ms",
-                    response.getPacketId(), response.getProcessingTimeMs());
-
-                // Record success metrics
-                recordMetrics(latencySample, requestStartTime, response, false);
-                metricsService.incrementTotalJobsProcessed();
-
-                return ResponseEntity.ok(response);
-            } finally {
-                // Remove from queue
-                metricsService.decrementQueueLength();
-            }
-
-        } catch (Exception e) {
-            log.error("Error processing packet {}", request.getPacketId(), e);
-            metricsService.incrementTotalErrors("exception");
+    public ResponseEntity<FakePacketResponse> processFakePacket(
+            @RequestBody FakePacketRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(value = "X-Tenant-Id", required = false) String tenantId,
+            @RequestHeader(value = PeerOffloadService.HOPS_HEADER, defaultValue = "0") int hops) {
+        PacketContext context = PacketContext.builder()
+                .idempotencyKey(idempotencyKey)
+                .tenantId(tenantId)
+                .hops(hops)
+                .build();
+        PacketExecutionService.PacketOutcome outcome = packetExecutionService.execute(request, context);
+        return ResponseEntity.status(outcome.status()).body(outcome.response());
+    }
 
-            FakePacketResponse errorResponse = FakePacketResponse.builder()
-                    .packetId(request.getPacketId())
-                    .status("FAILED")
-                    .result("Error: " + e.getMessage())
+    /**
+     * POST /api/v1/fakePacket/upload?packetId=...&cpuIntensity=...&ramIntensity=...&processingTimeMs=...
+     * Biến thể nhị phân của /fakePacket: body (application/octet-stream) là payload của packet,
+     * được đọc từng chunk vào direct buffer trong pool thay vì thành String trên heap
+     * Trả 413 khi payload vượt app.upload.max-bytes (kiểm tra Content-Length trước khi đọc body)
+     */
+    @PostMapping(value = "/fakePacket/upload", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<FakePacketResponse> uploadFakePacket(
+            HttpServletRequest httpRequest,
+            @RequestParam(required = false) String packetId,
+            @RequestParam(required = false) Integer cpuIntensity,
+            @RequestParam(required = false) Integer ramIntensity,
+            @RequestParam(required = false) Integer processingTimeMs,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(value = "X-Tenant-Id", required = false) String tenantId,
+            @RequestHeader(value = PeerOffloadService.HOPS_HEADER, defaultValue = "0") int hops) throws IOException {
+        FakePacketRequest request = FakePacketRequest.builder()
+                .packetId(packetId)
+                .cpuIntensity(cpuIntensity)
+                .ramIntensity(ramIntensity)
+                .processingTimeMs(processingTimeMs)
+                .build();
+
+        try (PacketPayload payload = payloadUploadService.read(httpRequest.getInputStream(),
+                httpRequest.getContentLengthLong())) {
+            PacketContext context = PacketContext.builder()
+                    .idempotencyKey(idempotencyKey)
+                    .tenantId(tenantId)
+                    .hops(hops)
+                    .payload(payload)
                     .build();
-
-            recordMetrics(latencySample, requestStartTime, errorResponse, true);
-
-            return ResponseEntity.internalServerError().body(errorResponse);
-        } finally {
-            // Always decrement connection count
-            metricsService.decrementCurrentConnections();
+            PacketExecutionService.PacketOutcome outcome = packetExecutionService.execute(request, context);
+            return ResponseEntity.status(outcome.status()).body(outcome.response());
+        } catch (PayloadUploadService.PayloadTooLargeException e) {
+            log.warn("Rejecting packet {}: payload of {} bytes exceeds {} bytes",
+                    packetId, e.getSizeBytes(), e.getMaxBytes());
+            metricsService.incrementTotalErrors("payload_too_large");
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(FakePacketResponse.builder()
+                    .packetId(packetId)
+                    .status("REJECTED")
+                    .result(e.getMessage())
+                    .build());
         }
     }
 
-    private void recordMetrics(Timer.Sample latencySample, long requestStartTime,
-                                FakePacketResponse response, boolean isError) {
-        // Stop latency timer
-        metricsService.stopRequestLatencyTimer(latencySample);
-
-        // Record processing time if available
-        if (response.getProcessingTimeMs() != null) {
-            metricsService.recordProcessingTime(response.getProcessingTimeMs(), "fake_packet");
+    /**
+     * POST /api/v1/fakePacket/stream
+     * Nhận nhiều packet dạng NDJSON trên cùng một connection và trả về từng
+     * FakePacketResponse dạng NDJSON ngay khi packet đó xử lý xong
+     * Stream chạy trên executor riêng của PacketStreamService với timeout riêng (app.stream.timeout-ms),
+     * trả 503 khi đã đủ app.stream.max-streams stream đang mở
+     * Rate limit tính theo từng packet trong stream, không theo HTTP request
+     */
+    @PostMapping(value = "/fakePacket/stream",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> streamFakePackets(
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse,
+            @RequestHeader(value = "X-Tenant-Id", required = false) String tenantId,
+            @RequestHeader(value = "${app.rate-limit.client-header:X-Client-Id}", required = false) String clientId)
+            throws IOException {
+        if (!packetStreamService.tryOpenStream()) {
+            log.warn("Rejecting NDJSON packet stream from {}: too many open streams", httpRequest.getRemoteAddr());
+            metricsService.incrementTotalErrors("stream_limit");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open packet streams");
         }
+        InputStream body = httpRequest.getInputStream();
+        log.info("Opened NDJSON packet stream from {}", httpRequest.getRemoteAddr());
 
-        // Calculate and record response size
-        try {
-            String responseJson = objectMapper.writeValueAsString(response);
-            long responseSize = responseJson.getBytes().length;
-            metricsService.recordResponseSize(responseSize, "json");
-        } catch (JsonProcessingException e) {
-            log.warn("Failed to calculate response size", e);
-        }
+        PacketContext context = PacketContext.builder().tenantId(tenantId).clientId(clientId).build();
+        Callable<Void> stream = () -> {
+            try {
+                httpResponse.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+                packetStreamService.stream(body, httpResponse.getOutputStream(), context);
+                return null;
+            } finally {
+                packetStreamService.closeStream();
+            }
+        };
+        return new WebAsyncTask<>(packetStreamService.getTimeoutMs(), packetStreamService.getReaderExecutor(), stream);
     }
 
     @GetMapping("/health")
@@ -150,4 +179,14 @@ public class FakePacketController {
         log.info("Metrics summary requested: {}", summary);
         return ResponseEntity.ok(summary);
     }
+
+    /**
+     * GET /api/v1/metrics/slow
+     * N packet chậm nhất của cửa sổ hiện tại và cửa sổ trước: tham số request, queue wait,
+     * thời gian từng phase, GC chồng lên packet và thread đã xử lý
+     */
+    @GetMapping("/metrics/slow")
+    public ResponseEntity<SlowRequestService.SlowRequests> getSlowRequests() {
+        return ResponseEntity.ok(slowRequestService.snapshot());
+    }
 }
@@ -0,0 +1,179 @@
+package com.CS445.CS4445_Sub_Server.controller;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.header.HeaderWriter;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
+import com.CS445.CS4445_Sub_Server.service.PacketExecutionService;
+import com.CS445.CS4445_Sub_Server.service.PeerOffloadService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fast path cho POST /api/v1/fakePacket, đăng ký thẳng với Tomcat (FastPathConfig)
+ * - Không qua DispatcherServlet (handler mapping, argument resolver, message converter)
+ *   và không qua Spring Security filter chain (SecurityConfig), RateLimitFilter vẫn chạy
+ * - Decode/encode bằng ObjectReader/ObjectWriter tạo sẵn từ ObjectMapper của app
+ * - Response REJECTED do trạng thái server được ghép từ bytes serialize sẵn, chỉ encode packetId
+ * Status code và body giống FakePacketController: 415 khi Content-Type không phải JSON,
+ * 400 khi body/header lỗi (body lỗi do /error của Spring Boot render như MVC)
+ */
+@Slf4j
+public class FakePacketServlet extends HttpServlet {
+
+    private static final String PACKET_ID_MARKER = "\u0000packetId\u0000";
+
+    private final transient PacketExecutionService packetExecutionService;
+    // Cùng HeaderWriter với filter chain (SecurityConfig) để response giống hệt đường MVC
+    private final transient List<HeaderWriter> headerWriters;
+    private final transient ObjectReader requestReader;
+    private final transient ObjectWriter responseWriter;
+    private final transient ObjectWriter packetIdWriter;
+
+    // Mỗi loại từ chối: [phần trước packetId, phần sau packetId]
+    private final transient Map<PacketExecutionService.StateRejection, byte[][]> rejectionTemplates =
+            new EnumMap<>(PacketExecutionService.StateRejection.class);
+
+    public FakePacketServlet(PacketExecutionService packetExecutionService, ObjectMapper objectMapper,
+                             List<HeaderWriter> headerWriters) {
+        this.packetExecutionService = packetExecutionService;
+        this.headerWriters = headerWriters;
+        this.requestReader = objectMapper.readerFor(FakePacketRequest.class);
+        this.responseWriter = objectMapper.writerFor(FakePacketResponse.class);
+        this.packetIdWriter = objectMapper.writerFor(String.class);
+        for (PacketExecutionService.StateRejection rejection : PacketExecutionService.StateRejection.values()) {
+            byte[][] template = buildRejectionTemplate(rejection);
+            if (template != null) {
+                rejectionTemplates.put(rejection, template);
+            }
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        for (HeaderWriter headerWriter : headerWriters) {
+            headerWriter.writeHeaders(request, response);
+        }
+        if (!isJson(request.getContentType())) {
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+            return;
+        }
+
+        FakePacketRequest packet;
+        try {
+            packet = requestReader.readValue(request.getInputStream());
+        } catch (JsonProcessingException e) {
+            log.debug("Rejecting unreadable packet body: {}", e.getOriginalMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if (packet == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        int hops;
+        try {
+            String hopsHeader = request.getHeader(PeerOffloadService.HOPS_HEADER);
+            hops = hopsHeader != null ? Integer.parseInt(hopsHeader.trim()) : 0;
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        PacketContext context = PacketContext.builder()
+                .idempotencyKey(request.getHeader("Idempotency-Key"))
+                .tenantId(request.getHeader("X-Tenant-Id"))
+                .hops(hops)
+                .build();
+        PacketExecutionService.PacketOutcome outcome = packetExecutionService.execute(packet, context);
+
+        response.setStatus(outcome.status().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        ServletOutputStream output = response.getOutputStream();
+
+        byte[][] template = outcome.stateRejection() != null && packet.getPacketId() != null
+                ? rejectionTemplates.get(outcome.stateRejection())
+                : null;
+        if (template != null) {
+            byte[] packetId = packetIdWriter.writeValueAsBytes(packet.getPacketId());
+            response.setContentLength(template[0].length + packetId.length + template[1].length);
+            output.write(template[0]);
+            output.write(packetId);
+            output.write(template[1]);
+            return;
+        }
+
+        byte[] body = responseWriter.writeValueAsBytes(outcome.response());
+        response.setContentLength(body.length);
+        output.write(body);
+    }
+
+    /**
+     * Serialize response REJECTED mẫu với packetId là marker rồi cắt ở marker
+     * @return null nếu không tìm thấy marker (khi đó dùng serialize thường)
+     */
+    private byte[][] buildRejectionTemplate(PacketExecutionService.StateRejection rejection) {
+        try {
+            byte[] json = responseWriter.writeValueAsBytes(FakePacketResponse.builder()
+                    .packetId(PACKET_ID_MARKER)
+                    .status("REJECTED")
+                    .result(rejection.getMessage())
+                    .build());
+            byte[] marker = packetIdWriter.writeValueAsBytes(PACKET_ID_MARKER);
+            int index = indexOf(json, marker);
+            if (index < 0) {
+                return null;
+            }
+            byte[] prefix = Arrays.copyOfRange(json, 0, index);
+            byte[] suffix = Arrays.copyOfRange(json, index + marker.length, json.length);
+            return new byte[][] {prefix, suffix};
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to pre-serialize {} rejection", rejection, e);
+            return null;
+        }
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean isJson(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return MediaType.APPLICATION_JSON.isCompatibleWith(mediaType)
+                    || mediaType.getSubtype().endsWith("+json");
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+}
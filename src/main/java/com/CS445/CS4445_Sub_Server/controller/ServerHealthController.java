@@ -1,34 +1,43 @@
 package com.CS445.CS4445_Sub_Server.controller;
 
+import com.CS445.CS4445_Sub_Server.dto.CostEstimateResponse;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
 import com.CS445.CS4445_Sub_Server.dto.ServerHealthResponse;
-import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.CostModelService;
+import com.CS445.CS4445_Sub_Server.service.PeerOffloadService;
+import com.CS445.CS4445_Sub_Server.service.ServerHealthService;
 import com.CS445.CS4445_Sub_Server.service.ServerStateService;
-import com.sun.management.OperatingSystemMXBean;
+import com.CS445.CS4445_Sub_Server.service.ServerStateWatchService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.lang.management.ManagementFactory;
+import java.util.List;
 
 /**
  * Controller cho các endpoint /server/*
  * Endpoint này KHÔNG có prefix /api/v1 để khớp với Load-Balancer
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 @Slf4j
 public class ServerHealthController {
 
-    private final MetricsService metricsService;
+    private final ServerHealthService serverHealthService;
     private final ServerStateService serverStateService;
-
-    // Lưu processing time gần nhất để tính average
-    private double avgProcessingTimeSec = 0.0;
-    private long totalProcessedCount = 0;
+    private final ServerStateWatchService serverStateWatchService;
+    private final PeerOffloadService peerOffloadService;
+    private final CostModelService costModelService;
 
     /**
      * GET /server/health
@@ -38,53 +47,53 @@ public class ServerHealthController {
      *   "memoryUsagePercent": 60.2,
      *   "avgProcessingTimeSec": 1.5,
      *   "currConnections": 10,
-     *   "isOpen": true
+     *   "isOpen": true,
+     *   "draining": false,
+     *   "warming": false,
+     *   "capacityScore": 72.4,
+     *   "routingWeight": 72,
+     *   "queueDepth": 0,
+     *   "concurrencyHeadroom": 0.84,
+     *   "p95LatencyMs": 1210.5,
+     *   "gcTimePercent": 0.8,
+     *   "latencyMeanMs": 1480.2,
+     *   "latencyP50Ms": 1410.0,
+     *   "latencyP99Ms": 1630.0,
+     *   "latencyEwmaMs": 1502.7,
+     *   "latencySamples": 412,
+     *   "heapAfterGcPercent": 48.7,
+     *   "threadCount": 58,
+     *   "peakThreadCount": 64,
+     *   "containerCpuPercent": 40.1,
+     *   "containerMemoryPercent": 55.0,
+     *   "sampledAtMillis": 1760000000000,
+     *   "connectorActiveThreads": 12,
+     *   "connectorMaxThreads": 200,
+     *   "connectorPendingDispatch": 0,
+     *   "connectorConnections": 35,
+     *   "connectorMaxConnections": 8192,
+     *   "dispatchWaitMeanMs": 0.02,
+     *   "dispatchWaitP99Ms": 0.3,
+     *   "serviceTimeMeanMs": 1475.4,
+     *   "serviceTimeP99Ms": 1625.0
      * }
+     * Body là snapshot đã encode sẵn (ServerHealthService), làm mới mỗi app.resource-sampler.interval-ms
+     * và ngay khi trạng thái server đổi
      */
     @GetMapping("/server/health")
-    public ResponseEntity<ServerHealthResponse> getServerHealth() {
-        // Lấy CPU usage
-        OperatingSystemMXBean osBean = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
-        double cpuUsage = osBean.getCpuLoad() * 100; // Convert to percentage
-        if (cpuUsage < 0) cpuUsage = 0; // CPU load có thể trả về -1 nếu không có sẵn
-
-        // Lấy Memory usage
-        Runtime runtime = Runtime.getRuntime();
-        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
-        long maxMemory = runtime.maxMemory();
-        double memoryUsage = (double) usedMemory / maxMemory * 100;
-
-        // Lấy current connections từ MetricsService
-        int currConnections = metricsService.getCurrentConnections();
-
-        // Lấy server open status
-        boolean isOpen = serverStateService.isServerOpen();
-
-        ServerHealthResponse response = ServerHealthResponse.builder()
-                .cpuUsagePercent(Math.round(cpuUsage * 100.0) / 100.0) // Round to 2 decimal places
-                .memoryUsagePercent(Math.round(memoryUsage * 100.0) / 100.0)
-                .avgProcessingTimeSec(avgProcessingTimeSec)
-                .currConnections(currConnections)
-                .isOpen(isOpen)
-                .build();
-
-        log.debug("Health check response: CPU={}%, Memory={}%, Connections={}, Open={}",
-                response.getCpuUsagePercent(),
-                response.getMemoryUsagePercent(),
-                response.getCurrConnections(),
-                response.isOpen());
-
-        return ResponseEntity.ok(response);
-    }
+    public ResponseEntity<byte[]> getServerHealth() {
+        if (log.isDebugEnabled()) {
+            ServerHealthResponse response = serverHealthService.getLatestHealth();
+            log.debug("Health check response: CPU={}%, Memory={}%, Connections={}, Open={}",
+                    response.getCpuUsagePercent(),
+                    response.getMemoryUsagePercent(),
+                    response.getCurrConnections(),
+                    response.isOpen());
+        }
 
-    /**
-     * Cập nhật average processing time (gọi từ FakePacketController sau khi xử lý xong)
-     */
-    public void updateProcessingTime(long processingTimeMs) {
-        totalProcessedCount++;
-        // Tính moving average
-        avgProcessingTimeSec = avgProcessingTimeSec +
-                (processingTimeMs / 1000.0 - avgProcessingTimeSec) / totalProcessedCount;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(serverHealthService.getEncodedHealth());
     }
 
     /**
@@ -110,4 +119,72 @@ public class ServerHealthController {
         serverStateService.closeServer(reason);
         return ResponseEntity.ok(serverStateService.getStatus());
     }
+
+    /**
+     * POST /server/drain
+     * Ngừng nhận packet mới và chặn cho đến khi mọi packet đang chạy/đang đợi xử lý xong
+     * (dùng trước khi restart node trong deploy/rollback)
+     * Trả 200 khi node đã idle, 202 nếu hết timeout mà vẫn còn packet (node vẫn ở DRAINING)
+     */
+    @PostMapping("/server/drain")
+    public ResponseEntity<ServerStateService.ServerStatus> drainServer(
+            @RequestParam(required = false) String reason,
+            @RequestParam(defaultValue = "${app.drain.default-timeout-ms:30000}") long timeoutMs) {
+        log.warn("Request to DRAIN server. Reason: {}, timeout: {}ms", reason, timeoutMs);
+        serverStateService.startDraining(reason);
+
+        boolean idle;
+        try {
+            idle = serverStateService.awaitIdle(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            idle = false;
+        }
+
+        ServerStateService.ServerStatus status = serverStateService.getStatus();
+        if (!idle) {
+            log.warn("Drain timed out after {}ms with {} packets still in flight", timeoutMs, status.getInFlightPackets());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+        }
+        log.info("Server drained, no packets in flight");
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * GET /server/state/history
+     * Các lần chuyển trạng thái gần nhất (ring buffer giới hạn), cũ nhất trước
+     */
+    @GetMapping("/server/state/history")
+    public ResponseEntity<List<ServerStateService.StateTransition>> getStateHistory() {
+        return ResponseEntity.ok(serverStateService.getHistory());
+    }
+
+    /**
+     * GET /server/state/watch
+     * Server-sent events: event "state" với trạng thái hiện tại, sau đó một event "transition"
+     * cho mỗi lần chuyển trạng thái (thay cho việc poll /api/v1/server/status)
+     */
+    @GetMapping(value = "/server/state/watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter watchState() {
+        return serverStateWatchService.subscribe();
+    }
+
+    /**
+     * POST /server/estimate
+     * Latency và CPU time dự đoán của packet trên node này, từ benchmark lúc khởi động
+     * và thời gian kernel của các packet đã xử lý (Load-Balancer dùng để route theo chi phí)
+     */
+    @PostMapping("/server/estimate")
+    public ResponseEntity<CostEstimateResponse> estimateCost(@RequestBody FakePacketRequest request) {
+        return ResponseEntity.ok(costModelService.estimate(request));
+    }
+
+    /**
+     * GET /server/peers
+     * Health đã cache của các sub-server anh em dùng để offload packet khi node quá tải
+     */
+    @GetMapping("/server/peers")
+    public ResponseEntity<List<PeerOffloadService.PeerStatus>> getPeers() {
+        return ResponseEntity.ok(peerOffloadService.getPeerStatuses());
+    }
 }
@@ -0,0 +1,32 @@
+package com.CS445.CS4445_Sub_Server.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO cho POST /server/estimate
+ * Chi phí dự đoán của một FakePacketRequest trên node này (không gồm thời gian đợi trong queue)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CostEstimateResponse {
+    private String packetId;
+    // Intensity và processingTimeMs sau khi áp default/clamp giống FakePacketService
+    private int cpuIntensity;
+    private int ramIntensity;
+    private int processingTimeMs;
+    // Thời gian chạy kernel CPU + RAM
+    private double predictedKernelMs;
+    // max(processingTimeMs, predictedKernelMs)
+    private double predictedLatencyMs;
+    // CPU time của thread xử lý packet
+    private double predictedCpuMs;
+    // Số mẫu (benchmark + packet thật) ít nhất trong hai mức intensity dùng để dự đoán
+    private long samples;
+    // false khi chưa chạy benchmark lúc khởi động (chỉ dựa vào packet thật / giá trị mặc định)
+    private boolean calibrated;
+}
@@ -1,11 +1,17 @@
 package com.CS445.CS4445_Sub_Server.dto;
 
+import com.CS445.CS4445_Sub_Server.service.PhaseTimings;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @Builder
@@ -17,6 +23,18 @@ public class FakePacketResponse {
     private Long processingTimeMs;
     private Long cpuCycles;
     private Long memoryUsedBytes;
+    // Kích thước và CRC32C của payload nhị phân (POST /api/v1/fakePacket/upload), null với packet JSON
+    private Long payloadBytes;
+    private Long payloadChecksum;
+    // Thời gian từng phase (primes, hash, ..., delay) tính bằng ms, chỉ có khi app.phase-timing.include-in-response=true
+    private Map<String, Double> phaseTimingsMs;
     private String result;
     private LocalDateTime timestamp;
+    // URL của sub-server đã xử lý packet khi packet bị offload sang peer, null nếu xử lý tại chỗ
+    private String offloadedTo;
+    // Thời gian phase của packet cho SlowRequestService, không serialize
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private PhaseTimings phaseTimings;
 }
@@ -0,0 +1,27 @@
+package com.CS445.CS4445_Sub_Server.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body heartbeat sub-server gửi tới Load-Balancer (push mode)
+ * Chỉ gồm các field LB cần để định tuyến; số liệu chi tiết vẫn lấy qua /server/health
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeHeartbeat {
+    // OPEN, CLOSED, DRAINING hoặc WARMING
+    private String state;
+    private double cpuUsagePercent;
+    private double memoryUsagePercent;
+    private int currConnections;
+    private int queueDepth;
+    private double capacityScore;
+    private int routingWeight;
+    // Thời điểm lấy mẫu CPU/memory (epoch millis)
+    private long sampledAtMillis;
+}
@@ -0,0 +1,20 @@
+package com.CS445.CS4445_Sub_Server.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body sub-server gửi tới Load-Balancer khi tự đăng ký (push mode)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeRegistration {
+    private String nodeId;
+    // URL Load-Balancer dùng để gửi packet tới node này
+    private String url;
+    private long heartbeatIntervalMs;
+}
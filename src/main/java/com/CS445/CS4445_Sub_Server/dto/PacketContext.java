@@ -0,0 +1,35 @@
+package com.CS445.CS4445_Sub_Server.dto;
+
+import com.CS445.CS4445_Sub_Server.service.PacketPayload;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Thông tin đi kèm một packet ngoài body (lấy từ header của request)
+ */
+@Value
+@Builder
+public class PacketContext {
+
+    private static final PacketContext EMPTY = PacketContext.builder().build();
+
+    // Key cho result cache (header Idempotency-Key), null thì packet không được cache
+    String idempotencyKey;
+
+    // Tenant gửi packet, dùng để chọn bulkhead
+    String tenantId;
+
+    // Client bị rate limit theo từng packet của stream NDJSON (header X-Client-Id), null thì không giới hạn
+    String clientId;
+
+    // Số lần packet đã bị forward giữa các sub-server (0 = nhận trực tiếp từ client/LB)
+    int hops;
+
+    // Payload nhị phân trong direct buffer (POST /api/v1/fakePacket/upload), null với packet JSON
+    PacketPayload payload;
+
+    public static PacketContext empty() {
+        return EMPTY;
+    }
+}
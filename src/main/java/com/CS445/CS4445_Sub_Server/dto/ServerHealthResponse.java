@@ -19,4 +19,53 @@ public class ServerHealthResponse {
     private double avgProcessingTimeSec;
     private int currConnections;
     private boolean isOpen;
+    // true khi node đang drain (isOpen = false, packet đang chạy vẫn được xử lý xong)
+    private boolean draining;
+    // true khi node vừa khởi động và đang warmup JIT (isOpen = false)
+    private boolean warming;
+    // Các trường dưới đây tính sẵn trên node (CapacityScoreService), LB cũ bỏ qua được
+    // Điểm capacity 0-100 từ headroom bulkhead, queue, p95 latency và GC (0 khi node không OPEN)
+    private double capacityScore;
+    // Weight gợi ý cho weighted round-robin
+    private int routingWeight;
+    // Packet đã nhận nhưng đang đợi permit bulkhead
+    private int queueDepth;
+    // Phần permit bulkhead còn trống (0-1)
+    private double concurrencyHeadroom;
+    // p95 latency packet trong cửa sổ trượt (LatencyWindowService)
+    private double p95LatencyMs;
+    // Phần trăm thời gian GC trong cửa sổ gần nhất
+    private double gcTimePercent;
+    // Latency packet xử lý thành công trong cửa sổ trượt (app.latency-window.*)
+    // avgProcessingTimeSec = latencyMeanMs / 1000
+    private double latencyMeanMs;
+    private double latencyP50Ms;
+    private double latencyP99Ms;
+    // EWMA theo từng packet, phản ánh thay đổi nhanh hơn trung bình cửa sổ
+    private double latencyEwmaMs;
+    // Số packet trong cửa sổ
+    private long latencySamples;
+    // Các trường dưới đây lấy từ snapshot của ResourceSamplerService
+    // memoryUsagePercent là heap đang dùng (gồm cả rác chưa thu), heapAfterGcPercent là heap còn sống sau GC
+    private double heapAfterGcPercent;
+    private int threadCount;
+    private int peakThreadCount;
+    // CPU/memory theo cgroup của container, -1 khi không chạy trong cgroup có giới hạn
+    private double containerCpuPercent;
+    private double containerMemoryPercent;
+    // Thời điểm lấy mẫu tài nguyên (epoch millis)
+    private long sampledAtMillis;
+    // Pool worker của connector HTTP (ConnectorPoolService), -1 khi không có (stack reactive)
+    private int connectorActiveThreads;
+    private int connectorMaxThreads;
+    // Connection đã có dữ liệu nhưng đang đợi worker
+    private int connectorPendingDispatch;
+    private long connectorConnections;
+    private long connectorMaxConnections;
+    // Thời gian đợi worker và thời gian worker xử lý trong cửa sổ trượt: dispatch wait tăng là quá tải,
+    // service time tăng là xử lý chậm
+    private double dispatchWaitMeanMs;
+    private double dispatchWaitP99Ms;
+    private double serviceTimeMeanMs;
+    private double serviceTimeP99Ms;
 }
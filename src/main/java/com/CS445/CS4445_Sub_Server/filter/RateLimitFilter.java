@@ -0,0 +1,61 @@
+package com.CS445.CS4445_Sub_Server.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.RateLimiterService;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rate limit theo client cho các endpoint packet
+ * Chạy trước DispatcherServlet nên request vượt giới hạn bị trả 429 trước khi body được đọc
+ * và deserialize. Client được nhận diện bằng header cấu hình (mặc định X-Client-Id);
+ * request không có header không bị giới hạn: sau LB mọi request có cùng remote address,
+ * nếu dùng remote address thì toàn bộ traffic của LB sẽ chung một bucket.
+ * Stream NDJSON không đi qua filter này mà bị tính theo từng packet (PacketStreamService).
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final byte[] RATE_LIMITED_BODY =
+            "{\"status\":\"REJECTED\",\"result\":\"Rate limit exceeded. Please retry later\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final RateLimiterService rateLimiterService;
+    private final MetricsService metricsService;
+    private final String clientHeader;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String clientId = request.getHeader(clientHeader);
+
+        if (clientId == null || clientId.isBlank() || rateLimiterService.tryAcquire(clientId)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        log.debug("Rate limit exceeded for client {}", clientId);
+        metricsService.incrementTotalErrors("rate_limited");
+
+        long retryAfterSec = Math.max(1, (rateLimiterService.millisUntilNextToken(clientId) + 999) / 1000);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", Long.toString(retryAfterSec));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(RATE_LIMITED_BODY.length);
+        response.getOutputStream().write(RATE_LIMITED_BODY);
+    }
+
+}
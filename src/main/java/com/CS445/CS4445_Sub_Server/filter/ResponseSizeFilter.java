@@ -0,0 +1,159 @@
+package com.CS445.CS4445_Sub_Server.filter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.CS445.CS4445_Sub_Server.service.MetricsService;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Ghi app.response.size{type=json} bằng số byte body thực sự được ghi ra response
+ * Bọc output stream của response bằng một stream đếm byte, nên không phải serialize response
+ * lần thứ hai chỉ để đo kích thước. Response không có body (vd: lỗi do error page ghi) không được ghi nhận.
+ */
+@RequiredArgsConstructor
+public class ResponseSizeFilter extends OncePerRequestFilter {
+
+    static final String RESPONSE_TYPE = "json";
+
+    private final MetricsService metricsService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        CountingResponse countingResponse = new CountingResponse(response);
+        try {
+            filterChain.doFilter(request, countingResponse);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Body async được ghi sau khi filter chain trả về, đo khi request hoàn tất
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(countingResponse);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(countingResponse);
+            }
+        }
+    }
+
+    private void record(CountingResponse response) {
+        long bytes = response.getBytesWritten();
+        if (bytes > 0) {
+            metricsService.recordResponseSize(bytes, RESPONSE_TYPE);
+        }
+    }
+
+    /**
+     * Response wrapper trả về output stream đếm byte; getWriter() cũng ghi qua stream đó
+     */
+    static class CountingResponse extends HttpServletResponseWrapper {
+
+        private CountingOutputStream outputStream;
+        private PrintWriter writer;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+
+        long getBytesWritten() {
+            if (writer != null) {
+                writer.flush();
+            }
+            return outputStream != null ? outputStream.count : 0;
+        }
+    }
+
+    private static class CountingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private long count;
+
+        CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.CS445.CS4445_Sub_Server.jfr;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Từ lúc nhận packet đến lúc bắt đầu chạy workload (kiểm tra trạng thái, cache, bulkhead, heap admission)
+ * Packet trả từ cache hoặc bị từ chối không có event này (xem PacketRejectionEvent)
+ */
+@Name("cs4445.PacketAdmission")
+@Label("Packet Admission")
+@Description("Time from receiving a packet until its workload starts")
+public class PacketAdmissionEvent extends PacketEvent {
+
+    @Label("Tenant")
+    String tenantId;
+
+    /**
+     * Gọi ngay trước khi chạy workload của packet
+     */
+    public void admitted(FakePacketRequest request, String tenantId) {
+        end();
+        if (shouldCommit()) {
+            describe(request);
+            this.tenantId = tenantId;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.CS445.CS4445_Sub_Server.jfr;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Field chung của các event JFR theo packet, để lọc/nhóm event của cùng một packet trong JMC
+ * Intensity là giá trị đã clamp (1-10, mặc định 5) giống FakePacketService
+ */
+@Category({"CS4445", "Packet"})
+@StackTrace(false)
+abstract class PacketEvent extends Event {
+
+    @Label("Packet ID")
+    String packetId;
+
+    @Label("CPU Intensity")
+    int cpuIntensity;
+
+    @Label("RAM Intensity")
+    int ramIntensity;
+
+    void describe(FakePacketRequest request) {
+        describe(request.getPacketId(), clampIntensity(request.getCpuIntensity()),
+                clampIntensity(request.getRamIntensity()));
+    }
+
+    void describe(String packetId, int cpuIntensity, int ramIntensity) {
+        this.packetId = packetId;
+        this.cpuIntensity = cpuIntensity;
+        this.ramIntensity = ramIntensity;
+    }
+
+    private static int clampIntensity(Integer intensity) {
+        int value = intensity != null ? intensity : 5;
+        return Math.max(1, Math.min(10, value));
+    }
+}
@@ -0,0 +1,42 @@
+package com.CS445.CS4445_Sub_Server.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Một phase workload của packet (primes, hash, ..., delay), cùng ranh giới với PhaseTimings
+ */
+@Name("cs4445.PacketPhase")
+@Label("Packet Phase")
+@Description("One workload phase of a packet")
+public class PacketPhaseEvent extends PacketEvent {
+
+    private static final EventType TYPE = EventType.getEventType(PacketPhaseEvent.class);
+
+    @Label("Phase")
+    String phase;
+
+    /**
+     * Có recording nào đang bật event này không, kiểm tra một lần mỗi packet để khỏi tạo event khi JFR tắt
+     */
+    public static boolean enabled() {
+        return TYPE.isEnabled();
+    }
+
+    public static PacketPhaseEvent begin(String packetId, int cpuIntensity, int ramIntensity) {
+        PacketPhaseEvent event = new PacketPhaseEvent();
+        event.describe(packetId, cpuIntensity, ramIntensity);
+        event.begin();
+        return event;
+    }
+
+    public void finish(String phase) {
+        end();
+        if (shouldCommit()) {
+            this.phase = phase;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.CS445.CS4445_Sub_Server.jfr;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Thời gian packet đợi permit của bulkhead (0 khi còn chỗ ngay)
+ */
+@Name("cs4445.PacketQueue")
+@Label("Packet Queue Wait")
+@Description("Time a packet waited for a bulkhead permit")
+public class PacketQueueEvent extends PacketEvent {
+
+    @Label("Tenant Bulkhead")
+    String tenant;
+
+    @Label("Workload Bulkhead")
+    String workload;
+
+    @Label("Admitted")
+    boolean admitted;
+
+    public void finish(FakePacketRequest request, String tenant, String workload, boolean admitted) {
+        end();
+        if (shouldCommit()) {
+            describe(request);
+            this.tenant = tenant;
+            this.workload = workload;
+            this.admitted = admitted;
+            commit();
+        }
+    }
+}
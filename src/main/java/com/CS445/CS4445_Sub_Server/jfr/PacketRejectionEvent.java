@@ -0,0 +1,37 @@
+package com.CS445.CS4445_Sub_Server.jfr;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Packet bị từ chối, reason trùng với tag type của app.errors.total
+ */
+@Name("cs4445.PacketRejection")
+@Label("Packet Rejection")
+@Description("A packet rejected before or while waiting for admission")
+public class PacketRejectionEvent extends PacketEvent {
+
+    @Label("Reason")
+    String reason;
+
+    @Label("Time Since Received")
+    @Timespan(Timespan.NANOSECONDS)
+    long sinceReceived;
+
+    /**
+     * @param startNanos System.nanoTime() lúc nhận packet
+     */
+    public static void emit(FakePacketRequest request, String reason, long startNanos) {
+        PacketRejectionEvent event = new PacketRejectionEvent();
+        if (event.shouldCommit()) {
+            event.describe(request);
+            event.reason = reason;
+            event.sinceReceived = System.nanoTime() - startNanos;
+            event.commit();
+        }
+    }
+}
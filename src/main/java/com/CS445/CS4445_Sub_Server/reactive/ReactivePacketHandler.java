@@ -0,0 +1,233 @@
+package com.CS445.CS4445_Sub_Server.reactive;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.jfr.PacketAdmissionEvent;
+import com.CS445.CS4445_Sub_Server.jfr.PacketRejectionEvent;
+import com.CS445.CS4445_Sub_Server.service.FakePacketService;
+import com.CS445.CS4445_Sub_Server.service.HeapAdmissionService;
+import com.CS445.CS4445_Sub_Server.service.LatencyWindowService;
+import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.PacketExecutionService;
+import com.CS445.CS4445_Sub_Server.service.RateLimiterService;
+import com.CS445.CS4445_Sub_Server.service.ServerStateService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * POST /api/v1/fakePacket trên stack reactive
+ * Cùng metrics với PacketExecutionService (connections, queue, latency, processing time,
+ * response size, errors, jobs processed) và cùng status/body: 429 khi vượt rate limit,
+ * 503 REJECTED khi server không OPEN hoặc hết heap, 500 FAILED khi kernel lỗi
+ * Kernel chạy trên packetKernelScheduler, phần chờ cho đủ processingTimeMs là Mono.delay.
+ * Bulkhead, result cache và peer offload là các bước blocking nên không có trên stack này
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactivePacketHandler {
+
+    private static final byte[] RATE_LIMITED_BODY =
+            "{\"status\":\"REJECTED\",\"result\":\"Rate limit exceeded. Please retry later\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final FakePacketService fakePacketService;
+    private final HeapAdmissionService heapAdmissionService;
+    private final ServerStateService serverStateService;
+    private final RateLimiterService rateLimiterService;
+    private final MetricsService metricsService;
+    private final LatencyWindowService latencyWindowService;
+    private final ObjectWriter responseWriter;
+    private final Scheduler kernelScheduler;
+    private final boolean rateLimitEnabled;
+    private final String clientHeader;
+
+    public ReactivePacketHandler(FakePacketService fakePacketService,
+                                 HeapAdmissionService heapAdmissionService,
+                                 ServerStateService serverStateService,
+                                 RateLimiterService rateLimiterService,
+                                 MetricsService metricsService,
+                                 LatencyWindowService latencyWindowService,
+                                 ObjectMapper objectMapper,
+                                 Scheduler packetKernelScheduler,
+                                 @Value("${app.rate-limit.enabled:false}") boolean rateLimitEnabled,
+                                 @Value("${app.rate-limit.client-header:X-Client-Id}") String clientHeader) {
+        this.fakePacketService = fakePacketService;
+        this.heapAdmissionService = heapAdmissionService;
+        this.serverStateService = serverStateService;
+        this.rateLimiterService = rateLimiterService;
+        this.metricsService = metricsService;
+        this.latencyWindowService = latencyWindowService;
+        this.responseWriter = objectMapper.writerFor(FakePacketResponse.class);
+        this.kernelScheduler = packetKernelScheduler;
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.clientHeader = clientHeader;
+    }
+
+    public Mono<ServerResponse> processFakePacket(ServerRequest request) {
+        if (rateLimitEnabled) {
+            // Như RateLimitFilter: chỉ giới hạn request có header định danh client
+            String clientId = request.headers().firstHeader(clientHeader);
+            if (clientId != null && !clientId.isBlank() && !rateLimiterService.tryAcquire(clientId)) {
+                return rateLimited(clientId);
+            }
+        }
+
+        // Content-Type sai -> 415, body lỗi/rỗng -> 400 (WebFlux tự map exception sang status)
+        return request.bodyToMono(FakePacketRequest.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Request body is missing")))
+                .flatMap(this::execute)
+                .flatMap(result -> ServerResponse.status(result.status())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(result.body()));
+    }
+
+    private Mono<EncodedOutcome> execute(FakePacketRequest request) {
+        return Mono.defer(() -> {
+            Timer.Sample latencySample = metricsService.startRequestLatencyTimer();
+            long startNanos = System.nanoTime();
+
+            // Track connection
+            metricsService.incrementCurrentConnections();
+            metricsService.incrementTotalConnections();
+            metricsService.incrementTotalRequests();
+            serverStateService.packetStarted();
+
+            log.info("Received reactive fakePacket request: {}", request.getPacketId());
+
+            return process(request, startNanos)
+                    .map(outcome -> encode(outcome, latencySample));
+        }).doFinally(signal -> {
+            // Chạy cả khi client ngắt kết nối (cancel)
+            metricsService.decrementCurrentConnections();
+            serverStateService.packetFinished();
+        });
+    }
+
+    private Mono<PacketExecutionService.PacketOutcome> process(FakePacketRequest request, long startNanos) {
+        PacketAdmissionEvent admission = new PacketAdmissionEvent();
+        admission.begin();
+        if (!serverStateService.isServerOpen()) {
+            PacketExecutionService.StateRejection rejection;
+            if (serverStateService.isDraining()) {
+                rejection = PacketExecutionService.StateRejection.DRAINING;
+            } else if (serverStateService.isWarming()) {
+                rejection = PacketExecutionService.StateRejection.WARMING;
+            } else {
+                rejection = PacketExecutionService.StateRejection.CLOSED;
+            }
+            log.warn("Server is {}. Rejecting packet request: {}", rejection.getState(), request.getPacketId());
+            metricsService.incrementTotalErrors(rejection.getErrorType());
+            PacketRejectionEvent.emit(request, rejection.getErrorType(), startNanos);
+            return Mono.just(new PacketExecutionService.PacketOutcome(HttpStatus.SERVICE_UNAVAILABLE,
+                    rejected(request, rejection.getMessage()), rejection));
+        }
+
+        // Add to queue
+        metricsService.incrementQueueLength();
+        return Mono.fromCallable(() -> heapAdmissionService.execute(request, () -> {
+                    // Gồm cả thời gian đợi thread của kernelScheduler
+                    admission.admitted(request, null);
+                    return fakePacketService.runKernels(request);
+                }))
+                .subscribeOn(kernelScheduler)
+                .flatMap(work -> Mono.delay(Duration.ofMillis(Math.max(0, work.remainingDelayMs())))
+                        .map(tick -> fakePacketService.buildResponse(work)))
+                .map(response -> {
+                    log.info("Successfully processed packet {} in {}ms",
+                            response.getPacketId(), response.getProcessingTimeMs());
+                    metricsService.incrementTotalJobsProcessed();
+                    latencyWindowService.record(System.nanoTime() - startNanos);
+                    return new PacketExecutionService.PacketOutcome(HttpStatus.OK, response);
+                })
+                .onErrorResume(HeapAdmissionService.HeapExhaustedException.class, e -> {
+                    log.warn("Not enough heap headroom for packet {}: needs {} bytes, {} available",
+                            request.getPacketId(), e.getRequiredBytes(), e.getAvailableBytes());
+                    metricsService.incrementTotalErrors("heap_exhausted");
+                    PacketRejectionEvent.emit(request, "heap_exhausted", startNanos);
+                    return Mono.just(new PacketExecutionService.PacketOutcome(HttpStatus.SERVICE_UNAVAILABLE,
+                            rejected(request, e.getMessage())));
+                })
+                .onErrorResume(RejectedExecutionException.class, e -> {
+                    log.warn("Kernel scheduler is saturated. Rejecting packet request: {}", request.getPacketId());
+                    metricsService.incrementTotalErrors("kernel_saturated");
+                    PacketRejectionEvent.emit(request, "kernel_saturated", startNanos);
+                    return Mono.just(new PacketExecutionService.PacketOutcome(HttpStatus.SERVICE_UNAVAILABLE,
+                            rejected(request, "Server is saturated. Please retry later")));
+                })
+                .onErrorResume(e -> {
+                    log.error("Error processing packet {}", request.getPacketId(), e);
+                    metricsService.incrementTotalErrors("exception");
+                    return Mono.just(new PacketExecutionService.PacketOutcome(HttpStatus.INTERNAL_SERVER_ERROR,
+                            FakePacketResponse.builder()
+                                    .packetId(request.getPacketId())
+                                    .status("FAILED")
+                                    .result("Error: " + e.getMessage())
+                                    .build()));
+                })
+                // Remove from queue
+                .doFinally(signal -> metricsService.decrementQueueLength());
+    }
+
+    /**
+     * Serialize response một lần, dùng luôn số byte đó cho metric response size
+     */
+    private EncodedOutcome encode(PacketExecutionService.PacketOutcome outcome, Timer.Sample latencySample) {
+        metricsService.stopRequestLatencyTimer(latencySample);
+
+        FakePacketResponse response = outcome.response();
+        if (response.getProcessingTimeMs() != null) {
+            metricsService.recordProcessingTime(response.getProcessingTimeMs(), "fake_packet");
+        }
+
+        byte[] body;
+        try {
+            body = responseWriter.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode response for packet " + response.getPacketId(), e);
+        }
+        metricsService.recordResponseSize(body.length, "json");
+        return new EncodedOutcome(outcome.status(), body);
+    }
+
+    private Mono<ServerResponse> rateLimited(String clientId) {
+        log.debug("Rate limit exceeded for client {}", clientId);
+        metricsService.incrementTotalErrors("rate_limited");
+
+        long retryAfterSec = Math.max(1, (rateLimiterService.millisUntilNextToken(clientId) + 999) / 1000);
+        return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", Long.toString(retryAfterSec))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(RATE_LIMITED_BODY);
+    }
+
+    private static FakePacketResponse rejected(FakePacketRequest request, String message) {
+        return FakePacketResponse.builder()
+                .packetId(request.getPacketId())
+                .status("REJECTED")
+                .result(message)
+                .build();
+    }
+
+    private record EncodedOutcome(HttpStatus status, byte[] body) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.CS445.CS4445_Sub_Server.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.service.CostModelService;
+import com.CS445.CS4445_Sub_Server.service.ServerHealthService;
+import com.CS445.CS4445_Sub_Server.service.ServerStateService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Các endpoint /server/* mà Load-Balancer gọi, phiên bản reactive của ServerHealthController
+ * (health, estimate, open, close; drain/history/watch/peers chỉ có trên stack servlet)
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveServerHandler {
+
+    private final ServerHealthService serverHealthService;
+    private final ServerStateService serverStateService;
+    private final CostModelService costModelService;
+
+    /**
+     * GET /server/health, cùng snapshot đã encode sẵn với stack servlet
+     */
+    public Mono<ServerResponse> getServerHealth(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(serverHealthService.getEncodedHealth());
+    }
+
+    /**
+     * POST /server/estimate
+     */
+    public Mono<ServerResponse> estimateCost(ServerRequest request) {
+        return request.bodyToMono(FakePacketRequest.class)
+                .map(costModelService::estimate)
+                .flatMap(estimate -> ServerResponse.ok().bodyValue(estimate));
+    }
+
+    /**
+     * POST /server/open
+     */
+    public Mono<ServerResponse> openServer(ServerRequest request) {
+        String reason = request.queryParam("reason").orElse(null);
+        log.info("Request to OPEN server from Load-Balancer. Reason: {}", reason);
+        serverStateService.openServer(reason);
+        return ServerResponse.ok().bodyValue(serverStateService.getStatus());
+    }
+
+    /**
+     * POST /server/close
+     */
+    public Mono<ServerResponse> closeServer(ServerRequest request) {
+        String reason = request.queryParam("reason").orElse(null);
+        log.warn("Request to CLOSE server from Load-Balancer. Reason: {}", reason);
+        serverStateService.closeServer(reason);
+        return ServerResponse.ok().bodyValue(serverStateService.getStatus());
+    }
+}
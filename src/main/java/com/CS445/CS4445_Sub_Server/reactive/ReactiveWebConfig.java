@@ -0,0 +1,56 @@
+package com.CS445.CS4445_Sub_Server.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Stack reactive (profile "reactive", spring.main.web-application-type=reactive)
+ * Cùng các endpoint packet/health như stack servlet nhưng chạy trên event loop của Netty:
+ * kernel CPU/RAM chạy trên scheduler giới hạn, thời gian chờ processingTimeMs dùng Mono.delay
+ * nên không giữ thread nào trong lúc chờ
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+    /**
+     * Classpath có cả Tomcat (spring-boot-starter-web), khai báo rõ để chạy trên Netty
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Scheduler chạy kernel của packet: tối đa kernel-threads thread, kernel-queue-size task đợi,
+     * vượt quá thì packet bị từ chối (503) thay vì xếp hàng vô hạn
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler packetKernelScheduler(
+            @Value("${app.reactive.kernel-threads:0}") int kernelThreads,
+            @Value("${app.reactive.kernel-queue-size:1024}") int kernelQueueSize) {
+        int threads = kernelThreads > 0 ? kernelThreads : Runtime.getRuntime().availableProcessors();
+        return Schedulers.newBoundedElastic(threads, kernelQueueSize, "packet-kernel");
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveRoutes(ReactivePacketHandler packetHandler,
+                                                         ReactiveServerHandler serverHandler) {
+        return RouterFunctions.route()
+                .POST("/api/v1/fakePacket", packetHandler::processFakePacket)
+                .GET("/server/health", serverHandler::getServerHealth)
+                .POST("/server/estimate", serverHandler::estimateCost)
+                .POST("/server/open", serverHandler::openServer)
+                .POST("/server/close", serverHandler::closeServer)
+                .build();
+    }
+}
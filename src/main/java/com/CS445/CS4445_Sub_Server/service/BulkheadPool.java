@@ -0,0 +1,246 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Các bulkhead của node, chia chung một tổng capacity
+ * Mỗi packet thuộc đồng thời một bulkhead workload và một bulkhead tenant.
+ * - Mỗi bulkhead được giữ trước `reserved` permit theo share cấu hình
+ * - Packet còn trong phần reserved của cả hai bulkhead được vào ngay khi có permit trống
+ * - Packet vượt phần của mình thì mượn capacity đang rảnh, miễn là không có packet nào
+ *   còn trong phần reserved đang phải đợi
+ * - Tổng permit đang dùng không bao giờ vượt capacity; packet phải đợi nằm trong hàng đợi
+ *   giới hạn của bulkhead và bị từ chối khi hàng đợi đầy hoặc đợi quá maxWait
+ * Hai chiều dùng chung một lock để packet đợi ở chiều này vẫn được chiều kia nhìn thấy khi
+ * quyết định ưu tiên.
+ */
+class BulkheadPool {
+
+    static final String WORKLOAD = "class";
+    static final String TENANT = "tenant";
+
+    private final int capacity;
+    private final long maxWaitNanos;
+    private final Function<String, Partition> workloadFactory;
+    private final Function<String, Partition> tenantFactory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    // Các field dưới đây chỉ được ghi khi giữ lock
+    private final Map<String, Partition> workloads = new LinkedHashMap<>();
+    private final Map<String, Partition> tenants = new LinkedHashMap<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private volatile int totalInUse;
+
+    BulkheadPool(int capacity, long maxWaitMs,
+                 Function<String, Partition> workloadFactory,
+                 Function<String, Partition> tenantFactory) {
+        this.capacity = capacity;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.workloadFactory = workloadFactory;
+        this.tenantFactory = tenantFactory;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getTotalInUse() {
+        return totalInUse;
+    }
+
+    Partition workload(String name) {
+        lock.lock();
+        try {
+            return workloads.computeIfAbsent(name, workloadFactory);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Khi đã có maxTenants bulkhead tenant thì tenant mới được dồn vào bulkhead overflow
+     * (giữ số bulkhead và số series metrics có giới hạn)
+     */
+    Partition tenant(String name, String overflowName, int maxTenants) {
+        lock.lock();
+        try {
+            Partition partition = tenants.get(name);
+            if (partition == null) {
+                String target = tenants.size() >= maxTenants ? overflowName : name;
+                partition = tenants.computeIfAbsent(target, tenantFactory);
+            }
+            partition.lastUsedNanos = System.nanoTime();
+            return partition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gỡ các bulkhead tenant không có packet chạy/đợi và không được dùng trong idleNanos,
+     * để tenant mới (X-Tenant-Id do client gửi) không bị dồn mãi vào bulkhead overflow.
+     * Packet lấy partition rồi mới acquire, nên chỉ gỡ partition đã im lặng lâu hơn nhiều
+     * so với khoảng giữa hai bước đó
+     * @return các partition đã gỡ
+     */
+    List<Partition> evictIdleTenants(long idleNanos) {
+        long now = System.nanoTime();
+        List<Partition> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            tenants.values().removeIf(partition -> {
+                boolean idle = partition.inUse == 0 && partition.waiting == 0
+                        && now - partition.lastUsedNanos >= idleNanos;
+                if (idle) {
+                    evicted.add(partition);
+                }
+                return idle;
+            });
+        } finally {
+            lock.unlock();
+        }
+        return evicted;
+    }
+
+    /**
+     * Lấy một permit cho packet, đợi tối đa maxWait nếu node đang đầy
+     * @throws BulkheadService.BulkheadFullException khi hàng đợi đầy hoặc hết thời gian đợi
+     */
+    void acquire(Partition workload, Partition tenant) {
+        lock.lock();
+        try {
+            if (tryAdmit(workload, tenant, null)) {
+                return;
+            }
+            if (workload.waiting >= workload.queueCapacity) {
+                throw reject(workload, "queue is full");
+            }
+            if (tenant.waiting >= tenant.queueCapacity) {
+                throw reject(tenant, "queue is full");
+            }
+
+            Waiter self = new Waiter(workload, tenant);
+            waiters.add(self);
+            workload.waiting++;
+            tenant.waiting++;
+            try {
+                long remaining = maxWaitNanos;
+                while (!tryAdmit(workload, tenant, self)) {
+                    if (remaining <= 0) {
+                        throw reject(limiting(workload, tenant), "timed out waiting for capacity");
+                    }
+                    remaining = permitReleased.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject(limiting(workload, tenant), "interrupted while waiting for capacity");
+            } finally {
+                waiters.remove(self);
+                workload.waiting--;
+                tenant.waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(Partition workload, Partition tenant) {
+        lock.lock();
+        try {
+            workload.inUse--;
+            tenant.inUse--;
+            tenant.lastUsedNanos = System.nanoTime();
+            totalInUse--;
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryAdmit(Partition workload, Partition tenant, Waiter self) {
+        if (totalInUse >= capacity) {
+            return false;
+        }
+        boolean withinReservation = workload.withinReservation() && tenant.withinReservation();
+        if (!withinReservation && hasReservedWaiter(self)) {
+            // Không cho mượn capacity khi còn packet trong phần reserved đang phải đợi
+            return false;
+        }
+        if (!workload.withinReservation()) {
+            workload.borrowed++;
+        }
+        if (!tenant.withinReservation()) {
+            tenant.borrowed++;
+        }
+        workload.inUse++;
+        tenant.inUse++;
+        totalInUse++;
+        return true;
+    }
+
+    private boolean hasReservedWaiter(Waiter self) {
+        for (Waiter waiter : waiters) {
+            if (waiter != self && waiter.workload().withinReservation() && waiter.tenant().withinReservation()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bulkhead chịu trách nhiệm khi packet bị từ chối: bulkhead đang vượt phần reserved
+     */
+    private static Partition limiting(Partition workload, Partition tenant) {
+        return workload.withinReservation() ? tenant : workload;
+    }
+
+    private BulkheadService.BulkheadFullException reject(Partition partition, String reason) {
+        partition.rejected++;
+        return new BulkheadService.BulkheadFullException(partition.kind, partition.name,
+                String.format("Bulkhead %s/%s rejected packet: %s", partition.kind, partition.name, reason));
+    }
+
+    private record Waiter(Partition workload, Partition tenant) {
+    }
+
+    /**
+     * Một bulkhead; các counter chỉ ghi khi giữ lock, volatile để gauge đọc không cần lock
+     */
+    static final class Partition {
+
+        final String kind;
+        final String name;
+        final int reserved;
+        final int queueCapacity;
+
+        volatile int inUse;
+        volatile int waiting;
+        volatile long borrowed;
+        volatile long rejected;
+        volatile long lastUsedNanos = System.nanoTime();
+
+        Partition(String kind, String name, int reserved, int queueCapacity) {
+            this.kind = kind;
+            this.name = name;
+            this.reserved = Math.max(1, reserved);
+            this.queueCapacity = Math.max(0, queueCapacity);
+        }
+
+        boolean withinReservation() {
+            return inUse < reserved;
+        }
+
+        double utilization() {
+            return (double) inUse / reserved;
+        }
+    }
+}
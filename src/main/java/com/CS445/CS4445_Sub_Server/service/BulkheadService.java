@@ -0,0 +1,243 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.jfr.PacketQueueEvent;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulkhead cô lập tải theo tenant và theo loại workload
+ * Mỗi packet thuộc một bulkhead tenant (header X-Tenant-Id) và một bulkhead loại workload
+ * (CPU_HEAVY, RAM_HEAVY, SLEEP_DOMINATED). Mỗi bulkhead có share capacity và hàng đợi riêng,
+ * được mượn capacity rảnh của bulkhead khác (xem {@link BulkheadPool}).
+ *
+ * Permit được giữ trên chính worker thread của request thay vì chuyển packet sang executor
+ * riêng: tránh thêm một lần handoff + pool thread thứ hai mà vẫn giới hạn được số packet
+ * chạy đồng thời và độ dài hàng đợi của từng bulkhead.
+ * Thời gian đợi permit được phát thành event JFR cs4445.PacketQueue.
+ *
+ * Tắt mặc định; capacity mặc định bằng số worker Tomcat để bật lên không tự hạ trần của node.
+ * Bulkhead tenant im lặng quá app.bulkhead.tenant-idle-timeout-ms bị gỡ (cùng metrics của nó).
+ */
+@Service
+@Slf4j
+public class BulkheadService {
+
+    public static final String DEFAULT_TENANT = "default";
+    public static final String OVERFLOW_TENANT = "other";
+
+    private final MetricsService metricsService;
+    private final boolean enabled;
+    private final int maxTenants;
+    private final int cpuMsPerLevel;
+    private final int ramMsPerLevel;
+    private final long tenantIdleNanos;
+
+    private final BulkheadPool pool;
+
+    public BulkheadService(MetricsService metricsService,
+                           @Value("${app.bulkhead.enabled:false}") boolean enabled,
+                           @Value("${app.bulkhead.max-concurrent:${server.tomcat.threads.max:200}}") int maxConcurrent,
+                           @Value("${app.bulkhead.queue-size:32}") int queueSize,
+                           @Value("${app.bulkhead.max-wait-ms:2000}") long maxWaitMs,
+                           @Value("${app.bulkhead.share.cpu-heavy:0.4}") double cpuHeavyShare,
+                           @Value("${app.bulkhead.share.ram-heavy:0.3}") double ramHeavyShare,
+                           @Value("${app.bulkhead.share.sleep-dominated:0.3}") double sleepDominatedShare,
+                           @Value("${app.bulkhead.tenant-shares:}") String tenantShares,
+                           @Value("${app.bulkhead.default-tenant-share:0.25}") double defaultTenantShare,
+                           @Value("${app.bulkhead.max-tenants:32}") int maxTenants,
+                           @Value("${app.bulkhead.tenant-idle-timeout-ms:300000}") long tenantIdleTimeoutMs,
+                           @Value("${app.bulkhead.cpu-ms-per-level:10}") int cpuMsPerLevel,
+                           @Value("${app.bulkhead.ram-ms-per-level:10}") int ramMsPerLevel) {
+        this.metricsService = metricsService;
+        this.enabled = enabled;
+        this.maxTenants = maxTenants;
+        this.cpuMsPerLevel = cpuMsPerLevel;
+        this.ramMsPerLevel = ramMsPerLevel;
+        this.tenantIdleNanos = TimeUnit.MILLISECONDS.toNanos(tenantIdleTimeoutMs);
+
+        int capacity = Math.max(1, maxConcurrent);
+        Map<WorkloadClass, Double> classShares = Map.of(
+                WorkloadClass.CPU_HEAVY, cpuHeavyShare,
+                WorkloadClass.RAM_HEAVY, ramHeavyShare,
+                WorkloadClass.SLEEP_DOMINATED, sleepDominatedShare);
+        Map<String, Double> tenantShareMap = parseShares(tenantShares);
+
+        this.pool = new BulkheadPool(capacity, maxWaitMs,
+                name -> registerPartition(new BulkheadPool.Partition(BulkheadPool.WORKLOAD, name,
+                        reservedPermits(capacity, classShares.get(WorkloadClass.fromTag(name))), queueSize)),
+                name -> registerPartition(new BulkheadPool.Partition(BulkheadPool.TENANT, name,
+                        reservedPermits(capacity, tenantShareMap.getOrDefault(name, defaultTenantShare)), queueSize)));
+
+        // Tạo sẵn bulkhead cho các loại workload để metrics có ngay từ đầu
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            pool.workload(workloadClass.getTag());
+        }
+
+        log.info("Bulkheads initialized: capacity={}, queueSize={}, maxWaitMs={}, enabled={}",
+                capacity, queueSize, maxWaitMs, enabled);
+    }
+
+    /**
+     * Chạy work trong bulkhead của tenant và loại workload của packet
+     * @throws BulkheadFullException khi một trong hai bulkhead không còn chỗ
+     */
+    public <T> T execute(String tenantId, FakePacketRequest request, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+
+        BulkheadPool.Partition tenant = pool.tenant(resolveTenant(tenantId), OVERFLOW_TENANT, maxTenants);
+        BulkheadPool.Partition workload = pool.workload(classify(request).getTag());
+
+        PacketQueueEvent queueEvent = new PacketQueueEvent();
+        queueEvent.begin();
+        boolean admitted = false;
+        try {
+            pool.acquire(workload, tenant);
+            admitted = true;
+        } finally {
+            queueEvent.finish(request, tenant.name, workload.name, admitted);
+        }
+        try {
+            return work.get();
+        } finally {
+            pool.release(workload, tenant);
+        }
+    }
+
+    /**
+     * Gỡ bulkhead tenant đã im lặng quá tenant-idle-timeout và các meter của nó
+     */
+    @Scheduled(fixedDelayString = "${app.bulkhead.sweep-interval-ms:30000}")
+    public void evictIdleTenants() {
+        List<BulkheadPool.Partition> evicted = pool.evictIdleTenants(tenantIdleNanos);
+        for (BulkheadPool.Partition partition : evicted) {
+            metricsService.removeMeters("kind", partition.kind, "bulkhead", partition.name);
+        }
+        if (!evicted.isEmpty()) {
+            log.debug("Evicted {} idle tenant bulkheads", evicted.size());
+        }
+    }
+
+    /**
+     * Phân loại packet theo thời gian ước lượng của từng phần workload
+     * Sleep chiếm phần lớn processingTimeMs thì packet gần như không tốn CPU/RAM
+     */
+    public WorkloadClass classify(FakePacketRequest request) {
+        int cpuIntensity = clampIntensity(request.getCpuIntensity());
+        int ramIntensity = clampIntensity(request.getRamIntensity());
+        int minProcessingTime = request.getProcessingTimeMs() != null ? request.getProcessingTimeMs() : 1000;
+
+        long estimatedWorkMs = (long) cpuIntensity * cpuMsPerLevel + (long) ramIntensity * ramMsPerLevel;
+        if (minProcessingTime > 2 * estimatedWorkMs) {
+            return WorkloadClass.SLEEP_DOMINATED;
+        }
+        return cpuIntensity * cpuMsPerLevel >= ramIntensity * ramMsPerLevel
+                ? WorkloadClass.CPU_HEAVY
+                : WorkloadClass.RAM_HEAVY;
+    }
+
+    /**
+     * Tổng capacity đồng thời của node (dùng chung cho mọi bulkhead)
+     */
+    public int getCapacity() {
+        return pool.getCapacity();
+    }
+
+    public int getInUse() {
+        return pool.getTotalInUse();
+    }
+
+    private static String resolveTenant(String tenantId) {
+        return tenantId == null || tenantId.isBlank() ? DEFAULT_TENANT : tenantId.trim();
+    }
+
+    private BulkheadPool.Partition registerPartition(BulkheadPool.Partition partition) {
+        String kind = partition.kind;
+        metricsService.registerGauge("app.bulkhead.active", "Packets currently running in the bulkhead",
+                () -> partition.inUse, "kind", kind, "bulkhead", partition.name);
+        metricsService.registerGauge("app.bulkhead.queued", "Packets waiting for a bulkhead permit",
+                () -> partition.waiting, "kind", kind, "bulkhead", partition.name);
+        metricsService.registerGauge("app.bulkhead.utilization", "Running packets relative to the reserved share",
+                partition::utilization, "kind", kind, "bulkhead", partition.name);
+        metricsService.registerFunctionCounter("app.bulkhead.borrowed", "Permits borrowed from idle bulkheads",
+                partition, p -> p.borrowed, "kind", kind, "bulkhead", partition.name);
+        metricsService.registerFunctionCounter("app.bulkhead.rejected", "Packets rejected by the bulkhead",
+                partition, p -> p.rejected, "kind", kind, "bulkhead", partition.name);
+        log.debug("Created {} bulkhead {} with {} reserved permits", kind, partition.name, partition.reserved);
+        return partition;
+    }
+
+    private static int reservedPermits(int capacity, Double share) {
+        double safeShare = share != null ? Math.max(0.0, Math.min(1.0, share)) : 0.0;
+        return Math.max(1, (int) Math.floor(capacity * safeShare));
+    }
+
+    private static int clampIntensity(Integer intensity) {
+        int value = intensity != null ? intensity : 5;
+        return Math.max(1, Math.min(10, value));
+    }
+
+    /**
+     * Parse "tenantA=0.5,tenantB=0.2"
+     */
+    private static Map<String, Double> parseShares(String shares) {
+        Map<String, Double> result = new HashMap<>();
+        if (shares == null || shares.isBlank()) {
+            return result;
+        }
+        for (String entry : shares.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length == 2) {
+                result.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+            }
+        }
+        return result;
+    }
+
+    @Getter
+    public enum WorkloadClass {
+        CPU_HEAVY("cpu_heavy"),
+        RAM_HEAVY("ram_heavy"),
+        SLEEP_DOMINATED("sleep_dominated");
+
+        private final String tag;
+
+        WorkloadClass(String tag) {
+            this.tag = tag;
+        }
+
+        static WorkloadClass fromTag(String tag) {
+            return valueOf(tag.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Bulkhead hết chỗ (hàng đợi đầy hoặc đợi quá lâu)
+     */
+    @Getter
+    public static class BulkheadFullException extends RuntimeException {
+
+        private final String kind;
+        private final String bulkhead;
+
+        public BulkheadFullException(String kind, String bulkhead, String message) {
+            super(message);
+            this.kind = kind;
+            this.bulkhead = bulkhead;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Điểm capacity (0-100) và routing weight gợi ý của node, trả kèm ServerHealthResponse
+ * để Load-Balancer không phải tự đoán từ CPU%/memory%/connections
+ * Điểm là tích của 4 hệ số trong [0, 1]:
+ * - headroom: phần permit bulkhead còn trống (1 - inUse / capacity)
+ * - queue: queueSize / (queueSize + số packet đang đợi permit)
+ * - latency: min(1, target-p95-ms / p95 latency trong cửa sổ của LatencyWindowService)
+ * - gc: 1 - (tỉ lệ thời gian GC gần đây / max-gc-fraction)
+ * Node không OPEN có điểm và weight bằng 0
+ */
+@Service
+public class CapacityScoreService {
+
+    private static final long GC_SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LatencyWindowService latencyWindowService;
+    private final BulkheadService bulkheadService;
+    private final ServerStateService serverStateService;
+    private final List<GarbageCollectorMXBean> gcBeans;
+
+    private final int queueSize;
+    private final double targetP95Ms;
+    private final double maxGcFraction;
+    private final int maxWeight;
+
+    // Mẫu GC lần trước, tỉ lệ GC tính trên khoảng giữa hai mẫu (ít nhất 1s)
+    private long lastGcSampleNanos;
+    private long lastGcTimeMs;
+    private double gcFraction;
+
+    @Autowired
+    public CapacityScoreService(LatencyWindowService latencyWindowService,
+                                BulkheadService bulkheadService,
+                                ServerStateService serverStateService,
+                                @Value("${app.bulkhead.queue-size:32}") int queueSize,
+                                @Value("${app.capacity.target-p95-ms:2000}") double targetP95Ms,
+                                @Value("${app.capacity.max-gc-fraction:0.25}") double maxGcFraction,
+                                @Value("${app.capacity.max-weight:100}") int maxWeight) {
+        this(latencyWindowService, bulkheadService, serverStateService, ManagementFactory.getGarbageCollectorMXBeans(),
+                queueSize, targetP95Ms, maxGcFraction, maxWeight);
+    }
+
+    CapacityScoreService(LatencyWindowService latencyWindowService,
+                         BulkheadService bulkheadService,
+                         ServerStateService serverStateService,
+                         List<GarbageCollectorMXBean> gcBeans,
+                         int queueSize, double targetP95Ms, double maxGcFraction, int maxWeight) {
+        this.latencyWindowService = latencyWindowService;
+        this.bulkheadService = bulkheadService;
+        this.serverStateService = serverStateService;
+        this.gcBeans = gcBeans;
+        this.queueSize = Math.max(1, queueSize);
+        this.targetP95Ms = targetP95Ms;
+        this.maxGcFraction = maxGcFraction;
+        this.maxWeight = Math.max(1, maxWeight);
+        this.lastGcSampleNanos = System.nanoTime();
+        this.lastGcTimeMs = totalGcTimeMs();
+    }
+
+    public CapacityScore evaluate() {
+        return evaluate(latencyWindowService.snapshot());
+    }
+
+    /**
+     * @param latency snapshot latency đã lấy sẵn (ServerHealthService dùng chung cho cả response)
+     */
+    public CapacityScore evaluate(LatencyWindowService.LatencyStats latency) {
+        int capacity = Math.max(1, bulkheadService.getCapacity());
+        int inUse = Math.min(capacity, bulkheadService.getInUse());
+        int waiting = Math.max(0, serverStateService.getInFlightPackets() - inUse);
+        double p95Ms = latency.p95Ms();
+        double gc = sampleGcFraction();
+
+        double headroom = 1.0 - (double) inUse / capacity;
+        double queueFactor = (double) queueSize / (queueSize + waiting);
+        double latencyFactor = p95Ms > targetP95Ms ? targetP95Ms / p95Ms : 1.0;
+        double gcFactor = maxGcFraction > 0 ? clamp(1.0 - gc / maxGcFraction) : 1.0;
+
+        double score = 0.0;
+        int weight = 0;
+        if (serverStateService.isServerOpen()) {
+            score = 100.0 * headroom * queueFactor * latencyFactor * gcFactor;
+            weight = (int) Math.round(score / 100.0 * maxWeight);
+            // Node còn nhận packet thì luôn có weight tối thiểu để LB vẫn gửi traffic thăm dò
+            if (score > 0 && weight == 0) {
+                weight = 1;
+            }
+        }
+
+        return new CapacityScore(round(score), weight, waiting, round(headroom), round(p95Ms), round(gc * 100.0));
+    }
+
+    /**
+     * Tỉ lệ thời gian GC (tổng các collector) trên thời gian thực kể từ mẫu trước
+     * Gọi dày hơn 1s thì dùng lại giá trị lần trước để cửa sổ không quá ngắn
+     */
+    private synchronized double sampleGcFraction() {
+        long now = System.nanoTime();
+        long elapsedNanos = now - lastGcSampleNanos;
+        if (elapsedNanos < GC_SAMPLE_INTERVAL_NANOS) {
+            return gcFraction;
+        }
+        long gcTimeMs = totalGcTimeMs();
+        gcFraction = clamp((double) TimeUnit.MILLISECONDS.toNanos(gcTimeMs - lastGcTimeMs) / elapsedNanos);
+        lastGcSampleNanos = now;
+        lastGcTimeMs = gcTimeMs;
+        return gcFraction;
+    }
+
+    private long totalGcTimeMs() {
+        long total = 0;
+        for (GarbageCollectorMXBean gcBean : gcBeans) {
+            long time = gcBean.getCollectionTime();
+            if (time > 0) {
+                total += time;
+            }
+        }
+        return total;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * @param capacityScore 0 (hết capacity / không OPEN) đến 100 (rảnh hoàn toàn)
+     * @param routingWeight weight gợi ý cho weighted round-robin, 0..app.capacity.max-weight
+     * @param queueDepth số packet đã nhận nhưng đang đợi permit bulkhead
+     * @param concurrencyHeadroom phần permit bulkhead còn trống (0-1)
+     * @param gcTimePercent phần trăm thời gian GC trong cửa sổ gần nhất
+     */
+    public record CapacityScore(double capacityScore, int routingWeight, int queueDepth,
+                                double concurrencyHeadroom, double p95LatencyMs, double gcTimePercent) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Độ bão hòa pool worker của connector HTTP, tách thời gian đợi worker khỏi thời gian xử lý
+ * - Dispatch wait: từ lúc connection có dữ liệu được giao cho executor đến lúc một worker bắt đầu chạy nó
+ * - Service time: thời gian worker chạy task đó
+ * Số liệu do InstrumentedTomcatExecutor (TomcatConnectorConfig) ghi. Trên stack reactive không có
+ * executor nào được gắn, các trường pool là -1 và hai cửa sổ latency rỗng.
+ */
+@Service
+@Slf4j
+public class ConnectorPoolService {
+
+    private final MetricsService metricsService;
+    private final LatencyWindowService dispatchWaitWindow;
+    private final LatencyWindowService serviceTimeWindow;
+
+    private volatile PoolView pool;
+
+    @Autowired
+    public ConnectorPoolService(MetricsService metricsService,
+                                @Value("${app.latency-window.window-seconds:60}") int windowSeconds,
+                                @Value("${app.latency-window.slots:12}") int slotCount) {
+        this(metricsService, new LatencyWindowService(windowSeconds, slotCount, 0.1),
+                new LatencyWindowService(windowSeconds, slotCount, 0.1));
+    }
+
+    ConnectorPoolService(MetricsService metricsService, LatencyWindowService dispatchWaitWindow,
+                         LatencyWindowService serviceTimeWindow) {
+        this.metricsService = metricsService;
+        this.dispatchWaitWindow = dispatchWaitWindow;
+        this.serviceTimeWindow = serviceTimeWindow;
+    }
+
+    /**
+     * Gắn pool của connector, chỉ connector đầu tiên được theo dõi
+     */
+    public synchronized void bind(PoolView pool) {
+        if (this.pool != null) {
+            log.warn("Connector pool already bound, ignoring additional connector");
+            return;
+        }
+        this.pool = pool;
+        metricsService.registerGauge("app.connector.threads", "Worker threads of the HTTP connector",
+                pool::activeThreads, "state", "active");
+        metricsService.registerGauge("app.connector.threads", "Worker threads of the HTTP connector",
+                pool::maxThreads, "state", "max");
+        metricsService.registerGauge("app.connector.pending", "Connections waiting for a worker thread",
+                pool::pendingDispatch, "type", "dispatch");
+        metricsService.registerGauge("app.connector.connections", "Connections held by the HTTP connector",
+                pool::connections, "state", "current");
+        metricsService.registerGauge("app.connector.connections", "Connections held by the HTTP connector",
+                pool::maxConnections, "state", "max");
+        log.info("Connector pool instrumented: maxThreads={}, maxConnections={}",
+                pool.maxThreads(), pool.maxConnections());
+    }
+
+    /**
+     * Gọi trên worker ngay khi task bắt đầu chạy
+     */
+    public void recordDispatchWait(long waitNanos) {
+        dispatchWaitWindow.record(waitNanos);
+        metricsService.recordDispatchWait(waitNanos);
+    }
+
+    /**
+     * Gọi trên worker khi task chạy xong
+     */
+    public void recordServiceTime(long serviceNanos) {
+        serviceTimeWindow.record(serviceNanos);
+        metricsService.recordServiceTime(serviceNanos);
+    }
+
+    public ConnectorStats snapshot() {
+        PoolView current = pool;
+        LatencyWindowService.LatencyStats dispatchWait = dispatchWaitWindow.snapshot();
+        LatencyWindowService.LatencyStats serviceTime = serviceTimeWindow.snapshot();
+        if (current == null) {
+            return new ConnectorStats(-1, -1, -1, -1, -1, dispatchWait.meanMs(), dispatchWait.p99Ms(),
+                    serviceTime.meanMs(), serviceTime.p99Ms());
+        }
+        return new ConnectorStats(current.activeThreads(), current.maxThreads(), current.pendingDispatch(),
+                current.connections(), current.maxConnections(), dispatchWait.meanMs(), dispatchWait.p99Ms(),
+                serviceTime.meanMs(), serviceTime.p99Ms());
+    }
+
+    /**
+     * Số liệu tức thời của executor và endpoint connector
+     */
+    public interface PoolView {
+
+        int activeThreads();
+
+        int maxThreads();
+
+        /**
+         * Task (connection đã có dữ liệu) đang đợi trong queue của executor
+         */
+        int pendingDispatch();
+
+        long connections();
+
+        long maxConnections();
+    }
+
+    /**
+     * @param pendingDispatch connection đã được poller giao nhưng chưa có worker
+     * @param maxConnections -1 khi connector không giới hạn
+     */
+    public record ConnectorStats(int activeThreads, int maxThreads, int pendingDispatch, long connections,
+                                 long maxConnections, double dispatchWaitMeanMs, double dispatchWaitP99Ms,
+                                 double serviceTimeMeanMs, double serviceTimeP99Ms) {
+    }
+}
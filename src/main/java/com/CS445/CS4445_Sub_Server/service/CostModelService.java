@@ -0,0 +1,177 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.CostEstimateResponse;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mô hình chi phí packet trên node này, dùng cho POST /server/estimate (routing theo chi phí)
+ * - Mỗi mức intensity 1-10 giữ thời gian (wall) và CPU time của kernel CPU và kernel RAM (EWMA)
+ * - Benchmark lúc khởi động (WarmupService gọi calibrate() sau JIT warmup, node vẫn ở WARMING)
+ *   rồi tiếp tục cập nhật từ thời gian kernel của mọi packet thật
+ * - Mức chưa có mẫu nào dùng giá trị mặc định app.bulkhead.cpu-ms-per-level / ram-ms-per-level
+ */
+@Service
+@Slf4j
+public class CostModelService {
+
+    static final int MAX_INTENSITY = 10;
+    private static final int DEFAULT_INTENSITY = 5;
+    private static final int DEFAULT_PROCESSING_TIME_MS = 1000;
+
+    private final FakePacketService fakePacketService;
+    private final double alpha;
+    private final int calibrationSamples;
+    private final int cpuMsPerLevel;
+    private final int ramMsPerLevel;
+
+    // Index = intensity, giá trị = Double.doubleToRawLongBits(ms), NaN khi chưa có mẫu
+    private final AtomicLongArray cpuKernelMs = emptyTable();
+    private final AtomicLongArray ramKernelMs = emptyTable();
+    private final AtomicLongArray cpuKernelCpuMs = emptyTable();
+    private final AtomicLongArray ramKernelCpuMs = emptyTable();
+    private final AtomicLongArray cpuSamples = new AtomicLongArray(MAX_INTENSITY + 1);
+    private final AtomicLongArray ramSamples = new AtomicLongArray(MAX_INTENSITY + 1);
+
+    private final AtomicLong calibrationDurationMs = new AtomicLong();
+    private volatile boolean calibrated;
+
+    public CostModelService(FakePacketService fakePacketService,
+                            MetricsService metricsService,
+                            @Value("${app.cost-model.alpha:0.2}") double alpha,
+                            @Value("${app.cost-model.calibration-samples:3}") int calibrationSamples,
+                            @Value("${app.bulkhead.cpu-ms-per-level:10}") int cpuMsPerLevel,
+                            @Value("${app.bulkhead.ram-ms-per-level:10}") int ramMsPerLevel) {
+        this.fakePacketService = fakePacketService;
+        this.alpha = Math.min(1.0, Math.max(0.01, alpha));
+        this.calibrationSamples = Math.max(1, calibrationSamples);
+        this.cpuMsPerLevel = cpuMsPerLevel;
+        this.ramMsPerLevel = ramMsPerLevel;
+
+        fakePacketService.addKernelTimingListener(this::record);
+
+        metricsService.registerGauge("app.cost_model.calibration.duration",
+                "Startup kernel benchmark duration in milliseconds", calibrationDurationMs::get, "type", "startup");
+    }
+
+    /**
+     * Benchmark kernel của FakePacketService ở mọi mức intensity trên thread hiện tại
+     * Kết quả vào mô hình qua kernel timing listener như packet thật
+     */
+    public void calibrate() {
+        long start = System.nanoTime();
+        for (int sample = 0; sample < calibrationSamples; sample++) {
+            for (int intensity = 1; intensity <= MAX_INTENSITY; intensity++) {
+                fakePacketService.runKernels(FakePacketRequest.builder()
+                        .packetId("calibration-" + sample + "-" + intensity)
+                        .cpuIntensity(intensity)
+                        .ramIntensity(intensity)
+                        .processingTimeMs(0)
+                        .build());
+            }
+        }
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        calibrationDurationMs.set(durationMs);
+        calibrated = true;
+        log.info("Cost model calibrated in {}ms: CPU kernel {}ms..{}ms, RAM kernel {}ms..{}ms (intensity 1..{})",
+                durationMs,
+                Math.round(kernelMs(cpuKernelMs, 1, cpuMsPerLevel)),
+                Math.round(kernelMs(cpuKernelMs, MAX_INTENSITY, cpuMsPerLevel)),
+                Math.round(kernelMs(ramKernelMs, 1, ramMsPerLevel)),
+                Math.round(kernelMs(ramKernelMs, MAX_INTENSITY, ramMsPerLevel)),
+                MAX_INTENSITY);
+    }
+
+    /**
+     * Cập nhật mô hình từ thời gian kernel của một packet
+     */
+    public void record(FakePacketService.KernelTiming timing) {
+        int cpu = clampIntensity(timing.cpuIntensity());
+        int ram = clampIntensity(timing.ramIntensity());
+        double cpuMs = timing.cpuKernelNanos() / 1_000_000.0;
+        double ramMs = timing.ramKernelNanos() / 1_000_000.0;
+
+        update(cpuKernelMs, cpu, cpuMs);
+        update(ramKernelMs, ram, ramMs);
+        // JVM không đo được CPU time của thread thì coi kernel là CPU-bound hoàn toàn
+        update(cpuKernelCpuMs, cpu, timing.cpuKernelCpuNanos() >= 0 ? timing.cpuKernelCpuNanos() / 1_000_000.0 : cpuMs);
+        update(ramKernelCpuMs, ram, timing.ramKernelCpuNanos() >= 0 ? timing.ramKernelCpuNanos() / 1_000_000.0 : ramMs);
+        cpuSamples.incrementAndGet(cpu);
+        ramSamples.incrementAndGet(ram);
+    }
+
+    /**
+     * Latency và CPU time dự đoán của packet trên node này (không gồm thời gian đợi trong queue)
+     * Latency = max(processingTimeMs, thời gian kernel) vì packet chỉ sleep phần còn lại
+     */
+    public CostEstimateResponse estimate(FakePacketRequest request) {
+        int cpu = clampIntensity(request.getCpuIntensity() != null ? request.getCpuIntensity() : DEFAULT_INTENSITY);
+        int ram = clampIntensity(request.getRamIntensity() != null ? request.getRamIntensity() : DEFAULT_INTENSITY);
+        int processingTimeMs = request.getProcessingTimeMs() != null
+                ? request.getProcessingTimeMs()
+                : DEFAULT_PROCESSING_TIME_MS;
+
+        double kernelMs = kernelMs(cpuKernelMs, cpu, cpuMsPerLevel) + kernelMs(ramKernelMs, ram, ramMsPerLevel);
+        double cpuMs = kernelMs(cpuKernelCpuMs, cpu, cpuMsPerLevel) + kernelMs(ramKernelCpuMs, ram, ramMsPerLevel);
+
+        return CostEstimateResponse.builder()
+                .packetId(request.getPacketId())
+                .cpuIntensity(cpu)
+                .ramIntensity(ram)
+                .processingTimeMs(processingTimeMs)
+                .predictedKernelMs(round(kernelMs))
+                .predictedLatencyMs(round(Math.max(processingTimeMs, kernelMs)))
+                .predictedCpuMs(round(cpuMs))
+                .samples(Math.min(cpuSamples.get(cpu), ramSamples.get(ram)))
+                .calibrated(calibrated)
+                .build();
+    }
+
+    public boolean isCalibrated() {
+        return calibrated;
+    }
+
+    public long getCalibrationDurationMs() {
+        return calibrationDurationMs.get();
+    }
+
+    private void update(AtomicLongArray table, int intensity, double sampleMs) {
+        while (true) {
+            long currentBits = table.get(intensity);
+            double current = Double.longBitsToDouble(currentBits);
+            double next = Double.isNaN(current) ? sampleMs : current + alpha * (sampleMs - current);
+            if (table.compareAndSet(intensity, currentBits, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    private static double kernelMs(AtomicLongArray table, int intensity, int defaultMsPerLevel) {
+        double value = Double.longBitsToDouble(table.get(intensity));
+        return Double.isNaN(value) ? (double) intensity * defaultMsPerLevel : value;
+    }
+
+    private static AtomicLongArray emptyTable() {
+        AtomicLongArray table = new AtomicLongArray(MAX_INTENSITY + 1);
+        for (int i = 0; i <= MAX_INTENSITY; i++) {
+            table.set(i, Double.doubleToRawLongBits(Double.NaN));
+        }
+        return table;
+    }
+
+    private static int clampIntensity(int intensity) {
+        return Math.max(1, Math.min(MAX_INTENSITY, intensity));
+    }
+
+    private static double round(double ms) {
+        return Math.round(ms * 100.0) / 100.0;
+    }
+}
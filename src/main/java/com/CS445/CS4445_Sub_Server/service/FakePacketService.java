@@ -1,5 +1,7 @@
 package com.CS445.CS4445_Sub_Server.service;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
@@ -10,21 +12,85 @@ import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
 import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class FakePacketService {
 
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final List<Consumer<KernelTiming>> kernelTimingListeners = new CopyOnWriteArrayList<>();
+    private final MetricsService metricsService;
+    private final boolean includePhaseTimings;
+
+    /**
+     * @param includePhaseTimings trả thời gian từng phase (phaseTimingsMs) trong FakePacketResponse
+     */
+    public FakePacketService(MetricsService metricsService,
+                             @Value("${app.phase-timing.include-in-response:false}") boolean includePhaseTimings) {
+        this.metricsService = metricsService;
+        this.includePhaseTimings = includePhaseTimings;
+    }
+
     public FakePacketResponse processFakePacket(FakePacketRequest request) {
+        return processFakePacket(request, null);
+    }
+
+    /**
+     * @param payload payload nhị phân trong direct buffer (POST /api/v1/fakePacket/upload), null nếu không có
+     */
+    public FakePacketResponse processFakePacket(FakePacketRequest request, PacketPayload payload) {
+        PacketWork work = runKernels(request, payload);
+
+        // Ensure minimum processing time
+        long remaining = work.remainingDelayMs();
+        if (remaining > 0) {
+            try {
+                Thread.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Processing interrupted", e);
+            }
+        }
+
+        return buildResponse(work);
+    }
+
+    /**
+     * Chạy cùng code path với packet thật (kernel + build response) để warmup JIT, nhưng không
+     * log từng packet, không ghi app.processing.phase và không báo kernel timing cho cost model:
+     * thời gian lúc JIT còn lạnh không được lẫn vào số liệu của packet thật
+     */
+    public FakePacketResponse processWarmupPacket(FakePacketRequest request) {
+        return buildResponse(runKernels(request, null, false), false);
+    }
+
+    /**
+     * Phần CPU/RAM của packet (không gồm thời gian chờ đủ processingTimeMs)
+     * Stack reactive chạy phần này trên scheduler riêng rồi chờ bằng Mono.delay
+     */
+    public PacketWork runKernels(FakePacketRequest request) {
+        return runKernels(request, null);
+    }
+
+    public PacketWork runKernels(FakePacketRequest request, PacketPayload payload) {
+        return runKernels(request, payload, true);
+    }
+
+    /**
+     * @param observed false với packet warmup: không log, không báo kernel timing
+     */
+    private PacketWork runKernels(FakePacketRequest request, PacketPayload payload, boolean observed) {
         long startTime = System.currentTimeMillis();
 
         // Handle null/empty packet ID
@@ -41,49 +107,115 @@ public class FakePacketService {
         cpuIntensity = Math.max(1, Math.min(10, cpuIntensity));
         ramIntensity = Math.max(1, Math.min(10, ramIntensity));
 
-        log.info("Processing packet {} with CPU intensity: {}, RAM intensity: {}",
-                packetId, cpuIntensity, ramIntensity);
+        if (observed) {
+            log.info("Processing packet {} with CPU intensity: {}, RAM intensity: {}",
+                    packetId, cpuIntensity, ramIntensity);
+        }
+        PhaseTimings timings = new PhaseTimings(packetId, cpuIntensity, ramIntensity);
 
         try {
+            long threadCpuStart = currentThreadCpuTime();
+            timings.skip();
+
             // CPU-intensive operations
-            long cpuCycles = performCpuIntensiveWork(cpuIntensity);
+            long cpuCycles = performCpuIntensiveWork(cpuIntensity, timings);
+            long threadCpuMid = currentThreadCpuTime();
+            timings.skip();
 
             // RAM-intensive operations
-            long memoryUsed = performRamIntensiveWork(ramIntensity);
-
-            // Ensure minimum processing time
-            long currentTime = System.currentTimeMillis();
-            long elapsed = currentTime - startTime;
-            if (elapsed < minProcessingTime) {
-                try {
-                    Thread.sleep(minProcessingTime - elapsed);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    log.warn("Processing interrupted", e);
-                }
+            long memoryUsed = performRamIntensiveWork(ramIntensity, timings);
+
+            if (observed) {
+                notifyKernelTiming(new KernelTiming(cpuIntensity, ramIntensity,
+                        timings.sumNanos(PhaseTimings.Phase.PRIMES, PhaseTimings.Phase.STRINGS),
+                        timings.sumNanos(PhaseTimings.Phase.RAM_LIST, PhaseTimings.Phase.RAM_SCAN),
+                        threadCpuStart < 0 ? -1 : threadCpuMid - threadCpuStart,
+                        threadCpuStart < 0 ? -1 : currentThreadCpuTime() - threadCpuMid));
             }
+            timings.skip();
 
-            long totalProcessingTime = System.currentTimeMillis() - startTime;
-
-            String result = String.format("Packet %s processed successfully. CPU cycles: %d, Memory used: %d bytes",
-                    packetId, cpuCycles, memoryUsed);
+            if (payload == null) {
+                return new PacketWork(packetId, startTime, minProcessingTime, cpuCycles, memoryUsed,
+                        null, null, timings);
+            }
 
-            return FakePacketResponse.builder()
-                    .packetId(packetId)
-                    .status("SUCCESS")
-                    .processingTimeMs(totalProcessingTime)
-                    .cpuCycles(cpuCycles)
-                    .memoryUsedBytes(memoryUsed)
-                    .result(result)
-                    .timestamp(LocalDateTime.now())
-                    .build();
+            // Payload operations, chạy thẳng trên direct buffer
+            long payloadChecksum = checksumPayload(payload);
+            timings.lap(PhaseTimings.Phase.PAYLOAD);
+            return new PacketWork(packetId, startTime, minProcessingTime, cpuCycles, memoryUsed,
+                    payload.size(), payloadChecksum, timings);
         } catch (Exception e) {
             log.error("Error processing packet {}", packetId, e);
             throw new RuntimeException("Failed to process packet: " + packetId, e);
         }
     }
 
-    private long performCpuIntensiveWork(int intensity) {
+    /**
+     * Nhận thời gian chạy kernel của mọi packet (dùng cho CostModelService)
+     */
+    public void addKernelTimingListener(Consumer<KernelTiming> listener) {
+        kernelTimingListeners.add(listener);
+    }
+
+    private void notifyKernelTiming(KernelTiming timing) {
+        for (Consumer<KernelTiming> listener : kernelTimingListeners) {
+            try {
+                listener.accept(timing);
+            } catch (RuntimeException e) {
+                log.warn("Kernel timing listener failed", e);
+            }
+        }
+    }
+
+    private long currentThreadCpuTime() {
+        return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * Response SUCCESS sau khi packet đã chạy kernel và chờ đủ processingTimeMs
+     */
+    public FakePacketResponse buildResponse(PacketWork work) {
+        return buildResponse(work, true);
+    }
+
+    private FakePacketResponse buildResponse(PacketWork work, boolean observed) {
+        long totalProcessingTime = System.currentTimeMillis() - work.startTimeMs();
+
+        // Phần từ lúc kernel xong đến giờ là thời gian chờ đủ processingTimeMs (sleep hoặc Mono.delay)
+        PhaseTimings timings = work.phaseTimings();
+        Map<String, Double> phaseTimingsMs = null;
+        if (timings != null) {
+            timings.lap(PhaseTimings.Phase.DELAY);
+            if (observed) {
+                metricsService.recordPhaseTimings(timings);
+            }
+            if (includePhaseTimings) {
+                phaseTimingsMs = timings.toMillis();
+            }
+        }
+
+        String result = String.format("Packet %s processed successfully. CPU cycles: %d, Memory used: %d bytes",
+                work.packetId(), work.cpuCycles(), work.memoryUsedBytes());
+        if (work.payloadBytes() != null) {
+            result += String.format(", Payload: %d bytes", work.payloadBytes());
+        }
+
+        return FakePacketResponse.builder()
+                .packetId(work.packetId())
+                .status("SUCCESS")
+                .processingTimeMs(totalProcessingTime)
+                .cpuCycles(work.cpuCycles())
+                .memoryUsedBytes(work.memoryUsedBytes())
+                .payloadBytes(work.payloadBytes())
+                .payloadChecksum(work.payloadChecksum())
+                .phaseTimingsMs(phaseTimingsMs)
+                .phaseTimings(timings)
+                .result(result)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    private long performCpuIntensiveWork(int intensity, PhaseTimings timings) {
         long cycles = 0;
         int iterations = intensity * 10000;  // Reduced from 100000 to 10000 (10x reduction)
 
@@ -95,6 +227,7 @@ public class FakePacketService {
                 cycles++;
             }
         }
+        timings.lap(PhaseTimings.Phase.PRIMES);
 
         // Hash computation (CPU intensive)
         try {
@@ -107,6 +240,7 @@ public class FakePacketService {
             log.error("Hash algorithm not found", e);
             throw new RuntimeException("Hash algorithm not available", e);
         }
+        timings.lap(PhaseTimings.Phase.HASH);
 
         // Complex mathematical operations
         double result = 0;
@@ -114,6 +248,7 @@ public class FakePacketService {
             result += Math.sqrt(i) * Math.log(i + 1) / Math.cos(i * 0.1);
             cycles++;
         }
+        timings.lap(PhaseTimings.Phase.MATH);
 
         // String manipulation (CPU intensive)
         StringBuilder sb = new StringBuilder();
@@ -124,12 +259,13 @@ public class FakePacketService {
             }
             cycles++;
         }
+        timings.lap(PhaseTimings.Phase.STRINGS);
 
         log.debug("CPU work completed: {} cycles, {} primes found", cycles, primes.size());
         return cycles;
     }
 
-    private long performRamIntensiveWork(int intensity) {
+    private long performRamIntensiveWork(int intensity, PhaseTimings timings) {
         long totalMemory = 0;
 
         int arraySize = intensity * 10000;  // Reduced from 100000 to 10000 (10x reduction)
@@ -140,6 +276,7 @@ public class FakePacketService {
             largeList.add(UUID.randomUUID().toString() + "-" + i);
         }
         totalMemory += largeList.size() * 40L;
+        timings.lap(PhaseTimings.Phase.RAM_LIST);
 
         // Large HashMap
         Map<String, Object> largeMap = new HashMap<>();
@@ -151,6 +288,7 @@ public class FakePacketService {
             largeMap.put("entry-" + i, nestedMap);
         }
         totalMemory += largeMap.size() * 200L;
+        timings.lap(PhaseTimings.Phase.RAM_MAP);
 
         // Byte arrays
         List<byte[]> byteArrays = new ArrayList<>();
@@ -160,6 +298,7 @@ public class FakePacketService {
             byteArrays.add(arr);
             totalMemory += arr.length;
         }
+        timings.lap(PhaseTimings.Phase.RAM_BYTES);
 
         // ConcurrentHashMap with complex objects
         Map<String, List<Map<String, Object>>> complexMap = new ConcurrentHashMap<>();
@@ -176,6 +315,7 @@ public class FakePacketService {
             complexMap.put("key-" + i, list);
         }
         totalMemory += complexMap.size() * 12000L;
+        timings.lap(PhaseTimings.Phase.RAM_OBJECTS);
 
         // Process the data to prevent optimization
         long sum = largeList.stream()
@@ -187,11 +327,23 @@ public class FakePacketService {
         sum += byteArrays.stream()
                 .mapToLong(arr -> arr[0])
                 .sum();
+        timings.lap(PhaseTimings.Phase.RAM_SCAN);
 
         log.debug("RAM work completed: {} bytes allocated, checksum: {}", totalMemory, sum);
         return totalMemory;
     }
 
+    /**
+     * CRC32C của payload: CRC32C.update(ByteBuffer) đọc direct buffer qua địa chỉ native
+     * (intrinsic), không copy payload lên heap
+     */
+    private long checksumPayload(PacketPayload payload) {
+        CRC32C crc = new CRC32C();
+        payload.forEachChunk(crc::update);
+        log.debug("Payload work completed: {} bytes in {} chunks", payload.size(), payload.chunkCount());
+        return crc.getValue();
+    }
+
     private boolean isPrime(long n) {
         if (n <= 1) return false;
         if (n <= 3) return true;
@@ -204,4 +356,36 @@ public class FakePacketService {
         }
         return true;
     }
+
+    /**
+     * Kết quả phần kernel của một packet
+     * @param minProcessingTimeMs processingTimeMs tối thiểu của packet (tính từ startTimeMs)
+     * @param payloadBytes kích thước payload nhị phân, null nếu packet không có payload
+     * @param phaseTimings thời gian từng phase kernel, buildResponse ghi thêm phase delay
+     */
+    public record PacketWork(String packetId, long startTimeMs, long minProcessingTimeMs,
+                             long cpuCycles, long memoryUsedBytes, Long payloadBytes, Long payloadChecksum,
+                             PhaseTimings phaseTimings) {
+
+        public PacketWork(String packetId, long startTimeMs, long minProcessingTimeMs,
+                          long cpuCycles, long memoryUsedBytes) {
+            this(packetId, startTimeMs, minProcessingTimeMs, cpuCycles, memoryUsedBytes, null, null, null);
+        }
+
+        /**
+         * Thời gian còn phải chờ để packet đủ processingTimeMs
+         */
+        public long remainingDelayMs() {
+            return minProcessingTimeMs - (System.currentTimeMillis() - startTimeMs);
+        }
+    }
+
+    /**
+     * Thời gian của kernel CPU và kernel RAM trong một packet (intensity đã clamp)
+     * @param cpuKernelCpuNanos CPU time của thread trong kernel CPU, -1 nếu JVM không hỗ trợ đo
+     */
+    public record KernelTiming(int cpuIntensity, int ramIntensity,
+                               long cpuKernelNanos, long ramKernelNanos,
+                               long cpuKernelCpuNanos, long ramKernelCpuNanos) {
+    }
 }
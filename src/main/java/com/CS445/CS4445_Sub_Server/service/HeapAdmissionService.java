@@ -0,0 +1,200 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Admission control theo heap còn trống, từ chối packet trước khi JVM bị OutOfMemoryError
+ * - Mỗi packet ước lượng lượng heap cần theo ramIntensity
+ * - Heap còn trống = max-utilization * heap tối đa - heap còn sống sau GC (collection usage
+ *   của các MemoryPoolMXBean heap) - phần đã giữ cho các packet đang chạy
+ * - Heap sau GC chỉ thay đổi khi có GC, nên được cập nhật từ GC notification thay vì đọc
+ *   MXBean ở mỗi request
+ * - Khi pool old gen vượt collection usage threshold thì từ chối mọi packet đến khi GC
+ *   đưa heap về dưới ngưỡng
+ */
+@Service
+@Slf4j
+public class HeapAdmissionService {
+
+    private final boolean enabled;
+    private final long baseBytes;
+    private final long bytesPerRamLevel;
+    private final long heapBudgetBytes;
+
+    private final List<MemoryPoolMXBean> heapPools;
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private volatile long postGcUsedBytes;
+
+    private final NotificationListener gcListener = (notification, handback) -> refreshPostGcUsage();
+
+    public HeapAdmissionService(MetricsService metricsService,
+                                @Value("${app.admission.heap.enabled:true}") boolean enabled,
+                                @Value("${app.admission.heap.base-bytes:1048576}") long baseBytes,
+                                @Value("${app.admission.heap.bytes-per-ram-level:4194304}") long bytesPerRamLevel,
+                                @Value("${app.admission.heap.max-utilization:0.85}") double maxUtilization) {
+        this.enabled = enabled;
+        this.baseBytes = baseBytes;
+        this.bytesPerRamLevel = bytesPerRamLevel;
+        this.heapBudgetBytes = (long) (Runtime.getRuntime().maxMemory() * Math.max(0.0, Math.min(1.0, maxUtilization)));
+        this.heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+
+        for (MemoryPoolMXBean pool : heapPools) {
+            long max = pool.getUsage().getMax();
+            if (pool.isCollectionUsageThresholdSupported() && max > 0) {
+                pool.setCollectionUsageThreshold((long) (max * Math.max(0.0, Math.min(1.0, maxUtilization))));
+            }
+        }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(gcListener, null, null);
+            }
+        }
+        refreshPostGcUsage();
+
+        metricsService.registerGauge("app.admission.heap.reserved", "Heap bytes reserved by running packets",
+                reservedBytes::get, "type", "reserved");
+        metricsService.registerGauge("app.admission.heap.headroom", "Post-GC heap bytes available for new packets",
+                this::getHeadroomBytes, "type", "available");
+        metricsService.registerFunctionCounter("app.admission.heap.rejected", "Packets rejected for lack of heap",
+                rejectedCount, AtomicLong::get, "type", "rejected");
+
+        log.info("Heap admission initialized: budget={} bytes, {} bytes per RAM level, enabled={}",
+                heapBudgetBytes, bytesPerRamLevel, enabled);
+    }
+
+    /**
+     * Giữ phần heap ước lượng cho packet trong lúc chạy work
+     * @throws HeapExhaustedException khi heap còn trống không đủ cho packet
+     */
+    public <T> T execute(FakePacketRequest request, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+
+        long estimate = estimateBytes(request);
+        if (!tryReserve(estimate)) {
+            rejectedCount.incrementAndGet();
+            throw new HeapExhaustedException(estimate, getHeadroomBytes());
+        }
+        try {
+            return work.get();
+        } finally {
+            reservedBytes.addAndGet(-estimate);
+        }
+    }
+
+    /**
+     * Ước lượng heap cần cho packet, tăng tuyến tính theo ramIntensity
+     */
+    public long estimateBytes(FakePacketRequest request) {
+        int ramIntensity = request.getRamIntensity() != null ? request.getRamIntensity() : 5;
+        ramIntensity = Math.max(1, Math.min(10, ramIntensity));
+        return baseBytes + ramIntensity * bytesPerRamLevel;
+    }
+
+    /**
+     * Heap còn trống cho packet mới (đã trừ phần các packet đang chạy giữ)
+     */
+    public long getHeadroomBytes() {
+        return Math.max(0, heapBudgetBytes - postGcUsedBytes - reservedBytes.get());
+    }
+
+    /**
+     * Tỉ lệ heap còn sống sau GC so với heap tối đa (0..1)
+     */
+    public double getPostGcUtilization() {
+        return (double) postGcUsedBytes / Runtime.getRuntime().maxMemory();
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    private boolean tryReserve(long bytes) {
+        if (isThresholdExceeded()) {
+            return false;
+        }
+        long available = heapBudgetBytes - postGcUsedBytes;
+        while (true) {
+            long current = reservedBytes.get();
+            // Luôn cho một packet chạy khi không có packet nào khác giữ heap, tránh chặn hẳn node
+            if (current > 0 && current + bytes > available) {
+                return false;
+            }
+            if (reservedBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean isThresholdExceeded() {
+        for (MemoryPoolMXBean pool : heapPools) {
+            if (pool.isCollectionUsageThresholdSupported() && pool.getCollectionUsageThreshold() > 0
+                    && pool.isCollectionUsageThresholdExceeded()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void refreshPostGcUsage() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage collectionUsage = pool.getCollectionUsage();
+            used += collectionUsage != null ? collectionUsage.getUsed() : pool.getUsage().getUsed();
+        }
+        postGcUsedBytes = used;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                try {
+                    emitter.removeNotificationListener(gcListener);
+                } catch (Exception e) {
+                    log.debug("GC listener already removed from {}", gc.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Heap còn trống không đủ cho packet
+     */
+    @Getter
+    public static class HeapExhaustedException extends RuntimeException {
+
+        private final long requiredBytes;
+        private final long availableBytes;
+
+        public HeapExhaustedException(long requiredBytes, long availableBytes) {
+            super(String.format("Insufficient heap headroom: packet needs ~%d bytes, %d bytes available",
+                    requiredBytes, availableBytes));
+            this.requiredBytes = requiredBytes;
+            this.availableBytes = availableBytes;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.NodeHeartbeat;
+import com.CS445.CS4445_Sub_Server.dto.NodeRegistration;
+import com.CS445.CS4445_Sub_Server.dto.ServerHealthResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Push mode: sub-server tự đăng ký với Load-Balancer và gửi heartbeat thay vì đợi LB poll
+ * /server/health
+ * - Heartbeat (body = NodeHeartbeat, header X-Node-Id / X-Heartbeat-Seq) gửi theo
+ *   chu kỳ interval-ms, và gửi ngay khi server đổi trạng thái hoặc queue tăng/giảm đột ngột
+ * - Gửi bất đồng bộ bằng java.net.http.HttpClient với timeout ngắn: receiver chết chỉ làm
+ *   tăng counter lỗi, không chặn thread nào của server
+ * - Heartbeat lỗi thì lần sau đăng ký lại (receiver restart có thể đã mất danh sách node)
+ */
+@Service
+@Slf4j
+public class HeartbeatService {
+
+    public static final String NODE_ID_HEADER = "X-Node-Id";
+    public static final String SEQUENCE_HEADER = "X-Heartbeat-Seq";
+    public static final String REASON_HEADER = "X-Heartbeat-Reason";
+
+    private final ServerHealthService serverHealthService;
+    private final ServerStateService serverStateService;
+    private final MetricsService metricsService;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final URI heartbeatUri;
+    private final URI registerUri;
+    private final String nodeId;
+    private final String advertisedUrl;
+    private final long intervalMs;
+    private final int queueJumpThreshold;
+    private final Duration requestTimeout;
+    private final HttpClient httpClient;
+
+    private final Consumer<ServerStateService.StateTransition> stateListener =
+            transition -> sendHeartbeat("state_change");
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicBoolean registered = new AtomicBoolean(false);
+    private volatile long lastSentMillis;
+    private volatile int lastSentQueueLength;
+
+    public HeartbeatService(ServerHealthService serverHealthService,
+                            ServerStateService serverStateService,
+                            MetricsService metricsService,
+                            ObjectMapper objectMapper,
+                            @Value("${app.heartbeat.enabled:false}") boolean enabled,
+                            @Value("${app.heartbeat.url:}") String heartbeatUrl,
+                            @Value("${app.heartbeat.register-url:}") String registerUrl,
+                            @Value("${app.heartbeat.node-id:${SERVER_ID:sub-server}}") String nodeId,
+                            @Value("${app.heartbeat.advertised-url:http://localhost:${server.port:8080}}") String advertisedUrl,
+                            @Value("${app.heartbeat.interval-ms:5000}") long intervalMs,
+                            @Value("${app.heartbeat.queue-jump-threshold:16}") int queueJumpThreshold,
+                            @Value("${app.heartbeat.timeout-ms:1000}") long timeoutMs) {
+        this.serverHealthService = serverHealthService;
+        this.serverStateService = serverStateService;
+        this.metricsService = metricsService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled && !heartbeatUrl.isBlank();
+        this.heartbeatUri = heartbeatUrl.isBlank() ? null : URI.create(heartbeatUrl);
+        this.registerUri = registerUrl.isBlank() ? null : URI.create(registerUrl);
+        this.nodeId = nodeId;
+        this.advertisedUrl = advertisedUrl;
+        this.intervalMs = intervalMs;
+        this.queueJumpThreshold = queueJumpThreshold;
+        this.requestTimeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(requestTimeout)
+                .build();
+
+        if (this.enabled) {
+            serverStateService.addListener(stateListener);
+            log.info("Heartbeat push enabled: node {} -> {} every {}ms", nodeId, heartbeatUrl, intervalMs);
+        }
+
+        metricsService.registerFunctionCounter("app.heartbeat.sent", "Heartbeats sent to the load balancer",
+                sentCount, AtomicLong::get, "result", "success");
+        metricsService.registerFunctionCounter("app.heartbeat.sent", "Heartbeats sent to the load balancer",
+                failedCount, AtomicLong::get, "result", "failure");
+    }
+
+    /**
+     * Chạy thường xuyên (check-interval-ms), chỉ gửi khi đến chu kỳ hoặc queue thay đổi đột ngột
+     */
+    @Scheduled(fixedDelayString = "${app.heartbeat.check-interval-ms:250}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        if (!registered.get()) {
+            register();
+        }
+
+        int queueLength = metricsService.getQueueLength();
+        long now = System.currentTimeMillis();
+        if (Math.abs(queueLength - lastSentQueueLength) >= queueJumpThreshold) {
+            sendHeartbeat("queue_jump");
+        } else if (now - lastSentMillis >= intervalMs) {
+            sendHeartbeat("interval");
+        }
+    }
+
+    /**
+     * Gửi heartbeat ngay (bất đồng bộ)
+     * @return future hoàn thành với true nếu receiver nhận heartbeat (2xx)
+     */
+    public CompletableFuture<Boolean> sendHeartbeat(String reason) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        NodeHeartbeat heartbeat = toHeartbeat(serverHealthService.getHealth());
+        lastSentMillis = System.currentTimeMillis();
+        lastSentQueueLength = metricsService.getQueueLength();
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(heartbeatUri)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header(NODE_ID_HEADER, nodeId)
+                    .header(SEQUENCE_HEADER, Long.toString(sequence.incrementAndGet()))
+                    .header(REASON_HEADER, reason)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(heartbeat)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to encode heartbeat", e);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    boolean delivered = error == null && response.statusCode() / 100 == 2;
+                    if (delivered) {
+                        sentCount.incrementAndGet();
+                    } else {
+                        failedCount.incrementAndGet();
+                        // Receiver có thể đã restart và mất đăng ký: đăng ký lại ở tick sau
+                        registered.set(false);
+                        log.debug("Heartbeat ({}) to {} failed: {}", reason, heartbeatUri,
+                                error != null ? error.getMessage() : "HTTP " + response.statusCode());
+                    }
+                    return delivered;
+                });
+    }
+
+    /**
+     * Rút gọn health thành các field LB dùng để định tuyến (heartbeat gửi mỗi interval-ms)
+     */
+    private NodeHeartbeat toHeartbeat(ServerHealthResponse health) {
+        return NodeHeartbeat.builder()
+                .state(serverStateService.getSnapshot().state().name())
+                .cpuUsagePercent(health.getCpuUsagePercent())
+                .memoryUsagePercent(health.getMemoryUsagePercent())
+                .currConnections(health.getCurrConnections())
+                .queueDepth(health.getQueueDepth())
+                .capacityScore(health.getCapacityScore())
+                .routingWeight(health.getRoutingWeight())
+                .sampledAtMillis(health.getSampledAtMillis())
+                .build();
+    }
+
+    /**
+     * Đăng ký node với Load-Balancer (bỏ qua nếu không cấu hình register-url)
+     */
+    public CompletableFuture<Boolean> register() {
+        if (!enabled || registerUri == null) {
+            registered.set(true);
+            return CompletableFuture.completedFuture(true);
+        }
+
+        NodeRegistration registration = NodeRegistration.builder()
+                .nodeId(nodeId)
+                .url(advertisedUrl)
+                .heartbeatIntervalMs(intervalMs)
+                .build();
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(registerUri)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header(NODE_ID_HEADER, nodeId)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(registration)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to encode node registration", e);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        // Đánh dấu trước để các tick trong lúc đang đợi response không gửi đăng ký trùng
+        registered.set(true);
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    boolean accepted = error == null && response.statusCode() / 100 == 2;
+                    if (accepted) {
+                        log.info("Registered node {} ({}) with {}", nodeId, advertisedUrl, registerUri);
+                    } else {
+                        registered.set(false);
+                        log.debug("Registration with {} failed: {}", registerUri,
+                                error != null ? error.getMessage() : "HTTP " + response.statusCode());
+                    }
+                    return accepted;
+                });
+    }
+
+    public boolean isRegistered() {
+        return registered.get();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        serverStateService.removeListener(stateListener);
+        httpClient.shutdownNow();
+    }
+}
@@ -0,0 +1,141 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.jfr.PacketAdmissionEvent;
+import com.CS445.CS4445_Sub_Server.jfr.PacketPhaseEvent;
+import com.CS445.CS4445_Sub_Server.jfr.PacketQueueEvent;
+import com.CS445.CS4445_Sub_Server.jfr.PacketRejectionEvent;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recording JFR theo yêu cầu (/admin/jfr/*): tối đa một recording tại một thời điểm,
+ * giới hạn thời gian (tự dừng) và kích thước trên đĩa, gồm các event JDK theo app.jfr.settings
+ * và các event packet (cs4445.PacketAdmission, PacketQueue, PacketPhase, PacketRejection)
+ */
+@Service
+@Slf4j
+public class JfrRecordingService {
+
+    private static final List<Class<? extends Event>> PACKET_EVENTS = List.of(PacketAdmissionEvent.class,
+            PacketQueueEvent.class, PacketPhaseEvent.class, PacketRejectionEvent.class);
+
+    private final Configuration configuration;
+    private final Duration maxDuration;
+    private final long maxSizeBytes;
+
+    // Recording hiện tại (đang chạy hoặc đã tự dừng vì hết duration), null khi chưa start
+    private Recording recording;
+
+    public JfrRecordingService(@Value("${app.jfr.settings:profile}") String settings,
+                               @Value("${app.jfr.max-duration-seconds:300}") long maxDurationSeconds,
+                               @Value("${app.jfr.max-size-mb:100}") long maxSizeMb) {
+        try {
+            this.configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown JFR settings: " + settings, e);
+        }
+        this.maxDuration = Duration.ofSeconds(Math.max(1, maxDurationSeconds));
+        this.maxSizeBytes = Math.max(1, maxSizeMb) * 1024 * 1024;
+    }
+
+    /**
+     * @param durationSeconds null hoặc lớn hơn app.jfr.max-duration-seconds thì dùng giá trị tối đa
+     * @param maxSizeMb null hoặc lớn hơn app.jfr.max-size-mb thì dùng giá trị tối đa
+     * @throws IllegalStateException khi đã có recording chưa được stop
+     */
+    public synchronized RecordingStatus start(Long durationSeconds, Long maxSizeMb) {
+        if (recording != null) {
+            throw new IllegalStateException("A JFR recording is already in progress");
+        }
+
+        Duration duration = durationSeconds != null && durationSeconds > 0
+                ? min(Duration.ofSeconds(durationSeconds), maxDuration)
+                : maxDuration;
+        long sizeBytes = maxSizeMb != null && maxSizeMb > 0
+                ? Math.min(maxSizeMb * 1024 * 1024, maxSizeBytes)
+                : maxSizeBytes;
+
+        Recording next = new Recording(configuration);
+        next.setName("cs4445-" + Instant.now().toEpochMilli());
+        next.setToDisk(true);
+        next.setDuration(duration);
+        next.setMaxSize(sizeBytes);
+        PACKET_EVENTS.forEach(next::enable);
+        next.start();
+        recording = next;
+
+        log.info("Started JFR recording {} (duration={}, maxSize={} bytes)", next.getName(), duration, sizeBytes);
+        return status(next);
+    }
+
+    /**
+     * Dừng recording và ghi ra file .jfr tạm, caller xóa file sau khi dùng xong
+     * @return empty nếu không có recording nào
+     */
+    public synchronized Optional<Path> stop() throws IOException {
+        if (recording == null) {
+            return Optional.empty();
+        }
+        Recording current = recording;
+        recording = null;
+        try {
+            if (current.getState() == RecordingState.RUNNING) {
+                current.stop();
+            }
+            Path file = Files.createTempFile(current.getName() + "-", ".jfr");
+            current.dump(file);
+            log.info("Stopped JFR recording {}, {} bytes written to {}", current.getName(), Files.size(file), file);
+            return Optional.of(file);
+        } finally {
+            current.close();
+        }
+    }
+
+    public synchronized RecordingStatus getStatus() {
+        return recording != null ? status(recording) : RecordingStatus.NONE;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private static RecordingStatus status(Recording recording) {
+        return new RecordingStatus(recording.getName(), recording.getState().name(), recording.getStartTime(),
+                recording.getDuration() != null ? recording.getDuration().toSeconds() : 0,
+                recording.getMaxSize());
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * @param state NEW/RUNNING/STOPPED/CLOSED của jdk.jfr.RecordingState, NONE khi không có recording
+     */
+    public record RecordingStatus(String name, String state, Instant startTime, long durationSeconds,
+                                  long maxSizeBytes) {
+
+        static final RecordingStatus NONE = new RecordingStatus(null, "NONE", null, 0, 0);
+    }
+}
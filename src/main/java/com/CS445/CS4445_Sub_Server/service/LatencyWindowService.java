@@ -0,0 +1,193 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Thống kê latency của packet trong cửa sổ trượt (mặc định 60s) cho /server/health
+ * Cửa sổ chia thành nhiều slot theo thời gian, mỗi slot là một histogram log-linear
+ * (8 bucket mỗi lũy thừa của 2, sai số tương đối ~6%). Slot cũ nhất được xoay vòng dùng lại
+ * khi sang slot mới, nên bộ nhớ cố định và không cần thread nền.
+ * Ghi nhận không khóa: mỗi bucket là một LongAdder (mỗi thread cộng vào cell riêng),
+ * EWMA cập nhật bằng CAS. Mẫu ghi đúng lúc slot đang được xoay có thể bị mất, chấp nhận được
+ * cho số liệu health.
+ */
+@Service
+public class LatencyWindowService {
+
+    // Giá trị ghi theo micro giây, bucket 0-7 tuyến tính, sau đó 8 bucket mỗi lũy thừa của 2
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Tối đa 2^36 us (~19 giờ), lớn hơn thì dồn vào bucket cuối
+    private static final int MAX_EXPONENT = 36;
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final Slot[] slots;
+    private final long slotMillis;
+    private final double ewmaAlpha;
+    private final LongSupplier clockMillis;
+
+    // Bit của double, NaN khi chưa có mẫu nào
+    private final AtomicLong ewmaMicrosBits = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+
+    @Autowired
+    public LatencyWindowService(@Value("${app.latency-window.window-seconds:60}") int windowSeconds,
+                                @Value("${app.latency-window.slots:12}") int slotCount,
+                                @Value("${app.latency-window.ewma-alpha:0.1}") double ewmaAlpha) {
+        this(windowSeconds, slotCount, ewmaAlpha, System::currentTimeMillis);
+    }
+
+    LatencyWindowService(int windowSeconds, int slotCount, double ewmaAlpha, LongSupplier clockMillis) {
+        int count = Math.max(1, slotCount);
+        this.slotMillis = Math.max(1, TimeUnit.SECONDS.toMillis(Math.max(1, windowSeconds)) / count);
+        this.ewmaAlpha = ewmaAlpha;
+        this.clockMillis = clockMillis;
+        this.slots = new Slot[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Ghi latency của một packet đã xử lý xong
+     */
+    public void record(long latencyNanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        long epoch = clockMillis.getAsLong() / slotMillis;
+        Slot slot = slots[(int) (epoch % slots.length)];
+        slot.rotateTo(epoch);
+        slot.buckets[bucketIndex(micros)].increment();
+        slot.count.increment();
+        slot.sumMicros.add(micros);
+        updateEwma(micros);
+    }
+
+    /**
+     * Gộp các slot còn trong cửa sổ thành một snapshot
+     */
+    public LatencyStats snapshot() {
+        long currentEpoch = clockMillis.getAsLong() / slotMillis;
+        long[] merged = new long[BUCKET_COUNT];
+        long count = 0;
+        long sumMicros = 0;
+        for (Slot slot : slots) {
+            long epoch = slot.epoch.get();
+            if (epoch > currentEpoch || currentEpoch - epoch >= slots.length) {
+                continue;
+            }
+            count += slot.count.sum();
+            sumMicros += slot.sumMicros.sum();
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                merged[i] += slot.buckets[i].sum();
+            }
+        }
+
+        double ewmaMicros = Double.longBitsToDouble(ewmaMicrosBits.get());
+        if (count == 0) {
+            return new LatencyStats(0, 0.0, 0.0, 0.0, 0.0, Double.isNaN(ewmaMicros) ? 0.0 : toMs(ewmaMicros));
+        }
+        return new LatencyStats(count,
+                toMs((double) sumMicros / count),
+                toMs(percentile(merged, count, 0.50)),
+                toMs(percentile(merged, count, 0.95)),
+                toMs(percentile(merged, count, 0.99)),
+                toMs(ewmaMicros));
+    }
+
+    private void updateEwma(long micros) {
+        while (true) {
+            long bits = ewmaMicrosBits.get();
+            double current = Double.longBitsToDouble(bits);
+            double next = Double.isNaN(current) ? micros : current + ewmaAlpha * (micros - current);
+            if (ewmaMicrosBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Giá trị giữa của bucket chứa mẫu thứ ceil(percentile * count)
+     */
+    private static double percentile(long[] buckets, long count, double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return (bucketLowerBound(i) + bucketLowerBound(i + 1) - 1) / 2.0;
+            }
+        }
+        return bucketLowerBound(buckets.length - 1);
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private static double toMs(double micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+
+    /**
+     * Một khoảng thời gian slotMillis của cửa sổ, epoch = thời điểm bắt đầu / slotMillis
+     */
+    private static final class Slot {
+
+        private final AtomicLong epoch = new AtomicLong(-1);
+        private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumMicros = new LongAdder();
+
+        private Slot() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Slot còn giữ dữ liệu của vòng trước thì thread thắng CAS xóa nó trước khi dùng lại
+         */
+        private void rotateTo(long newEpoch) {
+            long current = epoch.get();
+            if (current == newEpoch || current > newEpoch || !epoch.compareAndSet(current, newEpoch)) {
+                return;
+            }
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            sumMicros.reset();
+        }
+    }
+
+    /**
+     * @param count số packet trong cửa sổ
+     * @param ewmaMs EWMA theo từng packet (không giới hạn trong cửa sổ), 0 khi chưa có packet nào
+     */
+    public record LatencyStats(long count, double meanMs, double p50Ms, double p95Ms, double p99Ms,
+                               double ewmaMs) {
+    }
+}
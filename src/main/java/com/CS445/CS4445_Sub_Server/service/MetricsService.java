@@ -1,26 +1,51 @@
 package com.CS445.CS4445_Sub_Server.service;
 
 import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.search.Search;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Service for managing custom Prometheus metrics
  * Implements the monitoring schema with Counters, Gauges, and Histograms
+ * Counter là LongAdder (striped) export qua FunctionCounter; meter có tag theo type được
+ * đăng ký một lần rồi giữ trong ConcurrentHashMap, hot path chỉ còn một lần get() không allocate
  */
 @Service
 @Slf4j
 public class MetricsService {
 
+    /**
+     * Các type đã biết, đăng ký sẵn lúc khởi tạo (series có sẵn từ 0 trên Prometheus)
+     */
+    static final List<String> KNOWN_ERROR_TYPES = List.of(
+            "server_closed", "server_draining", "server_warming", "bulkhead_full", "heap_exhausted",
+            "exception", "rate_limited", "kernel_saturated", "payload_too_large", "idempotency_mismatch",
+            "idempotency_in_flight");
+    static final String FAKE_PACKET_JOB_TYPE = "fake_packet";
+    static final String JSON_RESPONSE_TYPE = "json";
+
     private final MeterRegistry meterRegistry;
 
     // ===== COUNTERS =====
-    private final Counter totalRequestsCounter;
-    private final Counter totalErrorsCounter;
-    private final Counter totalConnectionsCounter;
-    private final Counter totalJobsProcessedCounter;
+    private final LongAdder totalRequestsCounter;
+    private final LongAdder totalErrorsCounter;
+    private final LongAdder totalConnectionsCounter;
+    private final LongAdder totalJobsProcessedCounter;
+
+    // ===== TAGGED METERS (theo type, đăng ký một lần) =====
+    private final ConcurrentMap<String, LongAdder> errorCountersByType = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> processingTimersByType = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DistributionSummary> responseSizesByType = new ConcurrentHashMap<>();
 
     // ===== GAUGES =====
     private final AtomicInteger currentConnections;
@@ -31,29 +56,37 @@ public class MetricsService {
     private final Timer processingTimeTimer;
     private final DistributionSummary responseSizeDistribution;
 
+    // ===== RESULT CACHE =====
+    private final LongAdder cacheHitCounter;
+    private final LongAdder cacheMissCounter;
+    private final LongAdder cacheCoalescedCounter;
+
+    // ===== PEER OFFLOAD =====
+    private final Timer offloadRoundTripTimer;
+    private final Timer offloadOverheadTimer;
+
+    // ===== PHASE TIMING (đánh index theo PhaseTimings.Phase.ordinal) =====
+    private final Timer[] phaseTimers;
+
+    // ===== CONNECTOR (worker pool của Tomcat) =====
+    private final Timer dispatchWaitTimer;
+    private final Timer serviceTimeTimer;
+
     public MetricsService(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
 
         // Initialize Counters
-        this.totalRequestsCounter = Counter.builder("app.requests.total")
-                .description("Total number of requests received")
-                .tag("type", "all")
-                .register(meterRegistry);
+        this.totalRequestsCounter = registerCounter("app.requests.total",
+                "Total number of requests received", "type", "all");
 
-        this.totalErrorsCounter = Counter.builder("app.errors.total")
-                .description("Total number of errors occurred")
-                .tag("type", "all")
-                .register(meterRegistry);
+        this.totalErrorsCounter = registerCounter("app.errors.total",
+                "Total number of errors occurred", "type", "all");
 
-        this.totalConnectionsCounter = Counter.builder("app.connections.total")
-                .description("Total number of connections established")
-                .tag("type", "all")
-                .register(meterRegistry);
+        this.totalConnectionsCounter = registerCounter("app.connections.total",
+                "Total number of connections established", "type", "all");
 
-        this.totalJobsProcessedCounter = Counter.builder("app.jobs.processed.total")
-                .description("Total number of jobs processed successfully")
-                .tag("type", "all")
-                .register(meterRegistry);
+        this.totalJobsProcessedCounter = registerCounter("app.jobs.processed.total",
+                "Total number of jobs processed successfully", "type", "all");
 
         // Initialize Gauges
         this.currentConnections = new AtomicInteger(0);
@@ -78,6 +111,7 @@ public class MetricsService {
                 .description("Request latency in milliseconds")
                 .tag("type", "http")
                 .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
                 .register(meterRegistry);
 
         this.processingTimeTimer = Timer.builder("app.processing.time")
@@ -93,6 +127,55 @@ public class MetricsService {
                 .publishPercentileHistogram()
                 .register(meterRegistry);
 
+        // Initialize result cache counters (idempotent packet cache)
+        this.cacheHitCounter = registerCounter("app.cache.requests",
+                "Packet result cache lookups", "result", "hit");
+
+        this.cacheMissCounter = registerCounter("app.cache.requests",
+                "Packet result cache lookups", "result", "miss");
+
+        this.cacheCoalescedCounter = registerCounter("app.cache.requests",
+                "Packet result cache lookups", "result", "coalesced");
+
+        // Initialize peer offload timers (round trip tới peer và phần latency offload cộng thêm)
+        this.offloadRoundTripTimer = Timer.builder("app.offload.latency")
+                .description("Latency of packets forwarded to a peer sub-server")
+                .tag("type", "round_trip")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        this.offloadOverheadTimer = Timer.builder("app.offload.latency")
+                .description("Latency of packets forwarded to a peer sub-server")
+                .tag("type", "overhead")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        // Initialize phase timers (primes, hash, ..., delay)
+        this.phaseTimers = new Timer[PhaseTimings.Phase.VALUES.length];
+        for (PhaseTimings.Phase phase : PhaseTimings.Phase.VALUES) {
+            phaseTimers[phase.ordinal()] = Timer.builder("app.processing.phase")
+                    .description("Time spent in each workload phase of a packet")
+                    .tag("phase", phase.getTag())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+
+        // Initialize connector timers (đợi worker và thời gian worker xử lý, tách khỏi app.request.latency)
+        this.dispatchWaitTimer = Timer.builder("app.connector.dispatch.wait")
+                .description("Time a connection waited in the HTTP connector queue for a worker thread")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        this.serviceTimeTimer = Timer.builder("app.connector.service.time")
+                .description("Time an HTTP connector worker thread spent processing a dispatched connection")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        // Đăng ký sẵn các meter có tag mà hot path dùng
+        KNOWN_ERROR_TYPES.forEach(this::errorCounter);
+        processingTimer(FAKE_PACKET_JOB_TYPE);
+        responseSizeSummary(JSON_RESPONSE_TYPE);
+
         log.info("MetricsService initialized with custom Prometheus metrics");
     }
 
@@ -103,7 +186,7 @@ public class MetricsService {
     }
 
     public void incrementTotalRequests(double amount) {
-        totalRequestsCounter.increment(amount);
+        totalRequestsCounter.add((long) amount);
     }
 
     public void incrementTotalErrors() {
@@ -111,11 +194,7 @@ public class MetricsService {
     }
 
     public void incrementTotalErrors(String errorType) {
-        Counter.builder("app.errors.total")
-                .description("Total number of errors occurred")
-                .tag("type", errorType)
-                .register(meterRegistry)
-                .increment();
+        errorCounter(errorType).increment();
     }
 
     public void incrementTotalConnections() {
@@ -184,6 +263,20 @@ public class MetricsService {
         sample.stop(requestLatencyTimer);
     }
 
+    /**
+     * Percentile latency (ms) của request trong cửa sổ trượt gần nhất của timer
+     * @param percentile một trong 0.5, 0.95, 0.99
+     * @return 0 nếu chưa có request hoặc percentile không được publish
+     */
+    public double getRequestLatencyPercentileMs(double percentile) {
+        for (ValueAtPercentile value : requestLatencyTimer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(java.util.concurrent.TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0.0;
+    }
+
     /**
      * Record processing time
      * @param processingTimeMs processing time in milliseconds
@@ -196,12 +289,7 @@ public class MetricsService {
      * Record processing time with tags
      */
     public void recordProcessingTime(long processingTimeMs, String jobType) {
-        Timer.builder("app.processing.time")
-                .description("Job processing time in milliseconds")
-                .tag("type", jobType)
-                .publishPercentileHistogram()
-                .register(meterRegistry)
-                .record(processingTimeMs, java.util.concurrent.TimeUnit.MILLISECONDS);
+        processingTimer(jobType).record(processingTimeMs, java.util.concurrent.TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -216,13 +304,149 @@ public class MetricsService {
      * Record response size with tags
      */
     public void recordResponseSize(long sizeBytes, String responseType) {
-        DistributionSummary.builder("app.response.size")
-                .description("Response size in bytes")
-                .tag("type", responseType)
-                .baseUnit("bytes")
-                .publishPercentileHistogram()
-                .register(meterRegistry)
-                .record(sizeBytes);
+        responseSizeSummary(responseType).record(sizeBytes);
+    }
+
+    // ===== TAGGED METER CACHE =====
+
+    /**
+     * get() trước: đường thường gặp không khóa bin nào của map và không tạo lambda capture
+     */
+    LongAdder errorCounter(String errorType) {
+        LongAdder counter = errorCountersByType.get(errorType);
+        if (counter == null) {
+            counter = errorCountersByType.computeIfAbsent(errorType,
+                    type -> registerCounter("app.errors.total", "Total number of errors occurred", "type", type));
+        }
+        return counter;
+    }
+
+    Timer processingTimer(String jobType) {
+        Timer timer = processingTimersByType.get(jobType);
+        if (timer == null) {
+            timer = processingTimersByType.computeIfAbsent(jobType, type -> Timer.builder("app.processing.time")
+                    .description("Job processing time in milliseconds")
+                    .tag("type", type)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        return timer;
+    }
+
+    DistributionSummary responseSizeSummary(String responseType) {
+        DistributionSummary summary = responseSizesByType.get(responseType);
+        if (summary == null) {
+            summary = responseSizesByType.computeIfAbsent(responseType,
+                    type -> DistributionSummary.builder("app.response.size")
+                            .description("Response size in bytes")
+                            .tag("type", type)
+                            .baseUnit("bytes")
+                            .publishPercentileHistogram()
+                            .register(meterRegistry));
+        }
+        return summary;
+    }
+
+    /**
+     * Counter cộng trên LongAdder, registry chỉ đọc sum() khi scrape
+     * LongAdder được giữ strong reference ở field/map (FunctionCounter chỉ giữ weak reference)
+     */
+    private LongAdder registerCounter(String name, String description, String... tags) {
+        LongAdder counter = new LongAdder();
+        FunctionCounter.builder(name, counter, LongAdder::doubleValue)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry);
+        return counter;
+    }
+
+    // ===== RESULT CACHE METHODS =====
+
+    public void incrementCacheHits() {
+        cacheHitCounter.increment();
+    }
+
+    public void incrementCacheMisses() {
+        cacheMissCounter.increment();
+    }
+
+    public void incrementCacheCoalesced() {
+        cacheCoalescedCounter.increment();
+    }
+
+    // ===== PEER OFFLOAD METHODS =====
+
+    /**
+     * Record a packet forwarded to a peer
+     * @param roundTripMs thời gian từ lúc gửi tới peer đến lúc nhận response
+     * @param overheadMs phần round trip không phải thời gian xử lý trên peer (mạng, serialize, queue của peer)
+     */
+    public void recordOffloadLatency(long roundTripMs, long overheadMs) {
+        offloadRoundTripTimer.record(roundTripMs, java.util.concurrent.TimeUnit.MILLISECONDS);
+        offloadOverheadTimer.record(Math.max(0, overheadMs), java.util.concurrent.TimeUnit.MILLISECONDS);
+    }
+
+    // ===== PHASE TIMING METHODS =====
+
+    /**
+     * Record các phase đã chạy của một packet, phase không chạy (-1) bị bỏ qua
+     */
+    public void recordPhaseTimings(PhaseTimings timings) {
+        for (PhaseTimings.Phase phase : PhaseTimings.Phase.VALUES) {
+            long nanos = timings.getNanos(phase);
+            if (nanos >= 0) {
+                phaseTimers[phase.ordinal()].record(nanos, java.util.concurrent.TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Timer của một phase, dùng cho test
+     */
+    Timer phaseTimer(PhaseTimings.Phase phase) {
+        return phaseTimers[phase.ordinal()];
+    }
+
+    // ===== CONNECTOR METHODS =====
+
+    public void recordDispatchWait(long waitNanos) {
+        dispatchWaitTimer.record(waitNanos, java.util.concurrent.TimeUnit.NANOSECONDS);
+    }
+
+    public void recordServiceTime(long serviceNanos) {
+        serviceTimeTimer.record(serviceNanos, java.util.concurrent.TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Đăng ký gauge cho state do service khác quản lý (vd: số client đang bị rate limit)
+     * @param tags cặp key/value, vd: "type", "pending"
+     */
+    public void registerGauge(String name, String description, Supplier<Number> valueSupplier, String... tags) {
+        Gauge.builder(name, valueSupplier)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Đăng ký counter đọc giá trị tích lũy từ service khác (không tốn chi phí trên hot path)
+     * @param state object giữ giá trị (AtomicLong, partition, pool...); Micrometer chỉ giữ WeakReference
+     *              tới nó, nên phải là object service còn giữ, không phải lambda tạo riêng cho counter
+     */
+    public <T> void registerFunctionCounter(String name, String description, T state,
+                                            ToDoubleFunction<T> countFunction, String... tags) {
+        FunctionCounter.builder(name, state, countFunction)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gỡ mọi meter có đủ các tag, dùng khi service xóa object mà gauge/counter đang đọc
+     * @param tags cặp key/value, vd: "kind", "tenant", "bulkhead", "acme"
+     */
+    public void removeMeters(String... tags) {
+        Search.in(meterRegistry).tags(tags).meters().forEach(meterRegistry::remove);
     }
 
     // ===== UTILITY METHODS =====
@@ -248,13 +472,13 @@ public class MetricsService {
      */
     public String getMetricsSummary() {
         return String.format(
-                "Metrics Summary - Total Requests: %.0f, Total Errors: %.0f, " +
-                "Total Connections: %.0f, Jobs Processed: %.0f, " +
+                "Metrics Summary - Total Requests: %d, Total Errors: %d, " +
+                "Total Connections: %d, Jobs Processed: %d, " +
                 "Current Connections: %d, Queue Length: %d",
-                totalRequestsCounter.count(),
-                totalErrorsCounter.count(),
-                totalConnectionsCounter.count(),
-                totalJobsProcessedCounter.count(),
+                totalRequestsCounter.sum(),
+                totalErrorsCounter.sum(),
+                totalConnectionsCounter.sum(),
+                totalJobsProcessedCounter.sum(),
                 getCurrentConnections(),
                 getQueueLength()
         );
@@ -0,0 +1,315 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
+import com.CS445.CS4445_Sub_Server.jfr.PacketAdmissionEvent;
+import com.CS445.CS4445_Sub_Server.jfr.PacketRejectionEvent;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pipeline xử lý một packet, dùng chung cho mọi endpoint nhận packet
+ * (POST /api/v1/fakePacket, NDJSON stream, ...)
+ * Kiểm tra trạng thái server, chạy workload và ghi metrics
+ * Phát event JFR cs4445.PacketAdmission khi workload bắt đầu và cs4445.PacketRejection khi packet bị từ chối
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PacketExecutionService {
+
+    private final FakePacketService fakePacketService;
+    private final PacketResultCache packetResultCache;
+    private final BulkheadService bulkheadService;
+    private final HeapAdmissionService heapAdmissionService;
+    private final ServerStateService serverStateService;
+    private final PeerOffloadService peerOffloadService;
+    private final MetricsService metricsService;
+    private final LatencyWindowService latencyWindowService;
+    private final SlowRequestService slowRequestService;
+
+    public PacketOutcome execute(FakePacketRequest request) {
+        return execute(request, PacketContext.empty());
+    }
+
+    /**
+     * @param context idempotency key (null thì không dùng result cache) và tenant của packet
+     */
+    public PacketOutcome execute(FakePacketRequest request, PacketContext context) {
+        long requestStartTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        Timer.Sample latencySample = metricsService.startRequestLatencyTimer();
+        PacketAdmissionEvent admission = new PacketAdmissionEvent();
+        admission.begin();
+
+        // Track connection
+        metricsService.incrementCurrentConnections();
+        metricsService.incrementTotalConnections();
+        metricsService.incrementTotalRequests();
+
+        log.info("Received fakePacket request: {}", request.getPacketId());
+
+        // Đếm packet trước khi kiểm tra trạng thái để drain không bỏ sót packet vừa được nhận
+        serverStateService.packetStarted();
+        try {
+            // Check if server is open
+            if (!serverStateService.isServerOpen()) {
+                StateRejection rejection;
+                if (serverStateService.isDraining()) {
+                    rejection = StateRejection.DRAINING;
+                } else if (serverStateService.isWarming()) {
+                    rejection = StateRejection.WARMING;
+                } else {
+                    rejection = StateRejection.CLOSED;
+                }
+                log.warn("Server is {}. Rejecting packet request: {}", rejection.getState(), request.getPacketId());
+                metricsService.incrementTotalErrors(rejection.getErrorType());
+                PacketRejectionEvent.emit(request, rejection.getErrorType(), startNanos);
+
+                FakePacketResponse rejectedResponse = FakePacketResponse.builder()
+                        .packetId(request.getPacketId())
+                        .status("REJECTED")
+                        .result(rejection.getMessage())
+                        .build();
+
+                recordMetrics(latencySample, requestStartTime, rejectedResponse, true);
+
+                return new PacketOutcome(HttpStatus.SERVICE_UNAVAILABLE, rejectedResponse, rejection);
+            }
+
+            // Add to queue
+            metricsService.incrementQueueLength();
+
+            try {
+                String cacheKey = cacheKey(context);
+                long fingerprint = cacheKey != null ? fingerprint(request, context) : 0L;
+                FakePacketResponse response = packetResultCache.getOrCompute(cacheKey, fingerprint,
+                        () -> bulkheadService.execute(context.getTenantId(), request,
+                                () -> heapAdmissionService.execute(request,
+                                        () -> process(request, context, admission))));
+                log.info("Successfully processed packet {} in {}ms",
+                    response.getPacketId(), response.getProcessingTimeMs());
+
+                // Record success metrics
+                recordMetrics(latencySample, requestStartTime, response, false);
+                long latencyNanos = System.nanoTime() - startNanos;
+                latencyWindowService.record(latencyNanos);
+                slowRequestService.record(request, context, response, startNanos, latencyNanos);
+                metricsService.incrementTotalJobsProcessed();
+
+                return new PacketOutcome(HttpStatus.OK, response);
+            } finally {
+                // Remove from queue
+                metricsService.decrementQueueLength();
+            }
+
+        } catch (PacketResultCache.IdempotencyKeyMismatchException e) {
+            log.warn("Rejecting packet {}: {}", request.getPacketId(), e.getMessage());
+            return rejectIdempotency(request, e, HttpStatus.UNPROCESSABLE_ENTITY, "idempotency_mismatch",
+                    latencySample, requestStartTime, startNanos);
+        } catch (PacketResultCache.DuplicateInFlightException e) {
+            log.warn("Rejecting packet {}: {}", request.getPacketId(), e.getMessage());
+            return rejectIdempotency(request, e, HttpStatus.CONFLICT, "idempotency_in_flight",
+                    latencySample, requestStartTime, startNanos);
+        } catch (BulkheadService.BulkheadFullException e) {
+            log.warn("Bulkhead {}/{} is full. Rejecting packet request: {}",
+                    e.getKind(), e.getBulkhead(), request.getPacketId());
+            PacketOutcome offloaded = tryOffload(request, context, latencySample, requestStartTime);
+            if (offloaded != null) {
+                return offloaded;
+            }
+            metricsService.incrementTotalErrors("bulkhead_full");
+            PacketRejectionEvent.emit(request, "bulkhead_full", startNanos);
+
+            FakePacketResponse rejectedResponse = FakePacketResponse.builder()
+                    .packetId(request.getPacketId())
+                    .status("REJECTED")
+                    .result(e.getMessage())
+                    .build();
+
+            recordMetrics(latencySample, requestStartTime, rejectedResponse, true);
+
+            return new PacketOutcome(HttpStatus.SERVICE_UNAVAILABLE, rejectedResponse);
+        } catch (HeapAdmissionService.HeapExhaustedException e) {
+            log.warn("Not enough heap headroom for packet {}: needs {} bytes, {} available",
+                    request.getPacketId(), e.getRequiredBytes(), e.getAvailableBytes());
+            PacketOutcome offloaded = tryOffload(request, context, latencySample, requestStartTime);
+            if (offloaded != null) {
+                return offloaded;
+            }
+            metricsService.incrementTotalErrors("heap_exhausted");
+            PacketRejectionEvent.emit(request, "heap_exhausted", startNanos);
+
+            FakePacketResponse rejectedResponse = FakePacketResponse.builder()
+                    .packetId(request.getPacketId())
+                    .status("REJECTED")
+                    .result(e.getMessage())
+                    .build();
+
+            recordMetrics(latencySample, requestStartTime, rejectedResponse, true);
+
+            return new PacketOutcome(HttpStatus.SERVICE_UNAVAILABLE, rejectedResponse);
+        } catch (Exception e) {
+            log.error("Error processing packet {}", request.getPacketId(), e);
+            metricsService.incrementTotalErrors("exception");
+
+            FakePacketResponse errorResponse = FakePacketResponse.builder()
+                    .packetId(request.getPacketId())
+                    .status("FAILED")
+                    .result("Error: " + e.getMessage())
+                    .build();
+
+            recordMetrics(latencySample, requestStartTime, errorResponse, true);
+
+            return new PacketOutcome(HttpStatus.INTERNAL_SERVER_ERROR, errorResponse);
+        } finally {
+            // Always decrement connection count
+            metricsService.decrementCurrentConnections();
+            serverStateService.packetFinished();
+        }
+    }
+
+    private PacketOutcome rejectIdempotency(FakePacketRequest request, RuntimeException e, HttpStatus status,
+                                            String errorType, Timer.Sample latencySample, long requestStartTime,
+                                            long startNanos) {
+        metricsService.incrementTotalErrors(errorType);
+        PacketRejectionEvent.emit(request, errorType, startNanos);
+
+        FakePacketResponse rejectedResponse = FakePacketResponse.builder()
+                .packetId(request.getPacketId())
+                .status("REJECTED")
+                .result(e.getMessage())
+                .build();
+
+        recordMetrics(latencySample, requestStartTime, rejectedResponse, true);
+
+        return new PacketOutcome(status, rejectedResponse);
+    }
+
+    /**
+     * Key của result cache: chỉ khi client gửi Idempotency-Key, gắn với tenant để
+     * tenant khác dùng cùng key không nhận kết quả của nhau
+     */
+    private static String cacheKey(PacketContext context) {
+        String key = context.getIdempotencyKey();
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        String tenant = context.getTenantId() != null ? context.getTenantId() : "";
+        // Header không chứa xuống dòng nên '\n' không thể xuất hiện trong tenant
+        return tenant + '\n' + key;
+    }
+
+    /**
+     * Hash tham số của packet (kèm CRC32C của payload nhị phân), để phát hiện Idempotency-Key
+     * bị dùng lại cho một request khác
+     */
+    private static long fingerprint(FakePacketRequest request, PacketContext context) {
+        long hash = Objects.hash(request.getPacketId(), request.getCpuIntensity(), request.getRamIntensity(),
+                request.getProcessingTimeMs(), request.getPayload());
+        PacketPayload payload = context.getPayload();
+        if (payload != null) {
+            CRC32C crc = new CRC32C();
+            payload.forEachChunk(crc::update);
+            hash = 31 * hash + payload.size();
+            hash = 31 * hash + crc.getValue();
+        }
+        return hash;
+    }
+
+    private FakePacketResponse process(FakePacketRequest request, PacketContext context,
+                                       PacketAdmissionEvent admission) {
+        admission.admitted(request, context.getTenantId());
+        if (context.getPayload() != null) {
+            return fakePacketService.processFakePacket(request, context.getPayload());
+        }
+        return fakePacketService.processFakePacket(request);
+    }
+
+    /**
+     * Node quá tải: thử forward packet sang peer thay vì từ chối
+     * @return null nếu không offload được (packet bị từ chối tại chỗ)
+     */
+    private PacketOutcome tryOffload(FakePacketRequest request, PacketContext context,
+                                     Timer.Sample latencySample, long requestStartTime) {
+        // Payload nhị phân nằm trong direct buffer của node này, không forward được qua JSON
+        if (context.getPayload() != null || !peerOffloadService.canOffload(context)) {
+            return null;
+        }
+        Optional<FakePacketResponse> offloaded = peerOffloadService.offload(request, context);
+        if (offloaded.isEmpty()) {
+            return null;
+        }
+        recordMetrics(latencySample, requestStartTime, offloaded.get(), false);
+        return new PacketOutcome(HttpStatus.OK, offloaded.get());
+    }
+
+    private void recordMetrics(Timer.Sample latencySample, long requestStartTime,
+                                FakePacketResponse response, boolean isError) {
+        // Stop latency timer
+        metricsService.stopRequestLatencyTimer(latencySample);
+
+        // Record processing time if available
+        if (response.getProcessingTimeMs() != null) {
+            metricsService.recordProcessingTime(response.getProcessingTimeMs(), "fake_packet");
+        }
+
+        // Response size được đo ở nơi ghi response (ResponseSizeFilter, dòng NDJSON, frame TCP)
+    }
+
+    /**
+     * Packet bị từ chối vì trạng thái server (không phải OPEN)
+     * Response của các trường hợp này chỉ khác nhau ở packetId, nên có thể serialize sẵn
+     */
+    public enum StateRejection {
+        CLOSED("closed", "Server is currently closed. Please open the server first using /api/v1/server/open"),
+        DRAINING("draining", "Server is draining and no longer accepts new packets"),
+        WARMING("warming", "Server is warming up and will accept packets shortly");
+
+        private final String state;
+        private final String message;
+        private final String errorType;
+
+        StateRejection(String state, String message) {
+            this.state = state;
+            this.message = message;
+            this.errorType = "server_" + state;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        /**
+         * Tag type của app.errors.total, dựng sẵn để không nối chuỗi mỗi lần từ chối
+         */
+        public String getErrorType() {
+            return errorType;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Kết quả xử lý một packet: HTTP status tương ứng và response body
+     * @param stateRejection khác null khi packet bị từ chối vì trạng thái server
+     */
+    public record PacketOutcome(HttpStatus status, FakePacketResponse response, StateRejection stateRejection) {
+
+        public PacketOutcome(HttpStatus status, FakePacketResponse response) {
+            this(status, response, null);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.CS445.CS4445_Sub_Server.tcp.DirectBufferPool;
+
+/**
+ * Payload nhị phân của một packet, nằm trong các direct buffer lấy từ pool (không copy lên heap)
+ * Tạo bởi PayloadUploadService, phải close() sau khi packet xử lý xong để trả buffer về pool
+ */
+public final class PacketPayload implements AutoCloseable {
+
+    private final DirectBufferPool bufferPool;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private long size;
+    private boolean sealed;
+    private boolean closed;
+
+    PacketPayload(DirectBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Buffer tiếp theo để ghi payload vào (chỉ dùng khi đang đọc body)
+     */
+    ByteBuffer nextBuffer() {
+        ByteBuffer buffer = bufferPool.acquire();
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Kết thúc đọc body: flip các buffer sang chế độ đọc, bỏ buffer rỗng ở cuối
+     */
+    void seal() {
+        for (int i = buffers.size() - 1; i >= 0; i--) {
+            ByteBuffer buffer = buffers.get(i);
+            buffer.flip();
+            if (!buffer.hasRemaining()) {
+                bufferPool.release(buffers.remove(i));
+            }
+        }
+        size = buffers.stream().mapToLong(ByteBuffer::remaining).sum();
+        sealed = true;
+    }
+
+    /**
+     * Duyệt payload theo từng chunk, mỗi chunk là view (duplicate) của direct buffer
+     * nên consumer có thể đọc/đổi position mà không ảnh hưởng payload
+     */
+    public void forEachChunk(Consumer<ByteBuffer> action) {
+        if (!sealed || closed) {
+            throw new IllegalStateException("Payload is not readable");
+        }
+        for (ByteBuffer buffer : buffers) {
+            action.accept(buffer.duplicate());
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int chunkCount() {
+        return buffers.size();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ByteBuffer buffer : buffers) {
+            bufferPool.release(buffer);
+        }
+        buffers.clear();
+    }
+}
@@ -0,0 +1,199 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache kết quả packet theo idempotency key (header Idempotency-Key, do caller gắn tenant vào key)
+ * - LRU giới hạn số entry + TTL, chỉ cache response SUCCESS
+ * - Mỗi key lưu kèm fingerprint của request: cùng key nhưng request khác bị từ chối
+ *   thay vì trả kết quả cũ
+ * - Single-flight: các request trùng key đến cùng lúc chỉ chạy workload một lần,
+ *   các request còn lại đợi tối đa app.cache.max-wait-ms rồi dùng chung kết quả
+ */
+@Service
+@Slf4j
+public class PacketResultCache {
+
+    private final MetricsService metricsService;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long maxWaitMs;
+
+    // LinkedHashMap access-order = LRU, truy cập luôn nằm trong synchronized (entries)
+    private final LinkedHashMap<String, CachedResult> entries;
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public PacketResultCache(MetricsService metricsService,
+                             @Value("${app.cache.max-entries:10000}") int maxEntries,
+                             @Value("${app.cache.ttl-ms:60000}") long ttlMs,
+                             @Value("${app.cache.max-wait-ms:5000}") long maxWaitMs) {
+        this.metricsService = metricsService;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.maxWaitMs = maxWaitMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > PacketResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    public FakePacketResponse getOrCompute(String key, Supplier<FakePacketResponse> loader) {
+        return getOrCompute(key, 0L, loader);
+    }
+
+    /**
+     * Trả kết quả đã cache cho key, hoặc chạy loader đúng một lần cho mọi request trùng key
+     * Key null/rỗng hoặc cache bị tắt (max-entries = 0) thì luôn chạy loader
+     * @param fingerprint hash các tham số của request; cùng key mà khác fingerprint thì ném
+     *                    IdempotencyKeyMismatchException
+     * @throws DuplicateInFlightException request trùng key đang chạy lâu hơn app.cache.max-wait-ms
+     */
+    public FakePacketResponse getOrCompute(String key, long fingerprint, Supplier<FakePacketResponse> loader) {
+        if (key == null || key.isBlank() || maxEntries <= 0) {
+            return loader.get();
+        }
+
+        FakePacketResponse cached = lookup(key, fingerprint);
+        if (cached != null) {
+            metricsService.incrementCacheHits();
+            log.debug("Result cache hit for key {}", key);
+            return cached;
+        }
+
+        Flight ownFlight = new Flight(fingerprint, new CompletableFuture<>());
+        Flight existingFlight = inFlight.putIfAbsent(key, ownFlight);
+        if (existingFlight != null) {
+            checkFingerprint(key, existingFlight.fingerprint(), fingerprint);
+            metricsService.incrementCacheCoalesced();
+            log.debug("Coalescing duplicate request for key {}", key);
+            return await(key, existingFlight.result());
+        }
+
+        try {
+            // Kết quả có thể vừa được lưu giữa lần lookup đầu và putIfAbsent
+            cached = lookup(key, fingerprint);
+            if (cached != null) {
+                metricsService.incrementCacheHits();
+                ownFlight.result().complete(cached);
+                return cached;
+            }
+
+            metricsService.incrementCacheMisses();
+            FakePacketResponse response = loader.get();
+            if (response != null && "SUCCESS".equals(response.getStatus())) {
+                store(key, response, fingerprint);
+            }
+            ownFlight.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            ownFlight.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ownFlight);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private FakePacketResponse lookup(String key, long fingerprint) {
+        CachedResult result;
+        synchronized (entries) {
+            result = entries.get(key);
+            if (result == null) {
+                return null;
+            }
+            if (System.nanoTime() - result.storedAtNanos() > ttlNanos) {
+                entries.remove(key);
+                return null;
+            }
+        }
+        checkFingerprint(key, result.fingerprint(), fingerprint);
+        return result.response();
+    }
+
+    private void store(String key, FakePacketResponse response, long fingerprint) {
+        synchronized (entries) {
+            entries.put(key, new CachedResult(response, fingerprint, System.nanoTime()));
+        }
+    }
+
+    private static void checkFingerprint(String key, long stored, long requested) {
+        if (stored != requested) {
+            throw new IdempotencyKeyMismatchException(
+                    "Idempotency-Key " + key + " was already used with different packet parameters");
+        }
+    }
+
+    /**
+     * Đợi request gốc có giới hạn: request trùng không giữ worker thread vô hạn trước bulkhead
+     */
+    private FakePacketResponse await(String key, CompletableFuture<FakePacketResponse> flight) {
+        try {
+            return flight.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new DuplicateInFlightException(
+                    "A request with Idempotency-Key " + key + " is still in progress, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DuplicateInFlightException("Interrupted while waiting for Idempotency-Key " + key);
+        } catch (ExecutionException e) {
+            // Request trùng nhận cùng lỗi với lần chạy gốc
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private record Flight(long fingerprint, CompletableFuture<FakePacketResponse> result) {
+    }
+
+    private record CachedResult(FakePacketResponse response, long fingerprint, long storedAtNanos) {
+    }
+
+    /**
+     * Idempotency-Key đã dùng cho một request có tham số khác
+     */
+    public static class IdempotencyKeyMismatchException extends RuntimeException {
+
+        public IdempotencyKeyMismatchException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Request trùng key vẫn đang chạy sau app.cache.max-wait-ms
+     */
+    public static class DuplicateInFlightException extends RuntimeException {
+
+        public DuplicateInFlightException(String message) {
+            super(message);
+        }
+    }
+}
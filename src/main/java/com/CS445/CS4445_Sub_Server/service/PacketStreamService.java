@@ -0,0 +1,245 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Xử lý luồng packet dạng NDJSON (mỗi dòng một FakePacketRequest)
+ * Đọc từng packet bằng Jackson streaming parser, xử lý song song với số packet
+ * in-flight bị giới hạn, và ghi từng FakePacketResponse thành một dòng NDJSON
+ * ngay khi xử lý xong. Bộ nhớ dùng cho mỗi stream không phụ thuộc độ dài stream.
+ * - Tối đa app.stream.max-streams stream cùng lúc; mỗi stream có một thread đọc riêng
+ *   (không dùng async executor chung của Spring MVC) và tối đa max-in-flight packet
+ * - Pool worker đủ max-streams x max-in-flight thread, nên một stream dùng hết phần
+ *   in-flight của nó không làm các stream khác phải đợi thread
+ * - Khi app.rate-limit.enabled, mỗi packet tốn một token của client (PacketContext.clientId);
+ *   packet vượt giới hạn được trả một dòng REJECTED thay vì xử lý
+ */
+@Service
+@Slf4j
+public class PacketStreamService {
+
+    private static final byte NEWLINE = '\n';
+    private static final String RATE_LIMITED_RESULT = "Rate limit exceeded. Please retry later";
+
+    private final PacketExecutionService packetExecutionService;
+    private final ObjectMapper objectMapper;
+    private final MetricsService metricsService;
+    private final RateLimiterService rateLimiterService;
+    private final ObjectReader requestReader;
+    private final ExecutorService readers;
+    private final ExecutorService workers;
+    private final AsyncTaskExecutor readerExecutor;
+    private final Semaphore streamSlots;
+    private final int maxInFlight;
+    private final long timeoutMs;
+    private final boolean rateLimitEnabled;
+
+    public PacketStreamService(PacketExecutionService packetExecutionService,
+                               ObjectMapper objectMapper,
+                               MetricsService metricsService,
+                               RateLimiterService rateLimiterService,
+                               @Value("${app.stream.max-streams:16}") int maxStreams,
+                               @Value("${app.stream.max-in-flight:8}") int maxInFlight,
+                               @Value("${app.stream.timeout-ms:-1}") long timeoutMs,
+                               @Value("${app.rate-limit.enabled:false}") boolean rateLimitEnabled) {
+        this.packetExecutionService = packetExecutionService;
+        this.objectMapper = objectMapper;
+        this.metricsService = metricsService;
+        this.rateLimiterService = rateLimiterService;
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.requestReader = objectMapper.readerFor(FakePacketRequest.class);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.timeoutMs = timeoutMs;
+
+        int streams = Math.max(1, maxStreams);
+        this.streamSlots = new Semaphore(streams);
+        this.readers = Executors.newFixedThreadPool(streams, daemonThreads("packet-stream-reader-"));
+        this.workers = Executors.newFixedThreadPool(streams * this.maxInFlight, daemonThreads("packet-stream-"));
+        this.readerExecutor = new TaskExecutorAdapter(readers);
+
+        metricsService.registerGauge("app.stream.active", "Open NDJSON packet streams",
+                () -> streams - streamSlots.availablePermits(), "type", "ndjson");
+    }
+
+    /**
+     * Giữ chỗ cho một stream mới
+     * @return false nếu đã đủ app.stream.max-streams stream đang mở
+     */
+    public boolean tryOpenStream() {
+        return streamSlots.tryAcquire();
+    }
+
+    /**
+     * Trả chỗ đã giữ bằng tryOpenStream, gọi khi stream kết thúc (kể cả lỗi/timeout)
+     */
+    public void closeStream() {
+        streamSlots.release();
+    }
+
+    /**
+     * Executor chạy vòng đọc của từng stream (một thread mỗi stream đang mở)
+     */
+    public AsyncTaskExecutor getReaderExecutor() {
+        return readerExecutor;
+    }
+
+    /**
+     * Async timeout của riêng endpoint stream, <= 0: không giới hạn
+     */
+    public long getTimeoutMs() {
+        return timeoutMs > 0 ? timeoutMs : -1;
+    }
+
+    /**
+     * Đọc NDJSON từ input, xử lý từng packet và ghi kết quả NDJSON ra output
+     * Thứ tự dòng response là thứ tự xử lý xong, không phải thứ tự nhận
+     * @return số packet đã đọc được từ stream
+     */
+    public long stream(InputStream input, OutputStream output) throws IOException {
+        return stream(input, output, PacketContext.empty());
+    }
+
+    /**
+     * @param context context chung cho mọi packet trong stream (vd: tenant)
+     */
+    public long stream(InputStream input, OutputStream output, PacketContext context) throws IOException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+        long received = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input);
+             MappingIterator<FakePacketRequest> packets = requestReader.readValues(parser)) {
+
+            FakePacketRequest next;
+            while (writeFailure.get() == null && (next = nextPacket(packets, output, inFlight)) != null) {
+                FakePacketRequest request = next;
+                received++;
+
+                if (isRateLimited(context)) {
+                    writeRejected(output, request, writeFailure);
+                    continue;
+                }
+
+                // Chặn đọc tiếp khi đã đủ maxInFlight packet đang xử lý
+                inFlight.acquireUninterruptibly();
+                try {
+                    workers.execute(() -> {
+                        try {
+                            FakePacketResponse response = packetExecutionService.execute(request, context).response();
+                            writeLine(output, response);
+                        } catch (IOException e) {
+                            writeFailure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+        } finally {
+            // Đợi toàn bộ packet in-flight ghi xong trước khi đóng response
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+
+        IOException failure = writeFailure.get();
+        if (failure != null) {
+            log.warn("NDJSON stream aborted after {} packets: client stopped reading", received);
+            throw failure;
+        }
+
+        log.info("NDJSON stream completed: {} packets", received);
+        return received;
+    }
+
+    private FakePacketRequest nextPacket(MappingIterator<FakePacketRequest> packets, OutputStream output,
+                                         Semaphore inFlight) throws IOException {
+        try {
+            return packets.hasNextValue() ? packets.nextValue() : null;
+        } catch (JsonProcessingException e) {
+            // Dòng JSON hỏng: không thể đồng bộ lại parser, trả một dòng FAILED và dừng stream
+            log.warn("Malformed NDJSON packet, closing stream: {}", e.getOriginalMessage());
+            inFlight.acquireUninterruptibly(maxInFlight);
+            try {
+                writeLine(output, FakePacketResponse.builder()
+                        .status("FAILED")
+                        .result("Malformed NDJSON: " + e.getOriginalMessage())
+                        .build());
+            } finally {
+                inFlight.release(maxInFlight);
+            }
+            return null;
+        }
+    }
+
+    private boolean isRateLimited(PacketContext context) {
+        String clientId = context.getClientId();
+        return rateLimitEnabled && clientId != null && !clientId.isBlank()
+                && !rateLimiterService.tryAcquire(clientId);
+    }
+
+    private void writeRejected(OutputStream output, FakePacketRequest request,
+                               AtomicReference<IOException> writeFailure) {
+        metricsService.incrementTotalErrors("rate_limited");
+        try {
+            writeLine(output, FakePacketResponse.builder()
+                    .packetId(request.getPacketId())
+                    .status("REJECTED")
+                    .result(RATE_LIMITED_RESULT)
+                    .build());
+        } catch (IOException e) {
+            writeFailure.compareAndSet(null, e);
+        }
+    }
+
+    private void writeLine(OutputStream output, FakePacketResponse response) throws IOException {
+        byte[] line = objectMapper.writeValueAsBytes(response);
+        synchronized (output) {
+            output.write(line);
+            output.write(NEWLINE);
+            output.flush();
+        }
+        metricsService.recordResponseSize(line.length + 1, "json");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readers.shutdown();
+        workers.shutdown();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.tcp.DirectBufferPool;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Đọc body nhị phân của POST /api/v1/fakePacket/upload vào các direct buffer lấy từ pool
+ * - Body được đọc từng chunk thẳng vào buffer, không có byte[]/String chứa cả payload trên heap
+ * - Content-Length lớn hơn max-bytes bị từ chối trước khi đọc byte nào,
+ *   body chunked bị dừng đọc ngay khi vượt max-bytes
+ */
+@Service
+@Slf4j
+public class PayloadUploadService {
+
+    private final DirectBufferPool bufferPool;
+    private final long maxBytes;
+
+    public PayloadUploadService(MetricsService metricsService,
+                                @Value("${app.upload.max-bytes:16777216}") long maxBytes,
+                                @Value("${app.upload.chunk-bytes:65536}") int chunkBytes,
+                                @Value("${app.upload.buffer-pool-size:256}") int bufferPoolSize) {
+        this.maxBytes = maxBytes;
+        this.bufferPool = new DirectBufferPool(chunkBytes, bufferPoolSize);
+
+        metricsService.registerGauge("app.upload.buffers.pooled", "Idle direct buffers held by the upload buffer pool",
+                bufferPool::getPooledCount, "type", "direct");
+        metricsService.registerFunctionCounter("app.upload.buffers.allocated",
+                "Direct buffers allocated by the upload buffer pool (pool misses)",
+                bufferPool, DirectBufferPool::getAllocatedCount, "type", "direct");
+    }
+
+    /**
+     * @param contentLength Content-Length của request, -1 nếu không biết (chunked)
+     * @throws PayloadTooLargeException khi payload vượt max-bytes (các buffer đã đọc được trả về pool)
+     */
+    public PacketPayload read(InputStream input, long contentLength) throws IOException {
+        if (contentLength > maxBytes) {
+            throw new PayloadTooLargeException(contentLength, maxBytes);
+        }
+
+        PacketPayload payload = new PacketPayload(bufferPool);
+        try {
+            // Channel bọc InputStream của servlet, mỗi lần read chép tối đa một block nhỏ vào direct buffer
+            ReadableByteChannel channel = Channels.newChannel(input);
+            ByteBuffer buffer = payload.nextBuffer();
+            long total = 0;
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    buffer = payload.nextBuffer();
+                }
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    break;
+                }
+                total += read;
+                if (total > maxBytes) {
+                    throw new PayloadTooLargeException(total, maxBytes);
+                }
+            }
+            payload.seal();
+            log.debug("Read {} byte payload into {} direct buffers", payload.size(), payload.chunkCount());
+            return payload;
+        } catch (IOException | RuntimeException e) {
+            payload.close();
+            throw e;
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public DirectBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Payload vượt app.upload.max-bytes (controller trả 413)
+     */
+    @Getter
+    public static class PayloadTooLargeException extends RuntimeException {
+
+        private final long sizeBytes;
+        private final long maxBytes;
+
+        public PayloadTooLargeException(long sizeBytes, long maxBytes) {
+            super(String.format("Payload exceeds the %d byte limit", maxBytes));
+            this.sizeBytes = sizeBytes;
+            this.maxBytes = maxBytes;
+        }
+    }
+}
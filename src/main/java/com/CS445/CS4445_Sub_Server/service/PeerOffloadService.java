@@ -0,0 +1,354 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
+import com.CS445.CS4445_Sub_Server.dto.ServerHealthResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Offload packet sang sub-server anh em khi node này quá tải
+ * - Poll /server/health của các peer (app.peers.urls) theo chu kỳ và cache kết quả
+ * - Packet bị từ chối vì bulkhead đầy / hết heap được forward tới peer đang OPEN có ít
+ *   connection nhất (tính cả packet node này đang forward tới peer đó)
+ * - Số lần forward bị giới hạn bằng header X-Offload-Hops, packet đã đủ max-hops thì bị
+ *   từ chối tại chỗ thay vì forward tiếp (tránh vòng lặp giữa các node cùng quá tải)
+ * - Response từ peer được gắn offloadedTo = URL của peer
+ * - Forward chạy blocking trên worker của request đúng lúc node đang quá tải, nên timeout ngắn
+ *   (cỡ thời gian một packet) và tối đa max-concurrent packet forward cùng lúc; vượt mức thì
+ *   packet bị từ chối tại chỗ ngay, không giữ thêm worker
+ */
+@Service
+@Slf4j
+public class PeerOffloadService {
+
+    public static final String HOPS_HEADER = "X-Offload-Hops";
+    public static final String ORIGIN_HEADER = "X-Offload-Origin";
+
+    private static final String HEALTH_PATH = "/server/health";
+    private static final String PACKET_PATH = "/api/v1/fakePacket";
+
+    private final ObjectMapper objectMapper;
+    private final MetricsService metricsService;
+
+    private final boolean enabled;
+    private final String nodeId;
+    private final List<Peer> peers;
+    private final int maxHops;
+    private final long healthMaxAgeMs;
+    private final Duration healthTimeout;
+    private final Duration forwardTimeout;
+    private final HttpClient httpClient;
+    private final Semaphore forwardSlots;
+
+    private final AtomicLong offloadedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong noPeerCount = new AtomicLong();
+    private final AtomicLong saturatedCount = new AtomicLong();
+
+    public PeerOffloadService(ObjectMapper objectMapper,
+                              MetricsService metricsService,
+                              @Value("${app.peers.enabled:false}") boolean enabled,
+                              @Value("${app.peers.urls:}") String peerUrls,
+                              @Value("${app.heartbeat.node-id:${SERVER_ID:sub-server}}") String nodeId,
+                              @Value("${app.peers.max-hops:1}") int maxHops,
+                              @Value("${app.peers.health-max-age-ms:5000}") long healthMaxAgeMs,
+                              @Value("${app.peers.health-timeout-ms:500}") long healthTimeoutMs,
+                              @Value("${app.peers.forward-timeout-ms:2000}") long forwardTimeoutMs,
+                              @Value("${app.peers.max-concurrent:8}") int maxConcurrent) {
+        this.objectMapper = objectMapper;
+        this.metricsService = metricsService;
+        this.peers = Arrays.stream(peerUrls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(url -> url.endsWith("/") ? url.substring(0, url.length() - 1) : url)
+                .map(Peer::new)
+                .toList();
+        this.enabled = enabled && !peers.isEmpty();
+        this.nodeId = nodeId;
+        this.maxHops = Math.max(0, maxHops);
+        this.healthMaxAgeMs = healthMaxAgeMs;
+        this.healthTimeout = Duration.ofMillis(healthTimeoutMs);
+        this.forwardTimeout = Duration.ofMillis(forwardTimeoutMs);
+        this.forwardSlots = new Semaphore(Math.max(1, maxConcurrent));
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(healthTimeout)
+                .build();
+
+        if (this.enabled) {
+            log.info("Peer offload enabled: {} peers, max {} hops", peers.size(), this.maxHops);
+        }
+
+        metricsService.registerFunctionCounter("app.offload.requests", "Overflow packets considered for peer offload",
+                offloadedCount, AtomicLong::get, "result", "offloaded");
+        metricsService.registerFunctionCounter("app.offload.requests", "Overflow packets considered for peer offload",
+                failedCount, AtomicLong::get, "result", "failed");
+        metricsService.registerFunctionCounter("app.offload.requests", "Overflow packets considered for peer offload",
+                noPeerCount, AtomicLong::get, "result", "no_peer");
+        metricsService.registerFunctionCounter("app.offload.requests", "Overflow packets considered for peer offload",
+                saturatedCount, AtomicLong::get, "result", "saturated");
+        metricsService.registerGauge("app.offload.peers.available", "Peers with fresh health that accept packets",
+                this::countAvailablePeers, "type", "peer");
+    }
+
+    /**
+     * Poll /server/health của mọi peer theo lịch, không đợi peer trả lời.
+     * Method @Scheduled phải trả void: khi Reactor có trên classpath, Spring coi CompletableFuture
+     * là kiểu reactive và từ chối khởi động
+     */
+    @Scheduled(fixedDelayString = "${app.peers.poll-interval-ms:1000}")
+    public void refreshPeerHealth() {
+        pollPeerHealth();
+    }
+
+    /**
+     * Poll /server/health của mọi peer (bất đồng bộ)
+     * @return future hoàn thành khi mọi peer đã trả lời hoặc timeout, dùng cho test
+     */
+    CompletableFuture<Void> pollPeerHealth() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<CompletableFuture<?>> polls = new ArrayList<>(peers.size());
+        for (Peer peer : peers) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(peer.url + HEALTH_PATH))
+                    .timeout(healthTimeout)
+                    .GET()
+                    .build();
+            polls.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .handle((response, error) -> {
+                        String failure;
+                        if (error != null) {
+                            failure = error.getMessage();
+                        } else if (response.statusCode() != 200) {
+                            failure = "HTTP " + response.statusCode();
+                        } else {
+                            try {
+                                peer.update(objectMapper.readValue(response.body(), ServerHealthResponse.class));
+                                return null;
+                            } catch (IOException e) {
+                                failure = e.getMessage();
+                            }
+                        }
+                        peer.markUnavailable();
+                        log.debug("Health poll of peer {} failed: {}", peer.url, failure);
+                        return null;
+                    }));
+        }
+        return CompletableFuture.allOf(polls.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Packet còn được phép forward tiếp hay không
+     */
+    public boolean canOffload(PacketContext context) {
+        return enabled && context.getHops() < maxHops;
+    }
+
+    /**
+     * Forward packet tới peer ít tải nhất và đợi kết quả
+     * @return response của peer (đã gắn offloadedTo), empty nếu không forward được
+     *         (đã đủ max-concurrent packet đang forward, không có peer phù hợp, peer lỗi hoặc cũng từ chối packet)
+     */
+    public Optional<FakePacketResponse> offload(FakePacketRequest request, PacketContext context) {
+        if (!canOffload(context)) {
+            return Optional.empty();
+        }
+        if (!forwardSlots.tryAcquire()) {
+            saturatedCount.incrementAndGet();
+            log.debug("Too many packets being offloaded, rejecting packet {} locally", request.getPacketId());
+            return Optional.empty();
+        }
+        try {
+            return forward(request, context);
+        } finally {
+            forwardSlots.release();
+        }
+    }
+
+    private Optional<FakePacketResponse> forward(FakePacketRequest request, PacketContext context) {
+        Peer peer = selectPeer(System.currentTimeMillis());
+        if (peer == null) {
+            noPeerCount.incrementAndGet();
+            log.debug("No available peer to offload packet {}", request.getPacketId());
+            return Optional.empty();
+        }
+
+        peer.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(peer.url + PACKET_PATH))
+                    .timeout(forwardTimeout)
+                    .header("Content-Type", "application/json")
+                    .header(HOPS_HEADER, Integer.toString(context.getHops() + 1))
+                    .header(ORIGIN_HEADER, nodeId);
+            if (context.getTenantId() != null) {
+                builder.header("X-Tenant-Id", context.getTenantId());
+            }
+            if (context.getIdempotencyKey() != null) {
+                builder.header("Idempotency-Key", context.getIdempotencyKey());
+            }
+            HttpRequest forward = builder
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(request)))
+                    .build();
+
+            HttpResponse<byte[]> response = httpClient.send(forward, HttpResponse.BodyHandlers.ofByteArray());
+            long roundTripMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (response.statusCode() != 200) {
+                // Peer cũng đang quá tải/đóng: không chọn lại cho đến lần poll health sau
+                peer.markUnavailable();
+                failedCount.incrementAndGet();
+                log.debug("Peer {} rejected offloaded packet {} with HTTP {}",
+                        peer.url, request.getPacketId(), response.statusCode());
+                return Optional.empty();
+            }
+
+            FakePacketResponse result = objectMapper.readValue(response.body(), FakePacketResponse.class);
+            if (result.getOffloadedTo() == null) {
+                result.setOffloadedTo(peer.url);
+            }
+            long peerProcessingMs = result.getProcessingTimeMs() != null ? result.getProcessingTimeMs() : 0;
+            metricsService.recordOffloadLatency(roundTripMs, roundTripMs - peerProcessingMs);
+            offloadedCount.incrementAndGet();
+            log.info("Offloaded packet {} to peer {} ({}ms round trip)", request.getPacketId(), peer.url, roundTripMs);
+            return Optional.of(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedCount.incrementAndGet();
+            return Optional.empty();
+        } catch (IOException e) {
+            peer.markUnavailable();
+            failedCount.incrementAndGet();
+            log.debug("Offloading packet {} to peer {} failed: {}", request.getPacketId(), peer.url, e.getMessage());
+            return Optional.empty();
+        } finally {
+            peer.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Trạng thái các peer theo health đã cache (cho GET /server/peers)
+     */
+    public List<PeerStatus> getPeerStatuses() {
+        long now = System.currentTimeMillis();
+        return peers.stream()
+                .map(peer -> new PeerStatus(peer.url, peer.health,
+                        peer.updatedAtMillis > 0 ? now - peer.updatedAtMillis : -1,
+                        peer.inFlight.get(), peer.isAvailable(now, healthMaxAgeMs)))
+                .toList();
+    }
+
+    public long getOffloadedCount() {
+        return offloadedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getNoPeerCount() {
+        return noPeerCount.get();
+    }
+
+    public long getSaturatedCount() {
+        return saturatedCount.get();
+    }
+
+    /**
+     * Peer OPEN có health còn mới và tải thấp nhất (connection + packet đang forward tới peer)
+     * Bằng nhau thì chọn peer có CPU thấp hơn
+     */
+    private Peer selectPeer(long nowMillis) {
+        Peer best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        double bestCpu = Double.MAX_VALUE;
+        for (Peer peer : peers) {
+            if (!peer.isAvailable(nowMillis, healthMaxAgeMs)) {
+                continue;
+            }
+            ServerHealthResponse health = peer.health;
+            int load = health.getCurrConnections() + peer.inFlight.get();
+            if (load < bestLoad || (load == bestLoad && health.getCpuUsagePercent() < bestCpu)) {
+                best = peer;
+                bestLoad = load;
+                bestCpu = health.getCpuUsagePercent();
+            }
+        }
+        return best;
+    }
+
+    private int countAvailablePeers() {
+        long now = System.currentTimeMillis();
+        int available = 0;
+        for (Peer peer : peers) {
+            if (peer.isAvailable(now, healthMaxAgeMs)) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpClient.shutdownNow();
+    }
+
+    /**
+     * Health đã cache của một peer
+     */
+    private static final class Peer {
+        private final String url;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile ServerHealthResponse health;
+        private volatile long updatedAtMillis;
+
+        private Peer(String url) {
+            this.url = url;
+        }
+
+        private void update(ServerHealthResponse health) {
+            this.health = health;
+            this.updatedAtMillis = System.currentTimeMillis();
+        }
+
+        private void markUnavailable() {
+            this.health = null;
+        }
+
+        private boolean isAvailable(long nowMillis, long maxAgeMs) {
+            ServerHealthResponse current = health;
+            return current != null && current.isOpen() && nowMillis - updatedAtMillis <= maxAgeMs;
+        }
+    }
+
+    /**
+     * @param healthAgeMs tuổi của health đã cache, -1 nếu chưa poll được lần nào
+     */
+    public record PeerStatus(String url, ServerHealthResponse health, long healthAgeMs,
+                             int inFlightOffloads, boolean available) {
+    }
+}
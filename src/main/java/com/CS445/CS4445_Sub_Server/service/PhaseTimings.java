@@ -0,0 +1,131 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.CS445.CS4445_Sub_Server.jfr.PacketPhaseEvent;
+
+/**
+ * Thời gian từng phase của một packet, đo kiểu "lap": mỗi ranh giới phase chỉ một lần System.nanoTime()
+ * Mỗi packet một instance, chỉ một thread ghi tại một thời điểm (stack reactive chuyển thread qua Reactor,
+ * đã có happens-before)
+ * Khi có recording JFR bật cs4445.PacketPhase, mỗi phase cũng là một PacketPhaseEvent cùng ranh giới
+ */
+public final class PhaseTimings {
+
+    public enum Phase {
+        PRIMES("primes"),
+        HASH("hash"),
+        MATH("math"),
+        STRINGS("strings"),
+        RAM_LIST("ram_list"),
+        RAM_MAP("ram_map"),
+        RAM_BYTES("ram_bytes"),
+        RAM_OBJECTS("ram_objects"),
+        RAM_SCAN("ram_scan"),
+        PAYLOAD("payload"),
+        DELAY("delay");
+
+        static final Phase[] VALUES = values();
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * Giá trị tag "phase" của app.processing.phase
+         */
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    // -1: phase không chạy trong packet này (vd: payload với packet JSON)
+    private final long[] nanos = new long[Phase.VALUES.length];
+    private long mark;
+    private final long startNanos;
+
+    private final String packetId;
+    private final int cpuIntensity;
+    private final int ramIntensity;
+    // Event của phase đang chạy, null khi không có recording JFR nào bật PacketPhaseEvent
+    private PacketPhaseEvent phaseEvent;
+
+    public PhaseTimings(String packetId, int cpuIntensity, int ramIntensity) {
+        this.packetId = packetId;
+        this.cpuIntensity = cpuIntensity;
+        this.ramIntensity = ramIntensity;
+        Arrays.fill(nanos, -1);
+        if (PacketPhaseEvent.enabled()) {
+            phaseEvent = PacketPhaseEvent.begin(packetId, cpuIntensity, ramIntensity);
+        }
+        mark = System.nanoTime();
+        startNanos = mark;
+    }
+
+    /**
+     * System.nanoTime() lúc tạo, tức lúc packet bắt đầu chạy kernel
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Kết thúc phase: thời gian từ lần lap trước (hoặc lúc tạo) đến bây giờ
+     */
+    public void lap(Phase phase) {
+        long now = System.nanoTime();
+        int index = phase.ordinal();
+        nanos[index] = Math.max(0, nanos[index]) + (now - mark);
+        mark = now;
+        if (phaseEvent != null) {
+            phaseEvent.finish(phase.getTag());
+            phaseEvent = PacketPhaseEvent.begin(packetId, cpuIntensity, ramIntensity);
+        }
+    }
+
+    /**
+     * Bỏ qua khoảng thời gian từ lần lap trước (vd: log, notify listener giữa các phase)
+     */
+    public void skip() {
+        if (phaseEvent != null) {
+            phaseEvent.begin();
+        }
+        mark = System.nanoTime();
+    }
+
+    /**
+     * @return -1 nếu phase không chạy
+     */
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    /**
+     * Tổng các phase đã chạy trong khoảng [from, to] theo thứ tự enum
+     */
+    public long sumNanos(Phase from, Phase to) {
+        long total = 0;
+        for (int i = from.ordinal(); i <= to.ordinal(); i++) {
+            total += Math.max(0, nanos[i]);
+        }
+        return total;
+    }
+
+    /**
+     * Phase đã chạy -> ms (3 chữ số thập phân), theo thứ tự thực thi
+     */
+    public Map<String, Double> toMillis() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (Phase phase : Phase.VALUES) {
+            long value = nanos[phase.ordinal()];
+            if (value >= 0) {
+                millis.put(phase.getTag(), Math.round(value / 1000.0) / 1000.0);
+            }
+        }
+        return millis;
+    }
+}
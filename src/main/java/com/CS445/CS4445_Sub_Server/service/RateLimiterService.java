@@ -0,0 +1,160 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Token-bucket rate limit theo từng client
+ * - Mỗi client một bucket trong ConcurrentHashMap (map phân mảnh theo bin, đọc không khóa)
+ * - Bucket cài đặt bằng GCRA: toàn bộ trạng thái là một AtomicLong (theoretical arrival
+ *   time), tiêu thụ token chỉ cần một CAS, không lock và không cấp phát
+ * - Bucket đã đầy lại và không dùng quá idle-timeout bị xóa định kỳ để bộ nhớ không tăng
+ *   theo số client từng gặp; chỉ sweep định kỳ mới quét map, không quét trên thread request
+ * - Khi map đã đủ max-clients, client mới dùng chung một bucket overflow cho đến khi sweep
+ *   giải phóng chỗ, nên số bucket bị chặn trên mà client mới vẫn bị rate limit
+ */
+@Service
+@Slf4j
+public class RateLimiterService {
+
+    // Giá trị tat của bucket đã bị sweep gỡ khỏi map, thread đang giữ bucket phải lấy lại từ map
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflowBucket = new TokenBucket();
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final long idleTimeoutNanos;
+    private final int maxClients;
+
+    public RateLimiterService(MetricsService metricsService,
+                              @Value("${app.rate-limit.requests-per-second:50}") double requestsPerSecond,
+                              @Value("${app.rate-limit.burst:100}") int burst,
+                              @Value("${app.rate-limit.idle-timeout-ms:300000}") long idleTimeoutMs,
+                              @Value("${app.rate-limit.max-clients:100000}") int maxClients) {
+        this.emissionIntervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        // Cho phép tối đa `burst` request dồn cùng lúc khi bucket đầy
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, burst - 1);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.maxClients = maxClients;
+
+        metricsService.registerGauge("app.ratelimit.clients", "Number of clients with a live rate-limit bucket",
+                buckets::size, "type", "active");
+    }
+
+    /**
+     * Lấy một token cho client
+     * @return true nếu request được phép, false nếu client vượt giới hạn
+     */
+    public boolean tryAcquire(String clientId) {
+        while (true) {
+            TokenBucket bucket = bucketFor(clientId);
+            int result = bucket.tryConsume(System.nanoTime());
+            if (result != TokenBucket.RETIRED_BUCKET) {
+                return result == TokenBucket.GRANTED;
+            }
+            // Sweep vừa gỡ bucket này, lấy (hoặc tạo) bucket mới trong map rồi thử lại
+            buckets.remove(clientId, bucket);
+        }
+    }
+
+    /**
+     * Thời gian (ms) client cần đợi đến khi có token tiếp theo, dùng cho header Retry-After
+     */
+    public long millisUntilNextToken(String clientId) {
+        TokenBucket bucket = buckets.get(clientId);
+        if (bucket == null) {
+            bucket = overflowBucket;
+        }
+        long waitNanos = bucket.nanosUntilNextToken(System.nanoTime());
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    }
+
+    public int getTrackedClients() {
+        return buckets.size();
+    }
+
+    /**
+     * Xóa bucket của client đã im lặng quá idle-timeout (bucket lúc đó chắc chắn đã đầy,
+     * nên xóa đi rồi tạo lại không làm thay đổi hành vi rate limit).
+     * Bucket được đánh dấu RETIRED bằng CAS trước khi gỡ, nên thread vừa lấy bucket đó không
+     * tiêu token trên bucket đã gỡ mà lấy lại bucket từ map
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms:30000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+            TokenBucket bucket = entry.getValue();
+            if (bucket.retireIfIdle(now)) {
+                buckets.remove(entry.getKey(), bucket);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate-limit buckets, {} remaining", evicted, buckets.size());
+        }
+    }
+
+    /**
+     * Bucket của client; khi map đã đủ max-clients, client chưa có bucket dùng bucket overflow
+     */
+    private TokenBucket bucketFor(String clientId) {
+        TokenBucket bucket = buckets.get(clientId);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            return overflowBucket;
+        }
+        return buckets.computeIfAbsent(clientId, id -> new TokenBucket());
+    }
+
+    private final class TokenBucket {
+
+        static final int GRANTED = 0;
+        static final int REJECTED = 1;
+        static final int RETIRED_BUCKET = 2;
+
+        // Theoretical arrival time: thời điểm bucket sẽ đầy lại nếu không có request mới
+        private final AtomicLong tat = new AtomicLong(System.nanoTime());
+
+        int tryConsume(long now) {
+            while (true) {
+                long current = tat.get();
+                if (current == RETIRED) {
+                    return RETIRED_BUCKET;
+                }
+                long base = Math.max(current, now);
+                if (base - now > burstToleranceNanos) {
+                    return REJECTED;
+                }
+                if (tat.compareAndSet(current, base + emissionIntervalNanos)) {
+                    return GRANTED;
+                }
+            }
+        }
+
+        long nanosUntilNextToken(long now) {
+            long current = tat.get();
+            return current == RETIRED ? 0 : Math.max(0, current - burstToleranceNanos - now);
+        }
+
+        /**
+         * Đánh dấu bucket đã gỡ nếu nó idle; CAS thất bại khi có request vừa tiêu token
+         */
+        boolean retireIfIdle(long now) {
+            long current = tat.get();
+            return current != RETIRED && now - current > idleTimeoutNanos && tat.compareAndSet(current, RETIRED);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sun.management.OperatingSystemMXBean;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lấy mẫu tài nguyên của node ở thread nền theo chu kỳ cố định (app.resource-sampler.interval-ms)
+ * và publish một ResourceSnapshot bất biến, để /server/health không phải gọi MXBean mỗi request
+ * - CPU: EWMA của OperatingSystemMXBean.getCpuLoad() (số đọc tức thời rất nhiễu)
+ * - Heap: phần còn sống sau GC gần nhất (MemoryPoolMXBean.getCollectionUsage) và heap đang dùng
+ * - Thread: số thread sống, daemon và peak
+ * - Container: CPU và memory theo cgroup (v2, fallback v1), -1 khi không có giới hạn cgroup
+ */
+@Service
+@Slf4j
+public class ResourceSamplerService {
+
+    private final double cpuAlpha;
+    private final Path cgroupRoot;
+    private final DoubleSupplier cpuLoad;
+    private final List<MemoryPoolMXBean> heapPools;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final List<Consumer<ResourceSnapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile ResourceSnapshot snapshot;
+
+    // Chỉ được ghi từ thread của scheduler
+    private double smoothedCpu = Double.NaN;
+    private long lastCgroupCpuNanos = -1;
+    private long lastSampleNanos;
+
+    @Autowired
+    public ResourceSamplerService(@Value("${app.resource-sampler.cpu-alpha:0.3}") double cpuAlpha,
+                                  @Value("${app.resource-sampler.cgroup-root:/sys/fs/cgroup}") String cgroupRoot) {
+        this(cpuAlpha, Path.of(cgroupRoot),
+                ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())::getCpuLoad);
+    }
+
+    ResourceSamplerService(double cpuAlpha, Path cgroupRoot, DoubleSupplier cpuLoad) {
+        this.cpuAlpha = cpuAlpha;
+        this.cgroupRoot = cgroupRoot;
+        this.cpuLoad = cpuLoad;
+        this.heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        sample();
+    }
+
+    /**
+     * Snapshot gần nhất, không bao giờ null
+     */
+    public ResourceSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Listener được gọi trên thread của scheduler sau mỗi lần lấy mẫu
+     */
+    public void addListener(Consumer<ResourceSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedRateString = "${app.resource-sampler.interval-ms:500}")
+    public void sample() {
+        long now = System.nanoTime();
+
+        double cpu = Math.max(0.0, cpuLoad.getAsDouble() * 100);
+        smoothedCpu = Double.isNaN(smoothedCpu) ? cpu : smoothedCpu + cpuAlpha * (cpu - smoothedCpu);
+
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        long postGcUsed = 0;
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getUsage();
+            MemoryUsage collectionUsage = pool.getCollectionUsage();
+            used += usage.getUsed();
+            postGcUsed += collectionUsage != null ? collectionUsage.getUsed() : usage.getUsed();
+        }
+
+        ResourceSnapshot next = new ResourceSnapshot(
+                System.currentTimeMillis(),
+                round(smoothedCpu),
+                round(percent(postGcUsed, maxHeap)),
+                round(percent(used, maxHeap)),
+                threadBean.getThreadCount(),
+                threadBean.getDaemonThreadCount(),
+                threadBean.getPeakThreadCount(),
+                round(sampleContainerCpu(now)),
+                round(sampleContainerMemory()));
+        lastSampleNanos = now;
+        snapshot = next;
+
+        for (Consumer<ResourceSnapshot> listener : listeners) {
+            try {
+                listener.accept(next);
+            } catch (RuntimeException e) {
+                log.warn("Resource snapshot listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * CPU container (% của quota cgroup, hoặc của số core khi không có quota) giữa hai mẫu
+     */
+    private double sampleContainerCpu(long now) {
+        long cpuNanos = readCgroupCpuNanos();
+        long previous = lastCgroupCpuNanos;
+        lastCgroupCpuNanos = cpuNanos;
+        if (cpuNanos < 0 || previous < 0 || now <= lastSampleNanos) {
+            return -1;
+        }
+        double cores = readCpuQuotaCores();
+        return percent(cpuNanos - previous, (long) ((now - lastSampleNanos) * cores));
+    }
+
+    private double sampleContainerMemory() {
+        // cgroup v2
+        long current = readLong(cgroupRoot.resolve("memory.current"));
+        long limit = readLong(cgroupRoot.resolve("memory.max"));
+        if (current < 0) {
+            // cgroup v1, limit "không giới hạn" là một số rất lớn
+            current = readLong(cgroupRoot.resolve("memory/memory.usage_in_bytes"));
+            limit = readLong(cgroupRoot.resolve("memory/memory.limit_in_bytes"));
+            if (limit >= Long.MAX_VALUE / 2) {
+                limit = -1;
+            }
+        }
+        return current >= 0 && limit > 0 ? percent(current, limit) : -1;
+    }
+
+    private long readCgroupCpuNanos() {
+        // cgroup v2: dòng "usage_usec <n>" trong cpu.stat
+        for (String line : readLines(cgroupRoot.resolve("cpu.stat"))) {
+            if (line.startsWith("usage_usec ")) {
+                return TimeUnit.MICROSECONDS.toNanos(Long.parseLong(line.substring(11).trim()));
+            }
+        }
+        return readLong(cgroupRoot.resolve("cpuacct/cpuacct.usage"));
+    }
+
+    private double readCpuQuotaCores() {
+        // cgroup v2: "<quota|max> <period>"
+        List<String> cpuMax = readLines(cgroupRoot.resolve("cpu.max"));
+        if (!cpuMax.isEmpty()) {
+            String[] parts = cpuMax.get(0).trim().split("\\s+");
+            if (parts.length == 2 && !"max".equals(parts[0])) {
+                return Double.parseDouble(parts[0]) / Double.parseDouble(parts[1]);
+            }
+        } else {
+            long quota = readLong(cgroupRoot.resolve("cpu/cpu.cfs_quota_us"));
+            long period = readLong(cgroupRoot.resolve("cpu/cpu.cfs_period_us"));
+            if (quota > 0 && period > 0) {
+                return (double) quota / period;
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return -1 khi file không tồn tại, không đọc được hoặc giá trị là "max"
+     */
+    private static long readLong(Path path) {
+        List<String> lines = readLines(path);
+        if (lines.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lines.get(0).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static List<String> readLines(Path path) {
+        if (!Files.isReadable(path)) {
+            return List.of();
+        }
+        try {
+            return Files.readAllLines(path);
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    private static double percent(long part, long whole) {
+        return whole > 0 ? (double) part / whole * 100 : 0.0;
+    }
+
+    private static double round(double value) {
+        return value < 0 ? value : Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * @param cpuUsagePercent CPU đã làm mượt (EWMA)
+     * @param heapAfterGcPercent heap còn sống sau GC gần nhất / heap tối đa
+     * @param heapUsedPercent heap đang dùng (gồm cả rác chưa thu) / heap tối đa
+     * @param containerCpuPercent CPU của cgroup so với quota, -1 khi không đọc được cgroup
+     * @param containerMemoryPercent memory của cgroup so với limit, -1 khi không có limit
+     */
+    public record ResourceSnapshot(long sampledAtMillis, double cpuUsagePercent, double heapAfterGcPercent,
+                                   double heapUsedPercent, int threadCount, int daemonThreadCount,
+                                   int peakThreadCount, double containerCpuPercent,
+                                   double containerMemoryPercent) {
+    }
+}
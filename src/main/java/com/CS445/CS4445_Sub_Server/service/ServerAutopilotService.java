@@ -0,0 +1,180 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.sun.management.OperatingSystemMXBean;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Autopilot tự đóng/mở server theo tải của node
+ * - Đóng khi một trong các chỉ số (CPU, heap sau GC, queue, p99 latency) vượt high-water mark
+ * - Chỉ mở lại server do chính autopilot đóng, khi mọi chỉ số xuống dưới low-water mark
+ *   (server bị Load-Balancer/người vận hành đóng tay thì autopilot không động vào)
+ * - Mỗi trạng thái phải giữ tối thiểu min-open-ms / min-closed-ms trước khi autopilot được
+ *   đổi tiếp, cùng với khoảng cách high/low tạo hysteresis để không bị flap
+ * - Lý do của mỗi lần chuyển trạng thái tự động được ghi vào ServerStateService
+ */
+@Service
+@Slf4j
+public class ServerAutopilotService {
+
+    private final ServerStateService serverStateService;
+    private final MetricsService metricsService;
+    private final HeapAdmissionService heapAdmissionService;
+    private final OperatingSystemMXBean osBean =
+            (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    private final boolean enabled;
+    private final Thresholds high;
+    private final Thresholds low;
+    private final long minOpenMs;
+    private final long minClosedMs;
+
+    private final AtomicLong autoCloseCount = new AtomicLong();
+    private final AtomicLong autoOpenCount = new AtomicLong();
+
+    // Chỉ được ghi từ thread của scheduler
+    private boolean lastSeenOpen;
+    private long lastTransitionMillis;
+    private boolean closedByAutopilot;
+
+    public ServerAutopilotService(ServerStateService serverStateService,
+                                  MetricsService metricsService,
+                                  HeapAdmissionService heapAdmissionService,
+                                  @Value("${app.autopilot.enabled:false}") boolean enabled,
+                                  @Value("${app.autopilot.cpu.high-percent:90}") double cpuHigh,
+                                  @Value("${app.autopilot.cpu.low-percent:70}") double cpuLow,
+                                  @Value("${app.autopilot.heap.high-ratio:0.85}") double heapHigh,
+                                  @Value("${app.autopilot.heap.low-ratio:0.7}") double heapLow,
+                                  @Value("${app.autopilot.queue.high:64}") int queueHigh,
+                                  @Value("${app.autopilot.queue.low:16}") int queueLow,
+                                  @Value("${app.autopilot.p99.high-ms:5000}") double p99High,
+                                  @Value("${app.autopilot.p99.low-ms:2000}") double p99Low,
+                                  @Value("${app.autopilot.min-open-ms:30000}") long minOpenMs,
+                                  @Value("${app.autopilot.min-closed-ms:10000}") long minClosedMs) {
+        this.serverStateService = serverStateService;
+        this.metricsService = metricsService;
+        this.heapAdmissionService = heapAdmissionService;
+        this.enabled = enabled;
+        this.high = new Thresholds(cpuHigh, heapHigh, queueHigh, p99High);
+        this.low = new Thresholds(cpuLow, heapLow, queueLow, p99Low);
+        this.minOpenMs = minOpenMs;
+        this.minClosedMs = minClosedMs;
+        this.lastSeenOpen = serverStateService.isServerOpen();
+        this.lastTransitionMillis = System.currentTimeMillis();
+
+        metricsService.registerFunctionCounter("app.autopilot.transitions", "Automatic server state changes",
+                autoCloseCount, AtomicLong::get, "action", "close");
+        metricsService.registerFunctionCounter("app.autopilot.transitions", "Automatic server state changes",
+                autoOpenCount, AtomicLong::get, "action", "open");
+
+        log.info("Server autopilot initialized: enabled={}, high={}, low={}", enabled, high, low);
+    }
+
+    @Scheduled(fixedDelayString = "${app.autopilot.interval-ms:1000}")
+    public void evaluate() {
+        if (!enabled) {
+            return;
+        }
+        evaluate(sampleLoad(), System.currentTimeMillis());
+    }
+
+    /**
+     * Một bước quyết định của autopilot với số liệu tải cho trước
+     */
+    void evaluate(LoadSample sample, long nowMillis) {
+        if (serverStateService.isDraining()) {
+            // Node đang drain để deploy/tắt: không tự mở lại
+            closedByAutopilot = false;
+            lastSeenOpen = false;
+            return;
+        }
+        boolean open = serverStateService.isServerOpen();
+        if (open != lastSeenOpen) {
+            // Trạng thái bị đổi từ bên ngoài (Load-Balancer, người vận hành): tính lại dwell time
+            lastSeenOpen = open;
+            lastTransitionMillis = nowMillis;
+            closedByAutopilot = false;
+        }
+
+        long dwellMillis = nowMillis - lastTransitionMillis;
+        if (open) {
+            List<String> breaches = sample.above(high);
+            if (!breaches.isEmpty() && dwellMillis >= minOpenMs) {
+                String reason = "Autopilot: high load (" + String.join(", ", breaches) + ")";
+                // Đổi state có điều kiện: drain/close từ bên ngoài giữa lúc đọc và lúc ghi thì không ghi đè
+                if (serverStateService.closeIfOpen(reason)) {
+                    autoCloseCount.incrementAndGet();
+                    recordTransition(false, nowMillis);
+                    closedByAutopilot = true;
+                }
+            }
+        } else if (closedByAutopilot && dwellMillis >= minClosedMs && sample.below(low)) {
+            String reason = "Autopilot: load recovered (" + sample.describe() + ")";
+            if (serverStateService.openIfClosed(reason)) {
+                autoOpenCount.incrementAndGet();
+                recordTransition(true, nowMillis);
+            }
+            closedByAutopilot = false;
+        }
+    }
+
+    private void recordTransition(boolean open, long nowMillis) {
+        lastSeenOpen = open;
+        lastTransitionMillis = nowMillis;
+    }
+
+    private LoadSample sampleLoad() {
+        double cpuPercent = Math.max(0.0, osBean.getCpuLoad() * 100);
+        return new LoadSample(
+                cpuPercent,
+                heapAdmissionService.getPostGcUtilization(),
+                metricsService.getQueueLength(),
+                metricsService.getRequestLatencyPercentileMs(0.99));
+    }
+
+    record Thresholds(double cpuPercent, double heapRatio, int queueDepth, double p99Ms) {
+    }
+
+    /**
+     * Số liệu tải tại một thời điểm
+     */
+    record LoadSample(double cpuPercent, double heapRatio, int queueDepth, double p99Ms) {
+
+        List<String> above(Thresholds limits) {
+            List<String> breaches = new ArrayList<>();
+            if (cpuPercent > limits.cpuPercent()) {
+                breaches.add(String.format("cpu %.1f%% > %.1f%%", cpuPercent, limits.cpuPercent()));
+            }
+            if (heapRatio > limits.heapRatio()) {
+                breaches.add(String.format("heap %.2f > %.2f", heapRatio, limits.heapRatio()));
+            }
+            if (queueDepth > limits.queueDepth()) {
+                breaches.add(String.format("queue %d > %d", queueDepth, limits.queueDepth()));
+            }
+            if (p99Ms > limits.p99Ms()) {
+                breaches.add(String.format("p99 %.0fms > %.0fms", p99Ms, limits.p99Ms()));
+            }
+            return breaches;
+        }
+
+        boolean below(Thresholds limits) {
+            return cpuPercent < limits.cpuPercent()
+                    && heapRatio < limits.heapRatio()
+                    && queueDepth < limits.queueDepth()
+                    && p99Ms < limits.p99Ms();
+        }
+
+        String describe() {
+            return String.format("cpu %.1f%%, heap %.2f, queue %d, p99 %.0fms", cpuPercent, heapRatio, queueDepth, p99Ms);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.ServerHealthResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tạo ServerHealthResponse cho /server/health và cho heartbeat gửi tới Load-Balancer
+ * CPU/memory/thread lấy từ snapshot của ResourceSamplerService (không gọi MXBean theo request).
+ * /server/health trả về bản đã encode sẵn thành JSON, được làm mới sau mỗi lần lấy mẫu
+ * và khi trạng thái server đổi, nên mỗi request chỉ là một lần đọc volatile. Listener trạng thái
+ * chạy bất đồng bộ, nên bản encode còn ghi version của state: request đọc thấy version cũ
+ * thì tự làm mới, /server/health không bao giờ trả state cũ hơn lần đổi state đã xong.
+ */
+@Service
+@Slf4j
+public class ServerHealthService {
+
+    private final MetricsService metricsService;
+    private final ServerStateService serverStateService;
+    private final CapacityScoreService capacityScoreService;
+    private final LatencyWindowService latencyWindowService;
+    private final ResourceSamplerService resourceSamplerService;
+    private final ConnectorPoolService connectorPoolService;
+    private final ObjectWriter healthWriter;
+
+    private volatile HealthSnapshot latest;
+
+    public ServerHealthService(MetricsService metricsService,
+                               ServerStateService serverStateService,
+                               CapacityScoreService capacityScoreService,
+                               LatencyWindowService latencyWindowService,
+                               ResourceSamplerService resourceSamplerService,
+                               ConnectorPoolService connectorPoolService,
+                               ObjectMapper objectMapper) {
+        this.metricsService = metricsService;
+        this.serverStateService = serverStateService;
+        this.capacityScoreService = capacityScoreService;
+        this.latencyWindowService = latencyWindowService;
+        this.resourceSamplerService = resourceSamplerService;
+        this.connectorPoolService = connectorPoolService;
+        this.healthWriter = objectMapper.writerFor(ServerHealthResponse.class);
+
+        refresh();
+        resourceSamplerService.addListener(snapshot -> refresh());
+        serverStateService.addListener(transition -> refresh());
+    }
+
+    /**
+     * Tính health mới từ số liệu hiện tại (heartbeat dùng để luôn gửi trạng thái mới nhất)
+     */
+    public ServerHealthResponse getHealth() {
+        ResourceSamplerService.ResourceSnapshot resources = resourceSamplerService.getSnapshot();
+
+        // Lấy current connections từ MetricsService
+        int currConnections = metricsService.getCurrentConnections();
+
+        // Lấy server open status
+        boolean isOpen = serverStateService.isServerOpen();
+
+        // Latency packet trong cửa sổ trượt, dùng chung cho capacity score
+        LatencyWindowService.LatencyStats latency = latencyWindowService.snapshot();
+
+        // Điểm capacity và routing weight
+        CapacityScoreService.CapacityScore capacity = capacityScoreService.evaluate(latency);
+
+        // Pool worker của connector, tách đợi worker khỏi thời gian xử lý
+        ConnectorPoolService.ConnectorStats connector = connectorPoolService.snapshot();
+
+        return ServerHealthResponse.builder()
+                .cpuUsagePercent(resources.cpuUsagePercent())
+                .memoryUsagePercent(resources.heapUsedPercent())
+                .avgProcessingTimeSec(Math.round(latency.meanMs()) / 1000.0)
+                .currConnections(currConnections)
+                .isOpen(isOpen)
+                .draining(serverStateService.isDraining())
+                .warming(serverStateService.isWarming())
+                .capacityScore(capacity.capacityScore())
+                .routingWeight(capacity.routingWeight())
+                .queueDepth(capacity.queueDepth())
+                .concurrencyHeadroom(capacity.concurrencyHeadroom())
+                .p95LatencyMs(capacity.p95LatencyMs())
+                .gcTimePercent(capacity.gcTimePercent())
+                .latencyMeanMs(latency.meanMs())
+                .latencyP50Ms(latency.p50Ms())
+                .latencyP99Ms(latency.p99Ms())
+                .latencyEwmaMs(latency.ewmaMs())
+                .latencySamples(latency.count())
+                .heapAfterGcPercent(resources.heapAfterGcPercent())
+                .threadCount(resources.threadCount())
+                .peakThreadCount(resources.peakThreadCount())
+                .containerCpuPercent(resources.containerCpuPercent())
+                .containerMemoryPercent(resources.containerMemoryPercent())
+                .sampledAtMillis(resources.sampledAtMillis())
+                .connectorActiveThreads(connector.activeThreads())
+                .connectorMaxThreads(connector.maxThreads())
+                .connectorPendingDispatch(connector.pendingDispatch())
+                .connectorConnections(connector.connections())
+                .connectorMaxConnections(connector.maxConnections())
+                .dispatchWaitMeanMs(connector.dispatchWaitMeanMs())
+                .dispatchWaitP99Ms(connector.dispatchWaitP99Ms())
+                .serviceTimeMeanMs(connector.serviceTimeMeanMs())
+                .serviceTimeP99Ms(connector.serviceTimeP99Ms())
+                .build();
+    }
+
+    /**
+     * Health đã encode JSON gần nhất, dùng trực tiếp làm body của /server/health
+     */
+    public byte[] getEncodedHealth() {
+        return current().encoded();
+    }
+
+    /**
+     * Health tương ứng với getEncodedHealth()
+     */
+    public ServerHealthResponse getLatestHealth() {
+        return current().health();
+    }
+
+    /**
+     * Tính và encode lại health; synchronized để bản cũ không ghi đè bản mới hơn
+     */
+    public synchronized void refresh() {
+        long stateVersion = serverStateService.getSnapshot().version();
+        ServerHealthResponse health = getHealth();
+        try {
+            latest = new HealthSnapshot(health, healthWriter.writeValueAsBytes(health), stateVersion);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to encode health snapshot", e);
+        }
+    }
+
+    private HealthSnapshot current() {
+        HealthSnapshot snapshot = latest;
+        if (snapshot.stateVersion() != serverStateService.getSnapshot().version()) {
+            // Listener trạng thái chưa kịp chạy
+            refresh();
+            snapshot = latest;
+        }
+        return snapshot;
+    }
+
+    private record HealthSnapshot(ServerHealthResponse health, byte[] encoded, long stateVersion) {
+    }
+}
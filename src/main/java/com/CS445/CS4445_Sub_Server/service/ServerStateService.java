@@ -1,54 +1,300 @@
 package com.CS445.CS4445_Sub_Server.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+
 import java.time.LocalDateTime;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class ServerStateService {
 
-    private final AtomicBoolean serverOpen = new AtomicBoolean(true);
-    private LocalDateTime lastStateChange = LocalDateTime.now();
-    private String lastStateChangeReason = "Server started";
+    private static final int DEFAULT_HISTORY_SIZE = 100;
+
+    /**
+     * OPEN: nhận packet mới
+     * CLOSED: từ chối packet mới
+     * DRAINING: từ chối packet mới, đợi packet đang chạy/đang đợi xử lý xong trước khi tắt node
+     * WARMING: vừa khởi động, đang warmup JIT, chưa nhận packet
+     */
+    public enum State {
+        OPEN, CLOSED, DRAINING, WARMING
+    }
+
+    /**
+     * Trạng thái server tại một thời điểm: state, thời điểm và lý do đổi được đọc/ghi cùng nhau
+     * @param version tăng 1 sau mỗi lần chuyển trạng thái
+     */
+    public record StateSnapshot(State state, LocalDateTime changedAt, String reason, long version) {
+    }
+
+    /**
+     * Một lần chuyển trạng thái, dùng cho history và SSE watch
+     */
+    public record StateTransition(State from, State to, LocalDateTime changedAt, String reason, long version) {
+    }
+
+    // Reader đọc snapshot không cần lock; writer đổi snapshot + history trong synchronized (this)
+    private volatile StateSnapshot snapshot = new StateSnapshot(State.OPEN, LocalDateTime.now(), "Server started", 0);
+
+    // Ring buffer các lần chuyển trạng thái gần nhất, chỉ truy cập trong synchronized (this)
+    private final StateTransition[] history;
+    private int historyNext;
+    private int historyCount;
+
+    private final List<Consumer<StateTransition>> listeners = new CopyOnWriteArrayList<>();
+
+    // Một thread phát event: listener nhận transition đúng thứ tự version và không chạy
+    // trên thread vừa đổi state (request /server/close, autopilot...)
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "server-state-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Packet đã qua bước kiểm tra trạng thái và chưa xong (đang chạy hoặc đang đợi bulkhead)
+    private final AtomicInteger inFlightPackets = new AtomicInteger();
+    private final Object idleMonitor = new Object();
+
+    public ServerStateService() {
+        this(DEFAULT_HISTORY_SIZE);
+    }
+
+    @Autowired
+    public ServerStateService(@Value("${app.state.history-size:100}") int historySize) {
+        this.history = new StateTransition[Math.max(1, historySize)];
+    }
 
     public boolean isServerOpen() {
-        return serverOpen.get();
+        return snapshot.state() == State.OPEN;
+    }
+
+    public boolean isDraining() {
+        return snapshot.state() == State.DRAINING;
+    }
+
+    public boolean isWarming() {
+        return snapshot.state() == State.WARMING;
+    }
+
+    public StateSnapshot getSnapshot() {
+        return snapshot;
     }
 
     public void openServer(String reason) {
-        if (!serverOpen.get()) {
-            serverOpen.set(true);
-            lastStateChange = LocalDateTime.now();
-            lastStateChangeReason = reason != null ? reason : "Server opened";
-            log.info("Server OPENED at {}: {}", lastStateChange, lastStateChangeReason);
+        StateTransition transition = transition(State.OPEN, reason != null ? reason : "Server opened", null);
+        if (transition != null) {
+            log.info("Server OPENED at {}: {}", transition.changedAt(), transition.reason());
         } else {
             log.warn("Attempt to open server, but it's already open");
         }
     }
 
     public void closeServer(String reason) {
-        if (serverOpen.get()) {
-            serverOpen.set(false);
-            lastStateChange = LocalDateTime.now();
-            lastStateChangeReason = reason != null ? reason : "Server closed";
-            log.warn("Server CLOSED at {}: {}", lastStateChange, lastStateChangeReason);
+        StateTransition transition = transition(State.CLOSED, reason != null ? reason : "Server closed", null);
+        if (transition != null) {
+            log.warn("Server CLOSED at {}: {}", transition.changedAt(), transition.reason());
         } else {
             log.warn("Attempt to close server, but it's already closed");
         }
     }
 
+    /**
+     * Đóng server chỉ khi server đang OPEN, để không ghi đè DRAINING/WARMING vừa được đặt từ bên ngoài
+     * @return true nếu server được đóng bởi lời gọi này
+     */
+    public boolean closeIfOpen(String reason) {
+        StateTransition transition = transition(State.CLOSED, reason != null ? reason : "Server closed", State.OPEN);
+        if (transition != null) {
+            log.warn("Server CLOSED at {}: {}", transition.changedAt(), transition.reason());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Mở server chỉ khi server đang CLOSED (server đang drain hoặc warmup thì giữ nguyên)
+     * @return true nếu server được mở bởi lời gọi này
+     */
+    public boolean openIfClosed(String reason) {
+        StateTransition transition = transition(State.OPEN, reason != null ? reason : "Server opened", State.CLOSED);
+        if (transition != null) {
+            log.info("Server OPENED at {}: {}", transition.changedAt(), transition.reason());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Chuyển sang DRAINING: ngừng nhận packet mới, packet đang xử lý vẫn chạy tiếp
+     * Node ở DRAINING cho đến khi được open lại hoặc bị tắt
+     */
+    public void startDraining(String reason) {
+        StateTransition transition = transition(State.DRAINING, reason != null ? reason : "Server draining", null);
+        if (transition != null) {
+            log.warn("Server DRAINING at {} with {} in-flight packets: {}",
+                    transition.changedAt(), inFlightPackets.get(), transition.reason());
+        } else {
+            log.warn("Attempt to drain server, but it's already draining");
+        }
+    }
+
+    /**
+     * Chuyển sang WARMING khi node vừa khởi động và chưa warmup xong
+     */
+    public void startWarming(String reason) {
+        StateTransition transition = transition(State.WARMING, reason != null ? reason : "Server warming up", null);
+        if (transition != null) {
+            log.info("Server WARMING at {}: {}", transition.changedAt(), transition.reason());
+        }
+    }
+
+    /**
+     * Mở server sau warmup, chỉ khi server vẫn đang WARMING
+     * (server bị close/drain trong lúc warmup thì giữ nguyên)
+     * @return true nếu server được mở
+     */
+    public boolean finishWarming(String reason) {
+        StateTransition transition = transition(State.OPEN, reason != null ? reason : "Warmup complete", State.WARMING);
+        if (transition != null) {
+            log.info("Server OPENED at {} after warmup: {}", transition.changedAt(), transition.reason());
+            return true;
+        }
+        log.info("Warmup finished but server is {}, leaving state unchanged", snapshot.state());
+        return false;
+    }
+
+    /**
+     * Các lần chuyển trạng thái gần nhất, cũ nhất trước
+     */
+    public synchronized List<StateTransition> getHistory() {
+        List<StateTransition> result = new ArrayList<>(historyCount);
+        int start = (historyNext - historyCount + history.length) % history.length;
+        for (int i = 0; i < historyCount; i++) {
+            result.add(history[(start + i) % history.length]);
+        }
+        return result;
+    }
+
+    /**
+     * Đăng ký nhận các lần chuyển trạng thái
+     * Listener được gọi trên thread phát event, lần lượt theo version, sau khi snapshot đã đổi
+     */
+    public void addListener(Consumer<StateTransition> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<StateTransition> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Chạy task trên thread phát event, sau mọi transition đã được phát trước đó
+     * (vd: gửi snapshot ban đầu cho subscriber mới mà không chen ngang các transition)
+     */
+    public void dispatch(Runnable task) {
+        dispatcher.execute(task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Gọi khi packet bắt đầu vào pipeline, TRƯỚC khi kiểm tra {@link #isServerOpen()}:
+     * packet nào thấy OPEN thì đã được đếm trước khi drain bắt đầu đợi
+     */
+    public void packetStarted() {
+        inFlightPackets.incrementAndGet();
+    }
+
+    public void packetFinished() {
+        if (inFlightPackets.decrementAndGet() == 0) {
+            synchronized (idleMonitor) {
+                idleMonitor.notifyAll();
+            }
+        }
+    }
+
+    public int getInFlightPackets() {
+        return inFlightPackets.get();
+    }
+
+    /**
+     * Đợi đến khi không còn packet nào đang xử lý
+     * @return true nếu node đã idle, false nếu hết timeout mà vẫn còn packet
+     */
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (idleMonitor) {
+            while (inFlightPackets.get() > 0) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return false;
+                }
+                idleMonitor.wait(remainingMs);
+            }
+            return true;
+        }
+    }
+
     public ServerStatus getStatus() {
+        StateSnapshot current = snapshot;
         return ServerStatus.builder()
-                .isOpen(serverOpen.get())
-                .status(serverOpen.get() ? "OPEN" : "CLOSED")
-                .lastStateChange(lastStateChange)
-                .reason(lastStateChangeReason)
+                .isOpen(current.state() == State.OPEN)
+                .status(current.state().name())
+                .lastStateChange(current.changedAt())
+                .reason(current.reason())
+                .inFlightPackets(inFlightPackets.get())
                 .build();
     }
 
+    /**
+     * Đổi sang state mới, trả null nếu server đã ở state đó
+     * @param requiredCurrent khác null thì chỉ đổi khi state hiện tại đúng bằng giá trị này
+     */
+    private StateTransition transition(State target, String reason, State requiredCurrent) {
+        StateTransition transition;
+        synchronized (this) {
+            StateSnapshot current = snapshot;
+            if (current.state() == target || (requiredCurrent != null && current.state() != requiredCurrent)) {
+                return null;
+            }
+            StateSnapshot next = new StateSnapshot(target, LocalDateTime.now(), reason, current.version() + 1);
+            snapshot = next;
+            transition = new StateTransition(current.state(), target, next.changedAt(), reason, next.version());
+            history[historyNext] = transition;
+            historyNext = (historyNext + 1) % history.length;
+            historyCount = Math.min(historyCount + 1, history.length);
+            // Xếp hàng trong lock để thứ tự phát trùng thứ tự version
+            dispatcher.execute(() -> notifyListeners(transition));
+        }
+        return transition;
+    }
+
+    private void notifyListeners(StateTransition transition) {
+        for (Consumer<StateTransition> listener : listeners) {
+            try {
+                listener.accept(transition);
+            } catch (RuntimeException e) {
+                log.warn("State listener failed for transition to {}", transition.to(), e);
+            }
+        }
+    }
+
     @lombok.Data
     @lombok.Builder
     public static class ServerStatus {
@@ -56,5 +302,6 @@ public class ServerStateService {
         private String status;
         private LocalDateTime lastStateChange;
         private String reason;
+        private int inFlightPackets;
     }
 }
@@ -0,0 +1,114 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Đẩy các lần chuyển trạng thái server tới client qua server-sent events (/server/state/watch)
+ * Load-Balancer subscribe một lần thay vì poll /api/v1/server/status
+ * - Event "state": snapshot hiện tại, gửi ngay khi subscribe
+ * - Event "transition": mỗi lần chuyển trạng thái, id = version của snapshot
+ * - Comment keepalive định kỳ để phát hiện client đã ngắt kết nối
+ * Mọi event được gửi trên thread phát event của ServerStateService: client nhận "state" trước
+ * rồi các transition có version lớn hơn, đúng thứ tự, và thread đổi state không bị chặn bởi
+ * client chậm
+ */
+@Service
+@Slf4j
+public class ServerStateWatchService {
+
+    private final ServerStateService serverStateService;
+    private final long emitterTimeoutMs;
+    // Emitter -> version của snapshot đã gửi lúc subscribe, chỉ gửi transition mới hơn
+    private final Map<SseEmitter, Long> emitters = new ConcurrentHashMap<>();
+    private final Consumer<ServerStateService.StateTransition> listener = this::publish;
+
+    public ServerStateWatchService(ServerStateService serverStateService,
+                                   MetricsService metricsService,
+                                   @Value("${app.state.watch.timeout-ms:-1}") long emitterTimeoutMs) {
+        this.serverStateService = serverStateService;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        serverStateService.addListener(listener);
+
+        metricsService.registerGauge("app.state.watchers", "Clients subscribed to server state changes",
+                emitters::size, "type", "sse");
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+
+        // Gửi snapshot rồi mới đăng ký, trên cùng thread phát transition: transition nào đã
+        // nằm trong snapshot thì bị bỏ qua theo version, transition sau đó được gửi đúng thứ tự
+        serverStateService.dispatch(() -> {
+            ServerStateService.StateSnapshot snapshot = serverStateService.getSnapshot();
+            if (send(emitter, SseEmitter.event()
+                    .name("state")
+                    .id(Long.toString(snapshot.version()))
+                    .data(snapshot, MediaType.APPLICATION_JSON))) {
+                emitters.put(emitter, snapshot.version());
+                log.debug("State watcher subscribed, {} active", emitters.size());
+            }
+        });
+        return emitter;
+    }
+
+    public int getWatcherCount() {
+        return emitters.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.state.watch.keepalive-ms:15000}")
+    public void keepAlive() {
+        serverStateService.dispatch(() -> {
+            for (SseEmitter emitter : emitters.keySet()) {
+                send(emitter, SseEmitter.event().comment("keepalive"));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        serverStateService.removeListener(listener);
+        for (SseEmitter emitter : emitters.keySet()) {
+            emitter.complete();
+        }
+        emitters.clear();
+    }
+
+    private void publish(ServerStateService.StateTransition transition) {
+        for (Map.Entry<SseEmitter, Long> entry : emitters.entrySet()) {
+            if (transition.version() <= entry.getValue()) {
+                continue;
+            }
+            send(entry.getKey(), SseEmitter.event()
+                    .name("transition")
+                    .id(Long.toString(transition.version()))
+                    .data(transition, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client đã ngắt kết nối hoặc emitter đã đóng
+            emitters.remove(emitter);
+            log.debug("Dropping state watcher: {}", e.getMessage());
+            return false;
+        }
+    }
+}
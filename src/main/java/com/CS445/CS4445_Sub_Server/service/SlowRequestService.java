@@ -0,0 +1,311 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Top-N packet chậm nhất trong mỗi cửa sổ thời gian (app.slow-requests.*) cho /api/v1/metrics/slow
+ * Mỗi cửa sổ là một mảng N slot thay bằng CAS, cùng một ngưỡng chỉ tăng (latency nhỏ nhất khi mảng đã đầy):
+ * packet không vượt ngưỡng chỉ tốn một lần đọc đồng hồ và một lần đọc ngưỡng, không cấp phát gì.
+ * Giữ cửa sổ hiện tại và cửa sổ liền trước. GC pause được ghi vào ring buffer từ notification của
+ * GarbageCollectorMXBean và ghép với packet lúc đọc, nên cả GC kết thúc sau packet cũng được tính.
+ */
+@Service
+@Slf4j
+public class SlowRequestService {
+
+    private final int topN;
+    private final long windowMillis;
+    private final LongSupplier clockMillis;
+    private final long jvmStartMillis;
+
+    private final AtomicReference<Window> current;
+    private volatile Window previous;
+
+    // Ring buffer các GC gần nhất, ghi từ thread notification của JMX
+    private final AtomicReferenceArray<GcPause> gcPauses;
+    private final AtomicLong gcCursor = new AtomicLong();
+    private final NotificationListener gcListener = (notification, handback) -> {
+        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            onGarbageCollection(GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()));
+        }
+    };
+
+    @Autowired
+    public SlowRequestService(@Value("${app.slow-requests.top-n:10}") int topN,
+                              @Value("${app.slow-requests.window-seconds:60}") int windowSeconds,
+                              @Value("${app.slow-requests.gc-history:256}") int gcHistory) {
+        this(topN, windowSeconds, gcHistory, System::currentTimeMillis);
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(gcListener, null, null);
+            }
+        }
+        log.info("Slow request recorder initialized: top {} packets per {}s window", this.topN, windowSeconds);
+    }
+
+    SlowRequestService(int topN, int windowSeconds, int gcHistory, LongSupplier clockMillis) {
+        this.topN = Math.max(1, topN);
+        this.windowMillis = TimeUnit.SECONDS.toMillis(Math.max(1, windowSeconds));
+        this.clockMillis = clockMillis;
+        this.jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        this.gcPauses = new AtomicReferenceArray<>(Math.max(1, gcHistory));
+        this.current = new AtomicReference<>(new Window(clockMillis.getAsLong() / windowMillis, this.topN));
+    }
+
+    /**
+     * Ghi một packet đã xử lý xong, gọi trên thread đã xử lý packet
+     * @param startNanos System.nanoTime() lúc nhận packet
+     */
+    public void record(FakePacketRequest request, PacketContext context, FakePacketResponse response,
+                       long startNanos, long latencyNanos) {
+        long now = clockMillis.getAsLong();
+        Window window = windowAt(now);
+        if (latencyNanos <= window.thresholdNanos.get()) {
+            return;
+        }
+
+        // Response lấy từ result cache mang thời gian phase của packet đã tính nó, không dùng được
+        PhaseTimings timings = response.getPhaseTimings();
+        if (timings != null && timings.getStartNanos() < startNanos) {
+            timings = null;
+        }
+        SlowPacket candidate = new SlowPacket(
+                request.getPacketId(),
+                request.getCpuIntensity(),
+                request.getRamIntensity(),
+                request.getProcessingTimeMs(),
+                context.getTenantId(),
+                response.getPayloadBytes(),
+                response.getStatus(),
+                toMs(latencyNanos),
+                timings != null ? toMs(timings.getStartNanos() - startNanos) : -1,
+                timings != null ? timings.toMillis() : null,
+                Thread.currentThread().getName(),
+                now - TimeUnit.NANOSECONDS.toMillis(latencyNanos),
+                now,
+                List.of(),
+                latencyNanos);
+        window.offer(candidate);
+    }
+
+    /**
+     * Packet chậm nhất của cửa sổ hiện tại và cửa sổ trước, chậm nhất trước, kèm các GC chồng lên từng packet
+     */
+    public SlowRequests snapshot() {
+        long now = clockMillis.getAsLong();
+        Window window = windowAt(now);
+        Window last = previous;
+        List<GcPause> pauses = recentGcPauses();
+        return new SlowRequests(TimeUnit.MILLISECONDS.toSeconds(windowMillis), topN,
+                view(window, pauses),
+                last != null && last.epoch == window.epoch - 1 ? view(last, pauses) : null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                try {
+                    emitter.removeNotificationListener(gcListener);
+                } catch (Exception e) {
+                    log.debug("GC listener already removed from {}", gc.getName());
+                }
+            }
+        }
+    }
+
+    void onGarbageCollection(GarbageCollectionNotificationInfo info) {
+        GcInfo gcInfo = info.getGcInfo();
+        recordGcPause(new GcPause(info.getGcName(), info.getGcAction(), info.getGcCause(),
+                jvmStartMillis + gcInfo.getStartTime(), gcInfo.getDuration()));
+    }
+
+    void recordGcPause(GcPause pause) {
+        gcPauses.set((int) (gcCursor.getAndIncrement() % gcPauses.length()), pause);
+    }
+
+    /**
+     * Cửa sổ chứa thời điểm now; cửa sổ cũ được thay bằng CAS, thread thua dùng cửa sổ của thread thắng
+     */
+    private Window windowAt(long now) {
+        long epoch = now / windowMillis;
+        Window window = current.get();
+        while (window.epoch < epoch) {
+            Window next = new Window(epoch, topN);
+            if (current.compareAndSet(window, next)) {
+                previous = window;
+                return next;
+            }
+            window = current.get();
+        }
+        return window;
+    }
+
+    private WindowView view(Window window, List<GcPause> pauses) {
+        List<SlowPacket> packets = new ArrayList<>(topN);
+        for (int i = 0; i < topN; i++) {
+            SlowPacket packet = window.slots.get(i);
+            if (packet != null) {
+                packets.add(packet.withGcPauses(overlapping(pauses, packet)));
+            }
+        }
+        packets.sort(Comparator.comparingLong(SlowPacket::latencyNanos).reversed());
+        return new WindowView(window.epoch * windowMillis, packets);
+    }
+
+    private List<GcPause> recentGcPauses() {
+        List<GcPause> pauses = new ArrayList<>();
+        for (int i = 0; i < gcPauses.length(); i++) {
+            GcPause pause = gcPauses.get(i);
+            if (pause != null) {
+                pauses.add(pause);
+            }
+        }
+        return pauses;
+    }
+
+    private static List<GcPause> overlapping(List<GcPause> pauses, SlowPacket packet) {
+        List<GcPause> result = new ArrayList<>();
+        for (GcPause pause : pauses) {
+            if (pause.startedAtMillis() <= packet.finishedAtMillis()
+                    && pause.startedAtMillis() + pause.durationMs() >= packet.startedAtMillis()) {
+                result.add(pause);
+            }
+        }
+        result.sort(Comparator.comparingLong(GcPause::startedAtMillis));
+        return result;
+    }
+
+    private static double toMs(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    /**
+     * N slot của một cửa sổ, epoch = thời điểm bắt đầu / windowMillis
+     */
+    private static final class Window {
+
+        private final long epoch;
+        private final AtomicReferenceArray<SlowPacket> slots;
+        // Latency nhỏ nhất trong các slot khi mảng đã đầy, 0 khi còn slot trống. Chỉ tăng trong một cửa sổ
+        private final AtomicLong thresholdNanos = new AtomicLong();
+
+        private Window(long epoch, int size) {
+            this.epoch = epoch;
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        /**
+         * Đặt packet vào slot trống, hoặc thay packet nhanh nhất nếu packet mới chậm hơn
+         */
+        private void offer(SlowPacket candidate) {
+            while (true) {
+                int minIndex = -1;
+                SlowPacket min = null;
+                boolean inserted = false;
+                for (int i = 0; i < slots.length(); i++) {
+                    SlowPacket existing = slots.get(i);
+                    if (existing == null) {
+                        inserted = slots.compareAndSet(i, null, candidate);
+                        break;
+                    }
+                    if (min == null || existing.latencyNanos() < min.latencyNanos()) {
+                        min = existing;
+                        minIndex = i;
+                    }
+                }
+                if (!inserted && minIndex >= 0) {
+                    if (candidate.latencyNanos() <= min.latencyNanos()) {
+                        raiseThreshold();
+                        return;
+                    }
+                    inserted = slots.compareAndSet(minIndex, min, candidate);
+                }
+                if (inserted) {
+                    raiseThreshold();
+                    return;
+                }
+                // Thread khác vừa đổi slot, quét lại
+            }
+        }
+
+        private void raiseThreshold() {
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < slots.length(); i++) {
+                SlowPacket existing = slots.get(i);
+                if (existing == null) {
+                    return;
+                }
+                min = Math.min(min, existing.latencyNanos());
+            }
+            thresholdNanos.accumulateAndGet(min, Math::max);
+        }
+    }
+
+    /**
+     * @param gcAction vd: "end of minor GC", "end of major GC"; với collector concurrent durationMs
+     *                 là thời gian cả chu kỳ GC chứ không chỉ phần dừng thread
+     */
+    public record GcPause(String gcName, String gcAction, String gcCause, long startedAtMillis, long durationMs) {
+    }
+
+    /**
+     * @param queueWaitMs từ lúc nhận packet đến lúc bắt đầu chạy kernel (cache, bulkhead, heap admission),
+     *                    -1 khi packet được trả từ result cache
+     * @param phaseTimingsMs thời gian từng phase, null khi không có
+     * @param thread thread đã xử lý packet xong
+     * @param gcPauses GC chồng lên khoảng [startedAtMillis, finishedAtMillis]
+     */
+    public record SlowPacket(String packetId, Integer cpuIntensity, Integer ramIntensity, Integer processingTimeMs,
+                             String tenantId, Long payloadBytes, String status, double latencyMs,
+                             double queueWaitMs, Map<String, Double> phaseTimingsMs, String thread,
+                             long startedAtMillis, long finishedAtMillis, List<GcPause> gcPauses,
+                             @JsonIgnore long latencyNanos) {
+
+        SlowPacket withGcPauses(List<GcPause> pauses) {
+            return new SlowPacket(packetId, cpuIntensity, ramIntensity, processingTimeMs, tenantId, payloadBytes,
+                    status, latencyMs, queueWaitMs, phaseTimingsMs, thread, startedAtMillis, finishedAtMillis,
+                    pauses, latencyNanos);
+        }
+    }
+
+    /**
+     * @param startMillis thời điểm bắt đầu cửa sổ
+     */
+    public record WindowView(long startMillis, List<SlowPacket> packets) {
+    }
+
+    /**
+     * @param previous null khi trong cửa sổ liền trước không có packet nào
+     */
+    public record SlowRequests(long windowSeconds, int topN, WindowView current, WindowView previous) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Warmup JIT trước khi node nhận packet
+ * - Node vào WARMING ngay khi bean được tạo (trước khi Tomcat nhận request)
+ * - Sau khi app sẵn sàng, một thread nền chạy các kernel của FakePacketService và đường
+ *   encode/decode JSON của packet cho đến khi latency mỗi vòng ổn định (chênh lệch giữa
+ *   các vòng gần nhất dưới tolerance) hoặc hết max-iterations / max-duration-ms.
+ *   Packet warmup không vào metrics phase, cost model hay log (FakePacketService.processWarmupPacket)
+ * - Sau đó benchmark kernel ở mọi mức intensity cho CostModelService (node vẫn chưa nhận packet)
+ * - Xong thì chuyển sang OPEN (chỉ khi server vẫn đang WARMING)
+ */
+@Service
+@Slf4j
+public class WarmupService {
+
+    private static final int[] INTENSITIES = {1, 2, 3};
+
+    private final FakePacketService fakePacketService;
+    private final ServerStateService serverStateService;
+    private final CostModelService costModelService;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final int minIterations;
+    private final int maxIterations;
+    private final int stableWindow;
+    private final double tolerance;
+    private final long maxDurationNanos;
+
+    private final AtomicLong warmupDurationMs = new AtomicLong();
+    private final AtomicInteger completedIterations = new AtomicInteger();
+
+    public WarmupService(FakePacketService fakePacketService,
+                         ServerStateService serverStateService,
+                         CostModelService costModelService,
+                         MetricsService metricsService,
+                         ObjectMapper objectMapper,
+                         @Value("${app.warmup.enabled:true}") boolean enabled,
+                         @Value("${app.warmup.min-iterations:20}") int minIterations,
+                         @Value("${app.warmup.max-iterations:300}") int maxIterations,
+                         @Value("${app.warmup.stable-window:10}") int stableWindow,
+                         @Value("${app.warmup.tolerance:0.15}") double tolerance,
+                         @Value("${app.warmup.max-duration-ms:60000}") long maxDurationMs) {
+        this.fakePacketService = fakePacketService;
+        this.serverStateService = serverStateService;
+        this.costModelService = costModelService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.minIterations = Math.max(1, minIterations);
+        this.maxIterations = Math.max(this.minIterations, maxIterations);
+        this.stableWindow = Math.max(2, stableWindow);
+        this.tolerance = tolerance;
+        this.maxDurationNanos = TimeUnit.MILLISECONDS.toNanos(maxDurationMs);
+
+        metricsService.registerGauge("app.warmup.duration", "JIT warmup duration in milliseconds",
+                warmupDurationMs::get, "type", "jit");
+        metricsService.registerGauge("app.warmup.iterations", "Warmup iterations run before opening",
+                completedIterations::get, "type", "jit");
+
+        if (enabled) {
+            serverStateService.startWarming("JIT warmup in progress");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmup() {
+        if (!enabled) {
+            return;
+        }
+        Thread warmupThread = new Thread(this::runWarmup, "jit-warmup");
+        warmupThread.setDaemon(true);
+        warmupThread.start();
+    }
+
+    /**
+     * Chạy warmup trên thread hiện tại rồi mở server
+     */
+    public void runWarmup() {
+        long start = System.nanoTime();
+        long[] window = new long[stableWindow];
+        int iterations = 0;
+        boolean stable = false;
+
+        try {
+            while (iterations < maxIterations && System.nanoTime() - start < maxDurationNanos) {
+                long iterationStart = System.nanoTime();
+                runIteration(iterations);
+                window[iterations % stableWindow] = System.nanoTime() - iterationStart;
+                iterations++;
+                completedIterations.set(iterations);
+
+                if (iterations >= minIterations && iterations >= stableWindow && isStable(window)) {
+                    stable = true;
+                    break;
+                }
+            }
+            costModelService.calibrate();
+        } catch (Exception e) {
+            // Warmup lỗi không được giữ node đóng mãi
+            log.warn("Warmup iteration failed, opening server anyway", e);
+        }
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        warmupDurationMs.set(durationMs);
+        String reason = String.format("Warmup complete after %d iterations in %dms (%s)",
+                iterations, durationMs, stable ? "latency stable" : "iteration/time limit reached");
+        log.info(reason);
+        serverStateService.finishWarming(reason);
+    }
+
+    public long getWarmupDurationMs() {
+        return warmupDurationMs.get();
+    }
+
+    public int getCompletedIterations() {
+        return completedIterations.get();
+    }
+
+    /**
+     * Một vòng chạy đủ các mức intensity để thời gian các vòng so sánh được với nhau
+     */
+    private void runIteration(int iteration) throws IOException {
+        for (int intensity : INTENSITIES) {
+            FakePacketRequest request = FakePacketRequest.builder()
+                    .packetId("warmup-" + iteration + "-" + intensity)
+                    .cpuIntensity(intensity)
+                    .ramIntensity(intensity)
+                    .processingTimeMs(0)
+                    .build();
+
+            // Đường JSON giống request thật: decode request, chạy kernel, encode response
+            byte[] requestJson = objectMapper.writeValueAsBytes(request);
+            FakePacketRequest decoded = objectMapper.readValue(requestJson, FakePacketRequest.class);
+            FakePacketResponse response = fakePacketService.processWarmupPacket(decoded);
+            byte[] responseJson = objectMapper.writeValueAsBytes(response);
+            objectMapper.readValue(responseJson, FakePacketResponse.class);
+        }
+    }
+
+    /**
+     * Latency ổn định khi chênh lệch max-min của các vòng gần nhất nhỏ hơn tolerance * trung bình
+     */
+    private boolean isStable(long[] window) {
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        long sum = 0;
+        for (long value : window) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+        double mean = (double) sum / window.length;
+        return mean > 0 && (max - min) <= tolerance * mean;
+    }
+}
@@ -0,0 +1,117 @@
+package com.CS445.CS4445_Sub_Server.tcp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Client cho listener TCP nhị phân (dùng cho benchmark, test và Load-Balancer viết bằng Java)
+ * Nhiều thread có thể gửi song song trên cùng một connection: mỗi packet có requestId riêng,
+ * một thread đọc nền ghép response về đúng future theo requestId.
+ */
+@Slf4j
+public class BinaryPacketClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer writeBuffer;
+    private final ByteBuffer readBuffer;
+    private final Map<Long, CompletableFuture<BinaryPacketCodec.DecodedResponse>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final Thread reader;
+    private volatile boolean closed;
+
+    private BinaryPacketClient(SocketChannel channel, int maxFrameBytes) {
+        this.channel = channel;
+        this.writeBuffer = ByteBuffer.allocateDirect(BinaryPacketCodec.LENGTH_FIELD_BYTES + maxFrameBytes);
+        this.readBuffer = ByteBuffer.allocateDirect(BinaryPacketCodec.LENGTH_FIELD_BYTES + maxFrameBytes);
+        this.reader = new Thread(this::readLoop, "tcp-packet-client");
+        this.reader.setDaemon(true);
+    }
+
+    public static BinaryPacketClient connect(String host, int port, int maxFrameBytes) throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        BinaryPacketClient client = new BinaryPacketClient(channel, maxFrameBytes);
+        client.reader.start();
+        return client;
+    }
+
+    /**
+     * Gửi packet, future hoàn thành khi server trả response có cùng requestId
+     */
+    public CompletableFuture<BinaryPacketCodec.DecodedResponse> send(FakePacketRequest request) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IOException("Client is closed"));
+        }
+        long requestId = nextRequestId.incrementAndGet();
+        CompletableFuture<BinaryPacketCodec.DecodedResponse> future = new CompletableFuture<>();
+        pending.put(requestId, future);
+        try {
+            synchronized (writeBuffer) {
+                writeBuffer.clear();
+                BinaryPacketCodec.encodeRequest(requestId, request, writeBuffer);
+                writeBuffer.flip();
+                while (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            pending.remove(requestId);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void readLoop() {
+        IOException failure = null;
+        try {
+            while (!closed && channel.read(readBuffer) >= 0) {
+                readBuffer.flip();
+                int length;
+                while ((length = BinaryPacketCodec.peekFrameLength(readBuffer)) >= 0
+                        && readBuffer.remaining() >= BinaryPacketCodec.LENGTH_FIELD_BYTES + length) {
+                    int frameEnd = readBuffer.position() + BinaryPacketCodec.LENGTH_FIELD_BYTES + length;
+                    readBuffer.position(readBuffer.position() + BinaryPacketCodec.LENGTH_FIELD_BYTES);
+                    long requestId = readBuffer.getLong();
+                    BinaryPacketCodec.DecodedResponse response = BinaryPacketCodec.decodeResponse(readBuffer);
+                    readBuffer.position(frameEnd);
+
+                    CompletableFuture<BinaryPacketCodec.DecodedResponse> future = pending.remove(requestId);
+                    if (future != null) {
+                        future.complete(response);
+                    }
+                }
+                readBuffer.compact();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            IOException cause = failure != null ? failure : new IOException("Connection closed");
+            pending.values().forEach(future -> future.completeExceptionally(cause));
+            pending.clear();
+            if (!closed) {
+                log.debug("Binary packet connection closed: {}", cause.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+}
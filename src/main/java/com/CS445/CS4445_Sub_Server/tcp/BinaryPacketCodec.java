@@ -0,0 +1,164 @@
+package com.CS445.CS4445_Sub_Server.tcp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+
+/**
+ * Encoding nhị phân gọn cho FakePacketRequest / FakePacketResponse trên listener TCP
+ *
+ * Frame: [int length][long requestId][body], length = số byte sau field length
+ * (requestId + body). Client tự chọn requestId, response mang lại đúng requestId đó nên
+ * nhiều packet có thể chạy song song trên một connection và trả về không theo thứ tự.
+ *
+ * Request body:  packetId, cpuIntensity, ramIntensity, processingTimeMs, payload
+ * Response body: short httpStatus, packetId, status, processingTimeMs, cpuCycles,
+ *                memoryUsedBytes, result, timestamp (epoch millis, UTC), offloadedTo
+ *
+ * String = [int length][UTF-8], length -1 là null. Integer/Long null = MIN_VALUE.
+ * Tất cả số theo big-endian (mặc định của ByteBuffer).
+ */
+public final class BinaryPacketCodec {
+
+    public static final int LENGTH_FIELD_BYTES = Integer.BYTES;
+    public static final int REQUEST_ID_BYTES = Long.BYTES;
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_STRING = -1;
+
+    private BinaryPacketCodec() {
+    }
+
+    /**
+     * Độ dài frame tiếp theo trong buffer (đang ở chế độ đọc), -1 nếu chưa đủ byte cho field length
+     */
+    public static int peekFrameLength(ByteBuffer buffer) {
+        if (buffer.remaining() < LENGTH_FIELD_BYTES) {
+            return -1;
+        }
+        return buffer.getInt(buffer.position());
+    }
+
+    public static void encodeRequest(long requestId, FakePacketRequest request, ByteBuffer out) {
+        int start = beginFrame(out, requestId);
+        putString(out, request.getPacketId());
+        putInt(out, request.getCpuIntensity());
+        putInt(out, request.getRamIntensity());
+        putInt(out, request.getProcessingTimeMs());
+        putString(out, request.getPayload());
+        endFrame(out, start);
+    }
+
+    /**
+     * Đọc body của một request frame, buffer đặt ngay sau requestId
+     */
+    public static FakePacketRequest decodeRequest(ByteBuffer in) {
+        return FakePacketRequest.builder()
+                .packetId(getString(in))
+                .cpuIntensity(getInt(in))
+                .ramIntensity(getInt(in))
+                .processingTimeMs(getInt(in))
+                .payload(getString(in))
+                .build();
+    }
+
+    public static void encodeResponse(long requestId, int httpStatus, FakePacketResponse response, ByteBuffer out) {
+        int start = beginFrame(out, requestId);
+        out.putShort((short) httpStatus);
+        putString(out, response.getPacketId());
+        putString(out, response.getStatus());
+        putLong(out, response.getProcessingTimeMs());
+        putLong(out, response.getCpuCycles());
+        putLong(out, response.getMemoryUsedBytes());
+        putString(out, response.getResult());
+        LocalDateTime timestamp = response.getTimestamp();
+        out.putLong(timestamp != null ? timestamp.toInstant(ZoneOffset.UTC).toEpochMilli() : NULL_LONG);
+        putString(out, response.getOffloadedTo());
+        endFrame(out, start);
+    }
+
+    /**
+     * Đọc body của một response frame, buffer đặt ngay sau requestId
+     */
+    public static DecodedResponse decodeResponse(ByteBuffer in) {
+        int httpStatus = in.getShort();
+        FakePacketResponse response = FakePacketResponse.builder()
+                .packetId(getString(in))
+                .status(getString(in))
+                .processingTimeMs(getLong(in))
+                .cpuCycles(getLong(in))
+                .memoryUsedBytes(getLong(in))
+                .result(getString(in))
+                .build();
+        long timestamp = in.getLong();
+        if (timestamp != NULL_LONG) {
+            response.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(timestamp, 1000),
+                    (int) Math.floorMod(timestamp, 1000) * 1_000_000, ZoneOffset.UTC));
+        }
+        response.setOffloadedTo(getString(in));
+        return new DecodedResponse(httpStatus, response);
+    }
+
+    private static int beginFrame(ByteBuffer out, long requestId) {
+        int start = out.position();
+        out.putInt(0);
+        out.putLong(requestId);
+        return start;
+    }
+
+    private static void endFrame(ByteBuffer out, int start) {
+        out.putInt(start, out.position() - start - LENGTH_FIELD_BYTES);
+    }
+
+    private static void putInt(ByteBuffer out, Integer value) {
+        out.putInt(value != null ? value : NULL_INT);
+    }
+
+    private static Integer getInt(ByteBuffer in) {
+        int value = in.getInt();
+        return value != NULL_INT ? value : null;
+    }
+
+    private static void putLong(ByteBuffer out, Long value) {
+        out.putLong(value != null ? value : NULL_LONG);
+    }
+
+    private static Long getLong(ByteBuffer in) {
+        long value = in.getLong();
+        return value != NULL_LONG ? value : null;
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Response đã decode kèm HTTP status tương ứng của packet
+     */
+    public record DecodedResponse(int httpStatus, FakePacketResponse response) {
+    }
+}
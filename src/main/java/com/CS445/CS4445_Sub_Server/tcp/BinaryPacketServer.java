@@ -0,0 +1,467 @@
+package com.CS445.CS4445_Sub_Server.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.PacketExecutionService;
+import com.CS445.CS4445_Sub_Server.service.RateLimiterService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Listener TCP thứ hai nhận packet theo encoding nhị phân của BinaryPacketCodec
+ * (bỏ qua HTTP parsing, MVC dispatch và Jackson của /api/v1/fakePacket)
+ * - Một thread selector làm accept/read/write non-blocking cho mọi connection, packet
+ *   decode xong được chạy trên worker pool qua PacketExecutionService (cùng pipeline với HTTP)
+ * - Multiplex theo requestId: mỗi connection có tối đa max-in-flight-per-connection packet
+ *   chạy song song, response trả về theo thứ tự xử lý xong; đủ giới hạn thì ngừng đọc
+ *   connection đó (backpressure qua TCP window)
+ * - Buffer đọc của connection và buffer response lấy từ DirectBufferPool
+ * - Rate limit theo remote address (khi app.rate-limit.enabled): binary protocol không có header
+ *   định danh client, chỉ nên bật khi client kết nối thẳng, không qua LB
+ */
+@Component
+@Slf4j
+public class BinaryPacketServer {
+
+    private static final String RATE_LIMITED_MESSAGE = "Rate limit exceeded. Please retry later";
+
+    private final PacketExecutionService packetExecutionService;
+    private final RateLimiterService rateLimiterService;
+    private final MetricsService metricsService;
+
+    private final boolean enabled;
+    private final String bindAddress;
+    private final int port;
+    private final int maxFrameBytes;
+    private final int maxInFlightPerConnection;
+    private final boolean rateLimitEnabled;
+    private final DirectBufferPool bufferPool;
+    private final ExecutorService workers;
+
+    // Connection cần cập nhật interestOps, chỉ thread selector được đổi interestOps
+    private final Queue<Connection> pendingInterest = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong protocolErrors = new AtomicLong();
+
+    private volatile Selector selector;
+    private volatile ServerSocketChannel serverChannel;
+    private volatile Thread ioThread;
+    private volatile boolean running;
+
+    public BinaryPacketServer(PacketExecutionService packetExecutionService,
+                              RateLimiterService rateLimiterService,
+                              MetricsService metricsService,
+                              @Value("${app.tcp.enabled:false}") boolean enabled,
+                              @Value("${app.tcp.bind-address:0.0.0.0}") String bindAddress,
+                              @Value("${app.tcp.port:9090}") int port,
+                              @Value("${app.tcp.worker-threads:16}") int workerThreads,
+                              @Value("${app.tcp.max-frame-bytes:65536}") int maxFrameBytes,
+                              @Value("${app.tcp.max-in-flight-per-connection:64}") int maxInFlightPerConnection,
+                              @Value("${app.tcp.buffer-pool-size:256}") int bufferPoolSize,
+                              @Value("${app.rate-limit.enabled:false}") boolean rateLimitEnabled) {
+        this.packetExecutionService = packetExecutionService;
+        this.rateLimiterService = rateLimiterService;
+        this.metricsService = metricsService;
+        this.enabled = enabled;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxInFlightPerConnection = Math.max(1, maxInFlightPerConnection);
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.bufferPool = new DirectBufferPool(BinaryPacketCodec.LENGTH_FIELD_BYTES + maxFrameBytes, bufferPoolSize);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), runnable -> {
+            Thread thread = new Thread(runnable, "tcp-packet-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        metricsService.registerGauge("app.tcp.connections", "Open connections on the binary TCP listener",
+                openConnections::get, "type", "active");
+        metricsService.registerGauge("app.tcp.buffers.pooled", "Idle direct buffers held by the TCP buffer pool",
+                bufferPool::getPooledCount, "type", "direct");
+        metricsService.registerFunctionCounter("app.tcp.frames", "Frames read by the binary TCP listener",
+                framesReceived, AtomicLong::get, "result", "received");
+        metricsService.registerFunctionCounter("app.tcp.frames", "Frames read by the binary TCP listener",
+                protocolErrors, AtomicLong::get, "result", "protocol_error");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() throws IOException {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /**
+     * Bind cổng và chạy thread selector
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(bindAddress, port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        ioThread = new Thread(this::runLoop, "tcp-packet-selector");
+        ioThread.setDaemon(true);
+        ioThread.start();
+        log.info("Binary packet listener started on {}:{}", bindAddress, getLocalPort());
+    }
+
+    /**
+     * Cổng thực tế đang listen (khác port cấu hình khi port = 0), -1 nếu chưa start
+     */
+    public int getLocalPort() {
+        ServerSocketChannel channel = serverChannel;
+        if (channel == null || !channel.isOpen()) {
+            return -1;
+        }
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getProtocolErrors() {
+        return protocolErrors.get();
+    }
+
+    public DirectBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (running) {
+            running = false;
+            selector.wakeup();
+            try {
+                ioThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.shutdownNow();
+    }
+
+    private void runLoop() {
+        try {
+            while (running) {
+                selector.select();
+
+                Connection connection;
+                while ((connection = pendingInterest.poll()) != null) {
+                    connection.resume();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection target = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            target.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            target.write();
+                        }
+                    } catch (IOException e) {
+                        log.debug("Binary connection {} failed: {}", target.clientId, e.getMessage());
+                        target.close();
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                log.error("Binary packet listener stopped unexpectedly", e);
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                log.debug("Failed to close binary packet listener", e);
+            }
+            running = false;
+            log.info("Binary packet listener stopped");
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            String clientId = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key, clientId));
+            openConnections.incrementAndGet();
+            log.debug("Accepted binary connection from {}", clientId);
+        }
+    }
+
+    /**
+     * Chạy packet trên worker thread và gửi response về connection
+     */
+    private void execute(Connection connection, long requestId, FakePacketRequest request) {
+        try {
+            PacketExecutionService.PacketOutcome outcome = packetExecutionService.execute(request);
+            ByteBuffer frame = encode(requestId, outcome.status().value(), outcome.response());
+            metricsService.recordResponseSize(frame.remaining(), "binary");
+            connection.send(frame);
+        } finally {
+            connection.inFlight.decrementAndGet();
+            connection.requestInterestUpdate();
+        }
+    }
+
+    private ByteBuffer encode(long requestId, int httpStatus, FakePacketResponse response) {
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            BinaryPacketCodec.encodeResponse(requestId, httpStatus, response, buffer);
+        } catch (BufferOverflowException e) {
+            buffer.clear();
+            BinaryPacketCodec.encodeResponse(requestId, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                    FakePacketResponse.builder()
+                            .packetId(response.getPacketId())
+                            .status("FAILED")
+                            .result("Response exceeds max frame size of " + maxFrameBytes + " bytes")
+                            .build(),
+                    buffer);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static FakePacketResponse rejected(FakePacketRequest request, String message) {
+        return FakePacketResponse.builder()
+                .packetId(request.getPacketId())
+                .status("REJECTED")
+                .result(message)
+                .build();
+    }
+
+    /**
+     * Một connection TCP: buffer đọc, hàng đợi response đang chờ ghi và số packet đang chạy
+     * read/write/close/updateInterest chỉ chạy trên thread selector
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final String clientId;
+        private final ByteBuffer readBuffer = bufferPool.acquire();
+        private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean closed;
+
+        private Connection(SocketChannel channel, SelectionKey key, String clientId) {
+            this.channel = channel;
+            this.key = key;
+            this.clientId = clientId;
+        }
+
+        private void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                close();
+                return;
+            }
+            processFrames();
+        }
+
+        /**
+         * Gọi khi một packet xong hoặc có response mới: chạy tiếp các frame đã nằm trong buffer
+         * (socket không báo OP_READ lại cho dữ liệu đã đọc) rồi cập nhật interestOps
+         */
+        private void resume() {
+            if (!closed) {
+                processFrames();
+            }
+        }
+
+        /**
+         * Dispatch các frame đầy đủ trong readBuffer, dừng khi đủ max-in-flight packet đang chạy;
+         * phần còn lại nằm trong buffer đến khi resume()
+         */
+        private void processFrames() {
+            readBuffer.flip();
+            while (!closed && inFlight.get() < maxInFlightPerConnection) {
+                int length = BinaryPacketCodec.peekFrameLength(readBuffer);
+                if (length < 0) {
+                    break;
+                }
+                if (length < BinaryPacketCodec.REQUEST_ID_BYTES || length > maxFrameBytes) {
+                    protocolError("invalid frame length " + length);
+                    return;
+                }
+                if (readBuffer.remaining() < BinaryPacketCodec.LENGTH_FIELD_BYTES + length) {
+                    break;
+                }
+
+                int frameEnd = readBuffer.position() + BinaryPacketCodec.LENGTH_FIELD_BYTES + length;
+                readBuffer.position(readBuffer.position() + BinaryPacketCodec.LENGTH_FIELD_BYTES);
+                long requestId = readBuffer.getLong();
+                // Slice theo đúng frame để frame lỗi không đọc sang frame kế tiếp
+                ByteBuffer body = readBuffer.slice(readBuffer.position(), frameEnd - readBuffer.position());
+                FakePacketRequest request;
+                try {
+                    request = BinaryPacketCodec.decodeRequest(body);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    protocolError("malformed request " + requestId);
+                    return;
+                }
+                readBuffer.position(frameEnd);
+                framesReceived.incrementAndGet();
+                dispatch(requestId, request);
+            }
+            if (closed) {
+                return;
+            }
+            readBuffer.compact();
+            updateInterest();
+        }
+
+        private void dispatch(long requestId, FakePacketRequest request) {
+            if (rateLimitEnabled && !rateLimiterService.tryAcquire(clientId)) {
+                metricsService.incrementTotalErrors("rate_limited");
+                send(encode(requestId, HttpStatus.TOO_MANY_REQUESTS.value(), rejected(request, RATE_LIMITED_MESSAGE)));
+                return;
+            }
+
+            inFlight.incrementAndGet();
+            try {
+                workers.execute(() -> BinaryPacketServer.this.execute(this, requestId, request));
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                send(encode(requestId, HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        rejected(request, "Binary listener is shutting down")));
+            }
+        }
+
+        private void write() throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = writeQueue.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    // Socket buffer đầy, đợi OP_WRITE
+                    break;
+                }
+                writeQueue.poll();
+                bufferPool.release(buffer);
+            }
+            updateInterest();
+        }
+
+        /**
+         * Xếp response vào hàng đợi ghi (gọi từ worker thread hoặc thread selector)
+         */
+        private void send(ByteBuffer frame) {
+            if (closed) {
+                bufferPool.release(frame);
+                return;
+            }
+            writeQueue.offer(frame);
+            // close() có thể vừa dọn writeQueue trước khi frame được thêm vào
+            if (closed && writeQueue.removeIf(queued -> queued == frame)) {
+                bufferPool.release(frame);
+                return;
+            }
+            requestInterestUpdate();
+        }
+
+        private void requestInterestUpdate() {
+            pendingInterest.offer(this);
+            selector.wakeup();
+        }
+
+        private void updateInterest() {
+            if (closed || !key.isValid()) {
+                return;
+            }
+            int ops = 0;
+            if (inFlight.get() < maxInFlightPerConnection) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (!writeQueue.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        private void protocolError(String reason) {
+            protocolErrors.incrementAndGet();
+            log.warn("Closing binary connection from {}: {}", clientId, reason);
+            close();
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Failed to close binary connection from {}", clientId, e);
+            }
+            openConnections.decrementAndGet();
+            bufferPool.release(readBuffer);
+            ByteBuffer pending;
+            while ((pending = writeQueue.poll()) != null) {
+                bufferPool.release(pending);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.CS445.CS4445_Sub_Server.tcp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool direct ByteBuffer cùng kích thước cho listener TCP và upload payload nhị phân
+ * Direct buffer cấp phát/giải phóng tốn kém (ngoài heap, chỉ được thu hồi khi GC chạy),
+ * nên buffer đọc của connection, buffer response và chunk payload được dùng lại thay vì tạo mới mỗi lần.
+ * Pool giữ tối đa maxPooled buffer rảnh, phần dư khi release thì bỏ cho GC.
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    public DirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            pooled.decrementAndGet();
+            return buffer;
+        }
+        allocated.incrementAndGet();
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || pooled.incrementAndGet() > maxPooled) {
+            if (buffer.capacity() == bufferSize) {
+                pooled.decrementAndGet();
+            }
+            return;
+        }
+        buffer.clear();
+        free.offer(buffer);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Số buffer rảnh đang nằm trong pool
+     */
+    public int getPooledCount() {
+        return pooled.get();
+    }
+
+    /**
+     * Tổng số direct buffer đã từng cấp phát (pool miss)
+     */
+    public int getAllocatedCount() {
+        return allocated.get();
+    }
+}
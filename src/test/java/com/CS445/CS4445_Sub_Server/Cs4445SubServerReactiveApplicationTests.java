@@ -0,0 +1,25 @@
+package com.CS445.CS4445_Sub_Server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.server.RouterFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles({"test", "reactive"})
+class Cs4445SubServerReactiveApplicationTests {
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Test
+	void contextLoads() {
+		// Stack reactive (Netty/WebFlux) phải khởi động được với cùng bộ bean service như stack servlet
+		assertThat(applicationContext.getBeansOfType(RouterFunction.class)).isNotEmpty();
+	}
+
+}
@@ -3,9 +3,19 @@ package com.CS445.CS4445_Sub_Server;
 import com.CS445.CS4445_Sub_Server.controller.FakePacketController;
 import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
 import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.service.BulkheadService;
 import com.CS445.CS4445_Sub_Server.service.FakePacketService;
+import com.CS445.CS4445_Sub_Server.service.HeapAdmissionService;
+import com.CS445.CS4445_Sub_Server.service.LatencyWindowService;
 import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.PacketExecutionService;
+import com.CS445.CS4445_Sub_Server.service.PacketResultCache;
+import com.CS445.CS4445_Sub_Server.service.PacketStreamService;
+import com.CS445.CS4445_Sub_Server.service.PayloadUploadService;
+import com.CS445.CS4445_Sub_Server.service.PeerOffloadService;
+import com.CS445.CS4445_Sub_Server.service.RateLimiterService;
 import com.CS445.CS4445_Sub_Server.service.ServerStateService;
+import com.CS445.CS4445_Sub_Server.service.SlowRequestService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,6 +24,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -32,6 +43,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ActiveProfiles("test")
 @DisplayName("Edge Case and Error Handling Tests")
 @AutoConfigureMockMvc(addFilters = false)
+@Import({PacketExecutionService.class, PacketStreamService.class, PacketResultCache.class,
+        BulkheadService.class, HeapAdmissionService.class, PeerOffloadService.class, PayloadUploadService.class,
+        LatencyWindowService.class, SlowRequestService.class, RateLimiterService.class})
 class EdgeCaseAndErrorHandlingTest {
 
     @Autowired
@@ -40,6 +54,9 @@ class EdgeCaseAndErrorHandlingTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PacketResultCache packetResultCache;
+
     @MockBean
     private FakePacketService fakePacketService;
 
@@ -51,6 +68,9 @@ class EdgeCaseAndErrorHandlingTest {
 
     @BeforeEach
     void setUp() {
+        // Spring context is shared between tests, drop results cached by earlier tests
+        packetResultCache.clear();
+
         // Mock the Timer.Sample to avoid NPE in controller
         Timer.Sample mockSample = mock(Timer.Sample.class);
         when(metricsService.startRequestLatencyTimer()).thenReturn(mockSample);
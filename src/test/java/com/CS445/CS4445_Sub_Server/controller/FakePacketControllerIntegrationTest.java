@@ -2,9 +2,20 @@ package com.CS445.CS4445_Sub_Server.controller;
 
 import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
 import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.service.BulkheadService;
 import com.CS445.CS4445_Sub_Server.service.FakePacketService;
+import com.CS445.CS4445_Sub_Server.service.HeapAdmissionService;
+import com.CS445.CS4445_Sub_Server.service.LatencyWindowService;
 import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.PacketExecutionService;
+import com.CS445.CS4445_Sub_Server.service.PacketPayload;
+import com.CS445.CS4445_Sub_Server.service.PacketResultCache;
+import com.CS445.CS4445_Sub_Server.service.PacketStreamService;
+import com.CS445.CS4445_Sub_Server.service.PayloadUploadService;
+import com.CS445.CS4445_Sub_Server.service.PeerOffloadService;
+import com.CS445.CS4445_Sub_Server.service.RateLimiterService;
 import com.CS445.CS4445_Sub_Server.service.ServerStateService;
+import com.CS445.CS4445_Sub_Server.service.SlowRequestService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,12 +24,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -29,6 +43,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ActiveProfiles("test")
 @DisplayName("FakePacketController Integration Tests")
 @AutoConfigureMockMvc(addFilters = false)
+@Import({PacketExecutionService.class, PacketStreamService.class, PacketResultCache.class,
+        BulkheadService.class, HeapAdmissionService.class, PeerOffloadService.class, PayloadUploadService.class,
+        LatencyWindowService.class, SlowRequestService.class, RateLimiterService.class})
 class FakePacketControllerIntegrationTest {
 
     @Autowired
@@ -37,6 +54,9 @@ class FakePacketControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PacketResultCache packetResultCache;
+
     @MockBean
     private FakePacketService fakePacketService;
 
@@ -51,6 +71,9 @@ class FakePacketControllerIntegrationTest {
 
     @BeforeEach
     void setUp() {
+        // Spring context is shared between tests, drop results cached by earlier tests
+        packetResultCache.clear();
+
         testRequest = FakePacketRequest.builder()
                 .packetId("test-packet-001")
                 .cpuIntensity(5)
@@ -373,4 +396,132 @@ class FakePacketControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value("SUCCESS"));
     }
+
+    @Test
+    @DisplayName("POST /api/v1/fakePacket/stream - Should stream one NDJSON response per packet")
+    void shouldStreamNdjsonResponsePerPacket() throws Exception {
+        // Arrange
+        when(fakePacketService.processFakePacket(any(FakePacketRequest.class))).thenReturn(testResponse);
+        FakePacketRequest secondRequest = FakePacketRequest.builder()
+                .packetId("test-packet-002")
+                .cpuIntensity(1)
+                .build();
+        String ndjson = objectMapper.writeValueAsString(testRequest) + "\n"
+                + objectMapper.writeValueAsString(secondRequest) + "\n";
+
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/v1/fakePacket/stream")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON));
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"status\":\"SUCCESS\"");
+        verify(fakePacketService, times(2)).processFakePacket(any(FakePacketRequest.class));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/fakePacket - Should replay cached result for duplicate Idempotency-Key")
+    void shouldReplayCachedResultForDuplicateIdempotencyKey() throws Exception {
+        // Arrange
+        when(fakePacketService.processFakePacket(any(FakePacketRequest.class))).thenReturn(testResponse);
+
+        // Act & Assert - Same key twice, workload should only run once
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/v1/fakePacket")
+                            .header("Idempotency-Key", "retry-key-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(testRequest)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("SUCCESS"));
+        }
+
+        verify(fakePacketService, times(1)).processFakePacket(any(FakePacketRequest.class));
+        verify(metricsService).incrementCacheHits();
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/fakePacket - Should run duplicates without Idempotency-Key and reject a reused key with new parameters")
+    void shouldOnlyDedupeOnMatchingIdempotencyKey() throws Exception {
+        // Arrange
+        when(fakePacketService.processFakePacket(any(FakePacketRequest.class))).thenReturn(testResponse);
+        FakePacketRequest heavier = FakePacketRequest.builder()
+                .packetId(testRequest.getPacketId())
+                .cpuIntensity(9)
+                .build();
+
+        // Act & Assert - cùng packetId, không có key: workload chạy cả hai lần
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/v1/fakePacket")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(testRequest)))
+                    .andExpect(status().isOk());
+        }
+        verify(fakePacketService, times(2)).processFakePacket(any(FakePacketRequest.class));
+
+        mockMvc.perform(post("/api/v1/fakePacket")
+                        .header("Idempotency-Key", "retry-key-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testRequest)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/fakePacket")
+                        .header("Idempotency-Key", "retry-key-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(heavier)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value("REJECTED"));
+        verify(metricsService).incrementTotalErrors("idempotency_mismatch");
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/fakePacket/upload - Should run the packet on the binary payload")
+    void shouldProcessBinaryUpload() throws Exception {
+        // Arrange
+        byte[] payload = new byte[200_000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        long[] seenPayloadBytes = new long[1];
+        when(fakePacketService.processFakePacket(any(FakePacketRequest.class), any(PacketPayload.class)))
+                .thenAnswer(invocation -> {
+                    PacketPayload packetPayload = invocation.getArgument(1);
+                    seenPayloadBytes[0] = packetPayload.size();
+                    return testResponse;
+                });
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/fakePacket/upload")
+                        .param("packetId", "test-packet-001")
+                        .param("cpuIntensity", "3")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SUCCESS"));
+
+        assertThat(seenPayloadBytes[0]).isEqualTo(payload.length);
+        verify(fakePacketService, never()).processFakePacket(any(FakePacketRequest.class));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/fakePacket/upload - Should return 413 when the payload exceeds the limit")
+    void shouldRejectOversizedUpload() throws Exception {
+        // Act & Assert - app.upload.max-bytes=1048576 trong profile test
+        mockMvc.perform(post("/api/v1/fakePacket/upload")
+                        .param("packetId", "too-large")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[1_048_577]))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.packetId").value("too-large"))
+                .andExpect(jsonPath("$.status").value("REJECTED"));
+
+        verify(fakePacketService, never()).processFakePacket(any(FakePacketRequest.class), any(PacketPayload.class));
+        verify(metricsService).incrementTotalErrors("payload_too_large");
+    }
 }
@@ -0,0 +1,161 @@
+package com.CS445.CS4445_Sub_Server.controller;
+
+import com.CS445.CS4445_Sub_Server.config.SecurityConfig;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
+import com.CS445.CS4445_Sub_Server.service.PacketExecutionService;
+import com.CS445.CS4445_Sub_Server.service.PeerOffloadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("FakePacketServlet Unit Tests")
+class FakePacketServletTest {
+
+    // Cùng cấu hình với ObjectMapper Spring Boot inject (bỏ qua field lạ, JavaTimeModule...)
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private PacketExecutionService packetExecutionService;
+    private FakePacketServlet servlet;
+
+    @BeforeEach
+    void setUp() {
+        packetExecutionService = mock(PacketExecutionService.class);
+        servlet = new FakePacketServlet(packetExecutionService, objectMapper, SecurityConfig.securityHeaderWriters());
+    }
+
+    @Test
+    @DisplayName("Should run the packet pipeline and encode the response")
+    void shouldProcessPacket() throws Exception {
+        // Arrange
+        FakePacketResponse expected = FakePacketResponse.builder()
+                .packetId("packet-1")
+                .status("SUCCESS")
+                .processingTimeMs(15L)
+                .timestamp(LocalDateTime.of(2025, 12, 21, 10, 0))
+                .build();
+        when(packetExecutionService.execute(any(FakePacketRequest.class), any(PacketContext.class)))
+                .thenReturn(new PacketExecutionService.PacketOutcome(HttpStatus.OK, expected));
+
+        MockHttpServletRequest request = jsonRequest("{\"packetId\":\"packet-1\",\"cpuIntensity\":3,\"unknown\":1}");
+        request.addHeader("Idempotency-Key", "key-1");
+        request.addHeader("X-Tenant-Id", "tenantA");
+        request.addHeader(PeerOffloadService.HOPS_HEADER, "1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        servlet.service(request, response);
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+        assertThat(response.getContentAsByteArray()).isEqualTo(objectMapper.writeValueAsBytes(expected));
+        assertThat(response.getHeader("X-Content-Type-Options")).isEqualTo("nosniff");
+        assertThat(response.getHeader("X-Frame-Options")).isEqualTo("DENY");
+        assertThat(response.getHeader("Cache-Control")).isEqualTo("no-cache, no-store, max-age=0, must-revalidate");
+
+        ArgumentCaptor<FakePacketRequest> packet = ArgumentCaptor.forClass(FakePacketRequest.class);
+        ArgumentCaptor<PacketContext> context = ArgumentCaptor.forClass(PacketContext.class);
+        verify(packetExecutionService).execute(packet.capture(), context.capture());
+        assertThat(packet.getValue().getPacketId()).isEqualTo("packet-1");
+        assertThat(packet.getValue().getCpuIntensity()).isEqualTo(3);
+        assertThat(context.getValue().getIdempotencyKey()).isEqualTo("key-1");
+        assertThat(context.getValue().getTenantId()).isEqualTo("tenantA");
+        assertThat(context.getValue().getHops()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should serve state rejections from pre-serialized bytes identical to Jackson output")
+    void shouldServePreSerializedRejection() throws Exception {
+        for (PacketExecutionService.StateRejection rejection : PacketExecutionService.StateRejection.values()) {
+            // Arrange
+            FakePacketResponse rejected = FakePacketResponse.builder()
+                    .packetId("id \"quoted\" ü")
+                    .status("REJECTED")
+                    .result(rejection.getMessage())
+                    .build();
+            when(packetExecutionService.execute(any(FakePacketRequest.class), any(PacketContext.class)))
+                    .thenReturn(new PacketExecutionService.PacketOutcome(
+                            HttpStatus.SERVICE_UNAVAILABLE, rejected, rejection));
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            // Act
+            servlet.service(jsonRequest(objectMapper.writeValueAsString(
+                    FakePacketRequest.builder().packetId("id \"quoted\" ü").build())), response);
+
+            // Assert
+            assertThat(response.getStatus()).isEqualTo(503);
+            assertThat(response.getContentAsByteArray()).isEqualTo(objectMapper.writeValueAsBytes(rejected));
+            assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length);
+        }
+    }
+
+    @Test
+    @DisplayName("Should return 400 for malformed JSON or wrong types")
+    void shouldRejectMalformedJson() throws Exception {
+        for (String body : new String[] {"{invalid json}", "{\"cpuIntensity\":\"not-a-number\"}", "", "null"}) {
+            // Arrange
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            // Act
+            servlet.service(jsonRequest(body), response);
+
+            // Assert
+            assertThat(response.getStatus()).as(body).isEqualTo(400);
+        }
+        verify(packetExecutionService, never()).execute(any(FakePacketRequest.class), any(PacketContext.class));
+    }
+
+    @Test
+    @DisplayName("Should return 415 without a JSON Content-Type")
+    void shouldRejectNonJsonContentType() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/fakePacket");
+        request.setContent("{}".getBytes());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        servlet.service(request, response);
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo(415);
+    }
+
+    @Test
+    @DisplayName("Should return 405 for GET like the controller")
+    void shouldRejectGet() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        servlet.service(new MockHttpServletRequest("GET", "/api/v1/fakePacket"), response);
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo(405);
+    }
+
+    private static MockHttpServletRequest jsonRequest(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/fakePacket");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,86 @@
+package com.CS445.CS4445_Sub_Server.filter;
+
+import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.RateLimiterService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@DisplayName("RateLimitFilter Unit Tests")
+class RateLimitFilterTest {
+
+    private MetricsService metricsService;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        metricsService = mock(MetricsService.class);
+        RateLimiterService rateLimiterService = new RateLimiterService(metricsService, 1.0, 1, 60_000, 1000);
+        filter = new RateLimitFilter(rateLimiterService, metricsService, "X-Client-Id");
+    }
+
+    @Test
+    @DisplayName("Should pass request through while under the limit")
+    void shouldPassThroughUnderLimit() throws Exception {
+        // Arrange
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(packetRequest("client-a"), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Should return 429 and count the error when over the limit")
+    void shouldReturn429WhenOverLimit() throws Exception {
+        // Arrange
+        filter.doFilter(packetRequest("client-a"), new MockHttpServletResponse(), new MockFilterChain());
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(packetRequest("client-a"), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isNotNull();
+        assertThat(response.getContentAsString()).contains("REJECTED");
+        verify(metricsService).incrementTotalErrors("rate_limited");
+    }
+
+    @Test
+    @DisplayName("Should not limit requests without a client header (shared LB address)")
+    void shouldNotLimitRequestsWithoutClientHeader() throws Exception {
+        // Arrange
+        filter.doFilter(packetRequest(null), new MockHttpServletResponse(), new MockFilterChain());
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act - cùng remote address, đã quá 1 request/s nếu tính theo address
+        filter.doFilter(packetRequest(null), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+        verify(metricsService, never()).incrementTotalErrors("rate_limited");
+    }
+
+    private MockHttpServletRequest packetRequest(String clientId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/fakePacket");
+        if (clientId != null) {
+            request.addHeader("X-Client-Id", clientId);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,84 @@
+package com.CS445.CS4445_Sub_Server.filter;
+
+import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ResponseSizeFilter Unit Tests")
+class ResponseSizeFilterTest {
+
+    private MetricsService metricsService;
+    private ResponseSizeFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        metricsService = mock(MetricsService.class);
+        filter = new ResponseSizeFilter(metricsService);
+    }
+
+    @Test
+    @DisplayName("Should record the number of body bytes written to the output stream")
+    void shouldRecordBytesWrittenToOutputStream() throws Exception {
+        // Arrange
+        byte[] body = "{\"packetId\":\"p-1\",\"status\":\"SUCCESS\"}".getBytes(StandardCharsets.UTF_8);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            res.getOutputStream().write(body, 0, 10);
+            res.getOutputStream().write(body, 10, body.length - 10);
+        };
+
+        // Act
+        filter.doFilter(packetRequest(), response, chain);
+
+        // Assert
+        assertThat(response.getContentAsByteArray()).isEqualTo(body);
+        verify(metricsService).recordResponseSize(body.length, "json");
+    }
+
+    @Test
+    @DisplayName("Should count encoded bytes written through the writer")
+    void shouldRecordBytesWrittenThroughWriter() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        FilterChain chain = (req, res) -> res.getWriter().write("{\"result\":\"đã xử lý\"}");
+
+        // Act
+        filter.doFilter(packetRequest(), response, chain);
+
+        // Assert
+        long expected = "{\"result\":\"đã xử lý\"}".getBytes(StandardCharsets.UTF_8).length;
+        verify(metricsService).recordResponseSize(expected, "json");
+    }
+
+    @Test
+    @DisplayName("Should not record responses without a body")
+    void shouldSkipEmptyResponses() throws Exception {
+        // Arrange
+        FilterChain chain = (req, res) -> ((HttpServletResponse) res).setStatus(204);
+
+        // Act
+        filter.doFilter(packetRequest(), new MockHttpServletResponse(), chain);
+
+        // Assert
+        verify(metricsService, never()).recordResponseSize(anyLong(), anyString());
+    }
+
+    private MockHttpServletRequest packetRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/fakePacket");
+        request.setContentType("application/json");
+        return request;
+    }
+}
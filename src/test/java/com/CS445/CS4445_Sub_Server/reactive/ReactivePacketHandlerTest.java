@@ -0,0 +1,239 @@
+package com.CS445.CS4445_Sub_Server.reactive;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.service.FakePacketService;
+import com.CS445.CS4445_Sub_Server.service.HeapAdmissionService;
+import com.CS445.CS4445_Sub_Server.service.LatencyWindowService;
+import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.RateLimiterService;
+import com.CS445.CS4445_Sub_Server.service.ServerStateService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ReactivePacketHandler Unit Tests")
+class ReactivePacketHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private FakePacketService fakePacketService;
+    private RateLimiterService rateLimiterService;
+    private MetricsService metricsService;
+    private ServerStateService serverStateService;
+    private Scheduler kernelScheduler;
+    private ReactivePacketHandler handler;
+    private WebTestClient client;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        fakePacketService = mock(FakePacketService.class);
+        when(fakePacketService.runKernels(any(FakePacketRequest.class))).thenAnswer(invocation -> {
+            FakePacketRequest request = invocation.getArgument(0);
+            return new FakePacketService.PacketWork(request.getPacketId(), System.currentTimeMillis(),
+                    request.getProcessingTimeMs(), 10L, 20L);
+        });
+        when(fakePacketService.buildResponse(any(FakePacketService.PacketWork.class))).thenAnswer(invocation -> {
+            FakePacketService.PacketWork work = invocation.getArgument(0);
+            return FakePacketResponse.builder()
+                    .packetId(work.packetId())
+                    .status("SUCCESS")
+                    .processingTimeMs(System.currentTimeMillis() - work.startTimeMs())
+                    .cpuCycles(work.cpuCycles())
+                    .memoryUsedBytes(work.memoryUsedBytes())
+                    .build();
+        });
+
+        HeapAdmissionService heapAdmissionService = mock(HeapAdmissionService.class);
+        when(heapAdmissionService.execute(any(FakePacketRequest.class), any(Supplier.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+
+        rateLimiterService = mock(RateLimiterService.class);
+        when(rateLimiterService.tryAcquire(anyString())).thenReturn(true);
+        metricsService = mock(MetricsService.class);
+        serverStateService = new ServerStateService();
+        // Một thread kernel: các packet chỉ song song được nếu phần chờ không giữ thread
+        kernelScheduler = Schedulers.newBoundedElastic(1, 64, "test-kernel");
+
+        handler = new ReactivePacketHandler(fakePacketService, heapAdmissionService,
+                serverStateService, rateLimiterService, metricsService, new LatencyWindowService(60, 12, 0.1),
+                objectMapper, kernelScheduler,
+                true, "X-Client-Id");
+        client = WebTestClient.bindToRouterFunction(RouterFunctions.route()
+                        .POST("/api/v1/fakePacket", handler::processFakePacket)
+                        .build())
+                .configureClient()
+                .responseTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        kernelScheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("Should process a packet and record the same metrics as the servlet pipeline")
+    void shouldProcessPacket() {
+        // Act
+        byte[] body = client.post().uri("/api/v1/fakePacket")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(packet("reactive-1", 50))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody().returnResult().getResponseBody();
+
+        // Assert
+        FakePacketResponse response = read(body);
+        assertThat(response.getPacketId()).isEqualTo("reactive-1");
+        assertThat(response.getStatus()).isEqualTo("SUCCESS");
+        assertThat(response.getProcessingTimeMs()).isGreaterThanOrEqualTo(50L);
+
+        verify(metricsService).incrementTotalRequests();
+        verify(metricsService).incrementQueueLength();
+        verify(metricsService).decrementQueueLength();
+        verify(metricsService).decrementCurrentConnections();
+        verify(metricsService).incrementTotalJobsProcessed();
+        verify(metricsService).recordProcessingTime(anyLong(), eq("fake_packet"));
+        verify(metricsService).recordResponseSize(body.length, "json");
+        assertThat(serverStateService.getInFlightPackets()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should wait with Mono.delay instead of holding a kernel thread")
+    void shouldNotHoldKernelThreadWhileWaiting() {
+        // Arrange - 20 packet x 300ms trên một thread kernel, nếu sleep thì mất ít nhất 6s
+        int packets = 20;
+        long start = System.currentTimeMillis();
+
+        // Act - gọi handler trực tiếp để các packet thực sự chạy đồng thời
+        List<HttpStatusCode> statuses = Flux.range(0, packets)
+                .flatMap(i -> handler.processFakePacket(MockServerRequest.builder()
+                                .method(HttpMethod.POST)
+                                .header("X-Client-Id", "client-" + i)
+                                .body(Mono.just(packet("concurrent-" + i, 300))))
+                        .map(ServerResponse::statusCode))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        long elapsed = System.currentTimeMillis() - start;
+
+        // Assert
+        assertThat(statuses).hasSize(packets).allMatch(status -> status.value() == 200);
+        assertThat(elapsed).isLessThan(3000L);
+        verify(metricsService, times(packets)).incrementTotalJobsProcessed();
+    }
+
+    @Test
+    @DisplayName("Should reject packets with 503 when the server is closed")
+    void shouldRejectWhenClosed() {
+        // Arrange
+        serverStateService.closeServer("test");
+
+        // Act
+        byte[] body = client.post().uri("/api/v1/fakePacket")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(packet("closed-1", 0))
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectBody().returnResult().getResponseBody();
+
+        // Assert
+        FakePacketResponse response = read(body);
+        assertThat(response.getStatus()).isEqualTo("REJECTED");
+        assertThat(response.getResult()).contains("closed");
+        verify(metricsService).incrementTotalErrors("server_closed");
+        verify(metricsService, never()).incrementQueueLength();
+        verify(fakePacketService, never()).runKernels(any(FakePacketRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should return 429 with Retry-After when the client is rate limited")
+    void shouldApplyRateLimit() {
+        // Arrange
+        when(rateLimiterService.tryAcquire("client-a")).thenReturn(false);
+        when(rateLimiterService.millisUntilNextToken("client-a")).thenReturn(1500L);
+
+        // Act & Assert
+        client.post().uri("/api/v1/fakePacket")
+                .header("X-Client-Id", "client-a")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(packet("limited-1", 0))
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "2")
+                .expectBody().jsonPath("$.status").isEqualTo("REJECTED");
+
+        verify(metricsService).incrementTotalErrors("rate_limited");
+        verify(fakePacketService, never()).runKernels(any(FakePacketRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should return 400 for malformed or empty bodies and 415 for non-JSON content")
+    void shouldRejectInvalidBodies() {
+        // Act & Assert
+        client.post().uri("/api/v1/fakePacket")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{invalid json}")
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.post().uri("/api/v1/fakePacket")
+                .contentType(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.post().uri("/api/v1/fakePacket")
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue("{}")
+                .exchange()
+                .expectStatus().isEqualTo(415);
+
+        verify(fakePacketService, never()).runKernels(any(FakePacketRequest.class));
+    }
+
+    private FakePacketResponse read(byte[] body) {
+        try {
+            return objectMapper.readValue(body, FakePacketResponse.class);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static FakePacketRequest packet(String packetId, int processingTimeMs) {
+        return FakePacketRequest.builder()
+                .packetId(packetId)
+                .cpuIntensity(1)
+                .ramIntensity(1)
+                .processingTimeMs(processingTimeMs)
+                .build();
+    }
+}
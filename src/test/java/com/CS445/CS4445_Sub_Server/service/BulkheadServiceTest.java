@@ -0,0 +1,199 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("BulkheadService Unit Tests")
+class BulkheadServiceTest {
+
+    private static final FakePacketRequest CPU_PACKET = FakePacketRequest.builder()
+            .cpuIntensity(10).ramIntensity(1).processingTimeMs(0).build();
+    private static final FakePacketRequest RAM_PACKET = FakePacketRequest.builder()
+            .cpuIntensity(1).ramIntensity(10).processingTimeMs(0).build();
+    private static final FakePacketRequest SLEEP_PACKET = FakePacketRequest.builder()
+            .cpuIntensity(1).ramIntensity(1).processingTimeMs(5000).build();
+
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should classify packets by dominant workload")
+    void shouldClassifyPackets() {
+        // Arrange
+        BulkheadService bulkheadService = newService(4, 0, 50);
+
+        // Act & Assert
+        assertThat(bulkheadService.classify(CPU_PACKET)).isEqualTo(BulkheadService.WorkloadClass.CPU_HEAVY);
+        assertThat(bulkheadService.classify(RAM_PACKET)).isEqualTo(BulkheadService.WorkloadClass.RAM_HEAVY);
+        assertThat(bulkheadService.classify(SLEEP_PACKET)).isEqualTo(BulkheadService.WorkloadClass.SLEEP_DOMINATED);
+        assertThat(bulkheadService.classify(new FakePacketRequest()))
+                .isEqualTo(BulkheadService.WorkloadClass.SLEEP_DOMINATED);
+    }
+
+    @Test
+    @DisplayName("Should run work and release permits")
+    void shouldRunWorkAndReleasePermits() {
+        // Arrange
+        BulkheadService bulkheadService = newService(4, 0, 50);
+
+        // Act
+        String result = bulkheadService.execute("tenant-a", CPU_PACKET, () -> "done");
+
+        // Assert
+        assertThat(result).isEqualTo("done");
+        assertThat(bulkheadService.getInUse()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should let an idle node lend all capacity to one workload class")
+    void shouldBorrowIdleCapacity() throws Exception {
+        // Arrange - capacity 4, CPU share is 40% (1 reserved permit)
+        BulkheadService bulkheadService = newService(4, 0, 50);
+        CountDownLatch running = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            pool.submit(() -> bulkheadService.execute("tenant-" + Thread.currentThread().getId(), CPU_PACKET,
+                    () -> hold(running, release)));
+        }
+
+        // Assert
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(bulkheadService.getInUse()).isEqualTo(4);
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Should reject when capacity and queue are exhausted")
+    void shouldRejectWhenFull() throws Exception {
+        // Arrange - capacity 1, no queue
+        BulkheadService bulkheadService = newService(1, 0, 50);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = pool.submit(() -> bulkheadService.execute("tenant-a", CPU_PACKET,
+                () -> hold(running, release)));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act & Assert
+        assertThatThrownBy(() -> bulkheadService.execute("tenant-b", RAM_PACKET, () -> "never"))
+                .isInstanceOf(BulkheadService.BulkheadFullException.class)
+                .hasMessageContaining("queue is full");
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertThat(bulkheadService.execute("tenant-b", RAM_PACKET, () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    @DisplayName("Should time out queued packets")
+    void shouldTimeOutQueuedPackets() throws Exception {
+        // Arrange - capacity 1, queue of 1, 50ms max wait
+        BulkheadService bulkheadService = newService(1, 1, 50);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.submit(() -> bulkheadService.execute("tenant-a", CPU_PACKET, () -> hold(running, release)));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act & Assert
+        assertThatThrownBy(() -> bulkheadService.execute("tenant-a", CPU_PACKET, () -> "never"))
+                .isInstanceOf(BulkheadService.BulkheadFullException.class)
+                .hasMessageContaining("timed out");
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Should give a starved bulkhead priority over borrowers")
+    void shouldPrioritizeReservedShareOverBorrowers() throws Exception {
+        // Arrange - capacity 4: cpu reserves 1 and borrows the other 3 permits
+        BulkheadService bulkheadService = newService(4, 4, 2000);
+        CountDownLatch cpuRunning = new CountDownLatch(4);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch releaseRest = new CountDownLatch(1);
+        pool.submit(() -> bulkheadService.execute(null, CPU_PACKET, () -> hold(cpuRunning, releaseFirst)));
+        for (int i = 0; i < 3; i++) {
+            pool.submit(() -> bulkheadService.execute(null, CPU_PACKET, () -> hold(cpuRunning, releaseRest)));
+        }
+        assertThat(cpuRunning.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act - a cpu borrower queues first, then a sleep packet within its reservation
+        CountDownLatch borrowerStarted = new CountDownLatch(1);
+        pool.submit(() -> bulkheadService.execute(null, CPU_PACKET, () -> {
+            borrowerStarted.countDown();
+            return "cpu";
+        }));
+        Thread.sleep(50);
+        CountDownLatch sleepRunning = new CountDownLatch(1);
+        pool.submit(() -> bulkheadService.execute(null, SLEEP_PACKET, () -> hold(sleepRunning, releaseRest)));
+        Thread.sleep(50);
+        releaseFirst.countDown(); // frees exactly one permit
+
+        // Assert - the freed permit goes to the starved sleep bulkhead, not the borrower
+        assertThat(sleepRunning.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(50);
+        assertThat(borrowerStarted.getCount()).isEqualTo(1);
+
+        releaseRest.countDown();
+        assertThat(borrowerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should evict idle tenant bulkheads so new tenants are not pinned to overflow")
+    void shouldEvictIdleTenantBulkheads() {
+        // Arrange - chỉ một bulkhead tenant, gỡ ngay khi rảnh
+        MetricsService metricsService = mock(MetricsService.class);
+        BulkheadService bulkheadService = new BulkheadService(metricsService, true, 4, 0, 50,
+                0.4, 0.3, 0.3, "", 1.0, 1, 0, 10, 10);
+        bulkheadService.execute("tenant-a", CPU_PACKET, () -> "done");
+
+        // Act
+        bulkheadService.evictIdleTenants();
+        bulkheadService.execute("tenant-b", CPU_PACKET, () -> "done");
+
+        // Assert
+        verify(metricsService).removeMeters("kind", "tenant", "bulkhead", "tenant-a");
+        verify(metricsService).registerGauge(eq("app.bulkhead.active"), anyString(), any(),
+                eq("kind"), eq("tenant"), eq("bulkhead"), eq("tenant-b"));
+    }
+
+    private BulkheadService newService(int capacity, int queueSize, long maxWaitMs) {
+        return new BulkheadService(mock(MetricsService.class), true, capacity, queueSize, maxWaitMs,
+                0.4, 0.3, 0.3, "", 1.0, 8, 300_000, 10, 10);
+    }
+
+    private static String hold(CountDownLatch running, CountDownLatch release) {
+        running.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "held";
+    }
+}
@@ -0,0 +1,119 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("CapacityScoreService Unit Tests")
+class CapacityScoreServiceTest {
+
+    private LatencyWindowService latencyWindowService;
+    private BulkheadService bulkheadService;
+    private ServerStateService serverStateService;
+    private GarbageCollectorMXBean gcBean;
+    private CapacityScoreService capacityScoreService;
+
+    @BeforeEach
+    void setUp() {
+        latencyWindowService = mock(LatencyWindowService.class);
+        when(latencyWindowService.snapshot()).thenReturn(latency(0.0));
+        bulkheadService = mock(BulkheadService.class);
+        when(bulkheadService.getCapacity()).thenReturn(10);
+        serverStateService = mock(ServerStateService.class);
+        when(serverStateService.isServerOpen()).thenReturn(true);
+        gcBean = mock(GarbageCollectorMXBean.class);
+
+        capacityScoreService = new CapacityScoreService(latencyWindowService, bulkheadService, serverStateService,
+                List.of(gcBean), 8, 2000, 0.25, 100);
+    }
+
+    @Test
+    @DisplayName("Should give an idle open node the full score and weight")
+    void shouldScoreIdleNode() {
+        // Act
+        CapacityScoreService.CapacityScore score = capacityScoreService.evaluate();
+
+        // Assert
+        assertThat(score.capacityScore()).isEqualTo(100.0);
+        assertThat(score.routingWeight()).isEqualTo(100);
+        assertThat(score.queueDepth()).isZero();
+        assertThat(score.concurrencyHeadroom()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should combine concurrency headroom, queue depth and p95 latency")
+    void shouldCombineLoadSignals() {
+        // Arrange - 5/10 permit, 8 packet đợi (queue-size 8), p95 gấp đôi target
+        when(bulkheadService.getInUse()).thenReturn(5);
+        when(serverStateService.getInFlightPackets()).thenReturn(13);
+        when(latencyWindowService.snapshot()).thenReturn(latency(4000.0));
+
+        // Act
+        CapacityScoreService.CapacityScore score = capacityScoreService.evaluate();
+
+        // Assert - 100 * 0.5 * 0.5 * 0.5
+        assertThat(score.capacityScore()).isEqualTo(12.5);
+        assertThat(score.routingWeight()).isEqualTo(13);
+        assertThat(score.queueDepth()).isEqualTo(8);
+        assertThat(score.concurrencyHeadroom()).isEqualTo(0.5);
+        assertThat(score.p95LatencyMs()).isEqualTo(4000.0);
+    }
+
+    @Test
+    @DisplayName("Should keep a minimum weight while the node still accepts packets")
+    void shouldKeepMinimumWeightWhenNearlyFull() {
+        // Arrange
+        when(bulkheadService.getInUse()).thenReturn(9);
+        when(serverStateService.getInFlightPackets()).thenReturn(9 + 200);
+
+        // Act
+        CapacityScoreService.CapacityScore score = capacityScoreService.evaluate();
+
+        // Assert
+        assertThat(score.capacityScore()).isLessThan(1.0);
+        assertThat(score.routingWeight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should report zero score and weight when the node is not open")
+    void shouldZeroScoreWhenNotOpen() {
+        // Arrange
+        when(serverStateService.isServerOpen()).thenReturn(false);
+
+        // Act
+        CapacityScoreService.CapacityScore score = capacityScoreService.evaluate();
+
+        // Assert
+        assertThat(score.capacityScore()).isZero();
+        assertThat(score.routingWeight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should lower the score under GC pressure")
+    void shouldPenalizeGcTime() throws Exception {
+        // Arrange - GC chiếm phần lớn khoảng thời gian giữa hai mẫu
+        long start = System.currentTimeMillis();
+        Thread.sleep(1100);
+        long elapsedMs = System.currentTimeMillis() - start;
+        when(gcBean.getCollectionTime()).thenReturn(elapsedMs / 2);
+
+        // Act
+        CapacityScoreService.CapacityScore score = capacityScoreService.evaluate();
+
+        // Assert - ~50% GC, vượt max-gc-fraction 25%
+        assertThat(score.gcTimePercent()).isGreaterThan(25.0);
+        assertThat(score.capacityScore()).isZero();
+        assertThat(score.routingWeight()).isZero();
+    }
+
+    private static LatencyWindowService.LatencyStats latency(double p95Ms) {
+        return new LatencyWindowService.LatencyStats(10, p95Ms, p95Ms, p95Ms, p95Ms, p95Ms);
+    }
+}
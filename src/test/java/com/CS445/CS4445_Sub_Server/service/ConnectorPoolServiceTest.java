@@ -0,0 +1,115 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.config.InstrumentedTomcatExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("ConnectorPoolService Unit Tests")
+class ConnectorPoolServiceTest {
+
+    private MetricsService metricsService;
+    private ConnectorPoolService connectorPoolService;
+
+    @BeforeEach
+    void setUp() {
+        metricsService = mock(MetricsService.class);
+        connectorPoolService = new ConnectorPoolService(metricsService, 60, 12);
+    }
+
+    @Test
+    @DisplayName("Should report -1 for pool fields when no connector is bound")
+    void shouldReportUnboundPool() {
+        // Act
+        ConnectorPoolService.ConnectorStats stats = connectorPoolService.snapshot();
+
+        // Assert
+        assertThat(stats.activeThreads()).isEqualTo(-1);
+        assertThat(stats.maxThreads()).isEqualTo(-1);
+        assertThat(stats.pendingDispatch()).isEqualTo(-1);
+        assertThat(stats.dispatchWaitMeanMs()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should keep dispatch wait and service time in separate windows")
+    void shouldSeparateDispatchWaitFromServiceTime() {
+        // Act
+        connectorPoolService.recordDispatchWait(TimeUnit.MILLISECONDS.toNanos(2));
+        connectorPoolService.recordServiceTime(TimeUnit.MILLISECONDS.toNanos(300));
+
+        // Assert
+        ConnectorPoolService.ConnectorStats stats = connectorPoolService.snapshot();
+        assertThat(stats.dispatchWaitMeanMs()).isEqualTo(2.0);
+        assertThat(stats.serviceTimeMeanMs()).isEqualTo(300.0);
+        verify(metricsService).recordDispatchWait(TimeUnit.MILLISECONDS.toNanos(2));
+        verify(metricsService).recordServiceTime(TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    @DisplayName("Should expose the bound pool and register its gauges once")
+    void shouldExposeBoundPool() {
+        // Arrange
+        connectorPoolService.bind(new FixedPool(4, 200, 3, 50, 8192));
+
+        // Act - connector thứ hai bị bỏ qua
+        connectorPoolService.bind(new FixedPool(1, 1, 1, 1, 1));
+        ConnectorPoolService.ConnectorStats stats = connectorPoolService.snapshot();
+
+        // Assert
+        assertThat(stats.activeThreads()).isEqualTo(4);
+        assertThat(stats.maxThreads()).isEqualTo(200);
+        assertThat(stats.pendingDispatch()).isEqualTo(3);
+        assertThat(stats.connections()).isEqualTo(50);
+        assertThat(stats.maxConnections()).isEqualTo(8192);
+    }
+
+    @Test
+    @DisplayName("Should time queue wait and run time of tasks on the instrumented Tomcat executor")
+    void shouldTimeTasksOnInstrumentedExecutor() throws Exception {
+        // Arrange - một worker, task thứ hai phải đợi task đầu
+        InstrumentedTomcatExecutor executor = InstrumentedTomcatExecutor.create(1, 1, Integer.MAX_VALUE,
+                "test-exec-", connectorPoolService);
+        CountDownLatch done = new CountDownLatch(2);
+
+        // Act
+        try {
+            executor.execute(() -> {
+                sleep(50);
+                done.countDown();
+            });
+            executor.execute(done::countDown);
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        // Assert
+        ConnectorPoolService.ConnectorStats stats = connectorPoolService.snapshot();
+        assertThat(stats.dispatchWaitP99Ms()).isGreaterThanOrEqualTo(40.0);
+        assertThat(stats.serviceTimeP99Ms()).isGreaterThanOrEqualTo(40.0);
+        verify(metricsService, atLeast(2)).recordDispatchWait(anyLong());
+        verify(metricsService, atLeast(2)).recordServiceTime(anyLong());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record FixedPool(int activeThreads, int maxThreads, int pendingDispatch, long connections,
+                             long maxConnections) implements ConnectorPoolService.PoolView {
+    }
+}
@@ -0,0 +1,99 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.CostEstimateResponse;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("CostModelService Unit Tests")
+class CostModelServiceTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    @DisplayName("Should fall back to the configured per-level defaults before any sample")
+    void shouldUseDefaultsWithoutSamples() {
+        // Arrange
+        CostModelService costModel = newCostModel(new FakePacketService(mock(MetricsService.class), false), 0.5);
+
+        // Act
+        CostEstimateResponse estimate = costModel.estimate(request(2, 3, 10));
+
+        // Assert - 2 * 10ms + 3 * 10ms
+        assertThat(estimate.getPredictedKernelMs()).isEqualTo(50.0);
+        assertThat(estimate.getPredictedLatencyMs()).isEqualTo(50.0);
+        assertThat(estimate.getSamples()).isZero();
+        assertThat(estimate.isCalibrated()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should predict from live kernel timings with an EWMA per intensity level")
+    void shouldLearnFromKernelTimings() {
+        // Arrange
+        CostModelService costModel = newCostModel(new FakePacketService(mock(MetricsService.class), false), 0.5);
+
+        // Act
+        costModel.record(new FakePacketService.KernelTiming(3, 4, 10 * MS, 20 * MS, 8 * MS, 16 * MS));
+        costModel.record(new FakePacketService.KernelTiming(3, 4, 20 * MS, 40 * MS, 8 * MS, 16 * MS));
+        CostEstimateResponse estimate = costModel.estimate(request(3, 4, 1000));
+
+        // Assert - EWMA alpha 0.5: 10 -> 15 và 20 -> 30
+        assertThat(estimate.getPredictedKernelMs()).isEqualTo(45.0);
+        assertThat(estimate.getPredictedCpuMs()).isEqualTo(24.0);
+        assertThat(estimate.getPredictedLatencyMs()).isEqualTo(1000.0);
+        assertThat(estimate.getSamples()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should apply FakePacketService defaults and clamping to the request")
+    void shouldNormalizeRequest() {
+        // Arrange
+        CostModelService costModel = newCostModel(new FakePacketService(mock(MetricsService.class), false), 0.5);
+
+        // Act
+        CostEstimateResponse estimate = costModel.estimate(FakePacketRequest.builder().cpuIntensity(42).build());
+
+        // Assert
+        assertThat(estimate.getCpuIntensity()).isEqualTo(10);
+        assertThat(estimate.getRamIntensity()).isEqualTo(5);
+        assertThat(estimate.getProcessingTimeMs()).isEqualTo(1000);
+    }
+
+    @Test
+    @DisplayName("Should benchmark every intensity level and learn from real packets afterwards")
+    void shouldCalibrateAndKeepLearning() {
+        // Arrange
+        FakePacketService fakePacketService = new FakePacketService(mock(MetricsService.class), false);
+        CostModelService costModel = newCostModel(fakePacketService, 0.2);
+
+        // Act
+        costModel.calibrate();
+        fakePacketService.runKernels(request(1, 1, 0));
+
+        // Assert
+        assertThat(costModel.isCalibrated()).isTrue();
+        for (int intensity = 1; intensity <= CostModelService.MAX_INTENSITY; intensity++) {
+            CostEstimateResponse estimate = costModel.estimate(request(intensity, intensity, 0));
+            assertThat(estimate.getSamples()).isGreaterThanOrEqualTo(1);
+            assertThat(estimate.getPredictedKernelMs()).isGreaterThan(0.0);
+            assertThat(estimate.getPredictedLatencyMs()).isEqualTo(estimate.getPredictedKernelMs());
+        }
+        assertThat(costModel.estimate(request(1, 1, 0)).getSamples()).isEqualTo(2);
+    }
+
+    private static CostModelService newCostModel(FakePacketService fakePacketService, double alpha) {
+        return new CostModelService(fakePacketService, mock(MetricsService.class), alpha, 1, 10, 10);
+    }
+
+    private static FakePacketRequest request(int cpuIntensity, int ramIntensity, int processingTimeMs) {
+        return FakePacketRequest.builder()
+                .packetId("estimate")
+                .cpuIntensity(cpuIntensity)
+                .ramIntensity(ramIntensity)
+                .processingTimeMs(processingTimeMs)
+                .build();
+    }
+}
@@ -6,17 +6,27 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @DisplayName("FakePacketService Unit Tests")
 class FakePacketServiceTest {
 
+    private MetricsService metricsService;
     private FakePacketService fakePacketService;
     private FakePacketRequest testRequest;
 
     @BeforeEach
     void setUp() {
-        fakePacketService = new FakePacketService();
+        metricsService = mock(MetricsService.class);
+        fakePacketService = new FakePacketService(metricsService, false);
         testRequest = FakePacketRequest.builder()
                 .packetId("test-packet-001")
                 .cpuIntensity(5)
@@ -194,4 +204,50 @@ class FakePacketServiceTest {
         assertThat(response.getCpuCycles()).isGreaterThan(0L);
         assertThat(response.getMemoryUsedBytes()).isGreaterThan(0L);
     }
+
+    @Test
+    @DisplayName("Should record phase timings without returning them by default")
+    void shouldRecordPhaseTimingsWithoutBreakdown() {
+        // Act
+        FakePacketResponse response = fakePacketService.processFakePacket(testRequest);
+
+        // Assert
+        assertThat(response.getPhaseTimingsMs()).isNull();
+        verify(metricsService).recordPhaseTimings(any(PhaseTimings.class));
+    }
+
+    @Test
+    @DisplayName("Should return per-phase breakdown in execution order when enabled")
+    void shouldReturnPhaseBreakdownWhenEnabled() {
+        // Arrange
+        FakePacketService service = new FakePacketService(metricsService, true);
+
+        // Act
+        FakePacketResponse response = service.processFakePacket(testRequest);
+
+        // Assert - packet JSON không có payload nhị phân
+        Map<String, Double> phases = response.getPhaseTimingsMs();
+        assertThat(phases).containsOnlyKeys("primes", "hash", "math", "strings",
+                "ram_list", "ram_map", "ram_bytes", "ram_objects", "ram_scan", "delay");
+        assertThat(phases.keySet()).startsWith("primes").endsWith("delay");
+        // Chỉ kiểm tra từng phase: breakdown không gồm log, đọc ThreadMXBean và phần trước khi bắt đầu đo,
+        // nên tổng các phase không bằng processingTimeMs
+        assertThat(phases.values()).allSatisfy(ms -> assertThat(ms).isGreaterThanOrEqualTo(0.0));
+    }
+
+    @Test
+    @DisplayName("Should process warmup packets without recording metrics or notifying listeners")
+    void shouldNotObserveWarmupPackets() {
+        // Arrange
+        List<FakePacketService.KernelTiming> timings = new ArrayList<>();
+        fakePacketService.addKernelTimingListener(timings::add);
+
+        // Act
+        FakePacketResponse response = fakePacketService.processWarmupPacket(testRequest);
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo("SUCCESS");
+        assertThat(timings).isEmpty();
+        verify(metricsService, never()).recordPhaseTimings(any(PhaseTimings.class));
+    }
 }
@@ -0,0 +1,101 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("HeapAdmissionService Unit Tests")
+class HeapAdmissionServiceTest {
+
+    private static final FakePacketRequest RAM_PACKET = FakePacketRequest.builder()
+            .packetId("ram").ramIntensity(10).build();
+
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+    private HeapAdmissionService heapAdmissionService;
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        if (heapAdmissionService != null) {
+            heapAdmissionService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should estimate heap linearly from RAM intensity")
+    void shouldEstimateHeapFromRamIntensity() {
+        // Arrange
+        heapAdmissionService = new HeapAdmissionService(mock(MetricsService.class), true, 1000, 100, 0.85);
+
+        // Act & Assert
+        assertThat(heapAdmissionService.estimateBytes(FakePacketRequest.builder().ramIntensity(1).build()))
+                .isEqualTo(1100);
+        assertThat(heapAdmissionService.estimateBytes(RAM_PACKET)).isEqualTo(2000);
+        assertThat(heapAdmissionService.estimateBytes(FakePacketRequest.builder().ramIntensity(50).build()))
+                .isEqualTo(2000);
+        assertThat(heapAdmissionService.estimateBytes(new FakePacketRequest())).isEqualTo(1500);
+    }
+
+    @Test
+    @DisplayName("Should reserve heap while work runs and release it afterwards")
+    void shouldReserveAndReleaseHeap() {
+        // Arrange
+        heapAdmissionService = new HeapAdmissionService(mock(MetricsService.class), true, 1000, 100, 0.85);
+
+        // Act
+        long reservedDuringWork = heapAdmissionService.execute(RAM_PACKET, heapAdmissionService::getReservedBytes);
+
+        // Assert
+        assertThat(reservedDuringWork).isEqualTo(2000);
+        assertThat(heapAdmissionService.getReservedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject packets that do not fit next to in-flight reservations")
+    void shouldRejectWhenHeadroomIsExhausted() throws Exception {
+        // Arrange - zero budget: only a single packet may run at a time
+        heapAdmissionService = new HeapAdmissionService(mock(MetricsService.class), true, 1000, 100, 0.0);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.submit(() -> heapAdmissionService.execute(RAM_PACKET, () -> {
+            running.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act & Assert
+        assertThatThrownBy(() -> heapAdmissionService.execute(RAM_PACKET, () -> "never"))
+                .isInstanceOf(HeapAdmissionService.HeapExhaustedException.class)
+                .hasMessageContaining("Insufficient heap headroom");
+
+        release.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(heapAdmissionService.execute(RAM_PACKET, () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    @DisplayName("Should bypass admission when disabled")
+    void shouldBypassWhenDisabled() {
+        // Arrange
+        heapAdmissionService = new HeapAdmissionService(mock(MetricsService.class), false, 1000, 100, 0.0);
+
+        // Act & Assert
+        assertThat(heapAdmissionService.execute(RAM_PACKET, heapAdmissionService::getReservedBytes)).isZero();
+    }
+}
@@ -0,0 +1,142 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.NodeHeartbeat;
+import com.CS445.CS4445_Sub_Server.dto.NodeRegistration;
+import com.CS445.CS4445_Sub_Server.dto.ServerHealthResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("HeartbeatService Unit Tests")
+class HeartbeatServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<HttpExchangeRecord> received = new LinkedBlockingQueue<>();
+
+    private HttpServer receiver;
+    private ServerStateService serverStateService;
+    private ServerHealthService serverHealthService;
+    private HeartbeatService heartbeatService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Local stub receiver standing in for the load balancer
+        receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        receiver.createContext("/", this::record);
+        receiver.start();
+
+        serverStateService = new ServerStateService();
+        serverHealthService = mock(ServerHealthService.class);
+        when(serverHealthService.getHealth()).thenReturn(ServerHealthResponse.builder()
+                .cpuUsagePercent(12.5).currConnections(3).routingWeight(40).isOpen(true).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (heartbeatService != null) {
+            heartbeatService.shutdown();
+        }
+        receiver.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should register the node and push a health heartbeat")
+    void shouldRegisterAndSendHeartbeat() throws Exception {
+        // Arrange
+        heartbeatService = newService(baseUrl() + "/heartbeat", baseUrl() + "/register");
+
+        // Act
+        boolean registered = heartbeatService.register().get(5, TimeUnit.SECONDS);
+        boolean delivered = heartbeatService.sendHeartbeat("interval").get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(registered).isTrue();
+        assertThat(delivered).isTrue();
+
+        HttpExchangeRecord registration = received.poll(5, TimeUnit.SECONDS);
+        assertThat(registration.path()).isEqualTo("/register");
+        NodeRegistration node = objectMapper.readValue(registration.body(), NodeRegistration.class);
+        assertThat(node.getNodeId()).isEqualTo("node-1");
+        assertThat(node.getUrl()).isEqualTo("http://node-1:8080");
+
+        HttpExchangeRecord heartbeat = received.poll(5, TimeUnit.SECONDS);
+        assertThat(heartbeat.path()).isEqualTo("/heartbeat");
+        assertThat(heartbeat.nodeId()).isEqualTo("node-1");
+        assertThat(heartbeat.reason()).isEqualTo("interval");
+        NodeHeartbeat body = objectMapper.readValue(heartbeat.body(), NodeHeartbeat.class);
+        assertThat(body.getState()).isEqualTo("OPEN");
+        assertThat(body.getCpuUsagePercent()).isEqualTo(12.5);
+        assertThat(body.getCurrConnections()).isEqualTo(3);
+        assertThat(body.getRoutingWeight()).isEqualTo(40);
+        assertThat(heartbeatService.getSentCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should push a heartbeat immediately when the server state flips")
+    void shouldSendHeartbeatOnStateChange() throws Exception {
+        // Arrange
+        heartbeatService = newService(baseUrl() + "/heartbeat", "");
+
+        // Act
+        serverStateService.closeServer("Maintenance");
+
+        // Assert
+        HttpExchangeRecord heartbeat = received.poll(5, TimeUnit.SECONDS);
+        assertThat(heartbeat).isNotNull();
+        assertThat(heartbeat.reason()).isEqualTo("state_change");
+    }
+
+    @Test
+    @DisplayName("Should tolerate an unreachable receiver")
+    void shouldTolerateReceiverDown() throws Exception {
+        // Arrange
+        String url = baseUrl() + "/heartbeat";
+        receiver.stop(0);
+        heartbeatService = newService(url, "");
+
+        // Act
+        boolean delivered = heartbeatService.sendHeartbeat("interval").get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(delivered).isFalse();
+        assertThat(heartbeatService.getFailedCount()).isEqualTo(1);
+        assertThat(heartbeatService.isRegistered()).isFalse();
+    }
+
+    private HeartbeatService newService(String heartbeatUrl, String registerUrl) {
+        return new HeartbeatService(serverHealthService, serverStateService, mock(MetricsService.class),
+                objectMapper, true, heartbeatUrl, registerUrl, "node-1", "http://node-1:8080",
+                60000, 16, 1000);
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + receiver.getAddress().getPort();
+    }
+
+    private void record(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        received.add(new HttpExchangeRecord(exchange.getRequestURI().getPath(),
+                exchange.getRequestHeaders().getFirst(HeartbeatService.NODE_ID_HEADER),
+                exchange.getRequestHeaders().getFirst(HeartbeatService.REASON_HEADER),
+                body));
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+
+    private record HttpExchangeRecord(String path, String nodeId, String reason, byte[] body) {
+    }
+}
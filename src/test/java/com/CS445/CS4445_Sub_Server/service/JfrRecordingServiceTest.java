@@ -0,0 +1,103 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.jfr.PacketRejectionEvent;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("JfrRecordingService Unit Tests")
+class JfrRecordingServiceTest {
+
+    private JfrRecordingService jfrRecordingService;
+
+    @BeforeEach
+    void setUp() {
+        jfrRecordingService = new JfrRecordingService("default", 60, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jfrRecordingService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should record packet phase and rejection events and dump them to a .jfr file")
+    void shouldRecordPacketEvents() throws Exception {
+        // Arrange
+        jfrRecordingService.start(30L, null);
+        PhaseTimings timings = new PhaseTimings("packet-jfr", 3, 7);
+        timings.lap(PhaseTimings.Phase.PRIMES);
+        timings.lap(PhaseTimings.Phase.HASH);
+        PacketRejectionEvent.emit(FakePacketRequest.builder().packetId("packet-rejected").build(),
+                "bulkhead_full", System.nanoTime());
+
+        // Act
+        Optional<Path> dumped = jfrRecordingService.stop();
+
+        // Assert
+        assertThat(dumped).isPresent();
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dumped.get());
+            List<RecordedEvent> phases = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("cs4445.PacketPhase"))
+                    .toList();
+            assertThat(phases).extracting(event -> event.getString("phase")).containsExactly("primes", "hash");
+            assertThat(phases).allSatisfy(event -> {
+                assertThat(event.getString("packetId")).isEqualTo("packet-jfr");
+                assertThat(event.getInt("cpuIntensity")).isEqualTo(3);
+                assertThat(event.getInt("ramIntensity")).isEqualTo(7);
+            });
+            assertThat(events).anySatisfy(event -> {
+                assertThat(event.getEventType().getName()).isEqualTo("cs4445.PacketRejection");
+                assertThat(event.getString("packetId")).isEqualTo("packet-rejected");
+                assertThat(event.getString("reason")).isEqualTo("bulkhead_full");
+                // Intensity mặc định khi request không có
+                assertThat(event.getInt("cpuIntensity")).isEqualTo(5);
+            });
+        } finally {
+            Files.deleteIfExists(dumped.get());
+        }
+        assertThat(jfrRecordingService.getStatus().state()).isEqualTo("NONE");
+    }
+
+    @Test
+    @DisplayName("Should clamp duration and size to the configured maximum")
+    void shouldClampRecordingBounds() {
+        // Act
+        JfrRecordingService.RecordingStatus status = jfrRecordingService.start(3600L, 1024L);
+
+        // Assert
+        assertThat(status.state()).isEqualTo("RUNNING");
+        assertThat(status.durationSeconds()).isEqualTo(60);
+        assertThat(status.maxSizeBytes()).isEqualTo(10L * 1024 * 1024);
+    }
+
+    @Test
+    @DisplayName("Should allow only one recording at a time")
+    void shouldRejectSecondStart() {
+        // Arrange
+        jfrRecordingService.start(null, null);
+
+        // Act & Assert
+        assertThatThrownBy(() -> jfrRecordingService.start(null, null))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Should return empty when stopping without a recording")
+    void shouldReturnEmptyWithoutRecording() throws Exception {
+        assertThat(jfrRecordingService.stop()).isEmpty();
+    }
+}
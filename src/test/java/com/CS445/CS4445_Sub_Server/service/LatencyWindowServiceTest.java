@@ -0,0 +1,149 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("LatencyWindowService Unit Tests")
+class LatencyWindowServiceTest {
+
+    private AtomicLong nowMillis;
+    private LatencyWindowService latencyWindow;
+
+    @BeforeEach
+    void setUp() {
+        nowMillis = new AtomicLong(1_000_000L);
+        // Cửa sổ 60s, 6 slot 10s
+        latencyWindow = new LatencyWindowService(60, 6, 0.5, nowMillis::get);
+    }
+
+    @Test
+    @DisplayName("Should report zeros before any packet is recorded")
+    void shouldReportZerosWhenEmpty() {
+        // Act
+        LatencyWindowService.LatencyStats stats = latencyWindow.snapshot();
+
+        // Assert
+        assertThat(stats.count()).isZero();
+        assertThat(stats.meanMs()).isZero();
+        assertThat(stats.p99Ms()).isZero();
+        assertThat(stats.ewmaMs()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should compute mean exactly and percentiles within bucket precision")
+    void shouldComputeMeanAndPercentiles() {
+        // Arrange - 1..100 ms
+        for (int ms = 1; ms <= 100; ms++) {
+            latencyWindow.record(TimeUnit.MILLISECONDS.toNanos(ms));
+        }
+
+        // Act
+        LatencyWindowService.LatencyStats stats = latencyWindow.snapshot();
+
+        // Assert
+        assertThat(stats.count()).isEqualTo(100);
+        assertThat(stats.meanMs()).isEqualTo(50.5);
+        assertThat(stats.p50Ms()).isCloseTo(50.0, within(50.0 * 0.07));
+        assertThat(stats.p95Ms()).isCloseTo(95.0, within(95.0 * 0.07));
+        assertThat(stats.p99Ms()).isCloseTo(99.0, within(99.0 * 0.07));
+    }
+
+    @Test
+    @DisplayName("Should drop samples that slid out of the window")
+    void shouldExpireOldSlots() {
+        // Arrange
+        latencyWindow.record(TimeUnit.MILLISECONDS.toNanos(1000));
+        nowMillis.addAndGet(30_000);
+        latencyWindow.record(TimeUnit.MILLISECONDS.toNanos(10));
+
+        // Act - sau 30s nữa mẫu 1000ms đã ra khỏi cửa sổ 60s
+        LatencyWindowService.LatencyStats within60s = latencyWindow.snapshot();
+        nowMillis.addAndGet(35_000);
+        LatencyWindowService.LatencyStats after = latencyWindow.snapshot();
+
+        // Assert
+        assertThat(within60s.count()).isEqualTo(2);
+        assertThat(after.count()).isEqualTo(1);
+        assertThat(after.meanMs()).isEqualTo(10.0);
+    }
+
+    @Test
+    @DisplayName("Should reuse a rotated slot without leaking its previous samples")
+    void shouldResetRotatedSlot() {
+        // Arrange
+        latencyWindow.record(TimeUnit.MILLISECONDS.toNanos(500));
+
+        // Act - đúng một vòng cửa sổ sau, cùng slot
+        nowMillis.addAndGet(60_000);
+        latencyWindow.record(TimeUnit.MILLISECONDS.toNanos(20));
+        LatencyWindowService.LatencyStats stats = latencyWindow.snapshot();
+
+        // Assert
+        assertThat(stats.count()).isEqualTo(1);
+        assertThat(stats.meanMs()).isEqualTo(20.0);
+    }
+
+    @Test
+    @DisplayName("Should track an EWMA across packets")
+    void shouldTrackEwma() {
+        // Act - alpha 0.5: 100 -> 150
+        latencyWindow.record(TimeUnit.MILLISECONDS.toNanos(100));
+        latencyWindow.record(TimeUnit.MILLISECONDS.toNanos(200));
+
+        // Assert
+        assertThat(latencyWindow.snapshot().ewmaMs()).isEqualTo(150.0);
+    }
+
+    @Test
+    @DisplayName("Should not lose samples recorded concurrently")
+    void shouldCountConcurrentRecords() throws Exception {
+        // Arrange
+        int threads = 8;
+        int recordsPerThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < recordsPerThread; i++) {
+                    latencyWindow.record(TimeUnit.MILLISECONDS.toNanos(5));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        LatencyWindowService.LatencyStats stats = latencyWindow.snapshot();
+        assertThat(stats.count()).isEqualTo((long) threads * recordsPerThread);
+        assertThat(stats.meanMs()).isEqualTo(5.0);
+        assertThat(stats.ewmaMs()).isEqualTo(5.0);
+    }
+
+    @Test
+    @DisplayName("Should map every value into a bucket whose bounds contain it")
+    void shouldBucketValuesConsistently() {
+        for (long micros : new long[]{0, 1, 7, 8, 9, 15, 16, 1000, 123_456, 60_000_000L}) {
+            int index = LatencyWindowService.bucketIndex(micros);
+            assertThat(LatencyWindowService.bucketLowerBound(index)).isLessThanOrEqualTo(micros);
+            assertThat(LatencyWindowService.bucketLowerBound(index + 1)).isGreaterThan(micros);
+        }
+        assertThat(LatencyWindowService.bucketIndex(Long.MAX_VALUE))
+                .isEqualTo(LatencyWindowService.BUCKET_COUNT - 1);
+    }
+}
@@ -0,0 +1,88 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí metrics của một packet: các lời gọi MetricsService có tag mà PacketExecutionService gọi mỗi request
+ * - builderPerCall: cách cũ, Counter/Timer/DistributionSummary.builder(...).register(...) mỗi lần gọi
+ * - cachedMeters: MetricsService hiện tại (meter đăng ký sẵn, counter LongAdder)
+ * Không phải unit test (surefire chỉ chạy *Test / *Tests), chạy tay sau mvn test-compile:
+ *
+ *   java -cp target/test-classes:target/classes:<dependency classpath> \
+ *       com.CS445.CS4445_Sub_Server.service.MetricsServiceBenchmark
+ *
+ * Thêm -prof gc (qua org.openjdk.jmh.Main) để so sánh gc.alloc.rate.norm (byte/op) giữa hai cách
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MetricsServiceBenchmark {
+
+    private MeterRegistry legacyRegistry;
+    private MetricsService metricsService;
+
+    @Setup
+    public void setUp() {
+        legacyRegistry = new SimpleMeterRegistry();
+        metricsService = new MetricsService(new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public void builderPerCall() {
+        Counter.builder("app.errors.total")
+                .description("Total number of errors occurred")
+                .tag("type", "bulkhead_full")
+                .register(legacyRegistry)
+                .increment();
+        Timer.builder("app.processing.time")
+                .description("Job processing time in milliseconds")
+                .tag("type", "fake_packet")
+                .publishPercentileHistogram()
+                .register(legacyRegistry)
+                .record(25, TimeUnit.MILLISECONDS);
+        DistributionSummary.builder("app.response.size")
+                .description("Response size in bytes")
+                .tag("type", "json")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(legacyRegistry)
+                .record(180);
+    }
+
+    @Benchmark
+    public void cachedMeters() {
+        metricsService.incrementTotalErrors("bulkhead_full");
+        metricsService.recordProcessingTime(25, "fake_packet");
+        metricsService.recordResponseSize(180, "json");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(MetricsServiceBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
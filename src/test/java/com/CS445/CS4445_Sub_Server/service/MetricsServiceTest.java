@@ -0,0 +1,148 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("MetricsService Unit Tests")
+class MetricsServiceTest {
+
+    private MeterRegistry meterRegistry;
+    private MetricsService metricsService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metricsService = new MetricsService(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should pre-register tagged meters for the known types at startup")
+    void shouldPreRegisterKnownTypes() {
+        // Assert
+        for (String errorType : MetricsService.KNOWN_ERROR_TYPES) {
+            assertThat(meterRegistry.get("app.errors.total").tag("type", errorType).functionCounter().count())
+                    .isZero();
+        }
+        assertThat(meterRegistry.find("app.processing.time").tag("type", "fake_packet").timer()).isNotNull();
+        assertThat(meterRegistry.find("app.response.size").tag("type", "json").summary()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should reuse the cached meter instead of registering one per call")
+    void shouldReuseCachedMeters() {
+        // Arrange
+        int metersBefore = meterRegistry.getMeters().size();
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            metricsService.incrementTotalErrors("bulkhead_full");
+            metricsService.recordProcessingTime(10, "fake_packet");
+            metricsService.recordResponseSize(200, "json");
+        }
+
+        // Assert
+        assertThat(meterRegistry.getMeters()).hasSize(metersBefore);
+        assertThat(metricsService.errorCounter("bulkhead_full")).isSameAs(metricsService.errorCounter("bulkhead_full"));
+        assertThat(meterRegistry.get("app.errors.total").tag("type", "bulkhead_full").functionCounter().count())
+                .isEqualTo(100.0);
+        assertThat(meterRegistry.get("app.processing.time").tag("type", "fake_packet").timer().count())
+                .isEqualTo(100);
+        assertThat(meterRegistry.get("app.response.size").tag("type", "json").summary().totalAmount())
+                .isEqualTo(20_000.0);
+    }
+
+    @Test
+    @DisplayName("Should register an unknown type once on first use")
+    void shouldRegisterUnknownTypeOnce() {
+        // Act
+        metricsService.incrementTotalErrors("custom");
+        metricsService.incrementTotalErrors("custom");
+
+        // Assert
+        assertThat(meterRegistry.find("app.errors.total").tag("type", "custom").functionCounters()).hasSize(1);
+        assertThat(meterRegistry.get("app.errors.total").tag("type", "custom").functionCounter().count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Should not lose increments under concurrent callers")
+    void shouldCountConcurrentIncrements() throws Exception {
+        // Arrange
+        int threads = 8;
+        int incrementsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    metricsService.incrementTotalRequests();
+                    metricsService.incrementTotalErrors("rate_limited");
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        double expected = threads * incrementsPerThread;
+        assertThat(meterRegistry.get("app.requests.total").functionCounter().count()).isEqualTo(expected);
+        assertThat(meterRegistry.get("app.errors.total").tag("type", "rate_limited").functionCounter().count())
+                .isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("Should record only the phases that ran")
+    void shouldRecordPhaseTimingsThatRan() {
+        // Arrange
+        PhaseTimings timings = new PhaseTimings("packet-1", 5, 5);
+        timings.lap(PhaseTimings.Phase.PRIMES);
+        timings.lap(PhaseTimings.Phase.DELAY);
+
+        // Act
+        metricsService.recordPhaseTimings(timings);
+
+        // Assert
+        assertThat(meterRegistry.get("app.processing.phase").tag("phase", "primes").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("app.processing.phase").tag("phase", "delay").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("app.processing.phase").tag("phase", "payload").timer().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should keep reading registered function counters and gauges after a GC")
+    void shouldKeepReadingRegisteredMetersAfterGc() throws InterruptedException {
+        // Arrange
+        AtomicLong counted = new AtomicLong(5);
+        AtomicLong gauged = new AtomicLong(3);
+        metricsService.registerFunctionCounter("app.test.counted", "Test counter", counted, AtomicLong::get,
+                "type", "test");
+        metricsService.registerGauge("app.test.gauged", "Test gauge", gauged::get, "type", "test");
+
+        // Act - Micrometer chỉ giữ WeakReference tới state của counter
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        counted.set(10);
+        gauged.set(7);
+
+        // Assert
+        assertThat(meterRegistry.get("app.test.counted").functionCounter().count()).isEqualTo(10.0);
+        assertThat(meterRegistry.get("app.test.gauged").gauge().value()).isEqualTo(7.0);
+    }
+}
@@ -0,0 +1,208 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@DisplayName("PacketResultCache Unit Tests")
+class PacketResultCacheTest {
+
+    private MetricsService metricsService;
+    private PacketResultCache cache;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        metricsService = mock(MetricsService.class);
+        cache = new PacketResultCache(metricsService, 3, 60_000, 5_000);
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should return cached response on second lookup")
+    void shouldReturnCachedResponse() {
+        // Act
+        FakePacketResponse first = cache.getOrCompute("p-1", () -> success("p-1"));
+        FakePacketResponse second = cache.getOrCompute("p-1", () -> success("p-1"));
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(executions.get()).isEqualTo(1);
+        verify(metricsService).incrementCacheMisses();
+        verify(metricsService).incrementCacheHits();
+    }
+
+    @Test
+    @DisplayName("Should not cache when key is null or blank")
+    void shouldNotCacheWithoutKey() {
+        // Act
+        cache.getOrCompute(null, () -> success("a"));
+        cache.getOrCompute("  ", () -> success("b"));
+        cache.getOrCompute(null, () -> success("c"));
+
+        // Assert
+        assertThat(executions.get()).isEqualTo(3);
+        assertThat(cache.size()).isZero();
+        verifyNoInteractions(metricsService);
+    }
+
+    @Test
+    @DisplayName("Should not cache failed responses")
+    void shouldNotCacheFailedResponses() {
+        // Act
+        cache.getOrCompute("p-1", () -> response("p-1", "FAILED"));
+        cache.getOrCompute("p-1", () -> response("p-1", "FAILED"));
+
+        // Assert
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used entry when full")
+    void shouldEvictLeastRecentlyUsedEntry() {
+        // Arrange
+        cache.getOrCompute("a", () -> success("a"));
+        cache.getOrCompute("b", () -> success("b"));
+        cache.getOrCompute("c", () -> success("c"));
+        cache.getOrCompute("a", () -> success("a")); // touch "a", "b" is now eldest
+
+        // Act
+        cache.getOrCompute("d", () -> success("d"));
+        cache.getOrCompute("b", () -> success("b"));
+
+        // Assert - a, b, c, d computed once, b recomputed after eviction
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(executions.get()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Should expire entries after TTL")
+    void shouldExpireEntriesAfterTtl() throws InterruptedException {
+        // Arrange
+        PacketResultCache shortLived = new PacketResultCache(metricsService, 10, 20, 5_000);
+        shortLived.getOrCompute("p-1", () -> success("p-1"));
+
+        // Act
+        Thread.sleep(50);
+        shortLived.getOrCompute("p-1", () -> success("p-1"));
+
+        // Assert
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should coalesce concurrent duplicates into a single execution")
+    void shouldCoalesceConcurrentDuplicates() throws Exception {
+        // Arrange
+        int callers = 8;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<FakePacketResponse>> results = new ArrayList<>();
+
+        // Act
+        results.add(pool.submit(() -> cache.getOrCompute("dup", () -> {
+            started.countDown();
+            await(release);
+            return success("dup");
+        })));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < callers; i++) {
+            results.add(pool.submit(() -> cache.getOrCompute("dup", () -> success("dup"))));
+        }
+        Thread.sleep(100); // let duplicates reach the in-flight future
+        release.countDown();
+
+        // Assert
+        FakePacketResponse first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<FakePacketResponse> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        verify(metricsService, times(1)).incrementCacheMisses();
+        verify(metricsService, times(callers - 1)).incrementCacheCoalesced();
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should propagate the loader failure to coalesced callers")
+    void shouldPropagateFailure() {
+        // Act & Assert
+        assertThatThrownBy(() -> cache.getOrCompute("boom", () -> {
+            throw new IllegalStateException("workload failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getOrCompute("boom", () -> success("boom")).getStatus()).isEqualTo("SUCCESS");
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused with a different request fingerprint")
+    void shouldRejectFingerprintMismatch() {
+        // Arrange
+        cache.getOrCompute("key-1", 11L, () -> success("p-1"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> cache.getOrCompute("key-1", 22L, () -> success("p-1")))
+                .isInstanceOf(PacketResultCache.IdempotencyKeyMismatchException.class);
+        assertThat(cache.getOrCompute("key-1", 11L, () -> success("p-1")).getStatus()).isEqualTo("SUCCESS");
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should stop waiting for a slow in-flight duplicate after max-wait")
+    void shouldBoundCoalescedWait() throws Exception {
+        // Arrange
+        PacketResultCache shortWait = new PacketResultCache(metricsService, 10, 60_000, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<FakePacketResponse> original = pool.submit(() -> shortWait.getOrCompute("slow", () -> {
+            started.countDown();
+            await(release);
+            return success("slow");
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act & Assert
+        assertThatThrownBy(() -> shortWait.getOrCompute("slow", () -> success("slow")))
+                .isInstanceOf(PacketResultCache.DuplicateInFlightException.class);
+
+        release.countDown();
+        assertThat(original.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo("SUCCESS");
+        assertThat(executions.get()).isEqualTo(1);
+        pool.shutdown();
+    }
+
+    private FakePacketResponse success(String packetId) {
+        return response(packetId, "SUCCESS");
+    }
+
+    private FakePacketResponse response(String packetId, String status) {
+        executions.incrementAndGet();
+        return FakePacketResponse.builder().packetId(packetId).status(status).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
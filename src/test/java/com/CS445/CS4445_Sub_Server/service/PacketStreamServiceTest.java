@@ -0,0 +1,224 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("PacketStreamService Unit Tests")
+class PacketStreamServiceTest {
+
+    private static final int MAX_STREAMS = 2;
+    private static final int MAX_IN_FLIGHT = 2;
+
+    private PacketExecutionService packetExecutionService;
+    private MetricsService metricsService;
+    private PacketStreamService packetStreamService;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        packetExecutionService = mock(PacketExecutionService.class);
+        metricsService = mock(MetricsService.class);
+        // 1 packet/s, burst 1: chỉ packet đầu của mỗi client qua được
+        RateLimiterService rateLimiterService = new RateLimiterService(metricsService, 1.0, 1, 60_000, 1000);
+        packetStreamService = new PacketStreamService(packetExecutionService, objectMapper, metricsService,
+                rateLimiterService, MAX_STREAMS, MAX_IN_FLIGHT, -1, true);
+
+        when(packetExecutionService.execute(any(FakePacketRequest.class), any(PacketContext.class))).thenAnswer(invocation -> {
+            FakePacketRequest request = invocation.getArgument(0);
+            return new PacketExecutionService.PacketOutcome(HttpStatus.OK, FakePacketResponse.builder()
+                    .packetId(request.getPacketId())
+                    .status("SUCCESS")
+                    .build());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        packetStreamService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should write one NDJSON response line per request line")
+    void shouldWriteOneResponseLinePerRequest() throws Exception {
+        // Arrange
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            ndjson.append("{\"packetId\":\"p-").append(i).append("\",\"cpuIntensity\":1}\n");
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long received = packetStreamService.stream(toStream(ndjson.toString()), output);
+
+        // Assert
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(received).isEqualTo(20);
+        assertThat(lines).hasSize(20);
+        for (String line : lines) {
+            FakePacketResponse response = objectMapper.readValue(line, FakePacketResponse.class);
+            assertThat(response.getStatus()).isEqualTo("SUCCESS");
+            assertThat(response.getPacketId()).startsWith("p-");
+        }
+        verify(packetExecutionService, times(20)).execute(any(FakePacketRequest.class), any(PacketContext.class));
+        verify(metricsService, times(20)).recordResponseSize(anyLong(), eq("json"));
+    }
+
+    @Test
+    @DisplayName("Should never exceed the configured number of in-flight packets")
+    void shouldBoundInFlightPackets() throws Exception {
+        // Arrange
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxObserved = new AtomicInteger();
+        when(packetExecutionService.execute(any(FakePacketRequest.class), any(PacketContext.class))).thenAnswer(invocation -> {
+            int now = active.incrementAndGet();
+            maxObserved.accumulateAndGet(now, Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+            return new PacketExecutionService.PacketOutcome(HttpStatus.OK,
+                    FakePacketResponse.builder().status("SUCCESS").build());
+        });
+        String ndjson = "{\"packetId\":\"a\"}\n".repeat(10);
+
+        // Act
+        packetStreamService.stream(toStream(ndjson), new ByteArrayOutputStream());
+
+        // Assert
+        assertThat(maxObserved.get()).isLessThanOrEqualTo(MAX_IN_FLIGHT);
+    }
+
+    @Test
+    @DisplayName("Should charge the rate limit per packet and reject the excess with a REJECTED line")
+    void shouldRateLimitPerPacket() throws Exception {
+        // Arrange
+        String ndjson = "{\"packetId\":\"a\"}\n".repeat(3);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PacketContext context = PacketContext.builder().clientId("client-a").build();
+
+        // Act
+        long received = packetStreamService.stream(toStream(ndjson), output, context);
+
+        // Assert
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(received).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        assertThat(lines).filteredOn(line -> line.contains("\"REJECTED\"")).hasSize(2);
+        verify(packetExecutionService, times(1)).execute(any(FakePacketRequest.class), any(PacketContext.class));
+        verify(metricsService, times(2)).incrementTotalErrors("rate_limited");
+    }
+
+    @Test
+    @DisplayName("Should not rate limit a stream without a client id")
+    void shouldNotRateLimitAnonymousStream() throws Exception {
+        // Arrange
+        String ndjson = "{\"packetId\":\"a\"}\n".repeat(3);
+
+        // Act
+        packetStreamService.stream(toStream(ndjson), new ByteArrayOutputStream());
+
+        // Assert
+        verify(packetExecutionService, times(3)).execute(any(FakePacketRequest.class), any(PacketContext.class));
+        verify(metricsService, never()).incrementTotalErrors("rate_limited");
+    }
+
+    @Test
+    @DisplayName("Should emit a FAILED line and stop on malformed NDJSON")
+    void shouldEmitFailedLineOnMalformedJson() throws Exception {
+        // Arrange
+        String ndjson = "{\"packetId\":\"ok-1\"}\n{\"packetId\": \n{\"packetId\":\"never\"}\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long received = packetStreamService.stream(toStream(ndjson), output);
+
+        // Assert
+        String body = output.toString(StandardCharsets.UTF_8);
+        assertThat(received).isEqualTo(1);
+        assertThat(body).contains("\"packetId\":\"ok-1\"");
+        assertThat(body).contains("Malformed NDJSON");
+        assertThat(body).doesNotContain("never");
+    }
+
+    @Test
+    @DisplayName("Should handle an empty stream")
+    void shouldHandleEmptyStream() throws Exception {
+        // Act
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long received = packetStreamService.stream(toStream(""), output);
+
+        // Assert
+        assertThat(received).isZero();
+        assertThat(output.size()).isZero();
+        verifyNoInteractions(packetExecutionService);
+    }
+
+    @Test
+    @DisplayName("Should cap the number of open streams")
+    void shouldCapOpenStreams() {
+        // Act & Assert
+        assertThat(packetStreamService.tryOpenStream()).isTrue();
+        assertThat(packetStreamService.tryOpenStream()).isTrue();
+        assertThat(packetStreamService.tryOpenStream()).isFalse();
+
+        packetStreamService.closeStream();
+        assertThat(packetStreamService.tryOpenStream()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep serving a stream while another stream has all its packets in flight")
+    void shouldNotStarveOtherStreams() throws Exception {
+        // Arrange - packet "slow" giữ worker cho đến khi latch mở
+        CountDownLatch release = new CountDownLatch(1);
+        when(packetExecutionService.execute(any(FakePacketRequest.class), any(PacketContext.class))).thenAnswer(invocation -> {
+            FakePacketRequest request = invocation.getArgument(0);
+            if ("slow".equals(request.getPacketId())) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return new PacketExecutionService.PacketOutcome(HttpStatus.OK, FakePacketResponse.builder()
+                    .packetId(request.getPacketId())
+                    .status("SUCCESS")
+                    .build());
+        });
+        ExecutorService streams = Executors.newSingleThreadExecutor();
+        Future<Long> saturated = streams.submit(() ->
+                packetStreamService.stream(toStream("{\"packetId\":\"slow\"}\n".repeat(4)), new ByteArrayOutputStream()));
+
+        // Act
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long received = packetStreamService.stream(toStream("{\"packetId\":\"fast\"}\n".repeat(5)), output);
+
+        // Assert
+        assertThat(received).isEqualTo(5);
+        assertThat(output.toString(StandardCharsets.UTF_8).split("\n")).hasSize(5);
+        assertThat(saturated).isNotDone();
+
+        release.countDown();
+        assertThat(saturated.get(5, TimeUnit.SECONDS)).isEqualTo(4);
+        streams.shutdown();
+    }
+
+    private ByteArrayInputStream toStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,114 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("PayloadUploadService Unit Tests")
+class PayloadUploadServiceTest {
+
+    private static final int CHUNK_BYTES = 1024;
+    private static final long MAX_BYTES = 10_000;
+
+    private PayloadUploadService payloadUploadService;
+
+    @BeforeEach
+    void setUp() {
+        payloadUploadService = new PayloadUploadService(mock(MetricsService.class), MAX_BYTES, CHUNK_BYTES, 16);
+    }
+
+    @Test
+    @DisplayName("Should read the body into pooled direct buffers chunk by chunk")
+    void shouldReadIntoDirectBuffers() throws Exception {
+        // Arrange
+        byte[] body = bytes(5000);
+
+        // Act
+        try (PacketPayload payload = payloadUploadService.read(new ByteArrayInputStream(body), body.length)) {
+            // Assert
+            assertThat(payload.size()).isEqualTo(5000);
+            assertThat(payload.chunkCount()).isEqualTo(5);
+
+            List<ByteBuffer> chunks = new ArrayList<>();
+            payload.forEachChunk(chunks::add);
+            assertThat(chunks).allMatch(ByteBuffer::isDirect);
+
+            ByteBuffer joined = ByteBuffer.allocate(body.length);
+            chunks.forEach(joined::put);
+            assertThat(joined.array()).isEqualTo(body);
+        }
+        assertThat(payloadUploadService.getBufferPool().getPooledCount()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Should reject an oversized Content-Length without reading the body")
+    void shouldRejectOversizedContentLengthBeforeReading() {
+        // Arrange
+        InputStream untouched = mock(InputStream.class);
+
+        // Act & Assert
+        assertThatThrownBy(() -> payloadUploadService.read(untouched, MAX_BYTES + 1))
+                .isInstanceOf(PayloadUploadService.PayloadTooLargeException.class);
+        assertThat(payloadUploadService.getBufferPool().getAllocatedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should stop reading a chunked body once it exceeds the limit and release its buffers")
+    void shouldRejectOversizedChunkedBody() {
+        // Act & Assert - Content-Length không biết trước (-1)
+        assertThatThrownBy(() -> payloadUploadService.read(new ByteArrayInputStream(bytes(50_000)), -1))
+                .isInstanceOf(PayloadUploadService.PayloadTooLargeException.class)
+                .hasMessageContaining("10000");
+
+        int allocated = payloadUploadService.getBufferPool().getAllocatedCount();
+        assertThat(allocated).isLessThanOrEqualTo((int) (MAX_BYTES / CHUNK_BYTES) + 2);
+        assertThat(payloadUploadService.getBufferPool().getPooledCount()).isEqualTo(allocated);
+    }
+
+    @Test
+    @DisplayName("Should run the payload kernel on the direct buffers and report size and CRC32C")
+    void shouldChecksumPayloadInPlace() throws Exception {
+        // Arrange
+        byte[] body = bytes(3000);
+        CRC32C expected = new CRC32C();
+        expected.update(body);
+        FakePacketRequest request = FakePacketRequest.builder()
+                .packetId("upload-1")
+                .cpuIntensity(1)
+                .ramIntensity(1)
+                .processingTimeMs(0)
+                .build();
+
+        // Act
+        FakePacketResponse response;
+        try (PacketPayload payload = payloadUploadService.read(new ByteArrayInputStream(body), body.length)) {
+            response = new FakePacketService(mock(MetricsService.class), false).processFakePacket(request, payload);
+        }
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo("SUCCESS");
+        assertThat(response.getPayloadBytes()).isEqualTo(3000L);
+        assertThat(response.getPayloadChecksum()).isEqualTo(expected.getValue());
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,254 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
+import com.CS445.CS4445_Sub_Server.dto.ServerHealthResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("PeerOffloadService Unit Tests")
+class PeerOffloadServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<StubPeer> stubPeers = new ArrayList<>();
+
+    private MetricsService metricsService;
+    private PeerOffloadService peerOffloadService;
+
+    private final FakePacketRequest request = FakePacketRequest.builder()
+            .packetId("overflow-1")
+            .cpuIntensity(3)
+            .ramIntensity(2)
+            .processingTimeMs(0)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        metricsService = mock(MetricsService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (peerOffloadService != null) {
+            peerOffloadService.shutdown();
+        }
+        stubPeers.forEach(peer -> peer.server.stop(0));
+    }
+
+    @Test
+    @DisplayName("Should forward to the least-loaded open peer and tag the response")
+    void shouldForwardToLeastLoadedPeer() throws Exception {
+        // Arrange
+        StubPeer busy = startPeer(true, 20, 200);
+        StubPeer idle = startPeer(true, 2, 200);
+        StubPeer closed = startPeer(false, 0, 200);
+        peerOffloadService = newService(1, busy, idle, closed);
+        peerOffloadService.pollPeerHealth().get(5, TimeUnit.SECONDS);
+
+        PacketContext context = PacketContext.builder().tenantId("tenantA").build();
+
+        // Act
+        Optional<FakePacketResponse> response = peerOffloadService.offload(request, context);
+
+        // Assert
+        assertThat(response).isPresent();
+        assertThat(response.get().getPacketId()).isEqualTo("overflow-1");
+        assertThat(response.get().getOffloadedTo()).isEqualTo(idle.url());
+
+        ForwardedPacket forwarded = idle.received.poll(5, TimeUnit.SECONDS);
+        assertThat(forwarded.hops()).isEqualTo("1");
+        assertThat(forwarded.origin()).isEqualTo("node-1");
+        assertThat(forwarded.tenant()).isEqualTo("tenantA");
+        assertThat(busy.received).isEmpty();
+        assertThat(closed.received).isEmpty();
+
+        assertThat(peerOffloadService.getOffloadedCount()).isEqualTo(1);
+        verify(metricsService).recordOffloadLatency(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should not forward a packet that already used all hops")
+    void shouldRespectHopLimit() throws Exception {
+        // Arrange
+        StubPeer peer = startPeer(true, 0, 200);
+        peerOffloadService = newService(1, peer);
+        peerOffloadService.pollPeerHealth().get(5, TimeUnit.SECONDS);
+
+        PacketContext forwardedOnce = PacketContext.builder().hops(1).build();
+
+        // Act
+        Optional<FakePacketResponse> response = peerOffloadService.offload(request, forwardedOnce);
+
+        // Assert
+        assertThat(peerOffloadService.canOffload(forwardedOnce)).isFalse();
+        assertThat(response).isEmpty();
+        assertThat(peer.received).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should report no peer when no health has been polled")
+    void shouldSkipPeersWithoutHealth() {
+        // Arrange
+        StubPeer peer = startPeer(true, 0, 200);
+        peerOffloadService = newService(1, peer);
+
+        // Act
+        Optional<FakePacketResponse> response = peerOffloadService.offload(request, PacketContext.empty());
+
+        // Assert
+        assertThat(response).isEmpty();
+        assertThat(peerOffloadService.getNoPeerCount()).isEqualTo(1);
+        assertThat(peerOffloadService.getPeerStatuses().get(0).healthAgeMs()).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Should fall back and stop choosing a peer that rejects the packet")
+    void shouldMarkRejectingPeerUnavailable() throws Exception {
+        // Arrange
+        StubPeer saturated = startPeer(true, 0, 503);
+        peerOffloadService = newService(1, saturated);
+        peerOffloadService.pollPeerHealth().get(5, TimeUnit.SECONDS);
+
+        // Act
+        Optional<FakePacketResponse> first = peerOffloadService.offload(request, PacketContext.empty());
+        Optional<FakePacketResponse> second = peerOffloadService.offload(request, PacketContext.empty());
+
+        // Assert
+        assertThat(first).isEmpty();
+        assertThat(second).isEmpty();
+        assertThat(peerOffloadService.getFailedCount()).isEqualTo(1);
+        assertThat(peerOffloadService.getNoPeerCount()).isEqualTo(1);
+        assertThat(peerOffloadService.getPeerStatuses().get(0).available()).isFalse();
+        verify(metricsService, never()).recordOffloadLatency(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should reject locally instead of waiting once max-concurrent packets are being forwarded")
+    void shouldCapConcurrentOffloads() throws Exception {
+        // Arrange - peer giữ packet đầu tiên cho đến khi test cho phép trả lời
+        StubPeer slow = startPeer(true, 0, 200);
+        CountDownLatch forwarding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        slow.server.removeContext("/api/v1/fakePacket");
+        slow.server.createContext("/api/v1/fakePacket", exchange -> {
+            forwarding.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, objectMapper.writeValueAsBytes(FakePacketResponse.builder()
+                    .packetId("overflow-1").status("SUCCESS").processingTimeMs(1L).build()));
+        });
+        peerOffloadService = new PeerOffloadService(objectMapper, metricsService, true, slow.url(),
+                "node-1", 1, 5000, 1000, 5000, 1);
+        peerOffloadService.pollPeerHealth().get(5, TimeUnit.SECONDS);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        Future<Optional<FakePacketResponse>> first = caller.submit(
+                () -> peerOffloadService.offload(request, PacketContext.empty()));
+        assertThat(forwarding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act
+        long start = System.nanoTime();
+        Optional<FakePacketResponse> second = peerOffloadService.offload(request, PacketContext.empty());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        // Assert
+        assertThat(second).isEmpty();
+        assertThat(elapsedMs).isLessThan(1000);
+        assertThat(peerOffloadService.getSaturatedCount()).isEqualTo(1);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isPresent();
+        caller.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should stay inactive when disabled")
+    void shouldNotOffloadWhenDisabled() {
+        // Arrange
+        StubPeer peer = startPeer(true, 0, 200);
+        peerOffloadService = new PeerOffloadService(objectMapper, metricsService, false, peer.url(),
+                "node-1", 1, 5000, 1000, 5000, 8);
+
+        // Act & Assert
+        assertThat(peerOffloadService.canOffload(PacketContext.empty())).isFalse();
+        assertThat(peerOffloadService.offload(request, PacketContext.empty())).isEmpty();
+        assertThat(peer.received).isEmpty();
+    }
+
+    private PeerOffloadService newService(int maxHops, StubPeer... peers) {
+        String urls = String.join(",", Arrays.stream(peers).map(StubPeer::url).toList());
+        return new PeerOffloadService(objectMapper, metricsService, true, urls,
+                "node-1", maxHops, 5000, 1000, 5000, 8);
+    }
+
+    private StubPeer startPeer(boolean open, int connections, int packetStatus) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            StubPeer peer = new StubPeer(server, new LinkedBlockingQueue<>());
+            byte[] health = objectMapper.writeValueAsBytes(ServerHealthResponse.builder()
+                    .isOpen(open).currConnections(connections).build());
+            server.createContext("/server/health", exchange -> respond(exchange, 200, health));
+            server.createContext("/api/v1/fakePacket", exchange -> {
+                FakePacketRequest received = objectMapper.readValue(exchange.getRequestBody(), FakePacketRequest.class);
+                peer.received.add(new ForwardedPacket(
+                        exchange.getRequestHeaders().getFirst(PeerOffloadService.HOPS_HEADER),
+                        exchange.getRequestHeaders().getFirst(PeerOffloadService.ORIGIN_HEADER),
+                        exchange.getRequestHeaders().getFirst("X-Tenant-Id")));
+                FakePacketResponse response = FakePacketResponse.builder()
+                        .packetId(received.getPacketId())
+                        .status(packetStatus == 200 ? "SUCCESS" : "REJECTED")
+                        .processingTimeMs(1L)
+                        .build();
+                respond(exchange, packetStatus, objectMapper.writeValueAsBytes(response));
+            });
+            server.start();
+            stubPeers.add(peer);
+            return peer;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private record StubPeer(HttpServer server, BlockingQueue<ForwardedPacket> received) {
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort();
+        }
+    }
+
+    private record ForwardedPacket(String hops, String origin, String tenant) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("RateLimiterService Unit Tests")
+class RateLimiterServiceTest {
+
+    private MetricsService metricsService;
+    private RateLimiterService rateLimiterService;
+
+    @BeforeEach
+    void setUp() {
+        metricsService = mock(MetricsService.class);
+        // 1 request/second, burst of 5
+        rateLimiterService = new RateLimiterService(metricsService, 1.0, 5, 60_000, 1000);
+    }
+
+    @Test
+    @DisplayName("Should allow a full burst then reject")
+    void shouldAllowBurstThenReject() {
+        // Act & Assert
+        for (int i = 0; i < 5; i++) {
+            assertThat(rateLimiterService.tryAcquire("client-a")).isTrue();
+        }
+        assertThat(rateLimiterService.tryAcquire("client-a")).isFalse();
+        assertThat(rateLimiterService.millisUntilNextToken("client-a")).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should keep separate buckets per client")
+    void shouldKeepSeparateBucketsPerClient() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            rateLimiterService.tryAcquire("client-a");
+        }
+
+        // Act & Assert
+        assertThat(rateLimiterService.tryAcquire("client-a")).isFalse();
+        assertThat(rateLimiterService.tryAcquire("client-b")).isTrue();
+        assertThat(rateLimiterService.getTrackedClients()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should refill tokens over time")
+    void shouldRefillTokensOverTime() throws InterruptedException {
+        // Arrange
+        RateLimiterService fast = new RateLimiterService(metricsService, 100.0, 1, 60_000, 1000);
+        assertThat(fast.tryAcquire("client-a")).isTrue();
+        assertThat(fast.tryAcquire("client-a")).isFalse();
+
+        // Act
+        Thread.sleep(30);
+
+        // Assert
+        assertThat(fast.tryAcquire("client-a")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should evict idle buckets")
+    void shouldEvictIdleBuckets() throws InterruptedException {
+        // Arrange
+        RateLimiterService shortIdle = new RateLimiterService(metricsService, 1000.0, 10, 10, 1000);
+        shortIdle.tryAcquire("client-a");
+        shortIdle.tryAcquire("client-b");
+
+        // Act
+        Thread.sleep(50);
+        shortIdle.evictIdleBuckets();
+
+        // Assert
+        assertThat(shortIdle.getTrackedClients()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should share an overflow bucket for new clients once max-clients is reached")
+    void shouldShareOverflowBucketAtCapacity() {
+        // Arrange - tối đa 2 bucket, burst 5
+        RateLimiterService capped = new RateLimiterService(metricsService, 1.0, 5, 60_000, 2);
+        capped.tryAcquire("client-a");
+        capped.tryAcquire("client-b");
+
+        // Act - client mới dùng chung bucket overflow
+        int granted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (capped.tryAcquire("client-new-" + i)) {
+                granted++;
+            }
+        }
+
+        // Assert
+        assertThat(capped.getTrackedClients()).isEqualTo(2);
+        assertThat(granted).isEqualTo(5);
+        assertThat(capped.tryAcquire("client-a")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should not consume tokens on a bucket retired by the sweep")
+    void shouldRefetchRetiredBucket() throws InterruptedException {
+        // Arrange - burst 1, bucket idle sau 10ms
+        RateLimiterService shortIdle = new RateLimiterService(metricsService, 1.0, 1, 10, 1000);
+        assertThat(shortIdle.tryAcquire("client-a")).isTrue();
+        assertThat(shortIdle.tryAcquire("client-a")).isFalse();
+
+        // Act - sweep gỡ bucket, request tiếp theo tạo bucket mới đầy
+        Thread.sleep(1_050);
+        shortIdle.evictIdleBuckets();
+
+        // Assert
+        assertThat(shortIdle.getTrackedClients()).isZero();
+        assertThat(shortIdle.tryAcquire("client-a")).isTrue();
+        assertThat(shortIdle.tryAcquire("client-a")).isFalse();
+        assertThat(shortIdle.getTrackedClients()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should never grant more than the burst under contention")
+    void shouldNotOverGrantUnderContention() throws InterruptedException {
+        // Arrange
+        int threads = 8;
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 50; j++) {
+                    if (rateLimiterService.tryAcquire("shared")) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            workers[i].start();
+        }
+
+        // Act
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Assert - burst of 5, plus at most one refill during the test
+        assertThat(granted.get()).isBetween(5, 6);
+    }
+}
@@ -0,0 +1,110 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ResourceSamplerService Unit Tests")
+class ResourceSamplerServiceTest {
+
+    @TempDir
+    Path cgroupRoot;
+
+    @Test
+    @DisplayName("Should smooth CPU load with an EWMA across samples")
+    void shouldSmoothCpuLoad() {
+        // Arrange - mẫu đầu (trong constructor) 20%, sau đó 80%
+        AtomicReference<Double> cpuLoad = new AtomicReference<>(0.2);
+        ResourceSamplerService sampler = new ResourceSamplerService(0.5, cgroupRoot, cpuLoad::get);
+
+        // Act
+        cpuLoad.set(0.8);
+        sampler.sample();
+
+        // Assert - 20 + 0.5 * (80 - 20)
+        assertThat(sampler.getSnapshot().cpuUsagePercent()).isEqualTo(50.0);
+    }
+
+    @Test
+    @DisplayName("Should publish heap and thread readings in every snapshot")
+    void shouldPublishHeapAndThreads() {
+        // Act
+        ResourceSamplerService sampler = new ResourceSamplerService(0.3, cgroupRoot, () -> 0.1);
+        ResourceSamplerService.ResourceSnapshot snapshot = sampler.getSnapshot();
+
+        // Assert
+        assertThat(snapshot.heapUsedPercent()).isBetween(0.0, 100.0);
+        assertThat(snapshot.heapAfterGcPercent()).isBetween(0.0, 100.0);
+        assertThat(snapshot.threadCount()).isPositive();
+        assertThat(snapshot.peakThreadCount()).isGreaterThanOrEqualTo(snapshot.threadCount());
+    }
+
+    @Test
+    @DisplayName("Should report -1 for container usage outside a limited cgroup")
+    void shouldReportMissingCgroup() {
+        // Act
+        ResourceSamplerService sampler = new ResourceSamplerService(0.3, cgroupRoot, () -> 0.1);
+        sampler.sample();
+
+        // Assert
+        assertThat(sampler.getSnapshot().containerCpuPercent()).isEqualTo(-1.0);
+        assertThat(sampler.getSnapshot().containerMemoryPercent()).isEqualTo(-1.0);
+    }
+
+    @Test
+    @DisplayName("Should read cgroup v2 memory and CPU usage against the quota")
+    void shouldReadCgroupV2() throws Exception {
+        // Arrange - limit 1 GiB, quota 2 core
+        Files.writeString(cgroupRoot.resolve("memory.current"), "268435456\n");
+        Files.writeString(cgroupRoot.resolve("memory.max"), "1073741824\n");
+        Files.writeString(cgroupRoot.resolve("cpu.max"), "200000 100000\n");
+        Files.writeString(cgroupRoot.resolve("cpu.stat"), "usage_usec 1000\nuser_usec 800\n");
+        ResourceSamplerService sampler = new ResourceSamplerService(0.3, cgroupRoot, () -> 0.1);
+
+        // Act - dùng rất nhiều CPU giữa hai mẫu
+        Files.writeString(cgroupRoot.resolve("cpu.stat"), "usage_usec 1000000000\n");
+        sampler.sample();
+
+        // Assert
+        ResourceSamplerService.ResourceSnapshot snapshot = sampler.getSnapshot();
+        assertThat(snapshot.containerMemoryPercent()).isEqualTo(25.0);
+        assertThat(snapshot.containerCpuPercent()).isGreaterThan(0.0);
+    }
+
+    @Test
+    @DisplayName("Should treat an unlimited cgroup v2 memory limit as unknown")
+    void shouldIgnoreUnlimitedMemory() throws Exception {
+        // Arrange
+        Files.writeString(cgroupRoot.resolve("memory.current"), "268435456\n");
+        Files.writeString(cgroupRoot.resolve("memory.max"), "max\n");
+
+        // Act
+        ResourceSamplerService sampler = new ResourceSamplerService(0.3, cgroupRoot, () -> 0.1);
+
+        // Assert
+        assertThat(sampler.getSnapshot().containerMemoryPercent()).isEqualTo(-1.0);
+    }
+
+    @Test
+    @DisplayName("Should notify listeners with each new snapshot")
+    void shouldNotifyListeners() {
+        // Arrange
+        ResourceSamplerService sampler = new ResourceSamplerService(0.3, cgroupRoot, () -> 0.1);
+        List<ResourceSamplerService.ResourceSnapshot> received = new ArrayList<>();
+        sampler.addListener(received::add);
+
+        // Act
+        sampler.sample();
+
+        // Assert
+        assertThat(received).containsExactly(sampler.getSnapshot());
+    }
+}
@@ -0,0 +1,137 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+@DisplayName("ServerAutopilotService Unit Tests")
+class ServerAutopilotServiceTest {
+
+    private static final ServerAutopilotService.LoadSample IDLE =
+            new ServerAutopilotService.LoadSample(10, 0.2, 0, 100);
+    private static final ServerAutopilotService.LoadSample MODERATE =
+            new ServerAutopilotService.LoadSample(80, 0.2, 0, 100);
+    private static final ServerAutopilotService.LoadSample SATURATED =
+            new ServerAutopilotService.LoadSample(95, 0.2, 100, 100);
+
+    private ServerStateService serverStateService;
+    private ServerAutopilotService autopilot;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        serverStateService = new ServerStateService();
+        autopilot = new ServerAutopilotService(serverStateService, mock(MetricsService.class),
+                mock(HeapAdmissionService.class), true,
+                90, 70, 0.85, 0.7, 64, 16, 5000, 2000, 1000, 500);
+        start = System.currentTimeMillis();
+    }
+
+    @Test
+    @DisplayName("Should close the server when a high-water mark is crossed and record why")
+    void shouldCloseOnHighWaterMark() {
+        // Act
+        autopilot.evaluate(SATURATED, start + 1000);
+
+        // Assert
+        assertThat(serverStateService.isServerOpen()).isFalse();
+        assertThat(serverStateService.getStatus().getReason())
+                .startsWith("Autopilot: high load")
+                .contains("cpu 95.0% > 90.0%")
+                .contains("queue 100 > 64");
+    }
+
+    @Test
+    @DisplayName("Should not close before the minimum open dwell time")
+    void shouldRespectMinimumOpenTime() {
+        // Act
+        autopilot.evaluate(SATURATED, start + 10);
+
+        // Assert
+        assertThat(serverStateService.isServerOpen()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should only reopen below the low-water marks after the minimum closed time")
+    void shouldReopenWithHysteresis() {
+        // Arrange
+        autopilot.evaluate(SATURATED, start + 1000);
+
+        // Act & Assert - load between the marks keeps the server closed
+        autopilot.evaluate(MODERATE, start + 2000);
+        assertThat(serverStateService.isServerOpen()).isFalse();
+
+        // Idle load but closed dwell time not reached yet
+        autopilot.evaluate(IDLE, start + 1200);
+        assertThat(serverStateService.isServerOpen()).isFalse();
+
+        autopilot.evaluate(IDLE, start + 2000);
+        assertThat(serverStateService.isServerOpen()).isTrue();
+        assertThat(serverStateService.getStatus().getReason()).startsWith("Autopilot: load recovered");
+    }
+
+    @Test
+    @DisplayName("Should not reopen a server that was closed manually")
+    void shouldNotReopenManualClose() {
+        // Arrange
+        serverStateService.closeServer("Maintenance");
+
+        // Act
+        autopilot.evaluate(IDLE, start + 1000);
+        autopilot.evaluate(IDLE, start + 60000);
+
+        // Assert
+        assertThat(serverStateService.isServerOpen()).isFalse();
+        assertThat(serverStateService.getStatus().getReason()).isEqualTo("Maintenance");
+    }
+
+    @Test
+    @DisplayName("Should not overwrite a drain that lands between reading and closing")
+    void shouldNotCloseOverConcurrentDrain() {
+        // Arrange - drain xảy ra ngay sau khi autopilot đọc state
+        ServerStateService racingState = spy(new ServerStateService());
+        ServerAutopilotService racingAutopilot = new ServerAutopilotService(racingState, mock(MetricsService.class),
+                mock(HeapAdmissionService.class), true,
+                90, 70, 0.85, 0.7, 64, 16, 5000, 2000, 1000, 500);
+        doAnswer(invocation -> {
+            Object open = invocation.callRealMethod();
+            racingState.startDraining("Deploy");
+            return open;
+        }).when(racingState).isServerOpen();
+
+        // Act
+        racingAutopilot.evaluate(SATURATED, start + 1000);
+
+        // Assert
+        assertThat(racingState.isDraining()).isTrue();
+        assertThat(racingState.getSnapshot().reason()).isEqualTo("Deploy");
+    }
+
+    @Test
+    @DisplayName("Should not reopen a server that started draining between reading and opening")
+    void shouldNotReopenOverConcurrentDrain() {
+        // Arrange
+        ServerStateService racingState = spy(new ServerStateService());
+        ServerAutopilotService racingAutopilot = new ServerAutopilotService(racingState, mock(MetricsService.class),
+                mock(HeapAdmissionService.class), true,
+                90, 70, 0.85, 0.7, 64, 16, 5000, 2000, 1000, 500);
+        racingAutopilot.evaluate(SATURATED, start + 1000);
+        doAnswer(invocation -> {
+            Object open = invocation.callRealMethod();
+            racingState.startDraining("Deploy");
+            return open;
+        }).when(racingState).isServerOpen();
+
+        // Act
+        racingAutopilot.evaluate(IDLE, start + 2000);
+
+        // Assert
+        assertThat(racingState.isDraining()).isTrue();
+        assertThat(racingState.isServerOpen()).isFalse();
+    }
+}
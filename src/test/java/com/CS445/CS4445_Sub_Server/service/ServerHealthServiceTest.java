@@ -0,0 +1,112 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.ServerHealthResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ServerHealthService Unit Tests")
+class ServerHealthServiceTest {
+
+    @TempDir
+    Path cgroupRoot;
+
+    private ObjectMapper objectMapper;
+    private ServerStateService serverStateService;
+    private MetricsService metricsService;
+    private ResourceSamplerService resourceSamplerService;
+    private ConnectorPoolService connectorPoolService;
+    private ServerHealthService serverHealthService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        serverStateService = new ServerStateService();
+        metricsService = mock(MetricsService.class);
+        CapacityScoreService capacityScoreService = mock(CapacityScoreService.class);
+        when(capacityScoreService.evaluate(any(LatencyWindowService.LatencyStats.class)))
+                .thenReturn(new CapacityScoreService.CapacityScore(80.0, 80, 0, 1.0, 0.0, 0.0));
+        resourceSamplerService = new ResourceSamplerService(0.3, cgroupRoot, () -> 0.5);
+        connectorPoolService = new ConnectorPoolService(metricsService, 60, 12);
+
+        serverHealthService = new ServerHealthService(metricsService, serverStateService, capacityScoreService,
+                new LatencyWindowService(60, 12, 0.1), resourceSamplerService, connectorPoolService,
+                objectMapper);
+    }
+
+    @Test
+    @DisplayName("Should serve the pre-encoded snapshot built from the sampled resources")
+    void shouldEncodeSampledResources() throws Exception {
+        // Act
+        ServerHealthResponse health = objectMapper.readValue(serverHealthService.getEncodedHealth(),
+                ServerHealthResponse.class);
+
+        // Assert
+        assertThat(health.getCpuUsagePercent()).isEqualTo(50.0);
+        assertThat(health.getCapacityScore()).isEqualTo(80.0);
+        assertThat(health.getThreadCount()).isPositive();
+        // memoryUsagePercent giữ nghĩa heap đang dùng cho Load-Balancer
+        assertThat(health.getMemoryUsagePercent()).isEqualTo(resourceSamplerService.getSnapshot().heapUsedPercent());
+        assertThat(health.getHeapAfterGcPercent())
+                .isEqualTo(resourceSamplerService.getSnapshot().heapAfterGcPercent());
+        assertThat(health.getSampledAtMillis()).isEqualTo(resourceSamplerService.getSnapshot().sampledAtMillis());
+        assertThat(serverHealthService.getEncodedHealth()).isSameAs(serverHealthService.getEncodedHealth());
+    }
+
+    @Test
+    @DisplayName("Should re-encode the snapshot immediately when the server state changes")
+    void shouldRefreshOnStateChange() throws Exception {
+        // Arrange
+        serverStateService.openServer("test");
+        boolean openBefore = objectMapper.readValue(serverHealthService.getEncodedHealth(),
+                ServerHealthResponse.class).isOpen();
+
+        // Act
+        serverStateService.closeServer("test");
+
+        // Assert
+        ServerHealthResponse health = objectMapper.readValue(serverHealthService.getEncodedHealth(),
+                ServerHealthResponse.class);
+        assertThat(openBefore).isTrue();
+        assertThat(health.isOpen()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should pick up new counters on the next resource sample")
+    void shouldRefreshOnResourceSample() throws Exception {
+        // Arrange
+        when(metricsService.getCurrentConnections()).thenReturn(7);
+
+        // Act
+        resourceSamplerService.sample();
+
+        // Assert
+        assertThat(serverHealthService.getLatestHealth().getCurrConnections()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Should report connector pool saturation and the dispatch wait / service time split")
+    void shouldReportConnectorPool() {
+        // Arrange
+        connectorPoolService.recordDispatchWait(TimeUnit.MILLISECONDS.toNanos(5));
+        connectorPoolService.recordServiceTime(TimeUnit.MILLISECONDS.toNanos(120));
+
+        // Act
+        ServerHealthResponse health = serverHealthService.getHealth();
+
+        // Assert - không có connector Tomcat nào được gắn trong unit test
+        assertThat(health.getConnectorMaxThreads()).isEqualTo(-1);
+        assertThat(health.getDispatchWaitMeanMs()).isEqualTo(5.0);
+        assertThat(health.getServiceTimeMeanMs()).isEqualTo(120.0);
+    }
+}
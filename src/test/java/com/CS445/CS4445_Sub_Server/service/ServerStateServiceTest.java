@@ -4,6 +4,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DisplayName("ServerStateService Unit Tests")
@@ -235,4 +244,188 @@ class ServerStateServiceTest {
         assertThat(status.getReason()).isEqualTo(longReason);
         assertThat(status.getReason().length()).isEqualTo(1000);
     }
+
+    @Test
+    @DisplayName("Should stop accepting packets while draining")
+    void shouldStopAcceptingPacketsWhileDraining() {
+        // Act
+        serverStateService.startDraining("Deploy");
+
+        // Assert
+        assertThat(serverStateService.isServerOpen()).isFalse();
+        assertThat(serverStateService.isDraining()).isTrue();
+
+        ServerStateService.ServerStatus status = serverStateService.getStatus();
+        assertThat(status.isOpen()).isFalse();
+        assertThat(status.getStatus()).isEqualTo("DRAINING");
+        assertThat(status.getReason()).isEqualTo("Deploy");
+    }
+
+    @Test
+    @DisplayName("Should wait for in-flight packets before reporting idle")
+    void shouldAwaitInFlightPacketsWhenDraining() throws Exception {
+        // Arrange
+        serverStateService.packetStarted();
+        serverStateService.startDraining("Deploy");
+
+        // Act & Assert - still busy
+        assertThat(serverStateService.awaitIdle(20)).isFalse();
+        assertThat(serverStateService.getStatus().getInFlightPackets()).isEqualTo(1);
+
+        Thread finisher = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            serverStateService.packetFinished();
+        });
+        finisher.start();
+
+        assertThat(serverStateService.awaitIdle(5000)).isTrue();
+        assertThat(serverStateService.getInFlightPackets()).isZero();
+        finisher.join();
+    }
+
+    @Test
+    @DisplayName("Should reopen a draining server")
+    void shouldReopenDrainingServer() {
+        // Arrange
+        serverStateService.startDraining(null);
+        assertThat(serverStateService.getStatus().getReason()).isEqualTo("Server draining");
+
+        // Act
+        serverStateService.openServer("Deploy aborted");
+
+        // Assert
+        assertThat(serverStateService.isServerOpen()).isTrue();
+        assertThat(serverStateService.isDraining()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should only close or open conditionally from the expected state")
+    void shouldTransitionConditionally() {
+        // Arrange
+        serverStateService.startDraining("Deploy");
+
+        // Act & Assert - DRAINING không bị ghi đè
+        assertThat(serverStateService.closeIfOpen("Autopilot")).isFalse();
+        assertThat(serverStateService.openIfClosed("Autopilot")).isFalse();
+        assertThat(serverStateService.isDraining()).isTrue();
+
+        serverStateService.openServer("Deploy aborted");
+        assertThat(serverStateService.closeIfOpen("Autopilot")).isTrue();
+        assertThat(serverStateService.getStatus().getStatus()).isEqualTo("CLOSED");
+        assertThat(serverStateService.openIfClosed("Autopilot")).isTrue();
+        assertThat(serverStateService.isServerOpen()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep a bounded history of transitions, oldest first")
+    void shouldKeepBoundedTransitionHistory() {
+        // Arrange
+        ServerStateService boundedService = new ServerStateService(3);
+
+        // Act
+        boundedService.closeServer("Close 1");
+        boundedService.openServer("Open 1");
+        boundedService.closeServer("Close 2");
+        boundedService.startDraining("Drain");
+
+        // Assert
+        List<ServerStateService.StateTransition> history = boundedService.getHistory();
+        assertThat(history).extracting(ServerStateService.StateTransition::reason)
+                .containsExactly("Open 1", "Close 2", "Drain");
+        assertThat(history.get(2).from()).isEqualTo(ServerStateService.State.CLOSED);
+        assertThat(history.get(2).to()).isEqualTo(ServerStateService.State.DRAINING);
+        assertThat(history.get(2).version()).isEqualTo(4);
+        assertThat(boundedService.getSnapshot().version()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should notify listeners only on actual transitions")
+    void shouldNotifyListenersOnTransitions() throws Exception {
+        // Arrange
+        List<ServerStateService.StateTransition> received = new CopyOnWriteArrayList<>();
+        serverStateService.addListener(received::add);
+
+        // Act
+        serverStateService.closeServer("Close");
+        serverStateService.closeServer("Close again");
+        serverStateService.openServer("Open");
+        awaitDispatched(serverStateService);
+
+        // Assert
+        assertThat(received).extracting(ServerStateService.StateTransition::to)
+                .containsExactly(ServerStateService.State.CLOSED, ServerStateService.State.OPEN);
+    }
+
+    @Test
+    @DisplayName("Should deliver transitions in version order off the calling thread")
+    void shouldDeliverTransitionsInVersionOrder() throws Exception {
+        // Arrange
+        List<Long> versions = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        serverStateService.addListener(transition -> {
+            versions.add(transition.version());
+            threads.add(Thread.currentThread().getName());
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+
+        // Act - nhiều thread cùng đổi state
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            callers.execute(() -> {
+                if (n % 2 == 0) {
+                    serverStateService.closeServer("Close " + n);
+                } else {
+                    serverStateService.openServer("Open " + n);
+                }
+            });
+        }
+        callers.shutdown();
+        assertThat(callers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        awaitDispatched(serverStateService);
+
+        // Assert
+        assertThat(versions).isSorted();
+        assertThat(versions).doesNotHaveDuplicates();
+        assertThat(versions).hasSize((int) serverStateService.getSnapshot().version());
+        assertThat(threads).containsOnly("server-state-events");
+    }
+
+    @Test
+    @DisplayName("Should never expose a status whose reason does not match its state")
+    void shouldExposeConsistentSnapshots() throws Exception {
+        // Arrange
+        AtomicBoolean mismatch = new AtomicBoolean(false);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                ServerStateService.ServerStatus status = serverStateService.getStatus();
+                if (!status.getReason().startsWith(status.getStatus())) {
+                    mismatch.set(true);
+                }
+            }
+        });
+        serverStateService.closeServer("CLOSED initially");
+        reader.start();
+
+        // Act
+        for (int i = 0; i < 2000; i++) {
+            serverStateService.openServer("OPEN " + i);
+            serverStateService.closeServer("CLOSED " + i);
+        }
+        running.set(false);
+        reader.join();
+
+        // Assert
+        assertThat(mismatch).isFalse();
+    }
+
+    private static void awaitDispatched(ServerStateService service) throws InterruptedException {
+        CountDownLatch dispatched = new CountDownLatch(1);
+        service.dispatch(dispatched::countDown);
+        assertThat(dispatched.await(5, TimeUnit.SECONDS)).isTrue();
+    }
 }
@@ -0,0 +1,165 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.dto.PacketContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SlowRequestService Unit Tests")
+class SlowRequestServiceTest {
+
+    private AtomicLong nowMillis;
+    private SlowRequestService slowRequests;
+
+    @BeforeEach
+    void setUp() {
+        nowMillis = new AtomicLong(1_000_000L);
+        // Top 3, cửa sổ 60s
+        slowRequests = new SlowRequestService(3, 60, 16, nowMillis::get);
+    }
+
+    @Test
+    @DisplayName("Should keep only the N slowest packets, slowest first")
+    void shouldKeepSlowestPackets() {
+        // Act
+        for (int ms = 1; ms <= 20; ms++) {
+            record("packet-" + ms, ms);
+        }
+
+        // Assert
+        assertThat(slowRequests.snapshot().current().packets())
+                .extracting(SlowRequestService.SlowPacket::packetId)
+                .containsExactly("packet-20", "packet-19", "packet-18");
+    }
+
+    @Test
+    @DisplayName("Should store request parameters, queue wait, phases and thread of a slow packet")
+    void shouldStorePacketBreakdown() {
+        // Arrange
+        long startNanos = System.nanoTime();
+        PhaseTimings timings = new PhaseTimings("packet-slow", 7, 3);
+        timings.lap(PhaseTimings.Phase.PRIMES);
+        FakePacketRequest request = FakePacketRequest.builder()
+                .packetId("packet-slow")
+                .cpuIntensity(7)
+                .ramIntensity(3)
+                .processingTimeMs(500)
+                .build();
+        FakePacketResponse response = FakePacketResponse.builder()
+                .packetId("packet-slow")
+                .status("SUCCESS")
+                .phaseTimings(timings)
+                .build();
+
+        // Act
+        slowRequests.record(request, PacketContext.builder().tenantId("tenant-a").build(), response,
+                startNanos, TimeUnit.MILLISECONDS.toNanos(750));
+
+        // Assert
+        SlowRequestService.SlowPacket packet = slowRequests.snapshot().current().packets().get(0);
+        assertThat(packet.cpuIntensity()).isEqualTo(7);
+        assertThat(packet.ramIntensity()).isEqualTo(3);
+        assertThat(packet.processingTimeMs()).isEqualTo(500);
+        assertThat(packet.tenantId()).isEqualTo("tenant-a");
+        assertThat(packet.latencyMs()).isEqualTo(750.0);
+        assertThat(packet.queueWaitMs()).isGreaterThanOrEqualTo(0.0);
+        assertThat(packet.phaseTimingsMs()).containsOnlyKeys("primes");
+        assertThat(packet.thread()).isEqualTo(Thread.currentThread().getName());
+        assertThat(packet.finishedAtMillis() - packet.startedAtMillis()).isEqualTo(750);
+    }
+
+    @Test
+    @DisplayName("Should attach GC pauses that overlap a slow packet")
+    void shouldAttachOverlappingGcPauses() {
+        // Arrange - packet chạy trong [now - 100ms, now]
+        record("packet-gc", 100);
+        long now = nowMillis.get();
+        slowRequests.recordGcPause(new SlowRequestService.GcPause("G1 Young Generation", "end of minor GC",
+                "G1 Evacuation Pause", now - 50, 20));
+        slowRequests.recordGcPause(new SlowRequestService.GcPause("G1 Young Generation", "end of minor GC",
+                "G1 Evacuation Pause", now - 500, 20));
+
+        // Act
+        SlowRequestService.SlowPacket packet = slowRequests.snapshot().current().packets().get(0);
+
+        // Assert
+        assertThat(packet.gcPauses()).singleElement()
+                .satisfies(pause -> assertThat(pause.startedAtMillis()).isEqualTo(now - 50));
+    }
+
+    @Test
+    @DisplayName("Should move packets to the previous window when the window rotates")
+    void shouldRotateWindows() {
+        // Arrange
+        record("packet-old", 10);
+
+        // Act
+        nowMillis.addAndGet(60_000);
+        record("packet-new", 5);
+        SlowRequestService.SlowRequests snapshot = slowRequests.snapshot();
+
+        // Assert
+        assertThat(snapshot.current().packets()).extracting(SlowRequestService.SlowPacket::packetId)
+                .containsExactly("packet-new");
+        assertThat(snapshot.previous().packets()).extracting(SlowRequestService.SlowPacket::packetId)
+                .containsExactly("packet-old");
+
+        // Hai cửa sổ sau, cửa sổ có packet-old không còn liền trước
+        nowMillis.addAndGet(120_000);
+        assertThat(slowRequests.snapshot().previous()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should keep exactly the N slowest packets under concurrent records")
+    void shouldKeepSlowestUnderConcurrency() throws Exception {
+        // Arrange
+        int threads = 8;
+        int recordsPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Act - latency duy nhất cho mỗi packet
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < recordsPerThread; i++) {
+                    long micros = (long) i * threads + thread;
+                    recordMicros("packet-" + micros, micros);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        long max = (long) threads * recordsPerThread - 1;
+        assertThat(slowRequests.snapshot().current().packets())
+                .extracting(SlowRequestService.SlowPacket::packetId)
+                .containsExactly("packet-" + max, "packet-" + (max - 1), "packet-" + (max - 2));
+    }
+
+    private void record(String packetId, long latencyMs) {
+        recordMicros(packetId, TimeUnit.MILLISECONDS.toMicros(latencyMs));
+    }
+
+    private void recordMicros(String packetId, long latencyMicros) {
+        FakePacketRequest request = FakePacketRequest.builder().packetId(packetId).build();
+        FakePacketResponse response = FakePacketResponse.builder().packetId(packetId).status("SUCCESS").build();
+        slowRequests.record(request, PacketContext.empty(), response, System.nanoTime(),
+                TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+    }
+}
@@ -0,0 +1,101 @@
+package com.CS445.CS4445_Sub_Server.service;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("WarmupService Unit Tests")
+class WarmupServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private FakePacketService fakePacketService;
+    private ServerStateService serverStateService;
+    private CostModelService costModelService;
+
+    @BeforeEach
+    void setUp() {
+        fakePacketService = mock(FakePacketService.class);
+        when(fakePacketService.processWarmupPacket(any(FakePacketRequest.class))).thenReturn(
+                FakePacketResponse.builder().packetId("warmup").status("SUCCESS").timestamp(LocalDateTime.now()).build());
+        serverStateService = new ServerStateService();
+        costModelService = mock(CostModelService.class);
+    }
+
+    @Test
+    @DisplayName("Should hold the server in WARMING until warmup completes")
+    void shouldWarmUpBeforeOpening() {
+        // Arrange
+        WarmupService warmupService = newService(5, 50);
+        assertThat(serverStateService.isWarming()).isTrue();
+        assertThat(serverStateService.isServerOpen()).isFalse();
+
+        // Act
+        warmupService.runWarmup();
+
+        // Assert
+        assertThat(serverStateService.isServerOpen()).isTrue();
+        assertThat(serverStateService.getStatus().getReason()).startsWith("Warmup complete");
+        assertThat(warmupService.getCompletedIterations()).isBetween(5, 50);
+        verify(fakePacketService, atLeast(15)).processWarmupPacket(any(FakePacketRequest.class));
+        verify(costModelService).calibrate();
+    }
+
+    @Test
+    @DisplayName("Should stop after the configured number of iterations")
+    void shouldStopAtMaxIterations() {
+        // Arrange - min equals max so the stability check never ends the loop early
+        WarmupService warmupService = newService(7, 7);
+
+        // Act
+        warmupService.runWarmup();
+
+        // Assert
+        assertThat(warmupService.getCompletedIterations()).isEqualTo(7);
+        assertThat(warmupService.getWarmupDurationMs()).isGreaterThanOrEqualTo(0);
+        assertThat(serverStateService.isServerOpen()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should not open a server that was closed during warmup")
+    void shouldNotOpenServerClosedDuringWarmup() {
+        // Arrange
+        WarmupService warmupService = newService(5, 5);
+        serverStateService.closeServer("Maintenance");
+
+        // Act
+        warmupService.runWarmup();
+
+        // Assert
+        assertThat(serverStateService.isServerOpen()).isFalse();
+        assertThat(serverStateService.getStatus().getReason()).isEqualTo("Maintenance");
+    }
+
+    @Test
+    @DisplayName("Should leave the server open when warmup is disabled")
+    void shouldSkipWarmupWhenDisabled() {
+        // Act
+        new WarmupService(fakePacketService, serverStateService, costModelService,
+                mock(MetricsService.class), objectMapper, false, 5, 5, 5, 0.15, 1000);
+
+        // Assert
+        assertThat(serverStateService.isServerOpen()).isTrue();
+    }
+
+    private WarmupService newService(int minIterations, int maxIterations) {
+        return new WarmupService(fakePacketService, serverStateService, costModelService,
+                mock(MetricsService.class), objectMapper, true, minIterations, maxIterations, 5, 0.15, 10000);
+    }
+}
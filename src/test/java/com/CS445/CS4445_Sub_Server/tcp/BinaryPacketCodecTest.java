@@ -0,0 +1,82 @@
+package com.CS445.CS4445_Sub_Server.tcp;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("BinaryPacketCodec Unit Tests")
+class BinaryPacketCodecTest {
+
+    @Test
+    @DisplayName("Should round-trip a request including null fields")
+    void shouldRoundTripRequest() {
+        // Arrange
+        FakePacketRequest request = FakePacketRequest.builder()
+                .packetId("packet-ü-1")
+                .cpuIntensity(7)
+                .ramIntensity(null)
+                .processingTimeMs(250)
+                .payload(null)
+                .build();
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        // Act
+        BinaryPacketCodec.encodeRequest(42L, request, buffer);
+        buffer.flip();
+        int length = BinaryPacketCodec.peekFrameLength(buffer);
+        buffer.getInt();
+        long requestId = buffer.getLong();
+        FakePacketRequest decoded = BinaryPacketCodec.decodeRequest(buffer);
+
+        // Assert
+        assertThat(length).isEqualTo(buffer.limit() - BinaryPacketCodec.LENGTH_FIELD_BYTES);
+        assertThat(requestId).isEqualTo(42L);
+        assertThat(decoded).isEqualTo(request);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should round-trip a response with its HTTP status")
+    void shouldRoundTripResponse() {
+        // Arrange
+        FakePacketResponse response = FakePacketResponse.builder()
+                .packetId("packet-2")
+                .status("SUCCESS")
+                .processingTimeMs(12L)
+                .cpuCycles(1_000_000L)
+                .memoryUsedBytes(null)
+                .result("done")
+                .timestamp(LocalDateTime.of(2025, 12, 21, 10, 30, 15, 123_000_000))
+                .offloadedTo("http://sub-server-2:8080")
+                .build();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(512);
+
+        // Act
+        BinaryPacketCodec.encodeResponse(7L, 200, response, buffer);
+        buffer.flip();
+        buffer.getInt();
+        long requestId = buffer.getLong();
+        BinaryPacketCodec.DecodedResponse decoded = BinaryPacketCodec.decodeResponse(buffer);
+
+        // Assert
+        assertThat(requestId).isEqualTo(7L);
+        assertThat(decoded.httpStatus()).isEqualTo(200);
+        assertThat(decoded.response()).isEqualTo(response);
+    }
+
+    @Test
+    @DisplayName("Should report an incomplete length prefix")
+    void shouldWaitForLengthPrefix() {
+        // Arrange
+        ByteBuffer buffer = ByteBuffer.allocate(2);
+
+        // Act & Assert
+        assertThat(BinaryPacketCodec.peekFrameLength(buffer)).isEqualTo(-1);
+    }
+}
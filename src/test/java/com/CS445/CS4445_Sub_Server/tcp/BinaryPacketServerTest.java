@@ -0,0 +1,206 @@
+package com.CS445.CS4445_Sub_Server.tcp;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.CS445.CS4445_Sub_Server.service.MetricsService;
+import com.CS445.CS4445_Sub_Server.service.PacketExecutionService;
+import com.CS445.CS4445_Sub_Server.service.RateLimiterService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("BinaryPacketServer Unit Tests")
+class BinaryPacketServerTest {
+
+    private static final int MAX_FRAME_BYTES = 4096;
+
+    private PacketExecutionService packetExecutionService;
+    private RateLimiterService rateLimiterService;
+    private BinaryPacketServer server;
+    private BinaryPacketClient client;
+
+    @BeforeEach
+    void setUp() {
+        packetExecutionService = mock(PacketExecutionService.class);
+        rateLimiterService = mock(RateLimiterService.class);
+        when(rateLimiterService.tryAcquire(anyString())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should multiplex packets on one connection and answer by request id")
+    void shouldMultiplexPacketsOnOneConnection() throws Exception {
+        // Arrange - the slow packet is held until the fast one has been answered
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        when(packetExecutionService.execute(any(FakePacketRequest.class))).thenAnswer(invocation -> {
+            FakePacketRequest request = invocation.getArgument(0);
+            if (request.getPacketId().equals("slow")) {
+                releaseSlow.await(5, TimeUnit.SECONDS);
+            }
+            return new PacketExecutionService.PacketOutcome(HttpStatus.OK, FakePacketResponse.builder()
+                    .packetId(request.getPacketId())
+                    .status("SUCCESS")
+                    .processingTimeMs(1L)
+                    .build());
+        });
+        startServer(true);
+
+        // Act
+        CompletableFuture<BinaryPacketCodec.DecodedResponse> slow = client.send(packet("slow"));
+        CompletableFuture<BinaryPacketCodec.DecodedResponse> fast = client.send(packet("fast"));
+        BinaryPacketCodec.DecodedResponse fastResponse = fast.get(5, TimeUnit.SECONDS);
+        boolean slowDoneBeforeRelease = slow.isDone();
+        releaseSlow.countDown();
+        BinaryPacketCodec.DecodedResponse slowResponse = slow.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(slowDoneBeforeRelease).isFalse();
+        assertThat(fastResponse.httpStatus()).isEqualTo(200);
+        assertThat(fastResponse.response().getPacketId()).isEqualTo("fast");
+        assertThat(slowResponse.response().getPacketId()).isEqualTo("slow");
+        assertThat(slowResponse.response().getStatus()).isEqualTo("SUCCESS");
+        assertThat(client.getPendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should carry the pipeline HTTP status in the response frame")
+    void shouldReturnRejectedStatus() throws Exception {
+        // Arrange
+        when(packetExecutionService.execute(any(FakePacketRequest.class))).thenReturn(
+                new PacketExecutionService.PacketOutcome(HttpStatus.SERVICE_UNAVAILABLE, FakePacketResponse.builder()
+                        .packetId("closed-1")
+                        .status("REJECTED")
+                        .result("Server is currently closed")
+                        .build()));
+        startServer(true);
+
+        // Act
+        BinaryPacketCodec.DecodedResponse response = client.send(packet("closed-1")).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(response.httpStatus()).isEqualTo(503);
+        assertThat(response.response().getStatus()).isEqualTo("REJECTED");
+        assertThat(response.response().getResult()).isEqualTo("Server is currently closed");
+    }
+
+    @Test
+    @DisplayName("Should reject rate-limited packets without running them")
+    void shouldApplyRateLimit() throws Exception {
+        // Arrange
+        when(rateLimiterService.tryAcquire(anyString())).thenReturn(false);
+        startServer(true);
+
+        // Act
+        BinaryPacketCodec.DecodedResponse response = client.send(packet("limited")).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(response.httpStatus()).isEqualTo(429);
+        assertThat(response.response().getStatus()).isEqualTo("REJECTED");
+        verify(packetExecutionService, never()).execute(any(FakePacketRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should never run more than max-in-flight packets per connection, even for buffered frames")
+    void shouldCapInFlightPacketsPerConnection() throws Exception {
+        // Arrange
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxObserved = new AtomicInteger();
+        when(packetExecutionService.execute(any(FakePacketRequest.class))).thenAnswer(invocation -> {
+            maxObserved.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            FakePacketRequest request = invocation.getArgument(0);
+            return new PacketExecutionService.PacketOutcome(HttpStatus.OK, FakePacketResponse.builder()
+                    .packetId(request.getPacketId())
+                    .status("SUCCESS")
+                    .build());
+        });
+        server = new BinaryPacketServer(packetExecutionService, rateLimiterService, mock(MetricsService.class),
+                true, "localhost", 0, 4, MAX_FRAME_BYTES, 2, 16, true);
+        server.start();
+        client = BinaryPacketClient.connect("localhost", server.getLocalPort(), MAX_FRAME_BYTES);
+
+        // Act - nhiều frame tới cùng lúc, nằm chung trong buffer đọc
+        List<CompletableFuture<BinaryPacketCodec.DecodedResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            responses.add(client.send(packet("p-" + i)));
+        }
+        for (CompletableFuture<BinaryPacketCodec.DecodedResponse> response : responses) {
+            response.get(5, TimeUnit.SECONDS);
+        }
+
+        // Assert
+        assertThat(maxObserved.get()).isLessThanOrEqualTo(2);
+        verify(packetExecutionService, times(10)).execute(any(FakePacketRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should close a connection that sends an oversized frame")
+    void shouldCloseConnectionOnInvalidFrame() throws Exception {
+        // Arrange
+        startServer(false);
+
+        try (SocketChannel raw = SocketChannel.open(new InetSocketAddress("localhost", server.getLocalPort()))) {
+            ByteBuffer frame = ByteBuffer.allocate(12);
+            frame.putInt(MAX_FRAME_BYTES + 1).putLong(1L).flip();
+
+            // Act
+            raw.write(frame);
+            int read = raw.read(ByteBuffer.allocate(16));
+
+            // Assert
+            assertThat(read).isEqualTo(-1);
+        }
+        assertThat(server.getProtocolErrors()).isEqualTo(1);
+        verify(packetExecutionService, never()).execute(any(FakePacketRequest.class));
+    }
+
+    private void startServer(boolean connectClient) throws IOException {
+        server = new BinaryPacketServer(packetExecutionService, rateLimiterService, mock(MetricsService.class),
+                true, "localhost", 0, 4, MAX_FRAME_BYTES, 8, 16, true);
+        server.start();
+        if (connectClient) {
+            client = BinaryPacketClient.connect("localhost", server.getLocalPort(), MAX_FRAME_BYTES);
+        }
+    }
+
+    private static FakePacketRequest packet(String packetId) {
+        return FakePacketRequest.builder()
+                .packetId(packetId)
+                .cpuIntensity(1)
+                .ramIntensity(1)
+                .processingTimeMs(0)
+                .build();
+    }
+}
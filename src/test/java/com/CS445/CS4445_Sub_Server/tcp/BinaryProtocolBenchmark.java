@@ -0,0 +1,172 @@
+package com.CS445.CS4445_Sub_Server.tcp;
+
+import com.CS445.CS4445_Sub_Server.dto.FakePacketRequest;
+import com.CS445.CS4445_Sub_Server.dto.FakePacketResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh throughput và overhead mỗi packet giữa POST /api/v1/fakePacket (JSON) và listener TCP nhị phân
+ * Không phải unit test (surefire chỉ chạy *Test / *Tests), chạy tay với một server đang chạy:
+ *
+ *   java -cp target/test-classes:target/classes:<dependency classpath> \
+ *       com.CS445.CS4445_Sub_Server.tcp.BinaryProtocolBenchmark localhost 8080 9090 20000 16
+ *
+ * Server cần app.tcp.enabled=true và app.rate-limit.enabled=false (nếu không benchmark chỉ đo 429).
+ * Packet dùng cpuIntensity = ramIntensity = 1, processingTimeMs = 0 và packetId khác nhau để không
+ * trúng result cache, nên phần lớn thời gian là chi phí giao thức.
+ * Overhead = latency phía client trừ processingTimeMs server báo về.
+ */
+public class BinaryProtocolBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int httpPort = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int tcpPort = args.length > 2 ? Integer.parseInt(args[2]) : 9090;
+        int packets = args.length > 3 ? Integer.parseInt(args[3]) : 20000;
+        int concurrency = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+        int warmupPackets = Math.max(1000, packets / 10);
+
+        System.out.printf("Benchmark: %d packets, concurrency %d, %d warmup packets per protocol%n",
+                packets, concurrency, warmupPackets);
+
+        runJson(host, httpPort, "warmup", warmupPackets, concurrency);
+        Result json = runJson(host, httpPort, "json", packets, concurrency);
+        runBinary(host, tcpPort, "warmup", warmupPackets, concurrency);
+        Result binary = runBinary(host, tcpPort, "binary", packets, concurrency);
+
+        json.print("JSON /api/v1/fakePacket");
+        binary.print("Binary TCP");
+        System.out.printf("Binary/JSON throughput ratio: %.2fx%n", binary.throughput() / json.throughput());
+    }
+
+    /**
+     * concurrency thread, mỗi thread gửi tuần tự qua HttpClient (connection HTTP/1.1 keep-alive)
+     */
+    private static Result runJson(String host, int port, String prefix, int packets, int concurrency) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI uri = URI.create("http://" + host + ":" + port + "/api/v1/fakePacket");
+        ExecutorService threads = Executors.newFixedThreadPool(concurrency);
+        long[] latencies = new long[packets];
+        long[] overheads = new long[packets];
+        int[] errors = new int[1];
+
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < concurrency; t++) {
+            int thread = t;
+            futures.add(threads.submit(() -> {
+                for (int i = thread; i < packets; i += concurrency) {
+                    long sent = System.nanoTime();
+                    HttpRequest request = HttpRequest.newBuilder(uri)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(
+                                    OBJECT_MAPPER.writeValueAsBytes(packet(prefix, i))))
+                            .build();
+                    HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    FakePacketResponse body = OBJECT_MAPPER.readValue(response.body(), FakePacketResponse.class);
+                    record(latencies, overheads, errors, i, sent, response.statusCode(), body);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        threads.shutdown();
+        return new Result(packets, elapsed, latencies, overheads, errors[0]);
+    }
+
+    /**
+     * Một connection, tối đa concurrency packet đang chờ response (multiplex theo requestId)
+     */
+    private static Result runBinary(String host, int port, String prefix, int packets, int concurrency) throws Exception {
+        long[] latencies = new long[packets];
+        long[] overheads = new long[packets];
+        int[] errors = new int[1];
+        Semaphore window = new Semaphore(concurrency);
+
+        try (BinaryPacketClient client = BinaryPacketClient.connect(host, port, 65536)) {
+            long start = System.nanoTime();
+            List<CompletableFuture<?>> futures = new ArrayList<>(packets);
+            for (int i = 0; i < packets; i++) {
+                int index = i;
+                window.acquire();
+                long sent = System.nanoTime();
+                futures.add(client.send(packet(prefix, i)).whenComplete((response, error) -> {
+                    window.release();
+                    if (error != null) {
+                        synchronized (errors) {
+                            errors[0]++;
+                        }
+                        return;
+                    }
+                    record(latencies, overheads, errors, index, sent, response.httpStatus(), response.response());
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+            return new Result(packets, System.nanoTime() - start, latencies, overheads, errors[0]);
+        }
+    }
+
+    private static void record(long[] latencies, long[] overheads, int[] errors, int index, long sentNanos,
+                               int status, FakePacketResponse response) {
+        long latencyNanos = System.nanoTime() - sentNanos;
+        latencies[index] = latencyNanos;
+        long processingNanos = response.getProcessingTimeMs() != null
+                ? TimeUnit.MILLISECONDS.toNanos(response.getProcessingTimeMs()) : 0;
+        overheads[index] = Math.max(0, latencyNanos - processingNanos);
+        if (status != 200) {
+            synchronized (errors) {
+                errors[0]++;
+            }
+        }
+    }
+
+    private static FakePacketRequest packet(String prefix, int index) {
+        return FakePacketRequest.builder()
+                .packetId("bench-" + prefix + "-" + System.nanoTime() + "-" + index)
+                .cpuIntensity(1)
+                .ramIntensity(1)
+                .processingTimeMs(0)
+                .build();
+    }
+
+    private record Result(int packets, long elapsedNanos, long[] latencies, long[] overheads, int errors) {
+
+        double throughput() {
+            return packets / (elapsedNanos / 1e9);
+        }
+
+        void print(String name) {
+            long[] sortedLatencies = latencies.clone();
+            Arrays.sort(sortedLatencies);
+            double meanOverheadUs = Arrays.stream(overheads).average().orElse(0) / 1000.0;
+            System.out.printf("%-26s %10.0f packets/s  mean overhead %8.1f us  p50 %8.1f us  p99 %8.1f us  errors %d%n",
+                    name, throughput(), meanOverheadUs,
+                    percentile(sortedLatencies, 0.50) / 1000.0,
+                    percentile(sortedLatencies, 0.99) / 1000.0,
+                    errors);
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+        }
+    }
+}